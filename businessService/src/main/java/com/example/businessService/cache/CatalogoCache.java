@@ -0,0 +1,102 @@
+package com.example.businessService.cache;
+
+import com.example.businessService.client.BatchingDataServiceClient;
+import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.dto.CategoriaDTO;
+import com.example.businessService.dto.ProductoDTO;
+import com.example.businessService.exception.ProductoNoEncontradoException;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Caché en memoria de las lecturas del catálogo que el business-service pide al data-service.
+ * Usa Caffeine (desalojo W-TinyLFU acotado por tamaño) con un tiempo de vida y un refresco
+ * propios por entidad: una vez vencido el refresco, la primera lectura dispara la recarga en
+ * segundo plano y sigue recibiendo el valor anterior, de modo que ningún lector se bloquea
+ * esperando al data-service salvo en el primer acceso.
+ * Las estadísticas de aciertos, fallos y desalojos se publican en Micrometer (actuator /metrics)
+ * bajo los nombres "cache.gets", "cache.evictions", etc., con el tag cache=catalogo.*.
+ * Las excepciones de Feign del cargador se propagan sin envolver y no se cachean.
+ * Los refrescos se ejecutan en el executor de tareas de Spring, que usa hilos virtuales
+ * cuando spring.threads.virtual.enabled=true.
+ */
+@Component
+@Slf4j
+public class CatalogoCache {
+
+    private static final String TODOS = "todos"; // Clave única de las cachés que guardan listas completas
+
+    private final LoadingCache<String, List<ProductoDTO>> productos;
+    private final LoadingCache<Long, ProductoDTO> productoPorId;
+    private final LoadingCache<String, List<CategoriaDTO>> categorias;
+
+    public CatalogoCache(DataServiceClient dataServiceClient, BatchingDataServiceClient batchingDataServiceClient,
+                         CatalogoCacheProperties properties, MeterRegistry meterRegistry,
+                         @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor executorRefresco) {
+        this.productos = construir(properties.getProductos(), executorRefresco, clave -> dataServiceClient.obtenerTodosLosProductos());
+        // Los fallos de caché de productos sueltos se agrupan en lecturas por lote
+        this.productoPorId = construir(properties.getProducto(), executorRefresco, id -> batchingDataServiceClient.obtenerProductoPorId(id)
+                .orElseThrow(() -> new ProductoNoEncontradoException("Producto no encontrado con ID: " + id)));
+        this.categorias = construir(properties.getCategorias(), executorRefresco, clave -> dataServiceClient.obtenerTodasLasCategorias());
+
+        CaffeineCacheMetrics.monitor(meterRegistry, productos, "catalogo.productos");
+        CaffeineCacheMetrics.monitor(meterRegistry, productoPorId, "catalogo.producto");
+        CaffeineCacheMetrics.monitor(meterRegistry, categorias, "catalogo.categorias");
+    }
+
+    private static <K, V> LoadingCache<K, V> construir(CatalogoCacheProperties.Politica politica, Executor executor,
+                                                       CacheLoader<K, V> cargador) {
+        return Caffeine.newBuilder()
+                .executor(executor)
+                .maximumSize(politica.getMaximoEntradas())
+                .expireAfterWrite(politica.getTtl())
+                .refreshAfterWrite(politica.getRefresco())
+                .recordStats()
+                .build(cargador);
+    }
+
+    public List<ProductoDTO> obtenerTodosLosProductos() {
+        return productos.get(TODOS);
+    }
+
+    public ProductoDTO obtenerProductoPorId(Long id) {
+        return productoPorId.get(id);
+    }
+
+    public List<CategoriaDTO> obtenerTodasLasCategorias() {
+        return categorias.get(TODOS);
+    }
+
+    /**
+     * Descarta el listado de productos; se usa tras crear un producto.
+     */
+    public void invalidarProductos() {
+        productos.invalidateAll();
+    }
+
+    /**
+     * Descarta todo lo que incluye el stock de un producto: su detalle y el listado completo.
+     */
+    public void invalidarProducto(Long id) {
+        log.debug("Invalidando caché del producto ID {}", id);
+        productoPorId.invalidate(id);
+        productos.invalidateAll();
+    }
+
+    /**
+     * Descarta el listado de categorías; se usa tras crear una categoría.
+     */
+    public void invalidarCategorias() {
+        categorias.invalidateAll();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.businessService.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuración de las cachés de lectura del catálogo (prefijo "cache.catalogo").
+ * Cada entidad tiene su propio tamaño máximo, tiempo de vida y tiempo de refresco:
+ * pasado el refresco la entrada se recarga en segundo plano mientras se sigue sirviendo
+ * el valor anterior; pasado el tiempo de vida la entrada se descarta.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.catalogo")
+public class CatalogoCacheProperties {
+
+    private Politica productos = new Politica(1, Duration.ofSeconds(30), Duration.ofSeconds(10));
+    private Politica producto = new Politica(10_000, Duration.ofSeconds(30), Duration.ofSeconds(10));
+    private Politica categorias = new Politica(1, Duration.ofHours(1), Duration.ofMinutes(10));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Politica {
+        private long maximoEntradas;
+        private Duration ttl;
+        private Duration refresco; // Debe ser menor que el ttl para que llegue a refrescarse
+    }
+}
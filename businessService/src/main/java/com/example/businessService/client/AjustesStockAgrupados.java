@@ -0,0 +1,41 @@
+package com.example.businessService.client;
+
+import com.example.businessService.dto.AjusteStockItem;
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Agrupa los ajustes de stock individuales concurrentes en un solo POST /data/inventario/batch.
+ * Los ajustes que llegan dentro de una ventana corta (inventario.escrituras-agrupadas.ventana, por defecto 2 ms,
+ * o hasta inventario.escrituras-agrupadas.maximo-ajustes) viajan juntos y el data-service los aplica en una
+ * sola transacción, cada uno de forma independiente: que uno falle por falta de stock no afecta a los demás.
+ * Cada llamador recibe el resultado de su propio ajuste; los errores de comunicación se propagan como
+ * FeignException a todos los ajustes del lote.
+ * Se activa con inventario.escrituras-agrupadas.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.escrituras-agrupadas.enabled", havingValue = "true")
+public class AjustesStockAgrupados {
+
+    /** Ajustes por lote que acepta POST /data/inventario/batch. */
+    static final int MAXIMO_AJUSTES_POR_LOTE = 1000;
+
+    private final EscrituraPorLotes<AjusteStockItem, ResultadoAjusteStock> ajustes;
+
+    public AjustesStockAgrupados(DataServiceClient dataServiceClient,
+                                 @Value("${inventario.escrituras-agrupadas.ventana:2ms}") Duration ventana,
+                                 @Value("${inventario.escrituras-agrupadas.maximo-ajustes:100}") int maximoAjustes) {
+        this.ajustes = new EscrituraPorLotes<>(lote -> dataServiceClient.ajustarStockEnLote(new AjusteStockLoteRequest(lote, false)).getResultados(),
+                ventana, Math.max(1, Math.min(maximoAjustes, MAXIMO_AJUSTES_POR_LOTE)));
+    }
+
+    /** Aplica el ajuste junto con los demás recibidos en la misma ventana y devuelve su resultado. */
+    public ResultadoAjusteStock ajustar(Long productoId, int delta) {
+        return ajustes.escribir(new AjusteStockItem(productoId, delta));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.businessService.client;
+
+import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.ProductoDTO;
+import com.example.businessService.dto.StockDTO;
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Fachada sobre DataServiceClient para las lecturas por ID más frecuentes.
+ * Las búsquedas individuales concurrentes que llegan dentro de una ventana corta
+ * (data.service.batching.ventana, por defecto 2 ms, o hasta data.service.batching.maximo-claves)
+ * se resuelven con una sola llamada a los endpoints de consulta por lote del data-service.
+ * Con data.service.batching.enabled=false cada búsqueda va directa al endpoint individual.
+ * Un ID inexistente se devuelve como Optional vacío; los errores de comunicación se propagan
+ * como FeignException igual que en el cliente original.
+ */
+@Component
+public class BatchingDataServiceClient {
+
+    private final DataServiceClient dataServiceClient;
+    private final boolean habilitado;
+    private final CargadorPorLotes<Long, ProductoDTO> productos;
+    private final CargadorPorLotes<Long, InventarioDTO> inventarios;
+    private final CargadorPorLotes<Long, Integer> cantidades;
+
+    public BatchingDataServiceClient(DataServiceClient dataServiceClient,
+                                     @Value("${data.service.batching.enabled:true}") boolean habilitado,
+                                     @Value("${data.service.batching.ventana:2ms}") Duration ventana,
+                                     @Value("${data.service.batching.maximo-claves:100}") int maximoClaves) {
+        this.dataServiceClient = dataServiceClient;
+        this.habilitado = habilitado;
+        this.productos = new CargadorPorLotes<>(ids -> dataServiceClient.obtenerProductosPorIds(ids).stream()
+                .collect(Collectors.toMap(ProductoDTO::getId, Function.identity())), ventana, maximoClaves);
+        this.inventarios = new CargadorPorLotes<>(ids -> dataServiceClient.obtenerInventariosPorProductoIds(ids).stream()
+                .collect(Collectors.toMap(inventario -> inventario.getProducto().getId(), Function.identity())), ventana, maximoClaves);
+        this.cantidades = new CargadorPorLotes<>(ids -> dataServiceClient.obtenerCantidadesPorProductoIds(ids).stream()
+                .collect(Collectors.toMap(StockDTO::getProductoId, StockDTO::getCantidad)), ventana, maximoClaves);
+    }
+
+    public Optional<ProductoDTO> obtenerProductoPorId(Long id) {
+        if (!habilitado) {
+            try {
+                return Optional.of(dataServiceClient.obtenerProductoPorId(id));
+            } catch (FeignException.NotFound e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(productos.cargar(id));
+    }
+
+    public Optional<InventarioDTO> obtenerInventarioPorProductoId(Long productoId) {
+        if (!habilitado) {
+            try {
+                return Optional.of(dataServiceClient.obtenerInventarioPorProductoId(productoId));
+            } catch (FeignException.NotFound e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(inventarios.cargar(productoId));
+    }
+
+    /**
+     * Solo el stock del producto, sin el resto del inventario ni del producto.
+     */
+    public Optional<Integer> obtenerCantidadPorProductoId(Long productoId) {
+        if (!habilitado) {
+            try {
+                return Optional.of(dataServiceClient.obtenerCantidadPorProductoId(productoId).getCantidad());
+            } catch (FeignException.NotFound e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.ofNullable(cantidades.cargar(productoId));
+    }
+}
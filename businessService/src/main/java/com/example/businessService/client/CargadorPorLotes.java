@@ -0,0 +1,124 @@
+package com.example.businessService.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Agrupa las lecturas individuales por clave que llegan de forma concurrente en una única
+ * lectura en lote (al estilo DataLoader).
+ * La primera clave de un lote abre una ventana de espera; el lote se despacha cuando vence la
+ * ventana o cuando alcanza el máximo de claves, lo que ocurra primero. Las claves repetidas dentro
+ * de un lote comparten el mismo resultado.
+ * No usa hilos propios: el lote lo ejecuta el hilo que abrió la ventana o el que lo completó,
+ * que de todas formas tendría que esperar su resultado.
+ * @param <K> Tipo de la clave.
+ * @param <V> Tipo del valor; una clave ausente en el resultado del lote se resuelve como null.
+ */
+public class CargadorPorLotes<K, V> {
+
+    private final Function<Collection<K>, Map<K, V>> cargaEnLote;
+    private final long ventanaNanos;
+    private final int maximoClaves;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<K, CompletableFuture<V>> loteActual = new LinkedHashMap<>(); // Protegido por lock
+
+    public CargadorPorLotes(Function<Collection<K>, Map<K, V>> cargaEnLote, Duration ventana, int maximoClaves) {
+        this.cargaEnLote = cargaEnLote;
+        this.ventanaNanos = ventana.toNanos();
+        this.maximoClaves = maximoClaves;
+    }
+
+    /**
+     * Devuelve el valor de la clave, resuelto junto con las demás claves pedidas en la misma ventana.
+     * Si la lectura en lote falla, todas las claves del lote reciben la misma excepción.
+     */
+    public V cargar(K clave) {
+        CompletableFuture<V> futuro;
+        Map<K, CompletableFuture<V>> lote;
+        boolean abreVentana;
+        Map<K, CompletableFuture<V>> lleno = null;
+
+        lock.lock();
+        try {
+            lote = loteActual;
+            abreVentana = lote.isEmpty();
+            futuro = lote.computeIfAbsent(clave, k -> new CompletableFuture<>());
+            if (lote.size() >= maximoClaves) {
+                lleno = lote;
+                loteActual = new LinkedHashMap<>();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (lleno != null) {
+            despachar(lleno);
+        } else if (abreVentana) {
+            esperarVentana(lote, futuro);
+        }
+        return obtener(futuro);
+    }
+
+    private void esperarVentana(Map<K, CompletableFuture<V>> lote, CompletableFuture<V> futuro) {
+        try {
+            // Si otro hilo completa el lote por tamaño, el resultado llega antes de que venza la ventana
+            futuro.get(ventanaNanos, TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            // Venció la ventana: este hilo despacha el lote si nadie lo hizo antes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return;
+        }
+
+        boolean despachar;
+        lock.lock();
+        try {
+            despachar = loteActual == lote;
+            if (despachar) {
+                loteActual = new LinkedHashMap<>();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (despachar) {
+            despachar(lote);
+        }
+    }
+
+    private void despachar(Map<K, CompletableFuture<V>> lote) {
+        try {
+            Map<K, V> valores = cargaEnLote.apply(new ArrayList<>(lote.keySet()));
+            lote.forEach((clave, futuro) -> futuro.complete(valores.get(clave)));
+        } catch (Throwable e) {
+            lote.values().forEach(futuro -> futuro.completeExceptionally(e));
+        }
+    }
+
+    private V obtener(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            // Se relanza la excepción original (por ejemplo una FeignException) sin envolver
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
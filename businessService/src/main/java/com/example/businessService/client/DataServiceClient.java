@@ -1,24 +1,42 @@
 package com.example.businessService.client;
 
 
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.AjusteStockLoteResponse;
 import com.example.businessService.dto.CategoriaDTO;
 import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.PaginaDTO;
 import com.example.businessService.dto.ProductoDTO;
 import com.example.businessService.dto.ProductoRequest;
+import com.example.businessService.dto.ResultadoBusquedaDTO;
+import com.example.businessService.dto.StockDTO;
+import com.example.businessService.dto.ValoracionInventarioDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
 import java.util.List;
 
-@FeignClient(name = "data-service", url = "${data.service.url}")
+@FeignClient(name = "data-service", url = "${data.service.url}", configuration = DataServiceClientConfig.class)
 public interface DataServiceClient {
 
     @GetMapping("/data/productos")
     List<ProductoDTO> obtenerTodosLosProductos();
 
+    @GetMapping("/data/productos")
+    PaginaDTO<ProductoDTO> obtenerPaginaProductos(@RequestParam(value = "after", required = false) String after,
+                                                  @RequestParam("limit") int limit,
+                                                  @RequestParam("orden") String orden);
+
+    @GetMapping("/data/productos/buscar")
+    List<ResultadoBusquedaDTO> buscarProductos(@RequestParam("q") String q, @RequestParam("limit") int limit);
+
     @GetMapping("/data/productos/{id}")
     ProductoDTO obtenerProductoPorId(@PathVariable Long id);
 
+    @GetMapping(value = "/data/productos", params = "ids")
+    List<ProductoDTO> obtenerProductosPorIds(@RequestParam("ids") Collection<Long> ids);
+
     @PostMapping("/data/productos")
     ProductoDTO crearProducto(@RequestBody ProductoRequest request);
 
@@ -44,11 +62,27 @@ public interface DataServiceClient {
     void eliminarCategoria(@PathVariable Long id);
 
     @GetMapping("/data/inventario/stock-bajo")
-    List<InventarioDTO> obtenerProductosConStockBajo();
+    PaginaDTO<InventarioDTO> obtenerProductosConStockBajo(@RequestParam(value = "after", required = false) String after,
+                                                          @RequestParam("limit") int limit);
+
+    @GetMapping("/data/inventario/valoracion")
+    ValoracionInventarioDTO obtenerValoracionInventario();
 
     @GetMapping("/data/inventario/{productoId}")
     InventarioDTO obtenerInventarioPorProductoId(@PathVariable Long productoId);
 
+    @GetMapping(value = "/data/inventario", params = "productoIds")
+    List<InventarioDTO> obtenerInventariosPorProductoIds(@RequestParam("productoIds") Collection<Long> productoIds);
+
+    @GetMapping("/data/inventario/{productoId}/cantidad")
+    StockDTO obtenerCantidadPorProductoId(@PathVariable Long productoId);
+
+    @PostMapping("/data/inventario/disponibilidad")
+    List<StockDTO> obtenerCantidadesPorProductoIds(@RequestBody Collection<Long> productoIds);
+
     @PutMapping("/data/inventario/{productoId}")
     InventarioDTO actualizarStock(@PathVariable Long productoId, @RequestBody Integer cantidad);
+
+    @PostMapping("/data/inventario/batch")
+    AjusteStockLoteResponse ajustarStockEnLote(@RequestBody AjusteStockLoteRequest request);
 }
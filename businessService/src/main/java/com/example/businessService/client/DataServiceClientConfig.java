@@ -0,0 +1,34 @@
+package com.example.businessService.client;
+
+import feign.Client;
+import feign.httpclient.ApacheHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Configuración propia del cliente Feign del data-service (referenciada desde @FeignClient).
+ * No lleva @Configuration para que el escaneo de componentes no la aplique a otros clientes.
+ * Con hilos virtuales el límite real de llamadas concurrentes al data-service pasa a ser el
+ * tamaño del pool de conexiones (data.service.max-conexiones), no el de hilos de Tomcat.
+ * Con data.service.resiliencia.enabled=true (por defecto) las llamadas pasan además por ResilienciaClient:
+ * timeouts, bulkheads, circuit breakers y reintentos acotados.
+ */
+public class DataServiceClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient dataServiceHttpClient(@Value("${data.service.max-conexiones:200}") int maximoConexiones) {
+        return HttpClientBuilder.create()
+                .setMaxConnTotal(maximoConexiones)
+                .setMaxConnPerRoute(maximoConexiones)
+                .build();
+    }
+
+    @Bean
+    public Client feignClient(CloseableHttpClient dataServiceHttpClient, ResilienciaProperties resiliencia, MeterRegistry meterRegistry) {
+        Client cliente = new ETagCachingClient(new ApacheHttpClient(dataServiceHttpClient));
+        return resiliencia.isEnabled() ? new ResilienciaClient(cliente, resiliencia, meterRegistry) : cliente;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.businessService.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import feign.Util;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cliente Feign que hace GET condicionales contra el data-service.
+ * Guarda el último cuerpo recibido por URL junto con su ETag y en la siguiente petición
+ * envía If-None-Match; si el data-service responde 304 Not Modified se devuelve el cuerpo
+ * guardado como si fuera un 200, de modo que un sondeo sin cambios solo intercambia cabeceras.
+ * La memoria usada está acotada por el tamaño total de los cuerpos guardados.
+ */
+@Slf4j
+public class ETagCachingClient implements Client {
+
+    static final long PESO_MAXIMO_BYTES = 64L * 1024 * 1024;
+
+    private final Client delegado;
+    private final Cache<String, RespuestaCacheada> respuestas;
+
+    public ETagCachingClient(Client delegado) {
+        this(delegado, PESO_MAXIMO_BYTES);
+    }
+
+    ETagCachingClient(Client delegado, long pesoMaximoBytes) {
+        this.delegado = delegado;
+        this.respuestas = Caffeine.newBuilder()
+                .maximumWeight(pesoMaximoBytes)
+                .weigher((String url, RespuestaCacheada respuesta) -> respuesta.cuerpo().length)
+                .build();
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        if (request.httpMethod() != Request.HttpMethod.GET) {
+            return delegado.execute(request, options);
+        }
+
+        RespuestaCacheada cacheada = respuestas.getIfPresent(request.url());
+        Response respuesta = delegado.execute(cacheada == null ? request : conIfNoneMatch(request, cacheada.etag()), options);
+
+        if (respuesta.status() == 304 && cacheada != null) {
+            respuesta.close();
+            log.debug("304 Not Modified para {}, se reutiliza el cuerpo guardado", request.url());
+            return Response.builder()
+                    .status(200)
+                    .reason("OK")
+                    .headers(cacheada.cabeceras())
+                    .body(cacheada.cuerpo())
+                    .request(request)
+                    .build();
+        }
+
+        String etag = primeraCabecera(respuesta, "ETag");
+        if (respuesta.status() != 200 || etag == null || respuesta.body() == null) {
+            return respuesta;
+        }
+
+        // Se lee el cuerpo completo para poder guardarlo y devolverlo a la vez
+        byte[] cuerpo;
+        try (respuesta) {
+            cuerpo = Util.toByteArray(respuesta.body().asInputStream());
+        }
+        respuestas.put(request.url(), new RespuestaCacheada(etag, respuesta.headers(), cuerpo));
+        return respuesta.toBuilder().body(cuerpo).build();
+    }
+
+    private static Request conIfNoneMatch(Request request, String etag) {
+        Map<String, Collection<String>> cabeceras = new LinkedHashMap<>(request.headers());
+        cabeceras.put("If-None-Match", List.of(etag));
+        return Request.create(request.httpMethod(), request.url(), cabeceras, request.body(), request.charset(), request.requestTemplate());
+    }
+
+    private static String primeraCabecera(Response respuesta, String nombre) {
+        // Feign guarda las cabeceras de la respuesta en un mapa que ignora mayúsculas
+        Collection<String> valores = respuesta.headers().get(nombre);
+        return valores == null || valores.isEmpty() ? null : valores.iterator().next();
+    }
+
+    private record RespuestaCacheada(String etag, Map<String, Collection<String>> cabeceras, byte[] cuerpo) {
+    }
+}
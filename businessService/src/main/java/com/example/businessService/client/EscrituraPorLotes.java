@@ -0,0 +1,136 @@
+package com.example.businessService.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Agrupa las escrituras individuales que llegan de forma concurrente en una única escritura en lote.
+ * Funciona igual que {@link CargadorPorLotes}: la primera escritura de un lote abre una ventana de espera
+ * y el lote se despacha cuando vence la ventana o cuando alcanza el máximo de elementos, lo que ocurra primero.
+ * A diferencia de las lecturas, los elementos no se combinan: cada escritura ocupa su propia posición del
+ * lote, en orden de llegada, y recibe el resultado de esa misma posición.
+ * No usa hilos propios: el lote lo ejecuta el hilo que abrió la ventana o el que lo completó.
+ * @param <E> Tipo del elemento a escribir.
+ * @param <R> Tipo del resultado de cada elemento.
+ */
+public class EscrituraPorLotes<E, R> {
+
+    private final Function<List<E>, List<R>> escrituraEnLote;
+    private final long ventanaNanos;
+    private final int maximoElementos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Lote<E, R> loteActual = new Lote<>(); // Protegido por lock
+
+    /**
+     * @param escrituraEnLote Escribe los elementos y devuelve un resultado por elemento, en el mismo orden.
+     */
+    public EscrituraPorLotes(Function<List<E>, List<R>> escrituraEnLote, Duration ventana, int maximoElementos) {
+        this.escrituraEnLote = escrituraEnLote;
+        this.ventanaNanos = ventana.toNanos();
+        this.maximoElementos = maximoElementos;
+    }
+
+    /**
+     * Escribe el elemento junto con los demás recibidos en la misma ventana y devuelve su resultado.
+     * Si la escritura en lote falla, todos los elementos del lote reciben la misma excepción.
+     */
+    public R escribir(E elemento) {
+        CompletableFuture<R> futuro = new CompletableFuture<>();
+        Lote<E, R> lote;
+        boolean abreVentana;
+        Lote<E, R> lleno = null;
+
+        lock.lock();
+        try {
+            lote = loteActual;
+            abreVentana = lote.elementos.isEmpty();
+            lote.elementos.add(elemento);
+            lote.futuros.add(futuro);
+            if (lote.elementos.size() >= maximoElementos) {
+                lleno = lote;
+                loteActual = new Lote<>();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (lleno != null) {
+            despachar(lleno);
+        } else if (abreVentana) {
+            esperarVentana(lote, futuro);
+        }
+        return obtener(futuro);
+    }
+
+    private void esperarVentana(Lote<E, R> lote, CompletableFuture<R> futuro) {
+        try {
+            // Si otro hilo completa el lote por tamaño, el resultado llega antes de que venza la ventana
+            futuro.get(ventanaNanos, TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            // Venció la ventana: este hilo despacha el lote si nadie lo hizo antes
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            return;
+        }
+
+        boolean despachar;
+        lock.lock();
+        try {
+            despachar = loteActual == lote;
+            if (despachar) {
+                loteActual = new Lote<>();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (despachar) {
+            despachar(lote);
+        }
+    }
+
+    private void despachar(Lote<E, R> lote) {
+        try {
+            List<R> resultados = escrituraEnLote.apply(List.copyOf(lote.elementos));
+            if (resultados.size() != lote.futuros.size()) {
+                throw new IllegalStateException("La escritura en lote devolvió " + resultados.size()
+                        + " resultados para " + lote.futuros.size() + " elementos");
+            }
+            for (int i = 0; i < resultados.size(); i++) {
+                lote.futuros.get(i).complete(resultados.get(i));
+            }
+        } catch (Throwable e) {
+            lote.futuros.forEach(futuro -> futuro.completeExceptionally(e));
+        }
+    }
+
+    private R obtener(CompletableFuture<R> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            // Se relanza la excepción original (por ejemplo una FeignException) sin envolver
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Lote<E, R> {
+        private final List<E> elementos = new ArrayList<>();
+        private final List<CompletableFuture<R>> futuros = new ArrayList<>();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.businessService.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Presupuesto global de reintentos. Cada llamada deposita {@code ratio} reintentos y cada reintento
+ * retira uno entero, de modo que con el data-service caído los reintentos suman como máximo esa fracción
+ * del tráfico en lugar de multiplicarlo por el número de intentos. Además se reponen
+ * {@code minimoPorSegundo} reintentos por segundo, para que con poco tráfico también se pueda reintentar.
+ * El saldo nunca supera {@code maximoAcumulado}.
+ * Sin locks: el saldo se lleva en milésimas de reintento en un AtomicLong.
+ */
+final class PresupuestoReintentos {
+
+    private static final long UNIDAD = 1000; // Un reintento, en milésimas
+
+    private final long deposito;
+    private final long reposicionPorSegundo;
+    private final long maximo;
+    private final LongSupplier relojNanos;
+    private final AtomicLong saldo;
+    private final AtomicLong ultimaReposicion;
+
+    PresupuestoReintentos(double ratio, int minimoPorSegundo, int maximoAcumulado, LongSupplier relojNanos) {
+        this.deposito = Math.round(ratio * UNIDAD);
+        this.reposicionPorSegundo = minimoPorSegundo * UNIDAD;
+        this.maximo = maximoAcumulado * UNIDAD;
+        this.relojNanos = relojNanos;
+        this.saldo = new AtomicLong(Math.min(maximo, reposicionPorSegundo));
+        this.ultimaReposicion = new AtomicLong(relojNanos.getAsLong());
+    }
+
+    /** Anota una llamada nueva (no un reintento). */
+    void registrarLlamada() {
+        sumar(deposito);
+    }
+
+    /** @return true si había saldo y se descontó un reintento. */
+    boolean retirar() {
+        reponer();
+        while (true) {
+            long actual = saldo.get();
+            if (actual < UNIDAD) {
+                return false;
+            }
+            if (saldo.compareAndSet(actual, actual - UNIDAD)) {
+                return true;
+            }
+        }
+    }
+
+    /** Reintentos disponibles ahora mismo. */
+    double saldo() {
+        reponer();
+        return (double) saldo.get() / UNIDAD;
+    }
+
+    private void reponer() {
+        long ahora = relojNanos.getAsLong();
+        long ultima = ultimaReposicion.get();
+        double segundos = (double) (ahora - ultima) / TimeUnit.SECONDS.toNanos(1);
+        long reposicion = (long) Math.min(maximo, reposicionPorSegundo * segundos);
+        // Si la reposición no llega a una milésima se deja acumular el tiempo hasta la próxima consulta
+        if (reposicion > 0 && ultimaReposicion.compareAndSet(ultima, ahora)) {
+            sumar(reposicion);
+        }
+    }
+
+    private void sumar(long cantidad) {
+        saldo.accumulateAndGet(cantidad, (actual, suma) -> Math.min(maximo, actual + suma));
+    }
+}
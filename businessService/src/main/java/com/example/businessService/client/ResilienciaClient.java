@@ -0,0 +1,306 @@
+package com.example.businessService.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.ConnectTimeoutException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cliente Feign que protege al business-service de un data-service degradado.
+ * Las lecturas y las escrituras tienen cada una:
+ * <ul>
+ *     <li>Timeout de lectura de la respuesta, configurable también por método de DataServiceClient.</li>
+ *     <li>Bulkhead: un máximo de llamadas simultáneas, para que los hilos no se acumulen esperando.</li>
+ *     <li>Circuit breaker de Resilience4j sobre una ventana deslizante de las últimas llamadas: los errores
+ *     de conexión, los 5xx y las llamadas lentas cuentan como fallo; los 4xx no.</li>
+ * </ul>
+ * Son lecturas los GET y los métodos de DataServiceClient listados en
+ * data.service.resiliencia.lecturas-con-cuerpo, que usan POST solo para enviar la consulta en el cuerpo;
+ * se reconocen por el método de la interfaz que originó la petición. Las lecturas se reintentan ante errores de red y 502/503/504; las escrituras solo si no llegaron a
+ * conectar, porque en otro caso el data-service pudo haberlas aplicado. La espera entre intentos crece
+ * de forma exponencial con jitter, no supera el timeout de la llamada y cada reintento consume un
+ * {@link PresupuestoReintentos} común a todas las llamadas.
+ * <p>
+ * Mientras el circuito de lecturas está abierto (o su bulkhead está lleno) una lectura se responde con la
+ * última respuesta correcta de esa misma URL (y del mismo cuerpo, si lo lleva), con la cabecera "Warning: 110", si no tiene más de
+ * data.service.resiliencia.respaldo.maxima-antiguedad. Sin respaldo, o en escrituras, se lanza una
+ * IOException que Feign convierte en FeignException, igual que un fallo de conexión.
+ * <p>
+ * Métricas: las de Resilience4j ("resilience4j.circuitbreaker.*", "resilience4j.bulkhead.*", con los nombres
+ * data-service-lecturas y data-service-escrituras), "dataservice.reintentos" (tag resultado=realizado|sin-presupuesto),
+ * "dataservice.reintentos.presupuesto", "dataservice.rechazos" (tag respuesta=respaldo|error) y las de la caché
+ * de respaldo con cache=dataservice.respaldo.
+ */
+@Slf4j
+public class ResilienciaClient implements Client {
+
+    static final String AVISO_RESPALDO = "110 - \"Response is Stale\"";
+
+    private final Client delegado;
+    private final Map<String, Duration> timeouts;
+    private final Set<String> lecturasConCuerpo;
+    private final ResilienciaProperties.Reintentos reintentos;
+    private final Barreras lecturas;
+    private final Barreras escrituras;
+    private final PresupuestoReintentos presupuesto;
+    private final Cache<String, RespuestaGuardada> respaldos; // null si el respaldo está deshabilitado
+    private final Counter reintentosRealizados;
+    private final Counter reintentosSinPresupuesto;
+    private final Counter rechazosConRespaldo;
+    private final Counter rechazosConError;
+
+    public ResilienciaClient(Client delegado, ResilienciaProperties properties, MeterRegistry meterRegistry) {
+        this.delegado = delegado;
+        this.timeouts = Map.copyOf(properties.getTimeouts());
+        this.lecturasConCuerpo = Set.copyOf(properties.getLecturasConCuerpo());
+        this.reintentos = properties.getReintentos();
+
+        CircuitBreakerRegistry circuitos = CircuitBreakerRegistry.ofDefaults();
+        BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+        this.lecturas = barreras("data-service-lecturas", properties.getLecturas(), circuitos, bulkheads);
+        this.escrituras = barreras("data-service-escrituras", properties.getEscrituras(), circuitos, bulkheads);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitos).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+
+        this.presupuesto = new PresupuestoReintentos(reintentos.getRatio(), reintentos.getMinimoPorSegundo(),
+                reintentos.getMaximoAcumulado(), System::nanoTime);
+        Gauge.builder("dataservice.reintentos.presupuesto", presupuesto, PresupuestoReintentos::saldo)
+                .description("Reintentos disponibles en el presupuesto global")
+                .register(meterRegistry);
+        this.reintentosRealizados = Counter.builder("dataservice.reintentos").tag("resultado", "realizado")
+                .description("Reintentos de llamadas al data-service")
+                .register(meterRegistry);
+        this.reintentosSinPresupuesto = Counter.builder("dataservice.reintentos").tag("resultado", "sin-presupuesto")
+                .description("Reintentos descartados por falta de presupuesto")
+                .register(meterRegistry);
+        this.rechazosConRespaldo = Counter.builder("dataservice.rechazos").tag("respuesta", "respaldo")
+                .description("Llamadas no enviadas (circuito abierto o bulkhead lleno) respondidas con la última respuesta correcta")
+                .register(meterRegistry);
+        this.rechazosConError = Counter.builder("dataservice.rechazos").tag("respuesta", "error")
+                .description("Llamadas no enviadas (circuito abierto o bulkhead lleno) sin respaldo")
+                .register(meterRegistry);
+
+        ResilienciaProperties.Respaldo respaldo = properties.getRespaldo();
+        if (respaldo.isEnabled()) {
+            this.respaldos = Caffeine.newBuilder()
+                    .maximumWeight(respaldo.getPesoMaximo().toBytes())
+                    .weigher((String clave, RespuestaGuardada guardada) -> clave.length() + guardada.cuerpo().length)
+                    .expireAfterWrite(respaldo.getMaximaAntiguedad())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, respaldos, "dataservice.respaldo");
+        } else {
+            this.respaldos = null;
+        }
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        String metodo = nombreMetodo(request);
+        boolean lectura = esLectura(request.httpMethod(), metodo);
+        Barreras barreras = lectura ? lecturas : escrituras;
+        Duration timeout = timeoutPara(metodo, barreras.grupo());
+        Request.Options opciones = new Request.Options(options.connectTimeoutMillis(), TimeUnit.MILLISECONDS,
+                timeout.toMillis(), TimeUnit.MILLISECONDS, options.isFollowRedirects());
+        presupuesto.registrarLlamada();
+
+        long inicio = System.nanoTime();
+        for (int intento = 1; ; intento++) {
+            if (!barreras.circuito().tryAcquirePermission()) {
+                return rechazar(request, lectura, CallNotPermittedException.createCallNotPermittedException(barreras.circuito()));
+            }
+            if (!barreras.bulkhead().tryAcquirePermission()) {
+                barreras.circuito().releasePermission();
+                return rechazar(request, lectura, BulkheadFullException.createBulkheadFullException(barreras.bulkhead()));
+            }
+
+            Response respuesta = null;
+            IOException error = null;
+            long comienzo = System.nanoTime();
+            try {
+                respuesta = delegado.execute(request, opciones);
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException e) {
+                barreras.circuito().onError(System.nanoTime() - comienzo, TimeUnit.NANOSECONDS, e);
+                throw e;
+            } finally {
+                barreras.bulkhead().onComplete();
+            }
+            long duracion = System.nanoTime() - comienzo;
+
+            if (error == null && respuesta.status() < 500) {
+                barreras.circuito().onSuccess(duracion, TimeUnit.NANOSECONDS);
+                return lectura ? guardarRespaldo(request, respuesta) : respuesta;
+            }
+            barreras.circuito().onError(duracion, TimeUnit.NANOSECONDS,
+                    error != null ? error : new IOException("El data-service respondió " + respuesta.status()));
+
+            boolean reintentable = error != null
+                    ? lectura || error instanceof ConnectException || error instanceof ConnectTimeoutException
+                    : lectura && esTransitorio(respuesta.status());
+            if (!reintentable || !esperarReintento(intento, inicio, timeout)) {
+                if (error != null) {
+                    throw error;
+                }
+                return respuesta; // El decoder de Feign lo convierte en la FeignException de ese status
+            }
+            if (respuesta != null) {
+                respuesta.close();
+            }
+            log.debug("Reintentando {} {} (intento {})", request.httpMethod(), request.url(), intento + 1);
+        }
+    }
+
+    /** Un GET, o un método de DataServiceClient que solo lee aunque envíe la consulta en el cuerpo. */
+    private boolean esLectura(Request.HttpMethod httpMethod, String metodo) {
+        return httpMethod == Request.HttpMethod.GET || (metodo != null && lecturasConCuerpo.contains(metodo));
+    }
+
+    /** Timeout del método de DataServiceClient si tiene uno propio; si no, el de su grupo. */
+    Duration timeoutPara(String metodo, ResilienciaProperties.Grupo grupo) {
+        Duration propio = metodo == null ? null : timeouts.get(metodo);
+        return propio != null ? propio : grupo.getTimeout();
+    }
+
+    CircuitBreaker.State estadoCircuitoLecturas() {
+        return lecturas.circuito().getState();
+    }
+
+    /**
+     * Espera antes del siguiente intento si quedan intentos, tiempo y presupuesto.
+     * @return false si no se debe reintentar.
+     */
+    private boolean esperarReintento(int intento, long inicio, Duration timeout) throws InterruptedIOException {
+        if (intento >= reintentos.getMaximoIntentos()) {
+            return false;
+        }
+        // Jitter completo: una espera aleatoria entre 0 y el tope exponencial reparte los reintentos en el tiempo
+        long tope = Math.min(reintentos.getEsperaMaxima().toNanos(), reintentos.getEsperaInicial().toNanos() << Math.min(intento - 1, 20));
+        long espera = ThreadLocalRandom.current().nextLong(tope + 1);
+        if (System.nanoTime() - inicio + espera > timeout.toNanos()) {
+            return false;
+        }
+        if (!presupuesto.retirar()) {
+            reintentosSinPresupuesto.increment();
+            return false;
+        }
+        reintentosRealizados.increment();
+        try {
+            TimeUnit.NANOSECONDS.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido esperando para reintentar la llamada al data-service");
+        }
+        return true;
+    }
+
+    private Response rechazar(Request request, boolean lectura, Exception motivo) throws IOException {
+        RespuestaGuardada guardada = lectura && respaldos != null ? respaldos.getIfPresent(claveRespaldo(request)) : null;
+        if (guardada == null) {
+            rechazosConError.increment();
+            throw new IOException(motivo.getMessage(), motivo);
+        }
+        rechazosConRespaldo.increment();
+        log.debug("{}; se responde {} con la última respuesta correcta", motivo.getMessage(), request.url());
+        Map<String, Collection<String>> cabeceras = new LinkedHashMap<>(guardada.cabeceras());
+        cabeceras.put("Warning", List.of(AVISO_RESPALDO));
+        return Response.builder()
+                .status(200)
+                .reason("OK")
+                .headers(cabeceras)
+                .body(guardada.cuerpo())
+                .request(request)
+                .build();
+    }
+
+    private Response guardarRespaldo(Request request, Response respuesta) throws IOException {
+        if (respaldos == null || respuesta.status() != 200 || respuesta.body() == null) {
+            return respuesta;
+        }
+        byte[] cuerpo;
+        try (respuesta) {
+            cuerpo = Util.toByteArray(respuesta.body().asInputStream());
+        }
+        respaldos.put(claveRespaldo(request), new RespuestaGuardada(respuesta.headers(), cuerpo));
+        return respuesta.toBuilder().body(cuerpo).build();
+    }
+
+    /** La URL y, en las lecturas con cuerpo, también el cuerpo: dos consultas distintas comparten la URL. */
+    private static String claveRespaldo(Request request) {
+        byte[] cuerpo = request.body();
+        if (cuerpo == null || cuerpo.length == 0) {
+            return request.url();
+        }
+        return request.url() + "\n" + new String(cuerpo, request.charset() != null ? request.charset() : StandardCharsets.UTF_8);
+    }
+
+    private static boolean esTransitorio(int status) {
+        return status == 502 || status == 503 || status == 504;
+    }
+
+    private static String nombreMetodo(Request request) {
+        RequestTemplate template = request.requestTemplate();
+        if (template == null || template.methodMetadata() == null || template.methodMetadata().method() == null) {
+            return null;
+        }
+        return template.methodMetadata().method().getName();
+    }
+
+    private static Barreras barreras(String nombre, ResilienciaProperties.Grupo grupo,
+                                     CircuitBreakerRegistry circuitos, BulkheadRegistry bulkheads) {
+        CircuitBreakerConfig configCircuito = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(grupo.getVentanaCircuito())
+                .minimumNumberOfCalls(grupo.getMinimoLlamadas())
+                .failureRateThreshold(grupo.getUmbralFallos())
+                .slowCallDurationThreshold(grupo.getLlamadaLenta())
+                .slowCallRateThreshold(grupo.getUmbralLentas())
+                .waitDurationInOpenState(grupo.getEsperaAbierto())
+                .permittedNumberOfCallsInHalfOpenState(grupo.getLlamadasSemiabierto())
+                .build();
+        BulkheadConfig configBulkhead = BulkheadConfig.custom()
+                .maxConcurrentCalls(grupo.getMaximoConcurrentes())
+                .maxWaitDuration(grupo.getEsperaBulkhead())
+                .build();
+        return new Barreras(grupo, circuitos.circuitBreaker(nombre, configCircuito), bulkheads.bulkhead(nombre, configBulkhead));
+    }
+
+    private record Barreras(ResilienciaProperties.Grupo grupo, CircuitBreaker circuito, Bulkhead bulkhead) {
+    }
+
+    private record RespuestaGuardada(Map<String, Collection<String>> cabeceras, byte[] cuerpo) {
+    }
+}
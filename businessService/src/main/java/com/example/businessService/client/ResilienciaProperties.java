@@ -0,0 +1,78 @@
+package com.example.businessService.client;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Configuración de las protecciones de las llamadas al data-service (prefijo "data.service.resiliencia",
+ * ver ResilienciaClient). Las lecturas (GET y los métodos de lecturasConCuerpo) y las escrituras tienen cada
+ * una su timeout, su bulkhead y su circuit breaker; los reintentos comparten un único presupuesto global.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "data.service.resiliencia")
+public class ResilienciaProperties {
+
+    private boolean enabled = true;
+    private Grupo lecturas = new Grupo(Duration.ofSeconds(2), 150, Duration.ofSeconds(1));
+    // Las escrituras tienen sus propias conexiones: una avalancha de lecturas no las deja sin pool
+    private Grupo escrituras = new Grupo(Duration.ofSeconds(5), 50, Duration.ofSeconds(3));
+    /** Timeout de un método concreto de DataServiceClient (por nombre), en lugar del de su grupo. */
+    private Map<String, Duration> timeouts = new HashMap<>();
+    /**
+     * Métodos de DataServiceClient que no son GET pero solo leen (la consulta viaja en el cuerpo, por ejemplo
+     * una lista larga de IDs): se reintentan y tienen respaldo como cualquier lectura.
+     */
+    private Set<String> lecturasConCuerpo = new HashSet<>(Set.of("obtenerCantidadesPorProductoIds"));
+    private Reintentos reintentos = new Reintentos();
+    private Respaldo respaldo = new Respaldo();
+
+    @Data
+    @NoArgsConstructor
+    public static class Grupo {
+        private Duration timeout; // Timeout de lectura de la respuesta; los reintentos tampoco lo superan
+        private int maximoConcurrentes; // Bulkhead: llamadas simultáneas al data-service
+        private Duration esperaBulkhead = Duration.ofMillis(50); // Espera de un hueco antes de rechazar
+        private int ventanaCircuito = 50; // Últimas llamadas que evalúa el circuit breaker
+        private int minimoLlamadas = 20; // Llamadas de la ventana necesarias antes de poder abrir el circuito
+        private float umbralFallos = 50; // Porcentaje de fallos que abre el circuito
+        private Duration llamadaLenta; // Duración a partir de la cual una llamada cuenta como lenta
+        private float umbralLentas = 80; // Porcentaje de llamadas lentas que abre el circuito
+        private Duration esperaAbierto = Duration.ofSeconds(10); // Tiempo abierto antes de dejar pasar llamadas de prueba
+        private int llamadasSemiabierto = 5; // Llamadas de prueba que deciden si el circuito se cierra
+
+        public Grupo(Duration timeout, int maximoConcurrentes, Duration llamadaLenta) {
+            this.timeout = timeout;
+            this.maximoConcurrentes = maximoConcurrentes;
+            this.llamadaLenta = llamadaLenta;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Reintentos {
+        private int maximoIntentos = 3; // Incluye el primer intento
+        private Duration esperaInicial = Duration.ofMillis(50); // Se duplica en cada reintento, con jitter
+        private Duration esperaMaxima = Duration.ofMillis(500);
+        private double ratio = 0.1; // Reintentos que se ganan por cada llamada: como máximo un 10 % más de tráfico
+        private int minimoPorSegundo = 5; // Reintentos que se reponen cada segundo aunque haya poco tráfico
+        private int maximoAcumulado = 100; // Tope del saldo, para no acumular una ráfaga tras un periodo sin fallos
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Respaldo {
+        private boolean enabled = true;
+        private Duration maximaAntiguedad = Duration.ofMinutes(10); // Respuestas más antiguas no se sirven
+        private DataSize pesoMaximo = DataSize.ofMegabytes(32);
+    }
+}
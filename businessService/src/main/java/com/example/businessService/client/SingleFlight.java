@@ -0,0 +1,111 @@
+package com.example.businessService.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa las llamadas concurrentes idénticas (misma clave) en una sola llamada en vuelo.
+ * El primer hilo que pide una clave ejecuta la llamada; los que llegan mientras tanto se unen a
+ * ella y reciben el mismo resultado o la misma excepción. Al terminar la clave se libera, así que
+ * no se guarda ningún resultado más allá de la llamada en curso.
+ * Unirse a una llamada existente no toma locks: es una lectura del ConcurrentHashMap.
+ * Métricas: "singleflight.llamadas" (tag rol=lider|unido) y "singleflight.ratio.agrupamiento",
+ * la fracción de llamadas que se resolvieron uniéndose a otra.
+ * @param <K> Tipo de la clave.
+ * @param <V> Tipo del resultado.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> enVuelo = new ConcurrentHashMap<>();
+    private final long maximaEsperaNanos;
+    private final Counter lideres;
+    private final Counter unidos;
+
+    /**
+     * @param nombre Nombre usado en el tag "nombre" de las métricas.
+     * @param maximaEspera Tiempo máximo que un hilo espera una llamada a la que se unió.
+     */
+    public SingleFlight(String nombre, Duration maximaEspera, MeterRegistry meterRegistry) {
+        this.maximaEsperaNanos = maximaEspera.toNanos();
+        this.lideres = Counter.builder("singleflight.llamadas").tag("nombre", nombre).tag("rol", "lider")
+                .description("Llamadas que se ejecutaron contra el servicio remoto")
+                .register(meterRegistry);
+        this.unidos = Counter.builder("singleflight.llamadas").tag("nombre", nombre).tag("rol", "unido")
+                .description("Llamadas resueltas uniéndose a otra ya en vuelo")
+                .register(meterRegistry);
+        Gauge.builder("singleflight.ratio.agrupamiento", this, SingleFlight::ratioAgrupamiento)
+                .tag("nombre", nombre)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la llamada o se une a la que ya esté en vuelo para la misma clave.
+     * @throws EsperaAgotadaException si se unió a una llamada que no terminó dentro de la espera máxima.
+     */
+    public V ejecutar(K clave, Supplier<V> llamada) {
+        CompletableFuture<V> existente = enVuelo.get(clave);
+        if (existente == null) {
+            CompletableFuture<V> propio = new CompletableFuture<>();
+            existente = enVuelo.putIfAbsent(clave, propio);
+            if (existente == null) {
+                return liderar(clave, propio, llamada);
+            }
+        }
+        unidos.increment();
+        return esperar(existente);
+    }
+
+    private V liderar(K clave, CompletableFuture<V> propio, Supplier<V> llamada) {
+        lideres.increment();
+        try {
+            V valor = llamada.get();
+            propio.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            propio.completeExceptionally(e);
+            throw e;
+        } finally {
+            enVuelo.remove(clave, propio);
+        }
+    }
+
+    private V esperar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.get(maximaEsperaNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // Se relanza la misma excepción que recibió el hilo que hizo la llamada
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new EsperaAgotadaException("La llamada en vuelo no terminó en " + TimeUnit.NANOSECONDS.toMillis(maximaEsperaNanos) + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EsperaAgotadaException("Interrumpido mientras esperaba la llamada en vuelo");
+        }
+    }
+
+    double ratioAgrupamiento() {
+        double total = lideres.count() + unidos.count();
+        return total == 0 ? 0 : unidos.count() / total;
+    }
+
+    public static class EsperaAgotadaException extends RuntimeException {
+        public EsperaAgotadaException(String message) {
+            super(message);
+        }
+    }
+}
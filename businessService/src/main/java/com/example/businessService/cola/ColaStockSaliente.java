@@ -0,0 +1,206 @@
+package com.example.businessService.cola;
+
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.dto.AjusteStockItem;
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.AjusteStockLoteResponse;
+import com.example.businessService.dto.EstadoAjusteStock;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import feign.FeignException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cola de salida de los ajustes de stock hacia el data-service. {@link #encolar} anota el ajuste en un
+ * {@link RegistroCola} en disco y vuelve en cuanto está sincronizado, sin llamar al data-service: la latencia
+ * de actualizar stock queda acotada por el disco local aunque el data-service esté lento o reiniciándose.
+ * <p>
+ * Un hilo de reenvío vacía el registro en orden, en lotes de hasta {@code tamano-lote} ajustes, con
+ * POST /data/inventario/batch. Cada lote lleva el origen del registro y la secuencia de su primer ajuste:
+ * si se reenvía un lote que el data-service ya había aplicado (por ejemplo, porque se agotó el tiempo de
+ * espera de la respuesta), el data-service reconoce esas secuencias y no las vuelve a aplicar.
+ * Los errores de comunicación se reintentan con espera exponencial; un lote rechazado con 400 se descarta
+ * para no bloquear la cola.
+ * <p>
+ * Los ajustes se aplican de forma independiente: los que fallan por falta de stock o producto inexistente
+ * se descartan, quedan en el log y suman en la métrica "inventario.cola.descartados".
+ * Se activa con inventario.cola-salida.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.cola-salida.enabled", havingValue = "true")
+@Slf4j
+public class ColaStockSaliente implements SmartLifecycle {
+
+    /** Ajustes por lote que acepta POST /data/inventario/batch. */
+    static final int MAXIMO_AJUSTES_POR_LOTE = 1000;
+    private static final long ESPERA_SIN_PENDIENTES_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final DataServiceClient dataServiceClient;
+    private final CatalogoCache catalogoCache;
+    private final Path directorio;
+    private final DataSize tamanoSegmento;
+    private final int tamanoLote;
+    private final Duration reintentoMinimo;
+    private final Duration reintentoMaximo;
+    private final Counter descartados;
+
+    private volatile RegistroCola registro;
+    private volatile Thread reenviador;
+
+    public ColaStockSaliente(DataServiceClient dataServiceClient, CatalogoCache catalogoCache, MeterRegistry meterRegistry,
+                             @Value("${inventario.cola-salida.directorio:datos/cola-stock}") Path directorio,
+                             @Value("${inventario.cola-salida.tamano-segmento:16MB}") DataSize tamanoSegmento,
+                             @Value("${inventario.cola-salida.tamano-lote:500}") int tamanoLote,
+                             @Value("${inventario.cola-salida.reintento-minimo:100ms}") Duration reintentoMinimo,
+                             @Value("${inventario.cola-salida.reintento-maximo:30s}") Duration reintentoMaximo) {
+        this.dataServiceClient = dataServiceClient;
+        this.catalogoCache = catalogoCache;
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.tamanoLote = Math.max(1, Math.min(tamanoLote, MAXIMO_AJUSTES_POR_LOTE));
+        this.reintentoMinimo = reintentoMinimo;
+        this.reintentoMaximo = reintentoMaximo;
+        this.descartados = Counter.builder("inventario.cola.descartados")
+                .description("Ajustes de stock encolados que el data-service no aplicó")
+                .register(meterRegistry);
+        Gauge.builder("inventario.cola.pendientes", this, ColaStockSaliente::pendientes)
+                .description("Ajustes de stock encolados que todavía no se enviaron al data-service")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Anota el ajuste en el registro y espera a que esté en disco.
+     * @return Clave de idempotencia del ajuste ({@code origen:secuencia}).
+     */
+    public String encolar(Long productoId, int delta) {
+        Thread hilo = reenviador;
+        if (hilo == null) {
+            throw new IllegalStateException("La cola de stock no está activa");
+        }
+        RegistroCola actual = registro;
+        long secuencia = actual.agregar(productoId, delta);
+        actual.esperarDurable(secuencia);
+        LockSupport.unpark(hilo);
+        return actual.origen() + ":" + secuencia;
+    }
+
+    /** Ajustes encolados que todavía no se enviaron. */
+    public long pendientes() {
+        RegistroCola actual = registro;
+        return actual == null ? 0 : actual.pendientes();
+    }
+
+    /**
+     * Envía un lote y, si el data-service respondió, lo confirma en el registro.
+     * @return Ajustes enviados; 0 si no había nada que enviar.
+     */
+    int enviarLote() {
+        List<RegistroCola.Registro> lote = registro.leer(tamanoLote);
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        long primera = lote.get(0).secuencia();
+        long ultima = lote.get(lote.size() - 1).secuencia();
+        List<AjusteStockItem> ajustes = lote.stream()
+                .map(ajuste -> new AjusteStockItem(ajuste.productoId(), ajuste.delta()))
+                .toList();
+        AjusteStockLoteResponse respuesta;
+        try {
+            respuesta = dataServiceClient.ajustarStockEnLote(new AjusteStockLoteRequest(ajustes, false, registro.origen(), primera));
+        } catch (FeignException.BadRequest e) {
+            log.error("El data-service rechazó los ajustes de stock {}..{} de la cola; se descartan: {}", primera, ultima, e.contentUTF8());
+            descartados.increment(lote.size());
+            registro.confirmar(ultima);
+            return lote.size();
+        }
+
+        for (ResultadoAjusteStock resultado : respuesta.getResultados()) {
+            if (resultado.getEstado() == EstadoAjusteStock.APLICADO) {
+                catalogoCache.invalidarProducto(resultado.getProductoId());
+            } else if (resultado.getEstado() != EstadoAjusteStock.DUPLICADO) {
+                log.warn("Ajuste de stock encolado descartado: producto {}, delta {}, {}",
+                        resultado.getProductoId(), resultado.getDelta(), resultado.getEstado());
+                descartados.increment();
+            }
+        }
+        registro.confirmar(ultima);
+        return lote.size();
+    }
+
+    @Override
+    public void start() {
+        registro = new RegistroCola(directorio, (int) Math.min(Integer.MAX_VALUE, tamanoSegmento.toBytes()));
+        log.info("Cola de stock abierta en {} (origen {}): {} ajustes pendientes de enviar",
+                directorio, registro.origen(), registro.pendientes());
+        // Se asigna antes de arrancarlo: reenviar() sigue mientras el campo apunte a su propio hilo
+        Thread hilo = Thread.ofPlatform().name("cola-stock").daemon().unstarted(this::reenviar);
+        reenviador = hilo;
+        hilo.start();
+    }
+
+    /** Detiene el reenvío; lo que quede en la cola se envía al volver a arrancar. */
+    @Override
+    public void stop() {
+        Thread hilo = reenviador;
+        if (hilo == null) {
+            return;
+        }
+        reenviador = null;
+        hilo.interrupt();
+        try {
+            hilo.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        registro.close();
+        if (registro.pendientes() > 0) {
+            log.info("Cola de stock detenida con {} ajustes pendientes; se enviarán al volver a arrancar", registro.pendientes());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return reenviador != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // Arranca antes y se detiene después que el servidor web, que es quien encola
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void reenviar() {
+        long espera = reintentoMinimo.toNanos();
+        while (reenviador == Thread.currentThread()) {
+            try {
+                if (enviarLote() == 0) {
+                    LockSupport.parkNanos(ESPERA_SIN_PENDIENTES_NANOS); // encolar() despierta al hilo
+                }
+                espera = reintentoMinimo.toNanos();
+            } catch (RuntimeException e) {
+                log.warn("No se pudo enviar la cola de stock al data-service ({} pendientes); se reintenta en {} ms: {}",
+                        pendientes(), TimeUnit.NANOSECONDS.toMillis(espera), e.getMessage());
+                try {
+                    TimeUnit.NANOSECONDS.sleep(espera);
+                } catch (InterruptedException interrumpido) {
+                    return;
+                }
+                espera = Math.min(espera * 2, reintentoMaximo.toNanos());
+            }
+        }
+    }
+}
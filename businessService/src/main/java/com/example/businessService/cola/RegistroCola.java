@@ -0,0 +1,342 @@
+package com.example.businessService.cola;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Registro en disco, de solo anexado, de los ajustes de stock pendientes de enviar al data-service.
+ * Los ajustes se escriben en segmentos de tamaño fijo mapeados en memoria, como registros de 16 bytes
+ * {producto, delta, control}, y cada uno recibe una secuencia (1, 2, 3...) que es su posición en el registro.
+ * {@link #esperarDurable} bloquea hasta que el registro está en disco; las escrituras concurrentes
+ * comparten un mismo force (group commit), de modo que el costo de sincronizar se reparte entre ellas.
+ * <p>
+ * El consumidor lee en orden a partir de la última secuencia confirmada con {@link #confirmar}, que se guarda
+ * en el archivo {@code consumido}; al confirmar se borran los segmentos que quedaron enteros por detrás.
+ * El archivo {@code origen} identifica al registro ante el data-service: origen y secuencia forman la clave
+ * de idempotencia de cada ajuste.
+ * <p>
+ * Archivos: {@code cola-<n>.log}, donde n es la secuencia del primer registro del segmento.
+ */
+@Slf4j
+final class RegistroCola implements AutoCloseable {
+
+    static final int TAMANO_REGISTRO = 16;
+    private static final String PREFIJO_SEGMENTO = "cola-";
+    private static final String ARCHIVO_ORIGEN = "origen";
+    private static final String ARCHIVO_CONSUMIDO = "consumido";
+
+    /** Ajuste leído del registro. */
+    record Registro(long secuencia, long productoId, int delta) {
+    }
+
+    private final Path directorio;
+    private final int registrosPorSegmento;
+    private final String origen;
+    /** Segmentos sin consumir del todo, por secuencia inicial; solo el último recibe escrituras. */
+    private final ConcurrentNavigableMap<Long, Segmento> segmentos = new ConcurrentSkipListMap<>();
+    private final ReentrantLock escribiendo = new ReentrantLock();
+    private final ReentrantLock sincronizando = new ReentrantLock();
+    private volatile Segmento actual;
+    /** Última secuencia escrita; como se escribe en orden y bajo cerrojo, las anteriores también lo están. */
+    private volatile long escrita;
+    /** Última secuencia llevada al disco. */
+    private volatile long durable;
+    /** Última secuencia confirmada por el consumidor. */
+    private volatile long consumida;
+
+    /**
+     * Abre el registro del directorio, o lo crea si está vacío. Un registro incompleto al final del
+     * último segmento (escritura interrumpida por una caída) se descarta junto con lo que lo sigue.
+     * @param tamanoSegmento Bytes por segmento nuevo; se redondea a un múltiplo del tamaño de registro.
+     */
+    RegistroCola(Path directorio, int tamanoSegmento) {
+        this.directorio = directorio;
+        this.registrosPorSegmento = Math.max(1, tamanoSegmento / TAMANO_REGISTRO);
+        try {
+            Files.createDirectories(directorio);
+            origen = leerOCrearOrigen();
+            consumida = leerConsumida();
+            for (Path archivo : archivosDeSegmento()) {
+                long inicial = numero(archivo);
+                segmentos.put(inicial, Segmento.abrir(archivo, inicial));
+            }
+            if (segmentos.isEmpty()) {
+                actual = crearSegmento(consumida + 1);
+                escrita = consumida;
+            } else {
+                actual = segmentos.lastEntry().getValue();
+                if (actual.capacidad == 0) { // La caída ocurrió entre crear el archivo y extenderlo
+                    segmentos.remove(actual.inicial);
+                    Files.delete(actual.archivo);
+                    actual = crearSegmento(actual.inicial);
+                }
+                int validos = actual.registrosValidos();
+                actual.limpiarDesde(validos);
+                actual.buffer.force();
+                escrita = actual.inicial + validos - 1;
+            }
+            durable = escrita;
+            borrarConsumidos();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir la cola de stock en " + directorio, e);
+        }
+    }
+
+    /**
+     * Anexa un ajuste al registro. Vuelve cuando está escrito en memoria, no en disco: para eso está
+     * {@link #esperarDurable}.
+     * @return La secuencia asignada.
+     */
+    long agregar(long productoId, int delta) {
+        escribiendo.lock();
+        try {
+            long secuencia = escrita + 1;
+            Segmento segmento = actual;
+            if (secuencia - segmento.inicial >= segmento.capacidad) {
+                segmento = rotar(secuencia);
+            }
+            segmento.escribir((int) (secuencia - segmento.inicial), secuencia, productoId, delta);
+            escrita = secuencia;
+            return secuencia;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir un segmento nuevo de la cola de stock", e);
+        } finally {
+            escribiendo.unlock();
+        }
+    }
+
+    /**
+     * Bloquea hasta que la secuencia está en disco. Un único hilo sincroniza a la vez y con ese force
+     * cubre todo lo escrito hasta el momento: quienes esperaban detrás suelen encontrarse ya cubiertos.
+     */
+    void esperarDurable(long secuencia) {
+        if (durable >= secuencia) {
+            return;
+        }
+        sincronizando.lock();
+        try {
+            if (durable >= secuencia) {
+                return;
+            }
+            // Primero la secuencia y después el segmento: si entre medio se rotó, el segmento anterior
+            // ya se sincronizó al rotar
+            long objetivo = escrita;
+            actual.buffer.force();
+            durable = objetivo;
+        } finally {
+            sincronizando.unlock();
+        }
+    }
+
+    /**
+     * Lee en orden hasta {@code maximo} ajustes ya sincronizados a continuación de la última secuencia
+     * confirmada. Un registro dañado al comienzo se descarta (confirmándolo); en medio, corta el lote.
+     */
+    List<Registro> leer(int maximo) {
+        List<Registro> registros = new ArrayList<>();
+        long hasta = Math.min(durable, consumida + maximo);
+        for (long secuencia = consumida + 1; secuencia <= hasta; secuencia++) {
+            Registro registro = segmentos.floorEntry(secuencia).getValue().leer(secuencia);
+            if (registro == null) {
+                if (!registros.isEmpty()) {
+                    break;
+                }
+                log.error("Cola de stock: se descarta el registro dañado con secuencia {}", secuencia);
+                confirmar(secuencia);
+                continue;
+            }
+            registros.add(registro);
+        }
+        return registros;
+    }
+
+    /**
+     * Marca como enviados los ajustes hasta la secuencia indicada (incluida), guardándola en disco, y borra
+     * los segmentos que quedaron consumidos enteros. Solo la llama el consumidor, desde un único hilo.
+     */
+    void confirmar(long secuencia) {
+        Path temporal = directorio.resolve(ARCHIVO_CONSUMIDO + ".tmp");
+        try {
+            Files.writeString(temporal, Long.toString(secuencia), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE,
+                    StandardOpenOption.SYNC);
+            Files.move(temporal, directorio.resolve(ARCHIVO_CONSUMIDO), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la posición de la cola de stock", e);
+        }
+        consumida = secuencia;
+        borrarConsumidos();
+    }
+
+    /** Ajustes escritos que el consumidor todavía no confirmó. */
+    long pendientes() {
+        return escrita - consumida;
+    }
+
+    String origen() {
+        return origen;
+    }
+
+    @Override
+    public void close() {
+        esperarDurable(escrita);
+    }
+
+    /** Sincroniza el segmento lleno antes de publicar el siguiente; se llama con el cerrojo de escritura. */
+    private Segmento rotar(long inicial) throws IOException {
+        actual.buffer.force();
+        Segmento nuevo = crearSegmento(inicial);
+        actual = nuevo;
+        return nuevo;
+    }
+
+    private Segmento crearSegmento(long inicial) throws IOException {
+        Segmento segmento = Segmento.crear(directorio.resolve(PREFIJO_SEGMENTO + String.format("%019d", inicial) + ".log"),
+                inicial, registrosPorSegmento);
+        segmentos.put(inicial, segmento);
+        return segmento;
+    }
+
+    // Todos los segmentos anteriores al que contiene la próxima secuencia a leer están consumidos
+    private void borrarConsumidos() {
+        Long enLectura = segmentos.floorKey(consumida + 1);
+        if (enLectura == null) {
+            return;
+        }
+        for (Map.Entry<Long, Segmento> entrada : segmentos.headMap(enLectura).entrySet()) {
+            segmentos.remove(entrada.getKey());
+            try {
+                Files.deleteIfExists(entrada.getValue().archivo);
+            } catch (IOException e) {
+                // Se vuelve a intentar en el próximo arranque: sus secuencias ya están confirmadas
+                log.warn("No se pudo borrar el segmento consumido {} de la cola de stock", entrada.getValue().archivo, e);
+            }
+        }
+    }
+
+    private String leerOCrearOrigen() throws IOException {
+        Path archivo = directorio.resolve(ARCHIVO_ORIGEN);
+        if (Files.exists(archivo)) {
+            return Files.readString(archivo, StandardCharsets.UTF_8).trim();
+        }
+        String nuevo = UUID.randomUUID().toString();
+        Path temporal = directorio.resolve(ARCHIVO_ORIGEN + ".tmp");
+        Files.writeString(temporal, nuevo, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temporal, archivo, StandardCopyOption.ATOMIC_MOVE);
+        return nuevo;
+    }
+
+    private long leerConsumida() throws IOException {
+        Path archivo = directorio.resolve(ARCHIVO_CONSUMIDO);
+        return Files.exists(archivo) ? Long.parseLong(Files.readString(archivo, StandardCharsets.UTF_8).trim()) : 0;
+    }
+
+    private List<Path> archivosDeSegmento() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(a -> a.getFileName().toString().startsWith(PREFIJO_SEGMENTO))
+                    .sorted((a, b) -> Long.compare(numero(a), numero(b)))
+                    .toList();
+        }
+    }
+
+    private static long numero(Path archivo) {
+        String nombre = archivo.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO_SEGMENTO.length(), nombre.indexOf('.')));
+    }
+
+    // Incluye la secuencia: un registro solo es válido en su propia posición. Nunca es cero.
+    static int control(long secuencia, long productoId, int delta) {
+        long mezcla = (secuencia * 0x9E3779B97F4A7C15L ^ productoId ^ ((long) delta << 32)) * 0xC2B2AE3D27D4EB4FL;
+        return (int) (mezcla >>> 32) | 1;
+    }
+
+    /** Segmento mapeado en memoria con capacidad para un número fijo de registros. */
+    private static final class Segmento {
+        final long inicial;
+        final Path archivo;
+        final MappedByteBuffer buffer;
+        final int capacidad;
+
+        private Segmento(long inicial, Path archivo, MappedByteBuffer buffer) {
+            this.inicial = inicial;
+            this.archivo = archivo;
+            this.buffer = buffer;
+            this.capacidad = buffer.capacity() / TAMANO_REGISTRO;
+        }
+
+        static Segmento crear(Path archivo, long inicial, int registros) throws IOException {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // El archivo se extiende con ceros: un control en cero es una posición sin escribir
+                return mapear(canal, inicial, archivo, (long) registros * TAMANO_REGISTRO);
+            }
+        }
+
+        static Segmento abrir(Path archivo, long inicial) throws IOException {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return mapear(canal, inicial, archivo, canal.size() - canal.size() % TAMANO_REGISTRO);
+            }
+        }
+
+        private static Segmento mapear(FileChannel canal, long inicial, Path archivo, long tamano) throws IOException {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new Segmento(inicial, archivo, buffer);
+        }
+
+        void escribir(int indice, long secuencia, long productoId, int delta) {
+            int posicion = indice * TAMANO_REGISTRO;
+            buffer.putLong(posicion, productoId);
+            buffer.putInt(posicion + 8, delta);
+            buffer.putInt(posicion + 12, control(secuencia, productoId, delta));
+        }
+
+        /** @return El registro, o null si su control no coincide. */
+        Registro leer(long secuencia) {
+            int posicion = (int) (secuencia - inicial) * TAMANO_REGISTRO;
+            long productoId = buffer.getLong(posicion);
+            int delta = buffer.getInt(posicion + 8);
+            if (buffer.getInt(posicion + 12) != control(secuencia, productoId, delta)) {
+                return null;
+            }
+            return new Registro(secuencia, productoId, delta);
+        }
+
+        /** Registros válidos consecutivos desde el comienzo del segmento. */
+        int registrosValidos() {
+            int validos = 0;
+            while (validos < capacidad && leer(inicial + validos) != null) {
+                validos++;
+            }
+            return validos;
+        }
+
+        /** Pone en cero lo que sigue a los registros válidos, para que no reaparezca en otra recuperación. */
+        void limpiarDesde(int indice) {
+            for (int posicion = indice * TAMANO_REGISTRO; posicion < capacidad * TAMANO_REGISTRO; posicion += 8) {
+                if (buffer.getLong(posicion) != 0) {
+                    buffer.putLong(posicion, 0);
+                }
+            }
+        }
+    }
+}
@@ -2,8 +2,14 @@ package com.example.businessService.controller;
 
 import com.example.businessService.dto.CategoriaDTO;
 import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.ItemPedido;
+import com.example.businessService.dto.PaginaDTO;
+import com.example.businessService.dto.PedidoRequest;
+import com.example.businessService.dto.PedidoResponse;
 import com.example.businessService.dto.ProductoDTO;
 import com.example.businessService.dto.ProductoRequest;
+import com.example.businessService.dto.ResultadoBusquedaDTO;
+import com.example.businessService.dto.ValoracionInventarioDTO;
 import com.example.businessService.service.CategoriaBusinessService;
 import com.example.businessService.service.InventarioBusinessService;
 import com.example.businessService.service.ProductoBusinessService;
@@ -12,7 +18,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +56,35 @@ public class BusinessController {
         return ResponseEntity.ok(productoBusinessService.obtenerTodosLosProductos());
     }
 
+    /**
+     * Obtiene una página del catálogo de productos usando paginación por cursor.
+     * El coste de cada página es constante sin importar el tamaño del catálogo.
+     * @param after Cursor opaco de la página anterior (se omite para la primera página).
+     * @param limit Cantidad máxima de productos por página.
+     * @param orden Criterio de orden: "id" (por defecto) o "precio".
+     * @return ResponseEntity con la página de ProductoDTO y estado 200 OK.
+     */
+    @GetMapping(value = "/productos", params = "limit")
+    public ResponseEntity<PaginaDTO<ProductoDTO>> obtenerPaginaCatalogo(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "orden", defaultValue = "id") String orden) {
+        return ResponseEntity.ok(productoBusinessService.obtenerPaginaProductos(after, limit, orden));
+    }
+
+    /**
+     * Busca productos por nombre y descripción, sin distinguir mayúsculas ni tildes y admitiendo prefijos.
+     * @param q Texto a buscar (por ejemplo "teclado mec").
+     * @param limit Cantidad máxima de resultados (por defecto 20).
+     * @return ResponseEntity con los productos y su puntuación, de mayor a menor relevancia.
+     */
+    @GetMapping("/productos/buscar")
+    public ResponseEntity<List<ResultadoBusquedaDTO>> buscarProductos(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productoBusinessService.buscarProductos(q, limit));
+    }
+
     /**
      * Obtiene los detalles de un producto específico por su ID.
      * @param id El ID del producto a consultar.
@@ -106,39 +140,70 @@ public class BusinessController {
         return ResponseEntity.ok(Collections.singletonMap("disponible", disponible));
     }
 
+    /**
+     * Verifica la disponibilidad de varios productos con una sola consulta al data-service.
+     * @param items Lista de {productoId, cantidad} a verificar.
+     * @return ResponseEntity con un mapa {productoId: true/false} y estado 200 OK.
+     */
+    @PostMapping("/inventario/disponibilidad")
+    public ResponseEntity<Map<Long, Boolean>> consultarDisponibilidadEnLote(@RequestBody List<ItemPedido> items) {
+        return ResponseEntity.ok(inventarioBusinessService.verificarDisponibilidad(items));
+    }
+
     /**
      * Actualiza la cantidad de stock de un producto.
      * Se usa para registrar ventas (cantidad negativa) o reposiciones (cantidad positiva).
      * @param productoId El ID del producto cuyo stock se va a modificar.
      * @param cantidad La cantidad a sumar o restar del stock actual.
-     * @return ResponseEntity con el InventarioDTO actualizado y estado 200 OK.
+     * @return ResponseEntity con el InventarioDTO actualizado y estado 200 OK. Con la cola de salida activa
+     * (inventario.cola-salida.enabled=true), el ajuste encolado con su clave y estado 202 Accepted.
      */
     @PutMapping("/inventario/{productoId}/actualizar-stock") // <-- CAMBIADO DE @PatchMapping A @PutMapping
-    public ResponseEntity<InventarioDTO> actualizarStockProducto(
+    public ResponseEntity<?> actualizarStockProducto(
             @PathVariable Long productoId,
             @RequestBody Integer cantidad) {
+        if (inventarioBusinessService.isActualizacionStockAsincrona()) {
+            return ResponseEntity.accepted().body(inventarioBusinessService.encolarActualizacionStock(productoId, cantidad));
+        }
         InventarioDTO inventarioActualizado = inventarioBusinessService.actualizarStock(productoId, cantidad);
         return ResponseEntity.ok(inventarioActualizado);
     }
 
+    // --- Endpoints de Pedidos ---
+
+    /**
+     * Confirma la compra de un carrito descontando el stock de todas sus líneas de forma atómica.
+     * Todo el carrito se valida y reserva con una sola llamada al data-service.
+     * @param pedido Líneas del carrito con productoId y cantidad.
+     * @return ResponseEntity con las líneas confirmadas y estado 200 OK; 400 si falta stock, 404 si un producto no existe.
+     */
+    @PostMapping("/pedidos/checkout")
+    public ResponseEntity<PedidoResponse> realizarCheckout(@RequestBody PedidoRequest pedido) {
+        return ResponseEntity.ok(inventarioBusinessService.realizarCheckout(pedido));
+    }
+
     // --- Endpoints de Reportes ---
 
     /**
-     * Genera un reporte con el valor total monetario de todo el inventario (precio * stock).
-     * @return ResponseEntity con un mapa {"valorTotal": 12345.67} y estado 200 OK.
+     * Genera un reporte con el valor total monetario de todo el inventario (precio * stock)
+     * y su desglose por categoría (valor, número de productos y productos con stock bajo).
+     * @return ResponseEntity con {"valorTotal": 12345.67, ..., "categorias": [...]} y estado 200 OK.
      */
     @GetMapping("/reportes/valor-total-inventario")
-    public ResponseEntity<Map<String, BigDecimal>> generarReporteValorTotalInventario() {
-        BigDecimal valorTotal = productoBusinessService.calcularValorTotalInventario();
-        return ResponseEntity.ok(Collections.singletonMap("valorTotal", valorTotal));
+    public ResponseEntity<ValoracionInventarioDTO> generarReporteValorTotalInventario() {
+        return ResponseEntity.ok(productoBusinessService.obtenerValoracionInventario());
     }
 
     /**
-     * Genera un reporte de todos los productos cuyo stock está por debajo del mínimo establecido.
-     * @return ResponseEntity con una lista de InventarioDTO y estado 200 OK.
+     * Genera un reporte paginado de los productos cuyo stock está por debajo del mínimo establecido.
+     * @param after Cursor opaco de la página anterior (se omite para la primera página).
+     * @param limit Cantidad máxima de productos por página (por defecto 100).
+     * @return ResponseEntity con la página de InventarioDTO y estado 200 OK.
      */
     @GetMapping("/reportes/stock-bajo")
-    public ResponseEntity<List<InventarioDTO>> generarReporteStockBajo() {
-        return ResponseEntity.ok(inventarioBusinessService.obtenerProductosConStockBajo());
+    public ResponseEntity<PaginaDTO<InventarioDTO>> generarReporteStockBajo(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inventarioBusinessService.obtenerProductosConStockBajo(after, limit));
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActualizacionStockEncoladaDTO {
+    private Long productoId;
+    private Integer cantidad;
+    private String clave; // Clave de idempotencia con la que el ajuste se envía al data-service
+}
@@ -0,0 +1,13 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AjusteStockItem {
+    private Long productoId;
+    private Integer delta; // Positivo para reponer, negativo para descontar
+}
@@ -0,0 +1,19 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados paginada por cursor, tal como la devuelve el data-service.
+ * {@code siguienteCursor} es opaco: se reenvía sin modificar como parámetro {@code after}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    private List<T> contenido;
+    private String siguienteCursor;
+}
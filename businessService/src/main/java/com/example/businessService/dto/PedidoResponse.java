@@ -0,0 +1,15 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedidoResponse {
+    private boolean confirmado;
+    private List<ResultadoAjusteStock> lineas; // Una línea por producto, con el stock que quedó tras la compra
+}
@@ -0,0 +1,13 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoBusquedaDTO {
+    private ProductoDTO producto;
+    private double puntuacion;
+}
@@ -0,0 +1,18 @@
+package com.example.businessService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorCategoriaDTO {
+    private Long categoriaId;
+    private String categoria;
+    private BigDecimal valorTotal;
+    private Long productos;
+    private Long productosStockBajo;
+}
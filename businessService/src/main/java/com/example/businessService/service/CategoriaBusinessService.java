@@ -1,6 +1,7 @@
 package com.example.businessService.service;
 
 
+import com.example.businessService.cache.CatalogoCache;
 import com.example.businessService.client.DataServiceClient;
 import com.example.businessService.dto.CategoriaDTO;
 import com.example.businessService.exception.MicroserviceCommunicationException;
@@ -15,16 +16,18 @@ import java.util.List;
 public class CategoriaBusinessService {
 
     private final DataServiceClient dataServiceClient;
+    private final CatalogoCache catalogoCache;
 
-    public CategoriaBusinessService(DataServiceClient dataServiceClient) {
+    public CategoriaBusinessService(DataServiceClient dataServiceClient, CatalogoCache catalogoCache) {
         this.dataServiceClient = dataServiceClient;
+        this.catalogoCache = catalogoCache;
     }
 
     public List<CategoriaDTO> obtenerTodasLasCategorias() {
         try {
-            log.info("Iniciando llamada a data-service para obtener todas las categorías.");
-            List<CategoriaDTO> categorias = dataServiceClient.obtenerTodasLasCategorias();
-            log.info("Llamada a data-service exitosa. Se obtuvieron {} categorías.", categorias.size());
+            // Solo se llama al data-service si las categorías no están en caché
+            List<CategoriaDTO> categorias = catalogoCache.obtenerTodasLasCategorias();
+            log.debug("Se obtuvieron {} categorías.", categorias.size());
             return categorias;
         } catch (FeignException e) {
             log.error("Error al comunicarse con el microservicio de datos para obtener categorías: {}", e.getMessage());
@@ -40,6 +43,7 @@ public class CategoriaBusinessService {
         try {
             log.info("Iniciando llamada a data-service para crear la categoría: {}", categoriaDTO.getNombre());
             CategoriaDTO nuevaCategoria = dataServiceClient.crearCategoria(categoriaDTO);
+            catalogoCache.invalidarCategorias();
             log.info("Categoría '{}' creada exitosamente con ID: {}", nuevaCategoria.getNombre(), nuevaCategoria.getId());
             return nuevaCategoria;
         } catch (FeignException e) {
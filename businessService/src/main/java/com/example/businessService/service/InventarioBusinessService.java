@@ -1,34 +1,86 @@
 package com.example.businessService.service;
 
 
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.client.AjustesStockAgrupados;
+import com.example.businessService.client.BatchingDataServiceClient;
 import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.client.SingleFlight;
+import com.example.businessService.cola.ColaStockSaliente;
+import com.example.businessService.dto.ActualizacionStockEncoladaDTO;
+import com.example.businessService.dto.AjusteStockItem;
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.AjusteStockLoteResponse;
+import com.example.businessService.dto.EstadoAjusteStock;
 import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.ItemPedido;
+import com.example.businessService.dto.PaginaDTO;
+import com.example.businessService.dto.PedidoRequest;
+import com.example.businessService.dto.PedidoResponse;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import com.example.businessService.dto.StockDTO;
 import com.example.businessService.exception.InventarioNoEncontradoException;
 import com.example.businessService.exception.MicroserviceCommunicationException;
 import com.example.businessService.exception.ProductoNoEncontradoException;
 import com.example.businessService.exception.ValidacionNegocioException;
 import feign.FeignException;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class InventarioBusinessService {
 
     private final DataServiceClient dataServiceClient;
+    private final BatchingDataServiceClient batchingDataServiceClient;
+    private final CatalogoCache catalogoCache;
+    // Las consultas concurrentes de inventario de un mismo producto comparten una única llamada al data-service
+    private final SingleFlight<Long, Optional<InventarioDTO>> inventarioEnVuelo;
+    private final SingleFlight<Long, Optional<Integer>> stockEnVuelo;
+    /** Presente solo con inventario.cola-salida.enabled=true. */
+    private final ColaStockSaliente colaStock;
+    /** Presente solo con inventario.escrituras-agrupadas.enabled=true. */
+    private final AjustesStockAgrupados ajustesAgrupados;
 
-    public InventarioBusinessService(DataServiceClient dataServiceClient) {
+    public InventarioBusinessService(DataServiceClient dataServiceClient,
+                                     BatchingDataServiceClient batchingDataServiceClient,
+                                     CatalogoCache catalogoCache,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${inventario.single-flight.maxima-espera:2s}") Duration maximaEspera,
+                                     @Nullable ColaStockSaliente colaStock,
+                                     @Nullable AjustesStockAgrupados ajustesAgrupados) {
         this.dataServiceClient = dataServiceClient;
+        this.batchingDataServiceClient = batchingDataServiceClient;
+        this.catalogoCache = catalogoCache;
+        this.colaStock = colaStock;
+        this.ajustesAgrupados = ajustesAgrupados;
+        this.inventarioEnVuelo = new SingleFlight<>("inventario", maximaEspera, meterRegistry);
+        this.stockEnVuelo = new SingleFlight<>("stock", maximaEspera, meterRegistry);
     }
 
-    public List<InventarioDTO> obtenerProductosConStockBajo() {
+    /**
+     * Obtiene una página de productos con stock bajo, reenviando el cursor opaco tal cual.
+     * El data-service responde 400 si el cursor o el límite no son válidos.
+     */
+    public PaginaDTO<InventarioDTO> obtenerProductosConStockBajo(String after, int limit) {
         try {
             log.info("Iniciando llamada a data-service para obtener productos con stock bajo.");
-            List<InventarioDTO> inventario = dataServiceClient.obtenerProductosConStockBajo();
-            log.info("Llamada a data-service exitosa. Se encontraron {} productos con stock bajo.", inventario.size());
-            return inventario;
+            PaginaDTO<InventarioDTO> pagina = dataServiceClient.obtenerProductosConStockBajo(after, limit);
+            log.info("Llamada a data-service exitosa. La página contiene {} productos con stock bajo.", pagina.getContenido().size());
+            return pagina;
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
         } catch (FeignException e) {
             log.error("Error al comunicarse con el microservicio de datos para obtener el inventario: {}", e.getMessage());
             throw new MicroserviceCommunicationException("Error de comunicación al intentar obtener productos con stock bajo.");
@@ -38,10 +90,11 @@ public class InventarioBusinessService {
     public InventarioDTO obtenerInventarioPorProductoId(Long productoId) {
         try {
             log.info("Consultando inventario para el producto ID: {}", productoId);
-            return dataServiceClient.obtenerInventarioPorProductoId(productoId);
-        } catch (FeignException.NotFound e) {
-            log.error("Inventario no encontrado para el producto ID: {}", productoId);
-            throw new InventarioNoEncontradoException("No se encontró inventario para el producto con ID " + productoId);
+            return consultarEnVuelo(inventarioEnVuelo, productoId, () -> batchingDataServiceClient.obtenerInventarioPorProductoId(productoId))
+                    .orElseThrow(() -> {
+                        log.error("Inventario no encontrado para el producto ID: {}", productoId);
+                        return new InventarioNoEncontradoException("No se encontró inventario para el producto con ID " + productoId);
+                    });
         } catch (FeignException e) {
             log.error("Error de comunicación al obtener el inventario: {}", e.getMessage());
             throw new MicroserviceCommunicationException("Error de comunicación al obtener el inventario.");
@@ -54,24 +107,75 @@ public class InventarioBusinessService {
         }
         try {
             log.info("BussinessService: Verificando disponibilidad para producto ID {} (cantidad: {})", productoId, cantidadSolicitada);
-            InventarioDTO inventario = dataServiceClient.obtenerInventarioPorProductoId(productoId);
-            return inventario.getCantidad() >= cantidadSolicitada;
-        } catch (FeignException.NotFound e) {
-            log.warn("Se intentó verificar el stock de un producto inexistente (ID: {})", productoId);
-            return false; // Si el producto no existe, no hay disponibilidad.
+            // Solo se pide la cantidad: no hace falta el inventario completo con su producto
+            Optional<Integer> stock = consultarEnVuelo(stockEnVuelo, productoId, () -> batchingDataServiceClient.obtenerCantidadPorProductoId(productoId));
+            if (stock.isEmpty()) {
+                log.warn("Se intentó verificar el stock de un producto inexistente (ID: {})", productoId);
+                return false; // Si el producto no existe, no hay disponibilidad.
+            }
+            return stock.get() >= cantidadSolicitada;
         } catch (FeignException e) {
             log.error("Error de comunicación al verificar stock.", e);
             throw new MicroserviceCommunicationException("Error al verificar la disponibilidad del stock.");
         }
     }
 
+    /**
+     * Verifica la disponibilidad de varios productos con una sola llamada al data-service,
+     * que devuelve únicamente el stock de cada uno.
+     * @param items Productos y cantidades solicitadas; un producto repetido suma sus cantidades.
+     * @return Para cada producto, si su stock alcanza la cantidad solicitada (false si no existe).
+     */
+    public Map<Long, Boolean> verificarDisponibilidad(List<ItemPedido> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ValidacionNegocioException("Debe indicar al menos un producto a verificar.");
+        }
+        Map<Long, Integer> cantidadPorProducto = new LinkedHashMap<>();
+        for (ItemPedido item : items) {
+            if (item.getProductoId() == null || item.getCantidad() == null || item.getCantidad() <= 0) {
+                throw new ValidacionNegocioException("Cada producto debe indicar un productoId y una cantidad mayor que cero.");
+            }
+            cantidadPorProducto.merge(item.getProductoId(), item.getCantidad(), Integer::sum);
+        }
+
+        Map<Long, Integer> stockPorProducto;
+        try {
+            stockPorProducto = dataServiceClient.obtenerCantidadesPorProductoIds(cantidadPorProducto.keySet()).stream()
+                    .collect(Collectors.toMap(StockDTO::getProductoId, StockDTO::getCantidad));
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
+        } catch (FeignException e) {
+            log.error("Error de comunicación al verificar stock en lote.", e);
+            throw new MicroserviceCommunicationException("Error al verificar la disponibilidad del stock.");
+        }
+
+        Map<Long, Boolean> disponibilidad = new LinkedHashMap<>();
+        cantidadPorProducto.forEach((productoId, cantidad) ->
+                disponibilidad.put(productoId, stockPorProducto.getOrDefault(productoId, 0) >= cantidad));
+        return disponibilidad;
+    }
+
+    private <T> Optional<T> consultarEnVuelo(SingleFlight<Long, Optional<T>> enVuelo, Long productoId, Supplier<Optional<T>> consulta) {
+        try {
+            return enVuelo.ejecutar(productoId, consulta);
+        } catch (SingleFlight.EsperaAgotadaException e) {
+            log.warn("Se agotó la espera de la consulta de inventario en vuelo para el producto ID {}", productoId);
+            throw new MicroserviceCommunicationException("Tiempo de espera agotado al consultar el inventario.");
+        }
+    }
+
     public InventarioDTO actualizarStock(Long productoId, Integer cantidad) {
         if (cantidad == 0) {
             throw new ValidacionNegocioException("La cantidad para actualizar el stock no puede ser cero.");
         }
+        if (ajustesAgrupados != null) {
+            return actualizarStockAgrupado(productoId, cantidad);
+        }
         try {
             log.info("BussinessService: Actualizando stock para producto ID {} (cantidad: {})", productoId, cantidad);
-            return dataServiceClient.actualizarStock(productoId, cantidad);
+            InventarioDTO inventario = dataServiceClient.actualizarStock(productoId, cantidad);
+            catalogoCache.invalidarProducto(productoId);
+            return inventario;
         } catch (FeignException.NotFound e) {
             throw new ProductoNoEncontradoException("No se puede actualizar stock, producto no encontrado con ID: " + productoId);
         } catch (FeignException e) {
@@ -82,11 +186,155 @@ public class InventarioBusinessService {
             throw new MicroserviceCommunicationException("Error de comunicación al actualizar el stock.");
         }
     }
-}
 
+    /**
+     * Aplica el ajuste en un lote compartido con las demás actualizaciones concurrentes (ver AjustesStockAgrupados).
+     * El lote solo devuelve el stock resultante, así que el inventario se completa con una lectura por ID, que
+     * también se agrupa, y se le asigna la cantidad que dejó este ajuste.
+     */
+    private InventarioDTO actualizarStockAgrupado(Long productoId, Integer cantidad) {
+        ResultadoAjusteStock resultado;
+        try {
+            log.debug("BussinessService: Actualizando stock agrupado para producto ID {} (cantidad: {})", productoId, cantidad);
+            resultado = ajustesAgrupados.ajustar(productoId, cantidad);
+        } catch (FeignException e) {
+            log.error("Error de comunicación al actualizar stock.", e);
+            throw new MicroserviceCommunicationException("Error de comunicación al actualizar el stock.");
+        }
+        if (resultado.getEstado() == EstadoAjusteStock.NO_ENCONTRADO) {
+            throw new ProductoNoEncontradoException("No se puede actualizar stock, producto no encontrado con ID: " + productoId);
+        }
+        if (resultado.getEstado() != EstadoAjusteStock.APLICADO) {
+            throw new ValidacionNegocioException("No hay stock suficiente para realizar la operación.");
+        }
+        catalogoCache.invalidarProducto(productoId);
+
+        try {
+            // Sin pasar por el single-flight: una consulta ya en vuelo podría haber leído el stock anterior al ajuste
+            InventarioDTO inventario = batchingDataServiceClient.obtenerInventarioPorProductoId(productoId)
+                    .orElseThrow(() -> new ProductoNoEncontradoException("No se puede actualizar stock, producto no encontrado con ID: " + productoId));
+            // Copia: las lecturas agrupadas de un mismo producto comparten la instancia
+            return new InventarioDTO(inventario.getId(), inventario.getProducto(), resultado.getStockActual(),
+                    inventario.getStockMinimo(), inventario.getFechaActualizacion());
+        } catch (FeignException e) {
+            // El ajuste ya está aplicado: solo falló la lectura del inventario actualizado
+            log.error("Stock actualizado para el producto ID {}, pero no se pudo leer el inventario.", productoId, e);
+            throw new MicroserviceCommunicationException("Stock actualizado, pero no se pudo obtener el inventario actualizado.");
+        }
+    }
+
+    /** true si las actualizaciones de stock se encolan en lugar de enviarse en el momento. */
+    public boolean isActualizacionStockAsincrona() {
+        return colaStock != null;
+    }
+
+    /**
+     * Encola la actualización de stock y responde en cuanto está en disco, sin esperar al data-service.
+     * El ajuste se aplica después; si el producto no existe o no hay stock suficiente se descarta
+     * (ver ColaStockSaliente). Requiere inventario.cola-salida.enabled=true.
+     * @return El ajuste encolado con su clave de idempotencia.
+     */
+    public ActualizacionStockEncoladaDTO encolarActualizacionStock(Long productoId, Integer cantidad) {
+        if (colaStock == null) {
+            throw new IllegalStateException("La cola de salida de stock no está habilitada (inventario.cola-salida.enabled)");
+        }
+        if (cantidad == 0) {
+            throw new ValidacionNegocioException("La cantidad para actualizar el stock no puede ser cero.");
+        }
+        String clave = colaStock.encolar(productoId, cantidad);
+        log.debug("BussinessService: Ajuste de stock encolado para producto ID {} (cantidad: {}, clave: {})", productoId, cantidad, clave);
+        return new ActualizacionStockEncoladaDTO(productoId, cantidad, clave);
+    }
+
+    /**
+     * Envía un lote de ajustes de stock al data-service en una única llamada.
+     * El data-service los aplica en una sola transacción y devuelve el resultado de cada ajuste.
+     * @param request Ajustes {productoId, delta} y modo "todo o nada".
+     * @return Resultado por ajuste y si el lote quedó confirmado.
+     */
+    public AjusteStockLoteResponse ajustarStockEnLote(AjusteStockLoteRequest request) {
+        if (request.getAjustes() == null || request.getAjustes().isEmpty()) {
+            throw new ValidacionNegocioException("El lote debe contener al menos un ajuste de stock.");
+        }
+        for (AjusteStockItem ajuste : request.getAjustes()) {
+            if (ajuste.getProductoId() == null || ajuste.getDelta() == null || ajuste.getDelta() == 0) {
+                throw new ValidacionNegocioException("Cada ajuste debe indicar un productoId y un delta distinto de cero.");
+            }
+        }
+        try {
+            log.info("BussinessService: Enviando lote de {} ajustes de stock (todoONada: {})", request.getAjustes().size(), request.isTodoONada());
+            AjusteStockLoteResponse respuesta = dataServiceClient.ajustarStockEnLote(request);
+            invalidarAplicados(respuesta);
+            return respuesta;
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
+        } catch (FeignException e) {
+            log.error("Error de comunicación al ajustar stock en lote.", e);
+            throw new MicroserviceCommunicationException("Error de comunicación al ajustar el stock en lote.");
+        }
+    }
+
+    /**
+     * Confirma la compra de un carrito completo reservando el stock de todas sus líneas
+     * con una única llamada al data-service. El lote se envía en modo "todo o nada":
+     * o se descuentan todas las líneas o no se descuenta ninguna, sin ventana entre
+     * la verificación de disponibilidad y la escritura.
+     * @param pedido Líneas del carrito {productoId, cantidad}.
+     * @return Las líneas confirmadas con el stock resultante de cada producto.
+     */
+    public PedidoResponse realizarCheckout(PedidoRequest pedido) {
+        if (pedido.getItems() == null || pedido.getItems().isEmpty()) {
+            throw new ValidacionNegocioException("El pedido debe contener al menos un producto.");
+        }
 
+        // Si el carrito repite un producto se suman sus cantidades en un único ajuste
+        Map<Long, Integer> cantidadPorProducto = new LinkedHashMap<>();
+        for (ItemPedido item : pedido.getItems()) {
+            if (item.getProductoId() == null || item.getCantidad() == null || item.getCantidad() <= 0) {
+                throw new ValidacionNegocioException("Cada línea del pedido debe indicar un productoId y una cantidad mayor que cero.");
+            }
+            cantidadPorProducto.merge(item.getProductoId(), item.getCantidad(), Integer::sum);
+        }
 
+        List<AjusteStockItem> ajustes = cantidadPorProducto.entrySet().stream()
+                .map(linea -> new AjusteStockItem(linea.getKey(), -linea.getValue()))
+                .collect(Collectors.toList());
 
+        AjusteStockLoteResponse respuesta;
+        try {
+            log.info("BussinessService: Checkout de {} productos en un único lote", ajustes.size());
+            respuesta = dataServiceClient.ajustarStockEnLote(new AjusteStockLoteRequest(ajustes, true));
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
+        } catch (FeignException e) {
+            log.error("Error de comunicación al confirmar el pedido.", e);
+            throw new MicroserviceCommunicationException("Error de comunicación al confirmar el pedido.");
+        }
 
+        if (!respuesta.isConfirmado()) {
+            String noEncontrados = idsConEstado(respuesta, EstadoAjusteStock.NO_ENCONTRADO);
+            if (!noEncontrados.isEmpty()) {
+                throw new ProductoNoEncontradoException("No se puede confirmar el pedido, productos no encontrados: " + noEncontrados);
+            }
+            throw new ValidacionNegocioException("No hay stock suficiente para los productos: " + idsConEstado(respuesta, EstadoAjusteStock.STOCK_INSUFICIENTE));
+        }
+        invalidarAplicados(respuesta);
+        return new PedidoResponse(true, respuesta.getResultados());
+    }
 
+    private void invalidarAplicados(AjusteStockLoteResponse respuesta) {
+        respuesta.getResultados().stream()
+                .filter(resultado -> resultado.getEstado() == EstadoAjusteStock.APLICADO)
+                .map(ResultadoAjusteStock::getProductoId)
+                .distinct()
+                .forEach(catalogoCache::invalidarProducto);
+    }
 
+    private String idsConEstado(AjusteStockLoteResponse respuesta, EstadoAjusteStock estado) {
+        return respuesta.getResultados().stream()
+                .filter(resultado -> resultado.getEstado() == estado)
+                .map(ResultadoAjusteStock::getProductoId)
+                .map(String::valueOf)
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -1,9 +1,13 @@
 package com.example.businessService.service;
 
 
+import com.example.businessService.cache.CatalogoCache;
 import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.dto.PaginaDTO;
 import com.example.businessService.dto.ProductoDTO;
 import com.example.businessService.dto.ProductoRequest;
+import com.example.businessService.dto.ResultadoBusquedaDTO;
+import com.example.businessService.dto.ValoracionInventarioDTO;
 import com.example.businessService.exception.MicroserviceCommunicationException;
 import com.example.businessService.exception.ProductoNoEncontradoException;
 import com.example.businessService.exception.ValidacionNegocioException;
@@ -18,23 +22,55 @@ import java.util.List;
 @Slf4j
 public class ProductoBusinessService {
     private final DataServiceClient dataServiceClient;
+    private final CatalogoCache catalogoCache;
 
-    public ProductoBusinessService(DataServiceClient dataServiceClient) {
+    public ProductoBusinessService(DataServiceClient dataServiceClient, CatalogoCache catalogoCache) {
         this.dataServiceClient = dataServiceClient;
+        this.catalogoCache = catalogoCache;
     }
 
     public List<ProductoDTO> obtenerTodosLosProductos() {
         try {
-            return dataServiceClient.obtenerTodosLosProductos();
+            return catalogoCache.obtenerTodosLosProductos();
         } catch (FeignException e) {
             log.error("Error al obtener productos del microservicio de datos", e);
             throw new MicroserviceCommunicationException("Error de comunicación con el servicio de datos");
         }
     }
 
+    /**
+     * Obtiene una página del catálogo desde el data-service, reenviando el cursor opaco tal cual.
+     * El data-service responde 400 si el cursor, el límite o el orden no son válidos.
+     */
+    public PaginaDTO<ProductoDTO> obtenerPaginaProductos(String after, int limit, String orden) {
+        try {
+            return dataServiceClient.obtenerPaginaProductos(after, limit, orden);
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
+        } catch (FeignException e) {
+            log.error("Error al obtener la página de productos del microservicio de datos", e);
+            throw new MicroserviceCommunicationException("Error de comunicación con el servicio de datos");
+        }
+    }
+
+    /**
+     * Busca productos por nombre y descripción en el índice del data-service.
+     * Los resultados no se cachean: cada texto de búsqueda es distinto y el índice ya está en memoria.
+     */
+    public List<ResultadoBusquedaDTO> buscarProductos(String q, int limit) {
+        try {
+            return dataServiceClient.buscarProductos(q, limit);
+        } catch (FeignException.BadRequest e) {
+            throw new ValidacionNegocioException(e.contentUTF8());
+        } catch (FeignException e) {
+            log.error("Error al buscar productos en el microservicio de datos", e);
+            throw new MicroserviceCommunicationException("Error de comunicación con el servicio de datos");
+        }
+    }
+
     public ProductoDTO obtenerProductoPorId(Long id) {
         try {
-            return dataServiceClient.obtenerProductoPorId(id);
+            return catalogoCache.obtenerProductoPorId(id);
         } catch (FeignException.NotFound e) {
             throw new ProductoNoEncontradoException("Producto no encontrado con ID: " + id);
         } catch (FeignException e) {
@@ -47,7 +83,9 @@ public class ProductoBusinessService {
         validarProducto(request);
 
         try {
-            return dataServiceClient.crearProducto(request);
+            ProductoDTO nuevoProducto = dataServiceClient.crearProducto(request);
+            catalogoCache.invalidarProductos();
+            return nuevoProducto;
         } catch (FeignException e) {
             log.error("Error al crear producto en el microservicio de datos", e);
             throw new MicroserviceCommunicationException("Error de comunicación con el servicio de datos");
@@ -65,23 +103,21 @@ public class ProductoBusinessService {
     }
 
     public BigDecimal calcularValorTotalInventario() {
-        log.info("Iniciando cálculo del valor total del inventario.");
-        try {
-            // Obtiene todos los productos desde el data-service.
-            List<ProductoDTO> todosLosProductos = dataServiceClient.obtenerTodosLosProductos();
-
-            // Usa un Stream para calcular el valor total.
-            BigDecimal valorTotal = todosLosProductos.stream()
-                    // Para cada producto, multiplica su precio por su stock.
-                    .map(producto -> producto.getPrecio().multiply(new BigDecimal(producto.getStock())))
-                    // Suma todos los subtotales.
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            log.info("Cálculo finalizado. El valor total del inventario es: {}", valorTotal);
-            return valorTotal;
+        return obtenerValoracionInventario().getValorTotal();
+    }
 
+    /**
+     * Obtiene la valoración del inventario con su desglose por categoría.
+     * La suma de precio * stock la hace la base de datos del data-service; aquí solo llega
+     * una fila por categoría en lugar del catálogo completo.
+     */
+    public ValoracionInventarioDTO obtenerValoracionInventario() {
+        try {
+            ValoracionInventarioDTO valoracion = dataServiceClient.obtenerValoracionInventario();
+            log.info("El valor total del inventario es: {} ({} categorías)", valoracion.getValorTotal(), valoracion.getCategorias().size());
+            return valoracion;
         } catch (FeignException e) {
-            log.error("Error de comunicación al intentar obtener todos los productos para el cálculo de inventario.", e);
+            log.error("Error de comunicación al obtener la valoración del inventario.", e);
             throw new MicroserviceCommunicationException("No se pudo calcular el valor del inventario debido a un error de comunicación.");
         }
     }
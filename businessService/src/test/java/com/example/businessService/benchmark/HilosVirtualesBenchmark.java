@@ -0,0 +1,167 @@
+package com.example.businessService.benchmark;
+
+import com.example.businessService.BusinessServiceApplication;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark de hilos de plataforma contra hilos virtuales en el business-service.
+ * Levanta el servicio dos veces (spring.threads.virtual.enabled=false y true) contra un data-service
+ * simulado con WireMock que responde con una latencia fija, y lanza 1000 clientes concurrentes sobre
+ * GET /api/inventario/{id}/disponibilidad, que hace una llamada Feign bloqueante por petición.
+ * Informa throughput y latencias p50/p99 de cada modo.
+ *
+ * No forma parte de la suite normal (el nombre no termina en Test). Se ejecuta con:
+ *   mvn test -Dtest=HilosVirtualesBenchmark -Dsurefire.failIfNoSpecifiedTests=false
+ * Parámetros opcionales: -Dbenchmark.clientes=1000 -Dbenchmark.segundos=20 -Dbenchmark.latencia-ms=50
+ */
+class HilosVirtualesBenchmark {
+
+    private static final int CLIENTES = Integer.getInteger("benchmark.clientes", 1000);
+    private static final Duration MEDICION = Duration.ofSeconds(Integer.getInteger("benchmark.segundos", 20));
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(5);
+    private static final int LATENCIA_DATA_SERVICE_MS = Integer.getInteger("benchmark.latencia-ms", 50);
+
+    private static WireMockServer dataService;
+
+    @BeforeAll
+    static void iniciarDataServiceSimulado() {
+        // Las respuestas con demora se programan de forma asíncrona para que WireMock no sea el cuello de botella
+        dataService = new WireMockServer(options()
+                .dynamicPort()
+                .containerThreads(CLIENTES + 200)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(32));
+        dataService.start();
+        dataService.stubFor(get(urlPathMatching("/data/inventario/\\d+"))
+                .willReturn(okJson("{\"id\":1,\"cantidad\":100,\"stockMinimo\":10}")
+                        .withFixedDelay(LATENCIA_DATA_SERVICE_MS)));
+    }
+
+    @AfterAll
+    static void detenerDataServiceSimulado() {
+        dataService.stop();
+    }
+
+    @Test
+    void compararHilosDePlataformaConHilosVirtuales() throws Exception {
+        Resultado plataforma = ejecutarModo(false);
+        Resultado virtuales = ejecutarModo(true);
+
+        System.out.printf("%nBenchmark disponibilidad de stock: %d clientes, %d s, latencia data-service %d ms%n",
+                CLIENTES, MEDICION.toSeconds(), LATENCIA_DATA_SERVICE_MS);
+        System.out.printf("%-12s %12s %10s %10s %8s%n", "modo", "peticiones/s", "p50 (ms)", "p99 (ms)", "errores");
+        System.out.println(plataforma.formatear("plataforma"));
+        System.out.println(virtuales.formatear("virtuales"));
+
+        assertEquals(0, plataforma.errores());
+        assertEquals(0, virtuales.errores());
+    }
+
+    private Resultado ejecutarModo(boolean hilosVirtuales) throws Exception {
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(BusinessServiceApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "data.service.url=http://localhost:" + dataService.port(),
+                        "data.service.max-conexiones=" + CLIENTES,
+                        "spring.threads.virtual.enabled=" + hilosVirtuales,
+                        "logging.level.com.example=WARN")
+                .run()) {
+            int puerto = Integer.parseInt(contexto.getEnvironment().getRequiredProperty("local.server.port"));
+            URI uri = URI.create("http://localhost:" + puerto + "/api/inventario/1/disponibilidad?cantidad=1");
+
+            cargar(uri, CALENTAMIENTO);
+            return cargar(uri, MEDICION);
+        }
+    }
+
+    /**
+     * Lanza CLIENTES bucles cerrados (cada cliente espera su respuesta antes de enviar la siguiente)
+     * durante la duración indicada y junta las latencias de todos.
+     */
+    private Resultado cargar(URI uri, Duration duracion) throws Exception {
+        AtomicLong errores = new AtomicLong();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        List<Future<long[]>> clientes = new ArrayList<>(CLIENTES);
+
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(hilos).build()) {
+            long fin = System.nanoTime() + duracion.toNanos();
+            for (int i = 0; i < CLIENTES; i++) {
+                clientes.add(hilos.submit(() -> {
+                    long[] latencias = new long[1024];
+                    int total = 0;
+                    while (System.nanoTime() < fin) {
+                        long inicio = System.nanoTime();
+                        try {
+                            HttpResponse<Void> respuesta = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (respuesta.statusCode() != 200) {
+                                errores.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errores.incrementAndGet();
+                        }
+                        if (total == latencias.length) {
+                            latencias = Arrays.copyOf(latencias, total * 2);
+                        }
+                        latencias[total++] = System.nanoTime() - inicio;
+                    }
+                    return Arrays.copyOf(latencias, total);
+                }));
+            }
+
+            long[] todas = new long[0];
+            for (Future<long[]> cliente : clientes) {
+                long[] latencias = cliente.get();
+                int desde = todas.length;
+                todas = Arrays.copyOf(todas, desde + latencias.length);
+                System.arraycopy(latencias, 0, todas, desde, latencias.length);
+            }
+            Arrays.sort(todas);
+            return new Resultado(todas, duracion, errores.get());
+        }
+    }
+
+    private record Resultado(long[] latenciasOrdenadas, Duration duracion, long errores) {
+
+        double peticionesPorSegundo() {
+            return latenciasOrdenadas.length / (duracion.toMillis() / 1000.0);
+        }
+
+        double percentilMs(double percentil) {
+            if (latenciasOrdenadas.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(percentil / 100.0 * latenciasOrdenadas.length) - 1;
+            return latenciasOrdenadas[Math.max(indice, 0)] / 1_000_000.0;
+        }
+
+        String formatear(String modo) {
+            return String.format("%-12s %12.0f %10.1f %10.1f %8d", modo, peticionesPorSegundo(), percentilMs(50), percentilMs(99), errores);
+        }
+    }
+}
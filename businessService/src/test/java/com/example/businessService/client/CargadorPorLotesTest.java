@@ -0,0 +1,91 @@
+package com.example.businessService.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CargadorPorLotesTest {
+
+    private final List<Collection<Long>> lotesRecibidos = new CopyOnWriteArrayList<>();
+
+    private Map<Long, String> cargarNombres(Collection<Long> ids) {
+        lotesRecibidos.add(ids);
+        return ids.stream().filter(id -> id != 404L).collect(Collectors.toMap(Function.identity(), id -> "producto-" + id));
+    }
+
+    @Test
+    void cargar_lecturasConcurrentes_seAgrupanEnUnLoteYCadaUnoRecibeSuValor() throws Exception {
+        CargadorPorLotes<Long, String> cargador = new CargadorPorLotes<>(this::cargarNombres, Duration.ofMillis(200), 100);
+
+        List<String> resultados = ejecutarConcurrentemente(50, i -> cargador.cargar((long) i));
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals("producto-" + i, resultados.get(i));
+        }
+        assertTrue(lotesRecibidos.size() < 50, "Se esperaban menos llamadas que lecturas, hubo " + lotesRecibidos.size());
+    }
+
+    @Test
+    void cargar_alAlcanzarElMaximoDeClaves_despachaSinEsperarLaVentana() throws Exception {
+        CargadorPorLotes<Long, String> cargador = new CargadorPorLotes<>(this::cargarNombres, Duration.ofMinutes(1), 2);
+
+        long inicio = System.nanoTime();
+        List<String> resultados = ejecutarConcurrentemente(2, i -> cargador.cargar((long) i));
+
+        assertEquals(List.of("producto-0", "producto-1"), resultados);
+        assertEquals(1, lotesRecibidos.size());
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void cargar_claveAusenteEnElLote_devuelveNull() {
+        CargadorPorLotes<Long, String> cargador = new CargadorPorLotes<>(this::cargarNombres, Duration.ofMillis(1), 100);
+
+        assertNull(cargador.cargar(404L));
+    }
+
+    @Test
+    void cargar_cuandoFallaElLote_propagaLaExcepcionOriginal() {
+        IllegalStateException error = new IllegalStateException("data-service caído");
+        CargadorPorLotes<Long, String> cargador = new CargadorPorLotes<>(ids -> {
+            throw error;
+        }, Duration.ofMillis(1), 100);
+
+        IllegalStateException lanzada = assertThrows(IllegalStateException.class, () -> cargador.cargar(1L));
+        assertSame(error, lanzada);
+    }
+
+    private static List<String> ejecutarConcurrentemente(int hilos, Function<Integer, String> lectura) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<String>> futuros = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            int indice = i;
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                return lectura.apply(indice);
+            }));
+        }
+        largada.countDown();
+        List<String> resultados = new ArrayList<>();
+        for (Future<String> futuro : futuros) {
+            resultados.add(futuro.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return resultados;
+    }
+}
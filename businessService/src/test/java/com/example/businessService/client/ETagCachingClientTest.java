@@ -0,0 +1,90 @@
+package com.example.businessService.client;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ETagCachingClientTest {
+
+    private static final String URL = "http://data-service/data/categorias";
+    private static final byte[] CUERPO = "[{\"id\":1,\"nombre\":\"Audio\"}]".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private Client delegado; // Se simula el cliente HTTP real
+
+    private ETagCachingClient client;
+    private Request.Options opciones;
+
+    @BeforeEach
+    void setUp() {
+        client = new ETagCachingClient(delegado);
+        opciones = new Request.Options();
+    }
+
+    @Test
+    void execute_segundaLecturaSinCambios_enviaIfNoneMatchYReutilizaElCuerpo() throws Exception {
+        Request request = peticion(Request.HttpMethod.GET);
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(request, 200, Map.of("ETag", List.of("\"v1\"")), CUERPO))
+                .thenReturn(respuesta(request, 304, Map.of("ETag", List.of("\"v1\"")), null));
+
+        Response primera = client.execute(request, opciones);
+        Response segunda = client.execute(request, opciones);
+
+        assertArrayEquals(CUERPO, Util.toByteArray(primera.body().asInputStream()));
+        assertEquals(200, segunda.status());
+        assertArrayEquals(CUERPO, Util.toByteArray(segunda.body().asInputStream()));
+
+        ArgumentCaptor<Request> enviadas = ArgumentCaptor.forClass(Request.class);
+        verify(delegado, times(2)).execute(enviadas.capture(), any());
+        assertNull(enviadas.getAllValues().get(0).headers().get("If-None-Match"));
+        assertEquals(List.of("\"v1\""), List.copyOf(enviadas.getAllValues().get(1).headers().get("If-None-Match")));
+    }
+
+    @Test
+    void execute_conMetodoDistintoDeGet_noUsaLaCache() throws Exception {
+        Request request = peticion(Request.HttpMethod.POST);
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(request, 200, Map.of("ETag", List.of("\"v1\"")), CUERPO));
+
+        client.execute(request, opciones);
+        client.execute(request, opciones);
+
+        ArgumentCaptor<Request> enviadas = ArgumentCaptor.forClass(Request.class);
+        verify(delegado, times(2)).execute(enviadas.capture(), any());
+        assertNull(enviadas.getAllValues().get(1).headers().get("If-None-Match"));
+    }
+
+    private static Request peticion(Request.HttpMethod metodo) {
+        return Request.create(metodo, URL, new HashMap<>(), null, StandardCharsets.UTF_8, new RequestTemplate());
+    }
+
+    private static Response respuesta(Request request, int status, Map<String, Collection<String>> cabeceras, byte[] cuerpo) {
+        return Response.builder()
+                .status(status)
+                .reason(status == 304 ? "Not Modified" : "OK")
+                .headers(cabeceras)
+                .body(cuerpo)
+                .request(request)
+                .build();
+    }
+}
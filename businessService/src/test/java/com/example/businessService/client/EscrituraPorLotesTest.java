@@ -0,0 +1,98 @@
+package com.example.businessService.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscrituraPorLotesTest {
+
+    private final List<List<Integer>> lotesRecibidos = new CopyOnWriteArrayList<>();
+
+    private List<String> escribirDeltas(List<Integer> deltas) {
+        lotesRecibidos.add(deltas);
+        return deltas.stream().map(delta -> "aplicado-" + delta).toList();
+    }
+
+    @Test
+    void escribir_escriturasConcurrentes_seAgrupanEnUnLoteYCadaUnaRecibeSuResultado() throws Exception {
+        EscrituraPorLotes<Integer, String> escritura = new EscrituraPorLotes<>(this::escribirDeltas, Duration.ofMillis(200), 100);
+
+        List<String> resultados = ejecutarConcurrentemente(50, escritura::escribir);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals("aplicado-" + i, resultados.get(i));
+        }
+        assertTrue(lotesRecibidos.size() < 50, "Se esperaban menos llamadas que escrituras, hubo " + lotesRecibidos.size());
+    }
+
+    @Test
+    void escribir_elementosRepetidos_noSeCombinan() throws Exception {
+        EscrituraPorLotes<Integer, String> escritura = new EscrituraPorLotes<>(this::escribirDeltas, Duration.ofMinutes(1), 3);
+
+        List<String> resultados = ejecutarConcurrentemente(3, i -> escritura.escribir(7));
+
+        assertEquals(List.of("aplicado-7", "aplicado-7", "aplicado-7"), resultados);
+        assertEquals(List.of(List.of(7, 7, 7)), lotesRecibidos);
+    }
+
+    @Test
+    void escribir_alAlcanzarElMaximoDeElementos_despachaSinEsperarLaVentana() throws Exception {
+        EscrituraPorLotes<Integer, String> escritura = new EscrituraPorLotes<>(this::escribirDeltas, Duration.ofMinutes(1), 2);
+
+        long inicio = System.nanoTime();
+        List<String> resultados = ejecutarConcurrentemente(2, escritura::escribir);
+
+        assertEquals(List.of("aplicado-0", "aplicado-1"), resultados);
+        assertEquals(1, lotesRecibidos.size());
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void escribir_cuandoFallaElLote_propagaLaExcepcionOriginal() {
+        IllegalStateException error = new IllegalStateException("data-service caído");
+        EscrituraPorLotes<Integer, String> escritura = new EscrituraPorLotes<>(deltas -> {
+            throw error;
+        }, Duration.ofMillis(1), 100);
+
+        IllegalStateException lanzada = assertThrows(IllegalStateException.class, () -> escritura.escribir(1));
+        assertSame(error, lanzada);
+    }
+
+    @Test
+    void escribir_cuandoElLoteDevuelveMenosResultados_fallaEnLugarDeDesordenarlos() {
+        EscrituraPorLotes<Integer, String> escritura = new EscrituraPorLotes<>(deltas -> List.of(), Duration.ofMillis(1), 100);
+
+        assertThrows(IllegalStateException.class, () -> escritura.escribir(1));
+    }
+
+    private static List<String> ejecutarConcurrentemente(int hilos, Function<Integer, String> escritura) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<String>> futuros = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            int indice = i;
+            futuros.add(executor.submit(() -> {
+                largada.await();
+                return escritura.apply(indice);
+            }));
+        }
+        largada.countDown();
+        List<String> resultados = new ArrayList<>();
+        for (Future<String> futuro : futuros) {
+            resultados.add(futuro.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        return resultados;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.businessService.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresupuestoReintentosTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+
+    @Test
+    void retirar_conDataServiceCaido_limitaLosReintentosAlRatioDeLlamadas() {
+        PresupuestoReintentos presupuesto = new PresupuestoReintentos(0.1, 0, 1000, reloj::get);
+
+        int reintentos = 0;
+        for (int i = 0; i < 1000; i++) {
+            presupuesto.registrarLlamada();
+            if (presupuesto.retirar()) {
+                reintentos++;
+            }
+        }
+
+        assertEquals(100, reintentos);
+    }
+
+    @Test
+    void retirar_sinTrafico_reponeElMinimoPorSegundo() {
+        PresupuestoReintentos presupuesto = new PresupuestoReintentos(0.1, 2, 100, reloj::get);
+        assertTrue(presupuesto.retirar());
+        assertTrue(presupuesto.retirar());
+        assertFalse(presupuesto.retirar());
+
+        reloj.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(presupuesto.retirar());
+        assertFalse(presupuesto.retirar());
+    }
+
+    @Test
+    void registrarLlamada_noAcumulaMasDelMaximo() {
+        PresupuestoReintentos presupuesto = new PresupuestoReintentos(1, 0, 5, reloj::get);
+        for (int i = 0; i < 100; i++) {
+            presupuesto.registrarLlamada();
+        }
+        reloj.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+        assertEquals(5.0, presupuesto.saldo());
+    }
+}
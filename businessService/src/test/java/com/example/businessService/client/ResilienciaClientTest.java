@@ -0,0 +1,212 @@
+package com.example.businessService.client;
+
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Util;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResilienciaClientTest {
+
+    private static final String URL = "http://data-service/data/categorias";
+    private static final byte[] CUERPO = "[{\"id\":1,\"nombre\":\"Audio\"}]".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private Client delegado; // Se simula el cliente HTTP real
+
+    private ResilienciaProperties properties;
+    private Request.Options opciones;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ResilienciaProperties();
+        properties.getReintentos().setEsperaInicial(Duration.ofMillis(1));
+        properties.getReintentos().setEsperaMaxima(Duration.ofMillis(2));
+        opciones = new Request.Options();
+    }
+
+    @Test
+    void execute_lecturaCon503_reintentaYDevuelveLaSiguienteRespuesta() throws Exception {
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticion(Request.HttpMethod.GET);
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(request, 503, null))
+                .thenReturn(respuesta(request, 200, CUERPO));
+
+        Response respuesta = client.execute(request, opciones);
+
+        assertEquals(200, respuesta.status());
+        assertArrayEquals(CUERPO, Util.toByteArray(respuesta.body().asInputStream()));
+        verify(delegado, times(2)).execute(any(), any());
+    }
+
+    @Test
+    void execute_postDeLecturaCon503_seReintentaComoLectura() throws Exception {
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticionDeMetodo("obtenerCantidadesPorProductoIds", "[10,20]");
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(request, 503, null))
+                .thenReturn(respuesta(request, 200, CUERPO));
+
+        assertEquals(200, client.execute(request, opciones).status());
+        ArgumentCaptor<Request.Options> enviadas = ArgumentCaptor.forClass(Request.Options.class);
+        verify(delegado, times(2)).execute(any(), enviadas.capture());
+        assertEquals(properties.getLecturas().getTimeout().toMillis(), enviadas.getValue().readTimeoutMillis());
+    }
+
+    @Test
+    void execute_postDeEscrituraCon503_noSeReintenta() throws Exception {
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticionDeMetodo("ajustarStockEnLote", "{\"ajustes\":[]}");
+        when(delegado.execute(any(), any())).thenReturn(respuesta(request, 503, null));
+
+        assertEquals(503, client.execute(request, opciones).status());
+        verify(delegado, times(1)).execute(any(), any());
+    }
+
+    @Test
+    void execute_escrituraConTimeout_noSeReintenta() throws Exception {
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticion(Request.HttpMethod.PUT);
+        when(delegado.execute(any(), any())).thenThrow(new SocketTimeoutException("Read timed out"));
+
+        assertThrows(SocketTimeoutException.class, () -> client.execute(request, opciones));
+        verify(delegado, times(1)).execute(any(), any());
+    }
+
+    @Test
+    void execute_aplicaElTimeoutDelGrupo() throws Exception {
+        properties.getEscrituras().setTimeout(Duration.ofMillis(750));
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticion(Request.HttpMethod.POST);
+        when(delegado.execute(any(), any())).thenReturn(respuesta(request, 200, CUERPO));
+
+        client.execute(request, opciones);
+
+        ArgumentCaptor<Request.Options> enviadas = ArgumentCaptor.forClass(Request.Options.class);
+        verify(delegado).execute(any(), enviadas.capture());
+        assertEquals(750, enviadas.getValue().readTimeoutMillis());
+    }
+
+    @Test
+    void timeoutPara_metodoConTimeoutPropio_reemplazaAlDelGrupo() {
+        properties.setTimeouts(Map.of("obtenerValoracionInventario", Duration.ofSeconds(10)));
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+
+        assertEquals(Duration.ofSeconds(10), client.timeoutPara("obtenerValoracionInventario", properties.getLecturas()));
+        assertEquals(properties.getLecturas().getTimeout(), client.timeoutPara("obtenerProductoPorId", properties.getLecturas()));
+    }
+
+    @Test
+    void execute_conCircuitoAbierto_respondeConLaUltimaLecturaCorrecta() throws Exception {
+        abrirCircuitoTrasDosLlamadas();
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticion(Request.HttpMethod.GET);
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(request, 200, CUERPO))
+                .thenReturn(respuesta(request, 500, null));
+
+        client.execute(request, opciones);
+        assertEquals(500, client.execute(request, opciones).status());
+        Response respaldo = client.execute(request, opciones);
+
+        assertEquals(CircuitBreaker.State.OPEN, client.estadoCircuitoLecturas());
+        assertEquals(200, respaldo.status());
+        assertArrayEquals(CUERPO, Util.toByteArray(respaldo.body().asInputStream()));
+        assertEquals(List.of(ResilienciaClient.AVISO_RESPALDO), List.copyOf(respaldo.headers().get("Warning")));
+        verify(delegado, times(2)).execute(any(), any());
+    }
+
+    @Test
+    void execute_postDeLecturaConCircuitoAbierto_respondeSoloConElRespaldoDelMismoCuerpo() throws Exception {
+        abrirCircuitoTrasDosLlamadas();
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request consultada = peticionDeMetodo("obtenerCantidadesPorProductoIds", "[10,20]");
+        Request otra = peticionDeMetodo("obtenerCantidadesPorProductoIds", "[30]");
+        when(delegado.execute(any(), any()))
+                .thenReturn(respuesta(consultada, 200, CUERPO))
+                .thenReturn(respuesta(consultada, 500, null));
+
+        client.execute(consultada, opciones);
+        client.execute(consultada, opciones);
+
+        Response respaldo = client.execute(peticionDeMetodo("obtenerCantidadesPorProductoIds", "[10,20]"), opciones);
+        assertArrayEquals(CUERPO, Util.toByteArray(respaldo.body().asInputStream()));
+        assertThrows(IOException.class, () -> client.execute(otra, opciones)); // Otra consulta: sin respaldo
+    }
+
+    @Test
+    void execute_conCircuitoAbiertoYSinRespaldo_lanzaIOException() throws Exception {
+        abrirCircuitoTrasDosLlamadas();
+        ResilienciaClient client = new ResilienciaClient(delegado, properties, new SimpleMeterRegistry());
+        Request request = peticion(Request.HttpMethod.POST);
+        when(delegado.execute(any(), any())).thenReturn(respuesta(request, 500, null));
+
+        client.execute(request, opciones);
+        client.execute(request, opciones);
+
+        assertThrows(IOException.class, () -> client.execute(request, opciones));
+        verify(delegado, times(2)).execute(any(), any());
+    }
+
+    private void abrirCircuitoTrasDosLlamadas() {
+        properties.getReintentos().setMaximoIntentos(1);
+        for (ResilienciaProperties.Grupo grupo : List.of(properties.getLecturas(), properties.getEscrituras())) {
+            grupo.setVentanaCircuito(2);
+            grupo.setMinimoLlamadas(2);
+            grupo.setEsperaAbierto(Duration.ofMinutes(1));
+        }
+    }
+
+    private static Request peticion(Request.HttpMethod metodo) {
+        return Request.create(metodo, URL, new HashMap<>(), null, StandardCharsets.UTF_8, new RequestTemplate());
+    }
+
+    /** Petición POST originada por el método indicado de DataServiceClient, como las arma Feign. */
+    private static Request peticionDeMetodo(String metodo, String cuerpo) throws NoSuchMethodException {
+        MethodMetadata metadata = mock(MethodMetadata.class);
+        Method metodoCliente = Arrays.stream(DataServiceClient.class.getMethods())
+                .filter(m -> m.getName().equals(metodo))
+                .findFirst()
+                .orElseThrow(NoSuchMethodException::new);
+        when(metadata.method()).thenReturn(metodoCliente);
+        RequestTemplate template = new RequestTemplate();
+        template.methodMetadata(metadata);
+        return Request.create(Request.HttpMethod.POST, URL, new HashMap<>(), cuerpo.getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8, template);
+    }
+
+    private static Response respuesta(Request request, int status, byte[] cuerpo) {
+        return Response.builder()
+                .status(status)
+                .reason(status == 200 ? "OK" : "Error")
+                .headers(Map.of())
+                .body(cuerpo)
+                .request(request)
+                .build();
+    }
+}
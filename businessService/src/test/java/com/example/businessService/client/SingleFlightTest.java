@@ -0,0 +1,125 @@
+package com.example.businessService.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int HILOS = 20;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void ejecutar_llamadasConcurrentesMismaClave_compartenUnaSolaLlamada() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), meterRegistry);
+        AtomicInteger llamadas = new AtomicInteger();
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<String>> futuros = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            futuros.add(executor.submit(() -> singleFlight.ejecutar(1L, () -> {
+                llamadas.incrementAndGet();
+                esperar(liberar);
+                return "stock-1";
+            })));
+        }
+        // Se espera a que todos los hilos hayan llegado antes de liberar la llamada en vuelo
+        while (meterRegistry.get("singleflight.llamadas").tag("rol", "unido").counter().count() < HILOS - 1) {
+            Thread.sleep(5);
+        }
+        liberar.countDown();
+
+        for (Future<String> futuro : futuros) {
+            assertEquals("stock-1", futuro.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, llamadas.get());
+        assertEquals((HILOS - 1) / (double) HILOS, singleFlight.ratioAgrupamiento(), 1e-9);
+    }
+
+    @Test
+    void ejecutar_cuandoLaLlamadaFalla_todosRecibenLaMismaExcepcion() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), meterRegistry);
+        IllegalStateException error = new IllegalStateException("data-service caído");
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<String> lider = executor.submit(() -> singleFlight.ejecutar(1L, () -> {
+            esperar(liberar);
+            throw error;
+        }));
+        while (meterRegistry.get("singleflight.llamadas").tag("rol", "lider").counter().count() < 1) {
+            Thread.sleep(5);
+        }
+        Future<String> unido = executor.submit(() -> singleFlight.ejecutar(1L, () -> "no debería ejecutarse"));
+        while (meterRegistry.get("singleflight.llamadas").tag("rol", "unido").counter().count() < 1) {
+            Thread.sleep(5);
+        }
+        liberar.countDown();
+
+        Exception delLider = assertThrows(Exception.class, () -> lider.get(10, TimeUnit.SECONDS));
+        Exception delUnido = assertThrows(Exception.class, () -> unido.get(10, TimeUnit.SECONDS));
+        assertSame(error, delLider.getCause());
+        assertSame(error, delUnido.getCause());
+        executor.shutdown();
+    }
+
+    @Test
+    void ejecutar_terminadaLaLlamada_laSiguienteVuelveAEjecutarse() {
+        SingleFlight<Long, Integer> singleFlight = new SingleFlight<>("test", Duration.ofSeconds(10), meterRegistry);
+        AtomicInteger llamadas = new AtomicInteger();
+
+        singleFlight.ejecutar(1L, llamadas::incrementAndGet);
+        singleFlight.ejecutar(1L, llamadas::incrementAndGet);
+
+        assertEquals(2, llamadas.get());
+    }
+
+    @Test
+    void ejecutar_cuandoSeSuperaLaEsperaMaxima_lanzaEsperaAgotada() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("test", Duration.ofMillis(50), meterRegistry);
+        CountDownLatch liberar = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> lider = executor.submit(() -> singleFlight.ejecutar(1L, () -> {
+            esperar(liberar);
+            return "tarde";
+        }));
+        while (meterRegistry.get("singleflight.llamadas").tag("rol", "lider").counter().count() < 1) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(SingleFlight.EsperaAgotadaException.class, () -> singleFlight.ejecutar(1L, () -> "otro"));
+
+        liberar.countDown();
+        assertEquals("tarde", lider.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    private static void esperar(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.businessService.cola;
+
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.dto.AjusteStockItem;
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.AjusteStockLoteResponse;
+import com.example.businessService.dto.EstadoAjusteStock;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import feign.FeignException;
+import feign.Request;
+import feign.RequestTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ColaStockSalienteTest {
+
+    @Mock
+    private DataServiceClient dataServiceClient;
+
+    @Mock
+    private CatalogoCache catalogoCache;
+
+    @TempDir
+    Path directorio;
+
+    private SimpleMeterRegistry meterRegistry; // Uno por arranque: los gauges de la cola no se registran dos veces
+    private final Request dummyRequest = Request.create(Request.HttpMethod.POST, "/fake", new HashMap<>(), null, new RequestTemplate());
+    private ColaStockSaliente cola;
+
+    @AfterEach
+    void detener() {
+        if (cola != null) {
+            cola.stop();
+        }
+    }
+
+    @Test
+    void encolar_deberiaReenviarLosAjustesConSuOrigenYSecuencia() throws InterruptedException {
+        when(dataServiceClient.ajustarStockEnLote(any())).thenAnswer(invocacion -> aplicarTodo(invocacion.getArgument(0)));
+        cola = arrancar();
+
+        String clave = cola.encolar(1L, -2);
+        cola.encolar(2L, 5);
+        esperarVacia();
+
+        ArgumentCaptor<AjusteStockLoteRequest> enviados = ArgumentCaptor.forClass(AjusteStockLoteRequest.class);
+        verify(dataServiceClient, atLeastOnce()).ajustarStockEnLote(enviados.capture());
+        AjusteStockLoteRequest primero = enviados.getAllValues().get(0);
+        assertEquals(primero.getOrigen() + ":1", clave);
+        assertEquals(1L, primero.getSecuenciaInicial());
+        assertFalse(primero.isTodoONada());
+        assertEquals(List.of(new AjusteStockItem(1L, -2), new AjusteStockItem(2L, 5)),
+                enviados.getAllValues().stream().flatMap(lote -> lote.getAjustes().stream()).toList());
+        verify(catalogoCache).invalidarProducto(1L);
+        verify(catalogoCache).invalidarProducto(2L);
+    }
+
+    @Test
+    void encolar_conElDataServiceCaido_deberiaReintentarElMismoLote() throws InterruptedException {
+        when(dataServiceClient.ajustarStockEnLote(any()))
+                .thenThrow(new FeignException.ServiceUnavailable("Caído", dummyRequest, null, null))
+                .thenAnswer(invocacion -> aplicarTodo(invocacion.getArgument(0)));
+        cola = arrancar();
+
+        cola.encolar(1L, -2);
+        esperarVacia();
+
+        ArgumentCaptor<AjusteStockLoteRequest> enviados = ArgumentCaptor.forClass(AjusteStockLoteRequest.class);
+        verify(dataServiceClient, times(2)).ajustarStockEnLote(enviados.capture());
+        assertEquals(enviados.getAllValues().get(0), enviados.getAllValues().get(1)); // Misma clave: el data-service no lo repite
+    }
+
+    @Test
+    void arrancar_conAjustesSinEnviar_deberiaEnviarlosConLaClaveOriginal() throws InterruptedException {
+        when(dataServiceClient.ajustarStockEnLote(any()))
+                .thenThrow(new FeignException.ServiceUnavailable("Caído", dummyRequest, null, null));
+        cola = arrancar();
+        String clave = cola.encolar(1L, -2);
+        cola.stop();
+        assertEquals(1, cola.pendientes());
+
+        reset(dataServiceClient);
+        when(dataServiceClient.ajustarStockEnLote(any())).thenAnswer(invocacion -> aplicarTodo(invocacion.getArgument(0)));
+        cola = arrancar();
+        esperarVacia();
+
+        ArgumentCaptor<AjusteStockLoteRequest> enviado = ArgumentCaptor.forClass(AjusteStockLoteRequest.class);
+        verify(dataServiceClient).ajustarStockEnLote(enviado.capture());
+        assertEquals(clave, enviado.getValue().getOrigen() + ":" + enviado.getValue().getSecuenciaInicial());
+    }
+
+    @Test
+    void encolar_conAjusteRechazado_deberiaDescartarloSinBloquearLaCola() throws InterruptedException {
+        when(dataServiceClient.ajustarStockEnLote(any())).thenReturn(new AjusteStockLoteResponse(true,
+                List.of(new ResultadoAjusteStock(1L, -50, EstadoAjusteStock.STOCK_INSUFICIENTE, 3))));
+        cola = arrancar();
+
+        cola.encolar(1L, -50);
+        esperarVacia();
+
+        assertEquals(1.0, meterRegistry.get("inventario.cola.descartados").counter().count());
+        verify(catalogoCache, never()).invalidarProducto(any());
+    }
+
+    private ColaStockSaliente arrancar() {
+        meterRegistry = new SimpleMeterRegistry();
+        ColaStockSaliente nueva = new ColaStockSaliente(dataServiceClient, catalogoCache, meterRegistry, directorio,
+                DataSize.ofKilobytes(64), 500, Duration.ofMillis(10), Duration.ofMillis(50));
+        nueva.start();
+        return nueva;
+    }
+
+    private void esperarVacia() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cola.pendientes() > 0) {
+            assertTrue(System.nanoTime() < limite, "La cola no se vació a tiempo");
+            Thread.sleep(5);
+        }
+    }
+
+    private static AjusteStockLoteResponse aplicarTodo(AjusteStockLoteRequest request) {
+        return new AjusteStockLoteResponse(true, request.getAjustes().stream()
+                .map(ajuste -> new ResultadoAjusteStock(ajuste.getProductoId(), ajuste.getDelta(), EstadoAjusteStock.APLICADO, 0))
+                .toList());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.businessService.cola;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistroColaTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void leer_deberiaDevolverSoloLoSincronizadoEnOrden() {
+        RegistroCola registro = new RegistroCola(directorio, 1024);
+
+        long primera = registro.agregar(10L, -1);
+        long segunda = registro.agregar(20L, 5);
+        assertTrue(registro.leer(10).isEmpty()); // Escrito pero todavía no sincronizado
+        registro.esperarDurable(segunda);
+
+        assertEquals(List.of(new RegistroCola.Registro(1, 10L, -1), new RegistroCola.Registro(2, 20L, 5)), registro.leer(10));
+        assertEquals(1, primera);
+        assertEquals(List.of(new RegistroCola.Registro(1, 10L, -1)), registro.leer(1));
+    }
+
+    @Test
+    void confirmar_deberiaBorrarLosSegmentosConsumidosYSobrevivirAlReinicio() throws IOException {
+        RegistroCola registro = new RegistroCola(directorio, 2 * RegistroCola.TAMANO_REGISTRO); // Dos ajustes por segmento
+        for (int i = 1; i <= 5; i++) {
+            registro.esperarDurable(registro.agregar(i, i));
+        }
+        assertEquals(3, segmentos());
+
+        registro.confirmar(3);
+        registro.close();
+
+        assertEquals(2, segmentos()); // El de las secuencias 1 y 2 ya no hace falta
+        RegistroCola reabierto = new RegistroCola(directorio, 2 * RegistroCola.TAMANO_REGISTRO);
+        assertEquals(registro.origen(), reabierto.origen());
+        assertEquals(2, reabierto.pendientes());
+        assertEquals(List.of(4L, 5L), reabierto.leer(10).stream().map(RegistroCola.Registro::secuencia).toList());
+        assertEquals(6, reabierto.agregar(6L, 6));
+    }
+
+    @Test
+    void reabrir_conUnRegistroIncompletoAlFinal_deberiaDescartarloYReutilizarSuSecuencia() throws IOException {
+        RegistroCola registro = new RegistroCola(directorio, 1024);
+        for (int i = 1; i <= 3; i++) {
+            registro.esperarDurable(registro.agregar(i, i));
+        }
+        registro.close();
+        // Simula una caída a mitad de la escritura del tercer ajuste: el delta quedó escrito y el control no
+        Path segmento;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmento = archivos.filter(a -> a.getFileName().toString().startsWith("cola-")).findFirst().orElseThrow();
+        }
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4), 2 * RegistroCola.TAMANO_REGISTRO + 12);
+        }
+
+        RegistroCola reabierto = new RegistroCola(directorio, 1024);
+
+        assertEquals(List.of(1L, 2L), reabierto.leer(10).stream().map(RegistroCola.Registro::secuencia).toList());
+        long secuencia = reabierto.agregar(30L, -3);
+        reabierto.esperarDurable(secuencia);
+        assertEquals(3, secuencia);
+        assertEquals(new RegistroCola.Registro(3, 30L, -3), reabierto.leer(10).get(2));
+    }
+
+    @Test
+    void agregar_desdeVariosHilos_deberiaAsignarSecuenciasConsecutivasSinPerderAjustes() throws Exception {
+        RegistroCola registro = new RegistroCola(directorio, 64 * RegistroCola.TAMANO_REGISTRO);
+        int hilos = 8;
+        int ajustesPorHilo = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            long productoId = h + 1;
+            tareas.add(executor.submit(() -> {
+                for (int i = 0; i < ajustesPorHilo; i++) {
+                    registro.esperarDurable(registro.agregar(productoId, 1));
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        executor.shutdown();
+
+        long[] porProducto = new long[hilos + 1];
+        long esperada = 1;
+        List<RegistroCola.Registro> lote;
+        while (!(lote = registro.leer(100)).isEmpty()) {
+            for (RegistroCola.Registro ajuste : lote) {
+                assertEquals(esperada++, ajuste.secuencia());
+                porProducto[(int) ajuste.productoId()] += ajuste.delta();
+            }
+            registro.confirmar(lote.get(lote.size() - 1).secuencia());
+        }
+        assertEquals(hilos * ajustesPorHilo + 1, esperada);
+        for (int h = 1; h <= hilos; h++) {
+            assertEquals(ajustesPorHilo, porProducto[h]);
+        }
+        assertEquals(1, segmentos());
+    }
+
+    private long segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(a -> a.getFileName().toString().startsWith("cola-")).count();
+        }
+    }
+}
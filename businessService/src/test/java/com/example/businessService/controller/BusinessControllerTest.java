@@ -1,10 +1,20 @@
 package com.example.businessService.controller;
 
 import com.example.businessService.controller.BusinessController;
+import com.example.businessService.dto.ActualizacionStockEncoladaDTO;
 import com.example.businessService.dto.CategoriaDTO;
+import com.example.businessService.dto.EstadoAjusteStock;
 import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.ItemPedido;
+import com.example.businessService.dto.PaginaDTO;
+import com.example.businessService.dto.PedidoRequest;
+import com.example.businessService.dto.PedidoResponse;
 import com.example.businessService.dto.ProductoDTO;
 import com.example.businessService.dto.ProductoRequest;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import com.example.businessService.dto.ResultadoBusquedaDTO;
+import com.example.businessService.dto.ValorCategoriaDTO;
+import com.example.businessService.dto.ValoracionInventarioDTO;
 import com.example.businessService.service.CategoriaBusinessService;
 import com.example.businessService.service.InventarioBusinessService;
 import com.example.businessService.service.ProductoBusinessService;
@@ -65,6 +75,17 @@ class BusinessControllerTest {
                 .andExpect(jsonPath("$[1].stockBajo").value(true));
     }
 
+    @Test
+    void paginaCatalogo_ok() throws Exception {
+        when(productoBusinessService.obtenerPaginaProductos(null, 2, "id"))
+                .thenReturn(new PaginaDTO<>(List.of(p1, p2), "cursor-2"));
+
+        mockMvc.perform(get("/api/productos").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(2)))
+                .andExpect(jsonPath("$.siguienteCursor").value("cursor-2"));
+    }
+
     @Test
     void detalleProducto_ok() throws Exception {
         when(productoBusinessService.obtenerProductoPorId(1L)).thenReturn(p1);
@@ -75,6 +96,16 @@ class BusinessControllerTest {
                 .andExpect(jsonPath("$.precio").value(50.00));
     }
 
+    @Test
+    void buscarProductos_ok() throws Exception {
+        when(productoBusinessService.buscarProductos("tecl", 20)).thenReturn(List.of(new ResultadoBusquedaDTO(p1, 4.5)));
+
+        mockMvc.perform(get("/api/productos/buscar").param("q", "tecl"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].producto.id").value(1))
+                .andExpect(jsonPath("$[0].puntuacion").value(4.5));
+    }
+
     @Test
     void registrarProducto_created() throws Exception {
         var req = new ProductoRequest("Nuevo", "Desc", new BigDecimal("100.00"), 3L, 12, 4);
@@ -119,23 +150,56 @@ class BusinessControllerTest {
                 .andExpect(jsonPath("$.cantidad").value(18));
     }
 
+    @Test
+    void actualizarStock_conColaDeSalida_deberiaResponderAccepted() throws Exception {
+        when(inventarioBusinessService.isActualizacionStockAsincrona()).thenReturn(true);
+        when(inventarioBusinessService.encolarActualizacionStock(eq(1L), eq(-2)))
+                .thenReturn(new ActualizacionStockEncoladaDTO(1L, -2, "nodo:7"));
+
+        mockMvc.perform(put("/api/inventario/1/actualizar-stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(-2)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.clave").value("nodo:7"));
+        verify(inventarioBusinessService, never()).actualizarStock(anyLong(), anyInt());
+    }
+
     @Test
     void reporteValorTotal_ok() throws Exception {
-        when(productoBusinessService.calcularValorTotalInventario()).thenReturn(new BigDecimal("1234.56"));
+        var categoria = new ValorCategoriaDTO(1L, "Electrónica", new BigDecimal("1234.56"), 2L, 1L);
+        when(productoBusinessService.obtenerValoracionInventario())
+                .thenReturn(new ValoracionInventarioDTO(new BigDecimal("1234.56"), 2, 1, List.of(categoria)));
 
         mockMvc.perform(get("/api/reportes/valor-total-inventario"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.valorTotal").value(1234.56));
+                .andExpect(jsonPath("$.valorTotal").value(1234.56))
+                .andExpect(jsonPath("$.categorias[0].categoria").value("Electrónica"))
+                .andExpect(jsonPath("$.categorias[0].productosStockBajo").value(1));
     }
 
     @Test
     void reporteStockBajo_ok() throws Exception {
         var inv = new InventarioDTO(1L, p2, 3, 5, LocalDateTime.now());
-        when(inventarioBusinessService.obtenerProductosConStockBajo()).thenReturn(List.of(inv));
+        when(inventarioBusinessService.obtenerProductosConStockBajo(null, 100)).thenReturn(new PaginaDTO<>(List.of(inv), null));
 
         mockMvc.perform(get("/api/reportes/stock-bajo"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].producto.stockBajo").value(true))
-                .andExpect(jsonPath("$[0].cantidad").value(3));
+                .andExpect(jsonPath("$.contenido[0].producto.stockBajo").value(true))
+                .andExpect(jsonPath("$.contenido[0].cantidad").value(3));
+    }
+
+    @Test
+    void checkout_ok() throws Exception {
+        PedidoRequest pedido = new PedidoRequest(List.of(new ItemPedido(1L, 2), new ItemPedido(2L, 1)));
+        when(inventarioBusinessService.realizarCheckout(any(PedidoRequest.class))).thenReturn(new PedidoResponse(true, List.of(
+                new ResultadoAjusteStock(1L, -2, EstadoAjusteStock.APLICADO, 8),
+                new ResultadoAjusteStock(2L, -1, EstadoAjusteStock.APLICADO, 4))));
+
+        mockMvc.perform(post("/api/pedidos/checkout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(pedido)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.confirmado").value(true))
+                .andExpect(jsonPath("$.lineas", hasSize(2)));
     }
-}
\ No newline at end of file
+}
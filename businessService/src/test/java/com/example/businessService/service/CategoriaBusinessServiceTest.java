@@ -1,18 +1,22 @@
 package com.example.businessService.service;
 
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.cache.CatalogoCacheProperties;
+import com.example.businessService.client.BatchingDataServiceClient;
 import com.example.businessService.client.DataServiceClient;
 import com.example.businessService.dto.CategoriaDTO;
 import com.example.businessService.exception.MicroserviceCommunicationException;
 import feign.FeignException;
 import feign.Request;
 import feign.RequestTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -26,13 +30,18 @@ class CategoriaBusinessServiceTest {
     @Mock
     private DataServiceClient dataServiceClient; // Se simula el cliente Feign
 
-    @InjectMocks
     private CategoriaBusinessService categoriaBusinessService; // La clase que estamos probando
 
     private Request dummyRequest;
 
     @BeforeEach
     void setUp() {
+        // Fachada de lotes deshabilitada: cada búsqueda por ID llega tal cual al cliente simulado
+        BatchingDataServiceClient batchingDataServiceClient = new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100);
+        // Caché real alrededor del cliente simulado, para verificar aciertos e invalidaciones
+        categoriaBusinessService = new CategoriaBusinessService(dataServiceClient,
+                new CatalogoCache(dataServiceClient, batchingDataServiceClient, new CatalogoCacheProperties(), new SimpleMeterRegistry(), Runnable::run));
+
         // Objeto Request falso necesario para construir una FeignException
         dummyRequest = Request.create(Request.HttpMethod.GET, "/fake", new HashMap<>(), null, new RequestTemplate());
     }
@@ -101,4 +110,20 @@ class CategoriaBusinessServiceTest {
 
         verify(dataServiceClient, times(1)).crearCategoria(categoriaParaCrear);
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerTodasLasCategorias_deberiaCachearHastaCrearUnaCategoria() {
+
+        CategoriaDTO nueva = new CategoriaDTO(3L, "Jardín", "Herramientas");
+        when(dataServiceClient.obtenerTodasLasCategorias()).thenReturn(List.of(new CategoriaDTO(1L, "Electrónica", "Dispositivos electrónicos")));
+        when(dataServiceClient.crearCategoria(nueva)).thenReturn(nueva);
+
+        categoriaBusinessService.obtenerTodasLasCategorias();
+        categoriaBusinessService.obtenerTodasLasCategorias();
+        verify(dataServiceClient, times(1)).obtenerTodasLasCategorias();
+
+        categoriaBusinessService.crearCategoria(nueva);
+        categoriaBusinessService.obtenerTodasLasCategorias();
+        verify(dataServiceClient, times(2)).obtenerTodasLasCategorias();
+    }
+}
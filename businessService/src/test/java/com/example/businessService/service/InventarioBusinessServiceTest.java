@@ -1,22 +1,44 @@
 package com.example.businessService.service;
 
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.cache.CatalogoCacheProperties;
+import com.example.businessService.client.AjustesStockAgrupados;
+import com.example.businessService.client.BatchingDataServiceClient;
 import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.cola.ColaStockSaliente;
+import com.example.businessService.dto.ActualizacionStockEncoladaDTO;
+import com.example.businessService.dto.AjusteStockItem;
+import com.example.businessService.dto.AjusteStockLoteRequest;
+import com.example.businessService.dto.AjusteStockLoteResponse;
+import com.example.businessService.dto.EstadoAjusteStock;
 import com.example.businessService.dto.InventarioDTO;
+import com.example.businessService.dto.ItemPedido;
+import com.example.businessService.dto.PaginaDTO;
+import com.example.businessService.dto.PedidoRequest;
+import com.example.businessService.dto.PedidoResponse;
+import com.example.businessService.dto.ProductoDTO;
+import com.example.businessService.dto.ResultadoAjusteStock;
+import com.example.businessService.dto.StockDTO;
 import com.example.businessService.exception.MicroserviceCommunicationException;
 import com.example.businessService.exception.ProductoNoEncontradoException;
 import com.example.businessService.exception.ValidacionNegocioException;
 import feign.FeignException;
 import feign.Request;
 import feign.RequestTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,14 +49,21 @@ class InventarioBusinessServiceTest {
     @Mock
     private DataServiceClient dataServiceClient; // Se simula el cliente Feign
 
-    @InjectMocks
     private InventarioBusinessService inventarioBusinessService; // La clase bajo prueba
+    private CatalogoCache catalogoCache;
 
     private InventarioDTO inventarioDTO;
     private Request dummyRequest;
 
     @BeforeEach
     void setUp() {
+        // Fachada de lotes deshabilitada: cada búsqueda por ID llega tal cual al cliente simulado
+        BatchingDataServiceClient batchingDataServiceClient = new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100);
+        // Caché real alrededor del cliente simulado, para verificar aciertos e invalidaciones
+        catalogoCache = new CatalogoCache(dataServiceClient, batchingDataServiceClient, new CatalogoCacheProperties(), new SimpleMeterRegistry(), Runnable::run);
+        inventarioBusinessService = new InventarioBusinessService(dataServiceClient, batchingDataServiceClient, catalogoCache,
+                new SimpleMeterRegistry(), Duration.ofSeconds(2), null, null);
+
         // Objeto DTO reutilizable para las pruebas
         inventarioDTO = new InventarioDTO();
         inventarioDTO.setCantidad(100);
@@ -48,19 +77,19 @@ class InventarioBusinessServiceTest {
     @Test
     void obtenerProductosConStockBajo_cuandoClienteFunciona_deberiaDevolverLista() {
 
-        when(dataServiceClient.obtenerProductosConStockBajo()).thenReturn(List.of(inventarioDTO));
+        when(dataServiceClient.obtenerProductosConStockBajo(null, 100)).thenReturn(new PaginaDTO<>(List.of(inventarioDTO), null));
 
-        List<InventarioDTO> resultado = inventarioBusinessService.obtenerProductosConStockBajo();
+        PaginaDTO<InventarioDTO> resultado = inventarioBusinessService.obtenerProductosConStockBajo(null, 100);
 
-        assertFalse(resultado.isEmpty());
-        assertEquals(1, resultado.size());
-        verify(dataServiceClient, times(1)).obtenerProductosConStockBajo();
+        assertFalse(resultado.getContenido().isEmpty());
+        assertEquals(1, resultado.getContenido().size());
+        verify(dataServiceClient, times(1)).obtenerProductosConStockBajo(null, 100);
     }
 
     @Test
     void verificarDisponibilidadStock_conStockSuficiente_deberiaDevolverTrue() {
 
-        when(dataServiceClient.obtenerInventarioPorProductoId(1L)).thenReturn(inventarioDTO);
+        when(dataServiceClient.obtenerCantidadPorProductoId(1L)).thenReturn(new StockDTO(1L, 100));
 
         boolean disponible = inventarioBusinessService.verificarDisponibilidadStock(1L, 50);
 
@@ -70,7 +99,7 @@ class InventarioBusinessServiceTest {
     @Test
     void verificarDisponibilidadStock_conStockInsuficiente_deberiaDevolverFalse() {
 
-        when(dataServiceClient.obtenerInventarioPorProductoId(1L)).thenReturn(inventarioDTO);
+        when(dataServiceClient.obtenerCantidadPorProductoId(1L)).thenReturn(new StockDTO(1L, 100));
 
         boolean disponible = inventarioBusinessService.verificarDisponibilidadStock(1L, 150);
 
@@ -85,18 +114,40 @@ class InventarioBusinessServiceTest {
         assertThrows(ValidacionNegocioException.class, () -> {
             inventarioBusinessService.verificarDisponibilidadStock(1L, cantidadInvalida);
         });
-        verify(dataServiceClient, never()).obtenerInventarioPorProductoId(anyLong());
+        verify(dataServiceClient, never()).obtenerCantidadPorProductoId(anyLong());
     }
 
     @Test
     void verificarDisponibilidadStock_cuandoProductoNoExiste_deberiaDevolverFalse() {
         // Preparación: Simular una FeignException de tipo "Not Found"
-        when(dataServiceClient.obtenerInventarioPorProductoId(99L))
+        when(dataServiceClient.obtenerCantidadPorProductoId(99L))
                 .thenThrow(new FeignException.NotFound("Not Found", dummyRequest, null, null));
 
         boolean disponible = inventarioBusinessService.verificarDisponibilidadStock(99L, 10);
 
         assertFalse(disponible);
+        verify(dataServiceClient, never()).obtenerInventarioPorProductoId(anyLong());
+    }
+
+    @Test
+    void verificarDisponibilidad_enLote_deberiaHacerUnaSolaLlamada() {
+        // El producto 1 aparece dos veces (60 + 50 > 100) y el 99 no existe en el data-service
+        when(dataServiceClient.obtenerCantidadesPorProductoIds(any()))
+                .thenReturn(List.of(new StockDTO(1L, 100), new StockDTO(2L, 5)));
+
+        Map<Long, Boolean> disponibilidad = inventarioBusinessService.verificarDisponibilidad(List.of(
+                new ItemPedido(1L, 60), new ItemPedido(2L, 5), new ItemPedido(1L, 50), new ItemPedido(99L, 1)));
+
+        assertEquals(Map.of(1L, false, 2L, true, 99L, false), disponibilidad);
+        verify(dataServiceClient, times(1)).obtenerCantidadesPorProductoIds(Set.of(1L, 2L, 99L));
+    }
+
+    @Test
+    void verificarDisponibilidad_conCantidadInvalida_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () ->
+                inventarioBusinessService.verificarDisponibilidad(List.of(new ItemPedido(1L, 0))));
+        verify(dataServiceClient, never()).obtenerCantidadesPorProductoIds(any());
     }
 
     @Test
@@ -142,4 +193,163 @@ class InventarioBusinessServiceTest {
             inventarioBusinessService.actualizarStock(1L, 10);
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void encolarActualizacionStock_deberiaResponderSinLlamarAlDataService() {
+        ColaStockSaliente colaStock = mock(ColaStockSaliente.class);
+        InventarioBusinessService servicioConCola = new InventarioBusinessService(dataServiceClient,
+                new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100), catalogoCache,
+                new SimpleMeterRegistry(), Duration.ofSeconds(2), colaStock, null);
+        when(colaStock.encolar(1L, -3)).thenReturn("nodo:1");
+
+        ActualizacionStockEncoladaDTO encolada = servicioConCola.encolarActualizacionStock(1L, -3);
+
+        assertTrue(servicioConCola.isActualizacionStockAsincrona());
+        assertEquals("nodo:1", encolada.getClave());
+        assertThrows(ValidacionNegocioException.class, () -> servicioConCola.encolarActualizacionStock(1L, 0));
+        verifyNoInteractions(dataServiceClient);
+    }
+
+    @Test
+    void actualizarStock_agrupado_deberiaDevolverElInventarioConElStockDelAjuste() {
+        AjustesStockAgrupados ajustesAgrupados = mock(AjustesStockAgrupados.class);
+        InventarioBusinessService servicioAgrupado = new InventarioBusinessService(dataServiceClient,
+                new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100), catalogoCache,
+                new SimpleMeterRegistry(), Duration.ofSeconds(2), null, ajustesAgrupados);
+        when(ajustesAgrupados.ajustar(1L, -10)).thenReturn(new ResultadoAjusteStock(1L, -10, EstadoAjusteStock.APLICADO, 90));
+        when(dataServiceClient.obtenerInventarioPorProductoId(1L)).thenReturn(inventarioDTO);
+
+        InventarioDTO resultado = servicioAgrupado.actualizarStock(1L, -10);
+
+        assertEquals(90, resultado.getCantidad());
+        verify(dataServiceClient, never()).actualizarStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void actualizarStock_agrupado_deberiaTraducirElResultadoDeCadaAjuste() {
+        AjustesStockAgrupados ajustesAgrupados = mock(AjustesStockAgrupados.class);
+        InventarioBusinessService servicioAgrupado = new InventarioBusinessService(dataServiceClient,
+                new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100), catalogoCache,
+                new SimpleMeterRegistry(), Duration.ofSeconds(2), null, ajustesAgrupados);
+        when(ajustesAgrupados.ajustar(1L, -200)).thenReturn(new ResultadoAjusteStock(1L, -200, EstadoAjusteStock.STOCK_INSUFICIENTE, 100));
+        when(ajustesAgrupados.ajustar(99L, 10)).thenReturn(new ResultadoAjusteStock(99L, 10, EstadoAjusteStock.NO_ENCONTRADO, null));
+        when(ajustesAgrupados.ajustar(2L, 10)).thenThrow(new FeignException.InternalServerError("Server Error", dummyRequest, null, null));
+
+        assertThrows(ValidacionNegocioException.class, () -> servicioAgrupado.actualizarStock(1L, -200));
+        assertThrows(ProductoNoEncontradoException.class, () -> servicioAgrupado.actualizarStock(99L, 10));
+        assertThrows(MicroserviceCommunicationException.class, () -> servicioAgrupado.actualizarStock(2L, 10));
+        verifyNoInteractions(dataServiceClient);
+    }
+
+    @Test
+    void ajustarStockEnLote_deberiaEnviarElLoteEnUnaSolaLlamada() {
+
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(
+                List.of(new AjusteStockItem(1L, -3), new AjusteStockItem(2L, 10)), false);
+        AjusteStockLoteResponse respuesta = new AjusteStockLoteResponse(true, List.of(
+                new ResultadoAjusteStock(1L, -3, EstadoAjusteStock.APLICADO, 97),
+                new ResultadoAjusteStock(2L, 10, EstadoAjusteStock.APLICADO, 30)));
+        when(dataServiceClient.ajustarStockEnLote(request)).thenReturn(respuesta);
+
+        AjusteStockLoteResponse resultado = inventarioBusinessService.ajustarStockEnLote(request);
+
+        assertTrue(resultado.isConfirmado());
+        assertEquals(2, resultado.getResultados().size());
+        verify(dataServiceClient, times(1)).ajustarStockEnLote(request);
+    }
+
+    @Test
+    void ajustarStockEnLote_conDeltaCero_deberiaLanzarExcepcion() {
+
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(new AjusteStockItem(1L, 0)), false);
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            inventarioBusinessService.ajustarStockEnLote(request);
+        });
+        verify(dataServiceClient, never()).ajustarStockEnLote(any());
+    }
+
+    @Test
+    void realizarCheckout_deberiaReservarTodoElCarritoEnUnaSolaLlamada() {
+
+        // El producto 1 aparece dos veces en el carrito y se descuenta en un único ajuste
+        PedidoRequest pedido = new PedidoRequest(List.of(
+                new ItemPedido(1L, 2), new ItemPedido(2L, 1), new ItemPedido(1L, 3)));
+        AjusteStockLoteRequest loteEsperado = new AjusteStockLoteRequest(
+                List.of(new AjusteStockItem(1L, -5), new AjusteStockItem(2L, -1)), true);
+        when(dataServiceClient.ajustarStockEnLote(loteEsperado)).thenReturn(new AjusteStockLoteResponse(true, List.of(
+                new ResultadoAjusteStock(1L, -5, EstadoAjusteStock.APLICADO, 95),
+                new ResultadoAjusteStock(2L, -1, EstadoAjusteStock.APLICADO, 19))));
+
+        PedidoResponse resultado = inventarioBusinessService.realizarCheckout(pedido);
+
+        assertTrue(resultado.isConfirmado());
+        assertEquals(2, resultado.getLineas().size());
+        verify(dataServiceClient, times(1)).ajustarStockEnLote(loteEsperado);
+    }
+
+    @Test
+    void realizarCheckout_sinStockSuficiente_deberiaLanzarExcepcion() {
+
+        PedidoRequest pedido = new PedidoRequest(List.of(new ItemPedido(1L, 2), new ItemPedido(2L, 50)));
+        when(dataServiceClient.ajustarStockEnLote(any())).thenReturn(new AjusteStockLoteResponse(false, List.of(
+                new ResultadoAjusteStock(1L, -2, EstadoAjusteStock.REVERTIDO, null),
+                new ResultadoAjusteStock(2L, -50, EstadoAjusteStock.STOCK_INSUFICIENTE, 10))));
+
+        ValidacionNegocioException ex = assertThrows(ValidacionNegocioException.class, () -> {
+            inventarioBusinessService.realizarCheckout(pedido);
+        });
+        assertTrue(ex.getMessage().contains("2"));
+    }
+
+    @Test
+    void realizarCheckout_conProductoInexistente_deberiaLanzarProductoNoEncontradoException() {
+
+        PedidoRequest pedido = new PedidoRequest(List.of(new ItemPedido(99L, 1)));
+        when(dataServiceClient.ajustarStockEnLote(any())).thenReturn(new AjusteStockLoteResponse(false, List.of(
+                new ResultadoAjusteStock(99L, -1, EstadoAjusteStock.NO_ENCONTRADO, null))));
+
+        assertThrows(ProductoNoEncontradoException.class, () -> {
+            inventarioBusinessService.realizarCheckout(pedido);
+        });
+    }
+
+    @Test
+    void realizarCheckout_cuandoDataServiceRechazaElLote_deberiaLanzarValidacionNegocioException() {
+
+        PedidoRequest pedido = new PedidoRequest(List.of(new ItemPedido(1L, 1)));
+        byte[] cuerpo = "El lote no puede superar los 1000 ajustes.".getBytes(StandardCharsets.UTF_8);
+        when(dataServiceClient.ajustarStockEnLote(any()))
+                .thenThrow(new FeignException.BadRequest("Bad Request", dummyRequest, cuerpo, null));
+
+        ValidacionNegocioException ex = assertThrows(ValidacionNegocioException.class, () -> {
+            inventarioBusinessService.realizarCheckout(pedido);
+        });
+        assertTrue(ex.getMessage().contains("1000"));
+    }
+
+    @Test
+    void realizarCheckout_conCantidadNoPositiva_deberiaLanzarExcepcion() {
+
+        PedidoRequest pedido = new PedidoRequest(List.of(new ItemPedido(1L, 0)));
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            inventarioBusinessService.realizarCheckout(pedido);
+        });
+        verify(dataServiceClient, never()).ajustarStockEnLote(any());
+    }
+
+    @Test
+    void actualizarStock_deberiaInvalidarElProductoEnCache() {
+
+        ProductoDTO producto = new ProductoDTO(1L, "Laptop", "Gamer", BigDecimal.valueOf(1500), "Electrónica", 100, false);
+        when(dataServiceClient.obtenerProductoPorId(1L)).thenReturn(producto);
+        when(dataServiceClient.actualizarStock(1L, -10)).thenReturn(inventarioDTO);
+
+        catalogoCache.obtenerProductoPorId(1L);
+        inventarioBusinessService.actualizarStock(1L, -10);
+        catalogoCache.obtenerProductoPorId(1L);
+
+        verify(dataServiceClient, times(2)).obtenerProductoPorId(1L);
+    }
+}
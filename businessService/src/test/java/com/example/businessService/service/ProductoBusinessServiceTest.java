@@ -1,22 +1,30 @@
 package com.example.businessService.service;
 
+import com.example.businessService.cache.CatalogoCache;
+import com.example.businessService.cache.CatalogoCacheProperties;
+import com.example.businessService.client.BatchingDataServiceClient;
 import com.example.businessService.client.DataServiceClient;
+import com.example.businessService.dto.PaginaDTO;
 import com.example.businessService.dto.ProductoDTO;
 import com.example.businessService.dto.ProductoRequest;
+import com.example.businessService.dto.ResultadoBusquedaDTO;
+import com.example.businessService.dto.ValorCategoriaDTO;
+import com.example.businessService.dto.ValoracionInventarioDTO;
 import com.example.businessService.exception.MicroserviceCommunicationException;
 import com.example.businessService.exception.ProductoNoEncontradoException;
 import com.example.businessService.exception.ValidacionNegocioException;
 import feign.FeignException;
 import feign.Request;
 import feign.RequestTemplate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 
@@ -30,7 +38,6 @@ class ProductoBusinessServiceTest {
     @Mock
     private DataServiceClient dataServiceClient; // Se simula el cliente Feign
 
-    @InjectMocks
     private ProductoBusinessService productoBusinessService; // La clase bajo prueba
 
     private ProductoRequest productoRequest;
@@ -38,6 +45,12 @@ class ProductoBusinessServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Fachada de lotes deshabilitada: cada búsqueda por ID llega tal cual al cliente simulado
+        BatchingDataServiceClient batchingDataServiceClient = new BatchingDataServiceClient(dataServiceClient, false, Duration.ofMillis(2), 100);
+        // Caché real alrededor del cliente simulado, para verificar aciertos e invalidaciones
+        productoBusinessService = new ProductoBusinessService(dataServiceClient,
+                new CatalogoCache(dataServiceClient, batchingDataServiceClient, new CatalogoCacheProperties(), new SimpleMeterRegistry(), Runnable::run));
+
         // Datos de prueba reutilizables
         productoRequest = new ProductoRequest("Laptop", "Gamer", BigDecimal.valueOf(1500), 1L, 10, 5);
         productoDTO = new ProductoDTO(1L, "Laptop", "Gamer", BigDecimal.valueOf(1500), "Electrónica", 10, false);
@@ -55,6 +68,29 @@ class ProductoBusinessServiceTest {
         verify(dataServiceClient, times(1)).obtenerTodosLosProductos();
     }
 
+    @Test
+    void obtenerPaginaProductos_deberiaReenviarCursorAlCliente() {
+
+        when(dataServiceClient.obtenerPaginaProductos("cursor", 20, "precio"))
+                .thenReturn(new PaginaDTO<>(List.of(productoDTO), "siguiente"));
+
+        PaginaDTO<ProductoDTO> pagina = productoBusinessService.obtenerPaginaProductos("cursor", 20, "precio");
+
+        assertEquals(1, pagina.getContenido().size());
+        assertEquals("siguiente", pagina.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerPaginaProductos_cuandoCursorInvalido_deberiaLanzarValidacionNegocioException() {
+        Request request = Request.create(Request.HttpMethod.GET, "/fake", new HashMap<>(), null, new RequestTemplate());
+        when(dataServiceClient.obtenerPaginaProductos("roto", 20, "id"))
+                .thenThrow(new FeignException.BadRequest("Bad Request", request, null, null));
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            productoBusinessService.obtenerPaginaProductos("roto", 20, "id");
+        });
+    }
+
     @Test
     void obtenerProductoPorId_cuandoClienteResponde404_deberiaLanzarProductoNoEncontrado() {
         // Preparación: Simular una FeignException de tipo "Not Found"
@@ -102,24 +138,71 @@ class ProductoBusinessServiceTest {
     }
 
     @Test
-    void calcularValorTotalInventario_deberiaDevolverSumaCorrecta() {
+    void buscarProductos_deberiaDelegarEnElDataService() {
 
-        ProductoDTO p1 = new ProductoDTO(1L, "Producto A", "", BigDecimal.valueOf(10.5), "Cat A", 10, false); // Valor: 105.0
-        ProductoDTO p2 = new ProductoDTO(2L, "Producto B", "", BigDecimal.valueOf(20), "Cat B", 5, false);     // Valor: 100.0
-        when(dataServiceClient.obtenerTodosLosProductos()).thenReturn(List.of(p1, p2));
+        when(dataServiceClient.buscarProductos("lap", 20)).thenReturn(List.of(new ResultadoBusquedaDTO(productoDTO, 2.0)));
+
+        List<ResultadoBusquedaDTO> resultado = productoBusinessService.buscarProductos("lap", 20);
+
+        assertEquals(1, resultado.size());
+        assertEquals(2.0, resultado.get(0).getPuntuacion());
+    }
+
+    @Test
+    void buscarProductos_cuandoDataServiceRechazaLaConsulta_deberiaLanzarValidacionNegocioException() {
+
+        Request request = Request.create(Request.HttpMethod.GET, "/fake", new HashMap<>(), null, new RequestTemplate());
+        when(dataServiceClient.buscarProductos(" ", 20))
+                .thenThrow(new FeignException.BadRequest("Bad Request", request, null, null));
+
+        assertThrows(ValidacionNegocioException.class, () -> productoBusinessService.buscarProductos(" ", 20));
+    }
+
+    @Test
+    void calcularValorTotalInventario_deberiaUsarElAgregadoDelDataService() {
+
+        ValorCategoriaDTO catA = new ValorCategoriaDTO(1L, "Cat A", new BigDecimal("105.0"), 1L, 0L);
+        ValorCategoriaDTO catB = new ValorCategoriaDTO(2L, "Cat B", new BigDecimal("100.0"), 1L, 1L);
+        when(dataServiceClient.obtenerValoracionInventario())
+                .thenReturn(new ValoracionInventarioDTO(new BigDecimal("205.0"), 2, 1, List.of(catA, catB)));
 
         BigDecimal valorTotal = productoBusinessService.calcularValorTotalInventario();
 
         assertEquals(new BigDecimal("205.0"), valorTotal);
+        verify(dataServiceClient, never()).obtenerTodosLosProductos(); // Ya no se trae el catálogo completo
     }
 
     @Test
     void calcularValorTotalInventario_cuandoClienteFalla_deberiaLanzarMicroserviceCommunicationException() {
 
-        when(dataServiceClient.obtenerTodosLosProductos()).thenThrow(FeignException.class);
+        when(dataServiceClient.obtenerValoracionInventario()).thenThrow(FeignException.class);
 
         assertThrows(MicroserviceCommunicationException.class, () -> {
             productoBusinessService.calcularValorTotalInventario();
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void obtenerTodosLosProductos_segundaLectura_deberiaServirseDesdeCache() {
+
+        when(dataServiceClient.obtenerTodosLosProductos()).thenReturn(List.of(productoDTO));
+
+        productoBusinessService.obtenerTodosLosProductos();
+        productoBusinessService.obtenerTodosLosProductos();
+
+        verify(dataServiceClient, times(1)).obtenerTodosLosProductos();
+    }
+
+    @Test
+    void crearProducto_deberiaInvalidarElListadoEnCache() {
+
+        when(dataServiceClient.obtenerTodosLosProductos()).thenReturn(List.of(productoDTO));
+        when(dataServiceClient.crearProducto(productoRequest)).thenReturn(productoDTO);
+
+        productoBusinessService.obtenerTodosLosProductos();
+        productoBusinessService.crearProducto(productoRequest);
+        productoBusinessService.obtenerTodosLosProductos();
+
+        verify(dataServiceClient, times(2)).obtenerTodosLosProductos();
+    }
+}
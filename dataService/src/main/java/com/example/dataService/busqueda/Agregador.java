@@ -0,0 +1,19 @@
+package com.example.dataService.busqueda;
+
+/**
+ * Reducciones sobre un intervalo de filas de las columnas del catálogo. Hay una implementación escalar
+ * y otra con la Vector API; {@link MotorAnaliticoInventario} elige la vectorial si el módulo está disponible.
+ */
+interface Agregador {
+
+    /**
+     * Suma de {@code precios[i] * cantidades[i]} para i en [desde, hasta). Solo la implementación escalar
+     * detecta desbordes; las demás se usan cuando {@link CatalogoColumnar#sumaDeProductosAcotada()} los descarta.
+     */
+    long sumaDeProductos(long[] precios, int[] cantidades, int desde, int hasta);
+
+    /** Suma de {@code valores[i]} para i en [desde, hasta), acumulada en long. */
+    long suma(int[] valores, int desde, int hasta);
+
+    String nombre();
+}
@@ -0,0 +1,31 @@
+package com.example.dataService.busqueda;
+
+/**
+ * Bucles escalares con aritmética exacta (lanzan ArithmeticException si una suma desborda). Es la
+ * implementación de respaldo cuando la Vector API no está disponible o cuando no se puede descartar el desborde.
+ */
+final class AgregadorEscalar implements Agregador {
+
+    @Override
+    public long sumaDeProductos(long[] precios, int[] cantidades, int desde, int hasta) {
+        long total = 0;
+        for (int i = desde; i < hasta; i++) {
+            total = Math.addExact(total, Math.multiplyExact(precios[i], cantidades[i]));
+        }
+        return total;
+    }
+
+    @Override
+    public long suma(int[] valores, int desde, int hasta) {
+        long total = 0;
+        for (int i = desde; i < hasta; i++) {
+            total += valores[i];
+        }
+        return total;
+    }
+
+    @Override
+    public String nombre() {
+        return "escalar";
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.dataService.busqueda;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Reducciones con la Vector API (módulo incubado jdk.incubator.vector): cada iteración procesa tantas
+ * filas como carriles de 64 bits tiene el registro SIMD preferido de la CPU. Las cantidades (int) se
+ * cargan con la mitad del ancho y se extienden a long para que los productos no desborden.
+ * <p>
+ * Esta clase solo se carga si la JVM arrancó con {@code --add-modules jdk.incubator.vector}.
+ */
+final class AgregadorVectorial implements Agregador {
+
+    private static final VectorSpecies<Long> LARGOS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> ENTEROS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LARGOS.vectorBitSize() / 2));
+
+    @Override
+    public long sumaDeProductos(long[] precios, int[] cantidades, int desde, int hasta) {
+        LongVector acumulado = LongVector.zero(LARGOS);
+        int i = desde;
+        int limiteVectorial = desde + LARGOS.loopBound(hasta - desde);
+        for (; i < limiteVectorial; i += LARGOS.length()) {
+            LongVector precio = LongVector.fromArray(LARGOS, precios, i);
+            LongVector cantidad = (LongVector) IntVector.fromArray(ENTEROS, cantidades, i)
+                    .convertShape(VectorOperators.I2L, LARGOS, 0);
+            acumulado = acumulado.add(precio.mul(cantidad));
+        }
+        long total = acumulado.reduceLanes(VectorOperators.ADD);
+        for (; i < hasta; i++) {
+            total += precios[i] * cantidades[i];
+        }
+        return total;
+    }
+
+    @Override
+    public long suma(int[] valores, int desde, int hasta) {
+        LongVector acumulado = LongVector.zero(LARGOS);
+        int i = desde;
+        int limiteVectorial = desde + LARGOS.loopBound(hasta - desde);
+        for (; i < limiteVectorial; i += LARGOS.length()) {
+            acumulado = acumulado.add(IntVector.fromArray(ENTEROS, valores, i).convertShape(VectorOperators.I2L, LARGOS, 0));
+        }
+        long total = acumulado.reduceLanes(VectorOperators.ADD);
+        for (; i < hasta; i++) {
+            total += valores[i];
+        }
+        return total;
+    }
+
+    @Override
+    public String nombre() {
+        return "vectorial (" + LARGOS.length() + " carriles de 64 bits)";
+    }
+}
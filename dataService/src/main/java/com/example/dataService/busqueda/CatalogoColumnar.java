@@ -0,0 +1,366 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.ProductoDTO;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Instantánea inmutable y orientada a lectura del catálogo, organizada por columnas.
+ * Las filas están ordenadas por (precio, id), de modo que la propia columna de precios en centavos
+ * es el índice ordenado: un rango de precios se resuelve con dos búsquedas binarias y queda como un
+ * intervalo contiguo de filas. Cada categoría y cada estado de stock es un {@link BitSet} sobre las filas,
+ * y filtrar es intersecar sus palabras de 64 bits dentro de ese intervalo, sin crear objetos por fila.
+ * <p>
+ * Al ser inmutable se comparte entre hilos sin sincronización; los cambios se reflejan construyendo otra.
+ */
+public final class CatalogoColumnar {
+
+    public static final String FACETA_EN_STOCK = "enStock";
+    public static final String FACETA_SIN_STOCK = "sinStock";
+    public static final String FACETA_STOCK_BAJO = "stockBajo";
+
+    private static final Comparator<FilaCatalogoDTO> POR_PRECIO_E_ID =
+            Comparator.comparingLong((FilaCatalogoDTO f) -> Dinero.de(f.getPrecio()).centavos()).thenComparing(FilaCatalogoDTO::getId);
+
+    /**
+     * Criterios de filtrado. Los precios van en centavos y ambos extremos son inclusivos; un criterio
+     * null no filtra. Varias categorías se combinan con OR; el resto de criterios, con AND.
+     */
+    public record Filtro(Set<Long> categoriaIds, Long precioMinimo, Long precioMaximo, Boolean enStock, Boolean stockBajo) {
+    }
+
+    /** Última fila entregada en la página anterior; la siguiente empieza en la primera fila posterior. */
+    public record Posicion(long precioCentavos, long productoId) {
+    }
+
+    /**
+     * Página de productos en orden de precio, si hay más filas tras ella, el total que cumple el filtro
+     * y los conteos por faceta (cada faceta aplica todos los filtros salvo el suyo propio).
+     */
+    public record Resultado(List<ProductoDTO> contenido, boolean hayMas, long total,
+                            Map<String, Long> facetasCategoria, Map<String, Long> facetasStock) {
+    }
+
+    private final String version;
+    private final int filas;
+    private final long[] ids;
+    private final long[] precioCentavos;
+    private final int[] cantidades;
+    private final int[] categoriaDeFila;
+    private final String[] nombres;
+    private final String[] descripciones;
+    private final String[] nombresCategoria;
+    private final long[] idsCategoria;
+    private final Map<Long, Integer> ordinalPorCategoriaId;
+    /** Palabras de los BitSet de cada categoría (por ordinal), de stock disponible y de stock bajo. */
+    private final long[][] palabrasCategoria;
+    private final long[] palabrasEnStock;
+    private final long[] palabrasStockBajo;
+    /** Si ninguna suma de precio * cantidad sobre todas las filas puede desbordar un long. */
+    private final boolean sumaDeProductosAcotada;
+
+    private CatalogoColumnar(String version, List<FilaCatalogoDTO> filasOrdenadas) {
+        this.version = version;
+        this.filas = filasOrdenadas.size();
+        this.ids = new long[filas];
+        this.precioCentavos = new long[filas];
+        this.cantidades = new int[filas];
+        this.categoriaDeFila = new int[filas];
+        this.nombres = new String[filas];
+        this.descripciones = new String[filas];
+
+        // Ordinales de categoría asignados por nombre, para devolver las facetas en orden alfabético
+        TreeMap<String, Long> categoriasPorNombre = new TreeMap<>();
+        for (FilaCatalogoDTO fila : filasOrdenadas) {
+            if (fila.getCategoriaId() != null) {
+                categoriasPorNombre.putIfAbsent(fila.getCategoriaNombre(), fila.getCategoriaId());
+            }
+        }
+        this.nombresCategoria = categoriasPorNombre.keySet().toArray(String[]::new);
+        this.idsCategoria = categoriasPorNombre.values().stream().mapToLong(Long::longValue).toArray();
+        this.ordinalPorCategoriaId = new HashMap<>();
+        categoriasPorNombre.values().forEach(id -> ordinalPorCategoriaId.put(id, ordinalPorCategoriaId.size()));
+
+        BitSet[] porCategoria = new BitSet[nombresCategoria.length];
+        for (int c = 0; c < porCategoria.length; c++) {
+            porCategoria[c] = new BitSet(filas);
+        }
+        BitSet enStock = new BitSet(filas);
+        BitSet stockBajo = new BitSet(filas);
+
+        for (int fila = 0; fila < filas; fila++) {
+            FilaCatalogoDTO origen = filasOrdenadas.get(fila);
+            ids[fila] = origen.getId();
+            precioCentavos[fila] = Dinero.de(origen.getPrecio()).centavos();
+            cantidades[fila] = origen.getCantidad() == null ? 0 : origen.getCantidad();
+            nombres[fila] = origen.getNombre();
+            descripciones[fila] = origen.getDescripcion();
+            Integer ordinal = origen.getCategoriaId() == null ? null : ordinalPorCategoriaId.get(origen.getCategoriaId());
+            categoriaDeFila[fila] = ordinal == null ? -1 : ordinal;
+            if (ordinal != null) {
+                porCategoria[ordinal].set(fila);
+            }
+            if (cantidades[fila] > 0) {
+                enStock.set(fila);
+            }
+            if (Boolean.TRUE.equals(origen.getStockBajo())) {
+                stockBajo.set(fila);
+            }
+        }
+
+        // toLongArray() omite las palabras finales en cero: se rellenan para indexar todas por igual
+        int palabras = (filas + 63) >>> 6;
+        this.palabrasCategoria = new long[porCategoria.length][];
+        for (int c = 0; c < porCategoria.length; c++) {
+            palabrasCategoria[c] = palabras(porCategoria[c], palabras);
+        }
+        this.palabrasEnStock = palabras(enStock, palabras);
+        this.palabrasStockBajo = palabras(stockBajo, palabras);
+        this.sumaDeProductosAcotada = cotaSinDesborde(precioCentavos, cantidades);
+    }
+
+    /**
+     * Construye la instantánea a partir de las filas leídas de la base de datos, en cualquier orden.
+     * @param version Versión del catálogo a la que corresponden las filas.
+     */
+    public static CatalogoColumnar construir(String version, List<FilaCatalogoDTO> filas) {
+        List<FilaCatalogoDTO> ordenadas = new ArrayList<>(filas);
+        ordenadas.sort(POR_PRECIO_E_ID);
+        return new CatalogoColumnar(version, ordenadas);
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public int cantidadDeProductos() {
+        return filas;
+    }
+
+    /**
+     * Filtra el catálogo y devuelve una página en orden de precio junto con el total y las facetas.
+     * @param despuesDe Última fila de la página anterior, o null para la primera página.
+     * @param limite Tamaño de la página.
+     */
+    public Resultado filtrar(Filtro filtro, Posicion despuesDe, int limite) {
+        // El rango de precios es un intervalo contiguo de filas [desde, hasta)
+        int desde = filtro.precioMinimo() == null ? 0 : primeraFilaConPrecioDesde(filtro.precioMinimo());
+        int hasta = filtro.precioMaximo() == null || filtro.precioMaximo() == Long.MAX_VALUE ? filas
+                : primeraFilaConPrecioDesde(filtro.precioMaximo() + 1);
+
+        long[] facetasCategoria = new long[nombresCategoria.length];
+        long total = 0;
+        long enStock = 0;
+        long sinStock = 0;
+        long stockBajo = 0;
+
+        int[] categorias = ordinalesSeleccionados(filtro.categoriaIds());
+        if (desde < hasta) {
+            int primeraPalabra = desde >>> 6;
+            int ultimaPalabra = (hasta - 1) >>> 6;
+            for (int p = primeraPalabra; p <= ultimaPalabra; p++) {
+                long rango = mascaraDeRango(p, desde, hasta);
+                long categoria = mascaraDeCategorias(categorias, p);
+                long stock = mascaraDeStock(filtro, p);
+
+                total += Long.bitCount(rango & categoria & stock);
+
+                long sinFiltroDeCategoria = rango & stock;
+                for (int c = 0; c < facetasCategoria.length; c++) {
+                    facetasCategoria[c] += Long.bitCount(sinFiltroDeCategoria & palabrasCategoria[c][p]);
+                }
+
+                long sinFiltroDeStock = rango & categoria;
+                enStock += Long.bitCount(sinFiltroDeStock & palabrasEnStock[p]);
+                sinStock += Long.bitCount(sinFiltroDeStock & ~palabrasEnStock[p]);
+                stockBajo += Long.bitCount(sinFiltroDeStock & palabrasStockBajo[p]);
+            }
+        }
+
+        List<ProductoDTO> contenido = new ArrayList<>(Math.min(limite, 64));
+        boolean hayMas = false;
+        int inicio = despuesDe == null ? desde : Math.max(desde, primeraFilaDespuesDe(despuesDe));
+        if (inicio < hasta) {
+            for (int p = inicio >>> 6; p <= (hasta - 1) >>> 6 && !hayMas; p++) {
+                long coincidencias = mascaraDeRango(p, inicio, hasta) & mascaraDeCategorias(categorias, p) & mascaraDeStock(filtro, p);
+                while (coincidencias != 0) {
+                    if (contenido.size() == limite) {
+                        hayMas = true;
+                        break;
+                    }
+                    int fila = (p << 6) + Long.numberOfTrailingZeros(coincidencias);
+                    contenido.add(aProductoDTO(fila));
+                    coincidencias &= coincidencias - 1;
+                }
+            }
+        }
+
+        Map<String, Long> porCategoria = new LinkedHashMap<>();
+        for (int c = 0; c < facetasCategoria.length; c++) {
+            porCategoria.put(nombresCategoria[c], facetasCategoria[c]);
+        }
+        Map<String, Long> porStock = new LinkedHashMap<>();
+        porStock.put(FACETA_EN_STOCK, enStock);
+        porStock.put(FACETA_SIN_STOCK, sinStock);
+        porStock.put(FACETA_STOCK_BAJO, stockBajo);
+
+        return new Resultado(contenido, hayMas, total, porCategoria, porStock);
+    }
+
+    /** Primera fila cuyo precio es mayor o igual al indicado (búsqueda binaria sobre la columna ordenada). */
+    int primeraFilaConPrecioDesde(long centavos) {
+        int bajo = 0;
+        int alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precioCentavos[medio] < centavos) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    // Acceso a las columnas para las agregaciones de MotorAnaliticoInventario; no deben modificarse
+
+    long[] precioCentavos() {
+        return precioCentavos;
+    }
+
+    int[] cantidades() {
+        return cantidades;
+    }
+
+    /** Ordinal de categoría de cada fila, o -1 si el producto no tiene categoría. */
+    int[] categoriaDeFila() {
+        return categoriaDeFila;
+    }
+
+    String[] nombresCategoria() {
+        return nombresCategoria;
+    }
+
+    long[] idsCategoria() {
+        return idsCategoria;
+    }
+
+    long[] palabrasStockBajo() {
+        return palabrasStockBajo;
+    }
+
+    /**
+     * Indica si max|precio| * max|cantidad| * filas cabe en un long: en ese caso ninguna suma de productos
+     * puede desbordar y no hace falta comprobar cada operación (como no puede hacerlo la Vector API).
+     */
+    boolean sumaDeProductosAcotada() {
+        return sumaDeProductosAcotada;
+    }
+
+    private static boolean cotaSinDesborde(long[] precios, int[] cantidades) {
+        long precioMaximo = 0;
+        long cantidadMaxima = 0;
+        for (int i = 0; i < precios.length; i++) {
+            precioMaximo = Math.max(precioMaximo, Math.abs(precios[i]));
+            cantidadMaxima = Math.max(cantidadMaxima, Math.abs((long) cantidades[i]));
+        }
+        try {
+            Math.multiplyExact(Math.multiplyExact(precioMaximo, cantidadMaxima), (long) precios.length);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    /** Primera fila estrictamente posterior a la posición en el orden (precio, id). */
+    private int primeraFilaDespuesDe(Posicion posicion) {
+        int bajo = 0;
+        int alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            boolean anteriorOIgual = precioCentavos[medio] < posicion.precioCentavos()
+                    || (precioCentavos[medio] == posicion.precioCentavos() && ids[medio] <= posicion.productoId());
+            if (anteriorOIgual) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /** Categorías seleccionadas como ordinales; null si no se filtra por categoría. */
+    private int[] ordinalesSeleccionados(Set<Long> categoriaIds) {
+        if (categoriaIds == null || categoriaIds.isEmpty()) {
+            return null;
+        }
+        // Una categoría sin productos en la instantánea no aporta filas
+        return categoriaIds.stream()
+                .map(ordinalPorCategoriaId::get)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private long mascaraDeCategorias(int[] categorias, int palabra) {
+        if (categorias == null) {
+            return -1L;
+        }
+        long mascara = 0;
+        for (int c : categorias) {
+            mascara |= palabrasCategoria[c][palabra];
+        }
+        return mascara;
+    }
+
+    private long mascaraDeStock(Filtro filtro, int palabra) {
+        long mascara = -1L;
+        if (filtro.enStock() != null) {
+            mascara &= filtro.enStock() ? palabrasEnStock[palabra] : ~palabrasEnStock[palabra];
+        }
+        if (filtro.stockBajo() != null) {
+            mascara &= filtro.stockBajo() ? palabrasStockBajo[palabra] : ~palabrasStockBajo[palabra];
+        }
+        return mascara;
+    }
+
+    /** Bits de la palabra que caen dentro de [desde, hasta). */
+    static long mascaraDeRango(int palabra, int desde, int hasta) {
+        int primerBit = palabra << 6;
+        long mascara = -1L;
+        if (desde > primerBit) {
+            mascara &= -1L << (desde - primerBit);
+        }
+        if (hasta < primerBit + 64) {
+            mascara &= -1L >>> (64 - (hasta - primerBit));
+        }
+        return mascara;
+    }
+
+    private static long[] palabras(BitSet bits, int cantidad) {
+        long[] palabras = new long[cantidad];
+        long[] usadas = bits.toLongArray();
+        System.arraycopy(usadas, 0, palabras, 0, usadas.length);
+        return palabras;
+    }
+
+    private ProductoDTO aProductoDTO(int fila) {
+        int categoria = categoriaDeFila[fila];
+        return new ProductoDTO(ids[fila], nombres[fila], descripciones[fila],
+                Dinero.deCentavos(precioCentavos[fila]).aBigDecimal(),
+                categoria < 0 ? null : nombresCategoria[categoria],
+                cantidades[fila],
+                (palabrasStockBajo[fila >>> 6] & (1L << fila)) != 0);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dto.TextoProductoDTO;
+import com.example.dataService.repository.ProductoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Índice invertido en memoria sobre el nombre y la descripción de los productos.
+ * Cada término apunta a los productos que lo contienen con un peso (las apariciones en el nombre
+ * valen {@value #PESO_NOMBRE} veces más que las de la descripción), de modo que una búsqueda
+ * solo recorre las listas de sus términos en lugar de aplicar LIKE '%x%' sobre toda la tabla.
+ * <p>
+ * Los términos se guardan ordenados para resolver prefijos (autocompletado) con un rango del mapa.
+ * Las búsquedas comparten un cerrojo de lectura; las altas, cambios y bajas toman el de escritura.
+ */
+@Component
+@Slf4j
+public class IndiceBusquedaProductos {
+
+    static final int PESO_NOMBRE = 3;
+    static final int PESO_DESCRIPCION = 1;
+    /** Una coincidencia por prefijo puntúa menos que la palabra completa. */
+    static final double FACTOR_PREFIJO = 0.5;
+    /** Prefijos más cortos abarcarían buena parte del vocabulario: solo coinciden como palabra completa. */
+    static final int LONGITUD_MINIMA_PREFIJO = 2;
+
+    /** Producto encontrado y su puntuación (mayor es más relevante). */
+    public record Coincidencia(Long productoId, double puntuacion) {
+    }
+
+    private final ProductoRepository productoRepository;
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private Indice indice = new Indice();
+    /** Cambios recibidos mientras se reconstruye; se reaplican sobre el índice nuevo. Null si no hay reconstrucción. */
+    private List<Consumer<Indice>> cambiosDuranteReconstruccion;
+
+    public IndiceBusquedaProductos(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAlArrancar() {
+        reconstruir();
+    }
+
+    /**
+     * Reconstruye el índice desde la base de datos. La tokenización de los productos, que es la parte
+     * costosa, se reparte entre los núcleos; el índice anterior sigue atendiendo búsquedas hasta el reemplazo.
+     */
+    public void reconstruir() {
+        long inicio = System.nanoTime();
+        conCerrojoDeEscritura(() -> cambiosDuranteReconstruccion = new ArrayList<>());
+        try {
+            List<TextoProductoDTO> productos = productoRepository.findTextosParaBusqueda();
+            Map<Long, Map<String, Integer>> pesosPorProducto = productos.parallelStream()
+                    .collect(Collectors.toConcurrentMap(TextoProductoDTO::getId,
+                            p -> ponderar(p.getNombre(), p.getDescripcion())));
+
+            Indice nuevo = new Indice();
+            pesosPorProducto.forEach(nuevo::agregar);
+            conCerrojoDeEscritura(() -> {
+                cambiosDuranteReconstruccion.forEach(cambio -> cambio.accept(nuevo));
+                indice = nuevo;
+            });
+            log.info("Índice de búsqueda reconstruido: {} productos, {} términos en {} ms",
+                    nuevo.documentos.size(), nuevo.terminos.size(), (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            conCerrojoDeEscritura(() -> cambiosDuranteReconstruccion = null);
+        }
+    }
+
+    /**
+     * Agrega o reemplaza un producto en el índice. Dentro de una transacción se aplica tras el commit,
+     * para no indexar un cambio que termine en rollback.
+     */
+    public void indexar(Long productoId, String nombre, String descripcion) {
+        Map<String, Integer> pesos = ponderar(nombre, descripcion);
+        alConfirmar(indice -> indice.agregar(productoId, pesos));
+    }
+
+    /** Quita un producto del índice (tras el commit, si hay una transacción activa). */
+    public void eliminar(Long productoId) {
+        alConfirmar(indice -> indice.eliminar(productoId));
+    }
+
+    /**
+     * Busca los productos que contienen todos los términos de la consulta, ya sea como palabra completa
+     * o como prefijo de una palabra. La puntuación suma, por término, el peso del producto por la rareza
+     * del término (idf): coincidir en el nombre o con una palabra poco frecuente puntúa más.
+     * @return Como máximo {@code limite} coincidencias, de mayor a menor puntuación.
+     */
+    public List<Coincidencia> buscar(String consulta, int limite) {
+        List<String> terminos = Tokenizador.terminosDeConsulta(consulta);
+        if (terminos.isEmpty()) {
+            return List.of();
+        }
+        cerrojo.readLock().lock();
+        try {
+            Map<Long, Double> puntuaciones = null;
+            for (String termino : terminos) {
+                Map<Long, Double> parcial = puntuarTermino(termino);
+                if (puntuaciones == null) {
+                    puntuaciones = parcial;
+                } else {
+                    // Todos los términos deben aparecer: se conserva la intersección
+                    puntuaciones.keySet().retainAll(parcial.keySet());
+                    puntuaciones.replaceAll((id, puntuacion) -> puntuacion + parcial.get(id));
+                }
+                if (puntuaciones.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return puntuaciones.entrySet().stream()
+                    .map(e -> new Coincidencia(e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingDouble(Coincidencia::puntuacion).reversed()
+                            .thenComparing(Coincidencia::productoId))
+                    .limit(limite)
+                    .toList();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    int cantidadDeProductos() {
+        cerrojo.readLock().lock();
+        try {
+            return indice.documentos.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /** Puntuación de cada producto para un término: la mejor entre la palabra exacta y sus expansiones por prefijo. */
+    private Map<Long, Double> puntuarTermino(String termino) {
+        Map<Long, Double> parcial = new HashMap<>();
+        Map<Long, Integer> exactos = indice.terminos.get(termino);
+        if (exactos != null) {
+            double idf = idf(exactos.size());
+            exactos.forEach((id, peso) -> parcial.put(id, peso * idf));
+        }
+        if (termino.length() >= LONGITUD_MINIMA_PREFIJO) {
+            indice.terminos.subMap(termino, false, termino + Character.MAX_VALUE, false).values().forEach(productos -> {
+                double idf = idf(productos.size());
+                productos.forEach((id, peso) -> parcial.merge(id, peso * idf * FACTOR_PREFIJO, Math::max));
+            });
+        }
+        return parcial;
+    }
+
+    private double idf(int productosConElTermino) {
+        return Math.log(1 + (double) indice.documentos.size() / productosConElTermino);
+    }
+
+    private static Map<String, Integer> ponderar(String nombre, String descripcion) {
+        Map<String, Integer> pesos = new HashMap<>();
+        Tokenizador.terminos(nombre).forEach(t -> pesos.merge(t, PESO_NOMBRE, Integer::sum));
+        Tokenizador.terminos(descripcion).forEach(t -> pesos.merge(t, PESO_DESCRIPCION, Integer::sum));
+        return pesos;
+    }
+
+    private void alConfirmar(Consumer<Indice> cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambio);
+                }
+            });
+        } else {
+            aplicar(cambio);
+        }
+    }
+
+    private void aplicar(Consumer<Indice> cambio) {
+        conCerrojoDeEscritura(() -> {
+            cambio.accept(indice);
+            if (cambiosDuranteReconstruccion != null) {
+                cambiosDuranteReconstruccion.add(cambio);
+            }
+        });
+    }
+
+    private void conCerrojoDeEscritura(Runnable accion) {
+        cerrojo.writeLock().lock();
+        try {
+            accion.run();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /** Estructura del índice; solo se accede con el cerrojo tomado. */
+    private static final class Indice {
+        /** Término -> (producto -> peso del término en el producto). */
+        final NavigableMap<String, Map<Long, Integer>> terminos = new TreeMap<>();
+        /** Producto -> sus términos, para poder quitarlo de cada lista al actualizarlo o borrarlo. */
+        final Map<Long, Map<String, Integer>> documentos = new HashMap<>();
+
+        void agregar(Long productoId, Map<String, Integer> pesos) {
+            eliminar(productoId);
+            documentos.put(productoId, pesos);
+            pesos.forEach((termino, peso) -> terminos.computeIfAbsent(termino, t -> new HashMap<>()).put(productoId, peso));
+        }
+
+        void eliminar(Long productoId) {
+            Map<String, Integer> anteriores = documentos.remove(productoId);
+            if (anteriores == null) {
+                return;
+            }
+            for (String termino : anteriores.keySet()) {
+                Map<Long, Integer> productos = terminos.get(termino);
+                productos.remove(productoId);
+                if (productos.isEmpty()) {
+                    terminos.remove(termino);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.repository.ProductoRepository;
+import com.example.dataService.service.VersionCatalogo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mantiene la instantánea columnar del catálogo con la que se resuelve el filtrado por facetas.
+ * La instantánea se construye al arrancar y, cuando {@link VersionCatalogo} indica que hubo cambios
+ * confirmados, se reconstruye en segundo plano mientras las consultas siguen usando la anterior
+ * (stale-while-revalidate): una consulta nunca espera a la base de datos salvo antes de la primera carga.
+ */
+@Component
+@Slf4j
+public class IndiceFacetasProductos {
+
+    private final ProductoRepository productoRepository;
+    private final VersionCatalogo versionCatalogo;
+    private final TaskExecutor ejecutor;
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+    private volatile CatalogoColumnar catalogo;
+
+    public IndiceFacetasProductos(ProductoRepository productoRepository, VersionCatalogo versionCatalogo,
+                                  @Qualifier("applicationTaskExecutor") TaskExecutor ejecutor) {
+        this.productoRepository = productoRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.ejecutor = ejecutor;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAlArrancar() {
+        reconstruir();
+    }
+
+    /**
+     * Lee el catálogo completo y reemplaza la instantánea. La versión se toma antes de leer: si llega
+     * un cambio durante la lectura, la instantánea queda con una versión anterior y se vuelve a construir.
+     */
+    public void reconstruir() {
+        long inicio = System.nanoTime();
+        String version = versionCatalogo.etagCatalogo();
+        CatalogoColumnar nuevo = CatalogoColumnar.construir(version, productoRepository.findFilasCatalogo());
+        catalogo = nuevo;
+        log.info("Catálogo columnar reconstruido: {} productos en {} ms",
+                nuevo.cantidadDeProductos(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Instantánea vigente. Si está desactualizada se programa una reconstrucción (una sola a la vez)
+     * y se devuelve la actual; solo se construye de forma síncrona si todavía no hay ninguna.
+     */
+    public CatalogoColumnar catalogo() {
+        CatalogoColumnar actual = catalogo;
+        if (actual == null) {
+            synchronized (this) {
+                if (catalogo == null) {
+                    reconstruir();
+                }
+                return catalogo;
+            }
+        }
+        if (!actual.version().equals(versionCatalogo.etagCatalogo()) && reconstruyendo.compareAndSet(false, true)) {
+            ejecutor.execute(() -> {
+                try {
+                    reconstruir();
+                } catch (RuntimeException e) {
+                    log.warn("No se pudo reconstruir el catálogo columnar; se sigue usando la versión {}", actual.version(), e);
+                } finally {
+                    reconstruyendo.set(false);
+                }
+            });
+        }
+        return actual;
+    }
+}
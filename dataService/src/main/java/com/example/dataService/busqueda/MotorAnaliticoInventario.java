@@ -0,0 +1,230 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * Agregaciones de inventario (valoración por categoría y por bandas de precio) sobre las columnas
+ * primitivas de la instantánea de {@link IndiceFacetasProductos}: precios en centavos (long) y
+ * cantidades (int), sin BigDecimal ni objetos por fila. Las filas se reparten en tareas fork/join
+ * entre los núcleos, y cada tarea reduce su tramo con el {@link Agregador} elegido al arrancar.
+ * <p>
+ * Como las filas están ordenadas por precio, cada banda de precios es un intervalo contiguo y se
+ * reduce con la Vector API. La valoración por categoría es un histograma (acumula en el casillero
+ * de la categoría de cada fila): ese acceso indirecto no se vectoriza y se resuelve con un bucle escalar.
+ * <p>
+ * Los importes se acumulan en centavos con la aritmética de {@link Dinero}: un desborde lanza
+ * ArithmeticException en lugar de devolver un total incorrecto. Los resultados reflejan la instantánea
+ * vigente, que puede ir por detrás de las últimas escrituras mientras se reconstruye.
+ */
+@Component
+@Slf4j
+public class MotorAnaliticoInventario {
+
+    /** Filas por tarea hoja: amortiza el coste de repartir y sigue dejando trabajo para todos los núcleos. */
+    static final int FILAS_POR_TAREA = 1 << 16;
+
+    private final IndiceFacetasProductos indiceFacetas;
+    private final Agregador agregador;
+    private final Agregador agregadorExacto = new AgregadorEscalar();
+
+    @Autowired
+    public MotorAnaliticoInventario(IndiceFacetasProductos indiceFacetas,
+                                    @Value("${analitica.vectorial:true}") boolean vectorial) {
+        this(indiceFacetas, vectorial ? elegirAgregador() : new AgregadorEscalar());
+        log.info("Motor analítico de inventario con agregador {}", agregador.nombre());
+    }
+
+    MotorAnaliticoInventario(IndiceFacetasProductos indiceFacetas, Agregador agregador) {
+        this.indiceFacetas = indiceFacetas;
+        this.agregador = agregador;
+    }
+
+    /**
+     * Usa la Vector API si la JVM cargó el módulo incubado; si no (o si la CPU no tiene un ancho
+     * vectorial utilizable), los bucles escalares.
+     */
+    static Agregador elegirAgregador() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("Módulo jdk.incubator.vector no cargado (--add-modules jdk.incubator.vector): agregación escalar");
+            return new AgregadorEscalar();
+        }
+        try {
+            // Por reflexión, para no enlazar la clase cuando el módulo no está presente
+            return (Agregador) Class.forName(MotorAnaliticoInventario.class.getPackageName() + ".AgregadorVectorial")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("No se pudo usar la Vector API; agregación escalar", e);
+            return new AgregadorEscalar();
+        }
+    }
+
+    /** Valoración total y por categoría, con el mismo formato que la calculada en la base de datos. */
+    public ValoracionInventarioDTO valoracion() {
+        return valoracion(indiceFacetas.catalogo());
+    }
+
+    /**
+     * Valoración por bandas de precio: con los límites l1 < l2 < ... < ln se devuelven las bandas
+     * [-, l1), [l1, l2), ..., [ln, -). Límites repetidos se ignoran.
+     */
+    public List<ValorBandaPrecioDTO> valoracionPorBandasDePrecio(List<BigDecimal> limites) {
+        return valoracionPorBandasDePrecio(indiceFacetas.catalogo(), limites);
+    }
+
+    String nombreAgregador() {
+        return agregador.nombre();
+    }
+
+    ValoracionInventarioDTO valoracion(CatalogoColumnar catalogo) {
+        int categorias = catalogo.nombresCategoria().length;
+        PorCategoria acumulado = ForkJoinPool.commonPool().invoke(new Tarea<>(0, catalogo.cantidadDeProductos(),
+                (desde, hasta) -> acumularPorCategoria(catalogo, desde, hasta), PorCategoria::combinar));
+
+        List<ValorCategoriaDTO> detalle = new ArrayList<>(categorias + 1);
+        long valorTotal = 0;
+        long productos = 0;
+        long productosStockBajo = 0;
+        for (int c = 0; c <= categorias; c++) {
+            if (acumulado.productos[c] == 0) {
+                continue; // Solo puede ocurrir en el casillero de productos sin categoría
+            }
+            boolean sinCategoria = c == categorias;
+            detalle.add(new ValorCategoriaDTO(
+                    sinCategoria ? null : catalogo.idsCategoria()[c],
+                    sinCategoria ? null : catalogo.nombresCategoria()[c],
+                    Dinero.deCentavos(acumulado.valor[c]).aBigDecimal(),
+                    acumulado.productos[c],
+                    acumulado.stockBajo[c]));
+            valorTotal = Math.addExact(valorTotal, acumulado.valor[c]);
+            productos += acumulado.productos[c];
+            productosStockBajo += acumulado.stockBajo[c];
+        }
+        return new ValoracionInventarioDTO(Dinero.deCentavos(valorTotal).aBigDecimal(), productos, productosStockBajo, detalle);
+    }
+
+    List<ValorBandaPrecioDTO> valoracionPorBandasDePrecio(CatalogoColumnar catalogo, List<BigDecimal> limites) {
+        long[] cortes = limites.stream().mapToLong(limite -> Dinero.de(limite).centavos()).sorted().distinct().toArray();
+        // Con precios o cantidades extremos se usa la suma exacta, que detecta el desborde
+        Agregador agregadorBandas = catalogo.sumaDeProductosAcotada() ? agregador : agregadorExacto;
+        List<ValorBandaPrecioDTO> bandas = new ArrayList<>(cortes.length + 1);
+        for (int b = 0; b <= cortes.length; b++) {
+            int desde = b == 0 ? 0 : catalogo.primeraFilaConPrecioDesde(cortes[b - 1]);
+            int hasta = b == cortes.length ? catalogo.cantidadDeProductos() : catalogo.primeraFilaConPrecioDesde(cortes[b]);
+            Banda banda = ForkJoinPool.commonPool().invoke(new Tarea<>(desde, hasta,
+                    (d, h) -> acumularBanda(catalogo, agregadorBandas, d, h), Banda::combinar));
+            bandas.add(new ValorBandaPrecioDTO(
+                    b == 0 ? null : Dinero.deCentavos(cortes[b - 1]),
+                    b == cortes.length ? null : Dinero.deCentavos(cortes[b]),
+                    Dinero.deCentavos(banda.valor),
+                    hasta - desde,
+                    banda.unidades,
+                    banda.stockBajo));
+        }
+        return bandas;
+    }
+
+    /** El último casillero de cada arreglo corresponde a los productos sin categoría. */
+    private static PorCategoria acumularPorCategoria(CatalogoColumnar catalogo, int desde, int hasta) {
+        long[] precios = catalogo.precioCentavos();
+        int[] cantidades = catalogo.cantidades();
+        int[] categoriaDeFila = catalogo.categoriaDeFila();
+        long[] stockBajo = catalogo.palabrasStockBajo();
+        int sinCategoria = catalogo.nombresCategoria().length;
+
+        PorCategoria parcial = new PorCategoria(sinCategoria + 1);
+        for (int i = desde; i < hasta; i++) {
+            int c = categoriaDeFila[i] < 0 ? sinCategoria : categoriaDeFila[i];
+            parcial.valor[c] = Math.addExact(parcial.valor[c], Math.multiplyExact(precios[i], cantidades[i]));
+            parcial.productos[c]++;
+            parcial.stockBajo[c] += (stockBajo[i >>> 6] >>> i) & 1L;
+        }
+        return parcial;
+    }
+
+    private static Banda acumularBanda(CatalogoColumnar catalogo, Agregador agregador, int desde, int hasta) {
+        long stockBajo = 0;
+        if (desde < hasta) {
+            long[] palabras = catalogo.palabrasStockBajo();
+            for (int p = desde >>> 6; p <= (hasta - 1) >>> 6; p++) {
+                stockBajo += Long.bitCount(palabras[p] & CatalogoColumnar.mascaraDeRango(p, desde, hasta));
+            }
+        }
+        return new Banda(
+                agregador.sumaDeProductos(catalogo.precioCentavos(), catalogo.cantidades(), desde, hasta),
+                agregador.suma(catalogo.cantidades(), desde, hasta),
+                stockBajo);
+    }
+
+    private record Banda(long valor, long unidades, long stockBajo) {
+        static Banda combinar(Banda a, Banda b) {
+            return new Banda(Math.addExact(a.valor, b.valor), a.unidades + b.unidades, a.stockBajo + b.stockBajo);
+        }
+    }
+
+    private static final class PorCategoria {
+        final long[] valor;
+        final long[] productos;
+        final long[] stockBajo;
+
+        PorCategoria(int casilleros) {
+            valor = new long[casilleros];
+            productos = new long[casilleros];
+            stockBajo = new long[casilleros];
+        }
+
+        static PorCategoria combinar(PorCategoria a, PorCategoria b) {
+            for (int c = 0; c < a.valor.length; c++) {
+                a.valor[c] = Math.addExact(a.valor[c], b.valor[c]);
+                a.productos[c] += b.productos[c];
+                a.stockBajo[c] += b.stockBajo[c];
+            }
+            return a;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Hoja<R> {
+        R calcular(int desde, int hasta);
+    }
+
+    /** Divide [desde, hasta) a la mitad hasta llegar a {@link #FILAS_POR_TAREA} filas y combina los parciales. */
+    private static final class Tarea<R> extends RecursiveTask<R> {
+        private final int desde;
+        private final int hasta;
+        private final Hoja<R> hoja;
+        private final BinaryOperator<R> combinar;
+
+        Tarea(int desde, int hasta, Hoja<R> hoja, BinaryOperator<R> combinar) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.hoja = hoja;
+            this.combinar = combinar;
+        }
+
+        @Override
+        protected R compute() {
+            if (hasta - desde <= FILAS_POR_TAREA) {
+                return hoja.calcular(desde, hasta);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tarea<R> izquierda = new Tarea<>(desde, medio, hoja, combinar);
+            izquierda.fork();
+            R derecha = new Tarea<>(medio, hasta, hoja, combinar).compute();
+            return combinar.apply(izquierda.join(), derecha);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.dataService.busqueda;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Convierte texto en términos de búsqueda: minúsculas, sin tildes ni diéresis ("Canción" -> "cancion",
+ * "Pingüino" -> "pinguino", "Año" -> "ano") y separado por todo lo que no sea letra o dígito.
+ * Se aplica igual a los productos y a las consultas, así que una búsqueda sin tildes encuentra el texto con tildes.
+ */
+final class Tokenizador {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "la", "las", "lo", "los",
+            "o", "para", "por", "sin", "su", "un", "una", "y");
+
+    private Tokenizador() {
+    }
+
+    static String normalizar(String texto) {
+        String sinDiacriticos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return sinDiacriticos.toLowerCase(Locale.ROOT);
+    }
+
+    /** Términos de un texto del catálogo, sin palabras vacías. Conserva las repeticiones. */
+    static List<String> terminos(String texto) {
+        List<String> terminos = new ArrayList<>();
+        if (texto == null || texto.isBlank()) {
+            return terminos;
+        }
+        for (String termino : SEPARADORES.split(normalizar(texto))) {
+            if (!termino.isEmpty() && !PALABRAS_VACIAS.contains(termino)) {
+                terminos.add(termino);
+            }
+        }
+        return terminos;
+    }
+
+    /**
+     * Términos de una consulta, sin repetir. El último se conserva aunque sea una palabra vacía
+     * porque puede ser el comienzo de otra mientras el usuario escribe ("la" -> "lampara").
+     */
+    static List<String> terminosDeConsulta(String consulta) {
+        if (consulta == null || consulta.isBlank()) {
+            return List.of();
+        }
+        String[] partes = SEPARADORES.split(normalizar(consulta.strip()));
+        List<String> terminos = new ArrayList<>();
+        for (int i = 0; i < partes.length; i++) {
+            String termino = partes[i];
+            boolean ultimo = i == partes.length - 1;
+            if (!termino.isEmpty() && (ultimo || !PALABRAS_VACIAS.contains(termino)) && !terminos.contains(termino)) {
+                terminos.add(termino);
+            }
+        }
+        return terminos;
+    }
+}
@@ -1,16 +1,37 @@
 package com.example.dataService.controller;
 
+import com.example.dataService.dto.AjusteStockLoteRequest;
+import com.example.dataService.dto.AjusteStockLoteResponse;
 import com.example.dataService.dto.CategoriaDTO;
 import com.example.dataService.dto.InventarioDTO;
+import com.example.dataService.dto.PaginaDTO;
 import com.example.dataService.dto.ProductoDTO;
 import com.example.dataService.dto.ProductoRequest;
+import com.example.dataService.dto.ResultadoBusquedaDTO;
+import com.example.dataService.dto.ResultadoFiltroDTO;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
+import com.example.dataService.service.AnaliticaInventarioService;
 import com.example.dataService.service.CategoriaService;
 import com.example.dataService.service.InventarioService;
 import com.example.dataService.service.ProductoService;
+import com.example.dataService.service.VersionCatalogo;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -23,36 +44,154 @@ import java.util.List;
 @RequestMapping("/data")
 public class DataController {
 
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final ProductoService productoService;
     private final CategoriaService categoriaService;
     private final InventarioService inventarioService;
+    private final AnaliticaInventarioService analiticaInventarioService;
+    private final VersionCatalogo versionCatalogo;
+    private final ObjectWriter ndjsonWriter;
 
     public DataController(ProductoService productoService,
                           CategoriaService categoriaService,
-                          InventarioService inventarioService) {
+                          InventarioService inventarioService,
+                          AnaliticaInventarioService analiticaInventarioService,
+                          VersionCatalogo versionCatalogo,
+                          ObjectMapper objectMapper) {
         this.productoService = productoService;
         this.categoriaService = categoriaService;
         this.inventarioService = inventarioService;
+        this.analiticaInventarioService = analiticaInventarioService;
+        this.versionCatalogo = versionCatalogo;
+        // Cada producto se escribe como un documento JSON independiente sobre el mismo stream
+        this.ndjsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     // --- Endpoints de Productos ---
 
     /**
      * Obtiene una lista de todos los productos.
-     * @return ResponseEntity con una lista de ProductoDTO y estado 200 OK.
+     * Responde con un ETag fuerte; si el cliente envía If-None-Match con el ETag vigente
+     * se devuelve 304 Not Modified sin consultar la base de datos.
+     * @return ResponseEntity con una lista de ProductoDTO y estado 200 OK, o 304 si no hubo cambios.
      */
     @GetMapping("/productos")
-    public ResponseEntity<List<ProductoDTO>> obtenerTodosLosProductos() {
+    public ResponseEntity<List<ProductoDTO>> obtenerTodosLosProductos(WebRequest webRequest) {
+        // checkNotModified agrega la cabecera ETag y, si coincide, marca la respuesta como 304
+        if (webRequest.checkNotModified(versionCatalogo.etagCatalogo())) {
+            return null;
+        }
         return ResponseEntity.ok(productoService.obtenerTodosLosProductos());
     }
 
+    /**
+     * Exporta el catálogo completo como JSON delimitado por saltos de línea (NDJSON).
+     * Los productos se escriben en la respuesta a medida que se leen del cursor de la base de datos,
+     * por lo que la memoria usada no crece con el tamaño del catálogo.
+     * @return ResponseEntity con el cuerpo en streaming y estado 200 OK.
+     */
+    @GetMapping(value = "/productos/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportarCatalogo() {
+        StreamingResponseBody cuerpo = salida -> {
+            OutputStream buffer = new BufferedOutputStream(salida);
+            try {
+                productoService.exportarCatalogo(producto -> escribirLinea(buffer, producto));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            buffer.flush();
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(cuerpo);
+    }
+
+    private void escribirLinea(OutputStream salida, ProductoDTO producto) {
+        try {
+            ndjsonWriter.writeValue(salida, producto);
+            salida.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Obtiene una página del catálogo usando paginación por cursor.
+     * Ejemplo de llamada: GET /data/productos?limit=50&orden=precio&after=cHJlY2lvfDEwLjAwfDQy
+     * @param after Cursor opaco devuelto en la página anterior (se omite en la primera).
+     * @param limit Cantidad máxima de productos por página.
+     * @param orden Criterio de orden estable: "id" (por defecto) o "precio".
+     * @return ResponseEntity con la página de ProductoDTO y el cursor siguiente, y estado 200 OK.
+     */
+    @GetMapping(value = "/productos", params = "limit")
+    public ResponseEntity<PaginaDTO<ProductoDTO>> obtenerPaginaProductos(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "orden", defaultValue = "id") String orden) {
+        return ResponseEntity.ok(productoService.obtenerPaginaProductos(after, limit, orden));
+    }
+
+    /**
+     * Obtiene varios productos por ID en una sola consulta.
+     * Ejemplo de llamada: GET /data/productos?ids=1,2,3
+     * @param ids IDs de los productos (como máximo 1000); los que no existen se omiten.
+     * @return ResponseEntity con la lista de ProductoDTO encontrados y estado 200 OK.
+     */
+    @GetMapping(value = "/productos", params = "ids")
+    public ResponseEntity<List<ProductoDTO>> obtenerProductosPorIds(@RequestParam("ids") List<Long> ids) {
+        return ResponseEntity.ok(productoService.obtenerProductosPorIds(ids));
+    }
+
+    /**
+     * Filtra productos por categoría, rango de precio y estado de stock, devolviendo una página ordenada
+     * por precio junto con los conteos por faceta. Se resuelve en memoria sobre el catálogo columnar.
+     * Ejemplo de llamada: GET /data/productos/filtrar?categoriaId=1&categoriaId=2&precioMin=10&precioMax=99.99&enStock=true&limit=50
+     * @param categoriaId Categorías a incluir (cualquiera de ellas); opcional y repetible.
+     * @param precioMin Precio mínimo inclusivo; opcional.
+     * @param precioMax Precio máximo inclusivo; opcional.
+     * @param enStock true solo con stock, false solo agotados; opcional.
+     * @param stockBajo Filtra por el indicador de stock bajo; opcional.
+     * @param after Cursor devuelto en la página anterior; se omite para la primera página.
+     * @param limit Cantidad de productos por página (1..500, por defecto 50).
+     * @return ResponseEntity con la página, el total y las facetas, y estado 200 OK.
+     */
+    @GetMapping("/productos/filtrar")
+    public ResponseEntity<ResultadoFiltroDTO> filtrarProductos(
+            @RequestParam(value = "categoriaId", required = false) List<Long> categoriaId,
+            @RequestParam(value = "precioMin", required = false) BigDecimal precioMin,
+            @RequestParam(value = "precioMax", required = false) BigDecimal precioMax,
+            @RequestParam(value = "enStock", required = false) Boolean enStock,
+            @RequestParam(value = "stockBajo", required = false) Boolean stockBajo,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return ResponseEntity.ok(productoService.filtrarProductos(categoriaId, precioMin, precioMax, enStock, stockBajo, after, limit));
+    }
+
+    /**
+     * Busca productos por nombre y descripción, sin distinguir mayúsculas ni tildes.
+     * El último término admite prefijos, para autocompletar mientras se escribe.
+     * Ejemplo de llamada: GET /data/productos/buscar?q=teclado mec&limit=10
+     * @param q Texto a buscar; todos sus términos deben aparecer en el producto.
+     * @param limit Cantidad máxima de resultados (1..100, por defecto 20).
+     * @return ResponseEntity con los productos y su puntuación, de mayor a menor relevancia.
+     */
+    @GetMapping("/productos/buscar")
+    public ResponseEntity<List<ResultadoBusquedaDTO>> buscarProductos(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productoService.buscarProductos(q, limit));
+    }
+
     /**
      * Obtiene un producto específico por su ID.
+     * Admite peticiones condicionales con If-None-Match (304 Not Modified).
      * @param id El ID del producto a buscar.
      * @return ResponseEntity con el ProductoDTO encontrado y estado 200 OK.
      */
     @GetMapping("/productos/{id}")
-    public ResponseEntity<ProductoDTO> obtenerProductoPorId(@PathVariable Long id) {
+    public ResponseEntity<ProductoDTO> obtenerProductoPorId(@PathVariable Long id, WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionCatalogo.etagCatalogo())) {
+            return null;
+        }
         return ResponseEntity.ok(productoService.obtenerProductoPorId(id));
     }
 
@@ -105,13 +244,35 @@ public class DataController {
 
     /**
      * Obtiene una lista de todas las categorías.
+     * Admite peticiones condicionales con If-None-Match (304 Not Modified).
      * @return ResponseEntity con una lista de CategoriaDTO y estado 200 OK.
      */
     @GetMapping("/categorias")
-    public ResponseEntity<List<CategoriaDTO>> obtenerTodasLasCategorias() {
+    public ResponseEntity<List<CategoriaDTO>> obtenerTodasLasCategorias(WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionCatalogo.etagCategorias())) {
+            return null;
+        }
         return ResponseEntity.ok(categoriaService.obtenerTodas());
     }
 
+    /**
+     * Obtiene una página de los productos de una categoría, con su stock, usando paginación por cursor.
+     * Ejemplo de llamada: GET /data/categorias/3/productos?limit=20&orden=precio&after=cHJlY2lvfDEwLjAwfDQy
+     * @param id El ID de la categoría.
+     * @param after Cursor opaco devuelto en la página anterior (se omite en la primera).
+     * @param limit Cantidad máxima de productos por página (1..500, por defecto 50).
+     * @param orden Criterio de orden: "id" (por defecto), "precio" o "nombre".
+     * @return ResponseEntity con la página de ProductoDTO y estado 200 OK; 404 si la categoría no existe.
+     */
+    @GetMapping("/categorias/{id}/productos")
+    public ResponseEntity<PaginaDTO<ProductoDTO>> obtenerProductosDeCategoria(
+            @PathVariable Long id,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "orden", defaultValue = "id") String orden) {
+        return ResponseEntity.ok(productoService.obtenerPaginaProductosDeCategoria(id, after, limit, orden));
+    }
+
     /**
      * Crea una nueva categoría.
      * @param request DTO con los datos de la categoría a crear.
@@ -149,24 +310,78 @@ public class DataController {
     // --- Endpoints de Inventario ---
 
     /**
-     * Obtiene una lista de todos los productos que tienen un stock bajo (cantidad <= stockMinimo).
-     * @return ResponseEntity con una lista de InventarioDTO y estado 200 OK.
+     * Obtiene una página de los productos que tienen un stock bajo (cantidad <= stockMinimo).
+     * Ejemplo de llamada: GET /data/inventario/stock-bajo?limit=100&after=c3RvY2stYmFqb3x8NDI
+     * @param after Cursor opaco devuelto en la página anterior (se omite en la primera).
+     * @param limit Cantidad máxima de inventarios por página (1..500, por defecto 100).
+     * @return ResponseEntity con la página de InventarioDTO y estado 200 OK; 400 si el cursor o el límite no son válidos.
      */
     @GetMapping("/inventario/stock-bajo")
-    public ResponseEntity<List<InventarioDTO>> obtenerProductosConStockBajo() {
-        return ResponseEntity.ok(inventarioService.obtenerProductosConStockBajo());
+    public ResponseEntity<PaginaDTO<InventarioDTO>> obtenerProductosConStockBajo(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return ResponseEntity.ok(inventarioService.obtenerProductosConStockBajo(after, limit));
+    }
+
+    /**
+     * Obtiene la valoración del inventario (precio * cantidad) con su desglose por categoría,
+     * calculada en la base de datos. Admite peticiones condicionales con If-None-Match (304 Not Modified).
+     * @return ResponseEntity con el total, el número de productos, los de stock bajo y el detalle por categoría.
+     */
+    @GetMapping("/inventario/valoracion")
+    public ResponseEntity<ValoracionInventarioDTO> obtenerValoracionInventario(WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionCatalogo.etagCatalogo())) {
+            return null;
+        }
+        return ResponseEntity.ok(inventarioService.obtenerValoracionInventario());
+    }
+
+    /**
+     * Obtiene el inventario de varios productos en una sola consulta.
+     * Ejemplo de llamada: GET /data/inventario?productoIds=1,2,3
+     * @param productoIds IDs de los productos (como máximo 1000); los que no tienen inventario se omiten.
+     * @return ResponseEntity con la lista de InventarioDTO encontrados y estado 200 OK.
+     */
+    @GetMapping(value = "/inventario", params = "productoIds")
+    public ResponseEntity<List<InventarioDTO>> obtenerInventariosPorProductoIds(@RequestParam("productoIds") List<Long> productoIds) {
+        return ResponseEntity.ok(inventarioService.obtenerInventariosPorProductoIds(productoIds));
     }
 
     /**
      * Obtiene los detalles del inventario para un producto específico.
+     * Admite peticiones condicionales con If-None-Match (304 Not Modified).
      * @param productoId El ID del producto cuyo inventario se quiere consultar.
      * @return ResponseEntity con el InventarioDTO encontrado y estado 200 OK.
      */
     @GetMapping("/inventario/{productoId}")
-    public ResponseEntity<InventarioDTO> obtenerInventarioPorProductoId(@PathVariable Long productoId) {
+    public ResponseEntity<InventarioDTO> obtenerInventarioPorProductoId(@PathVariable Long productoId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(versionCatalogo.etagCatalogo())) {
+            return null;
+        }
         return ResponseEntity.ok(inventarioService.obtenerInventarioPorProductoId(productoId));
     }
 
+    /**
+     * Obtiene solo la cantidad en stock de un producto, sin los datos del producto.
+     * Es la consulta que usan las verificaciones de disponibilidad.
+     * @param productoId El ID del producto.
+     * @return ResponseEntity con {productoId, cantidad} y estado 200 OK; 404 si no tiene inventario.
+     */
+    @GetMapping("/inventario/{productoId}/cantidad")
+    public ResponseEntity<StockDTO> obtenerCantidadPorProductoId(@PathVariable Long productoId) {
+        return ResponseEntity.ok(inventarioService.obtenerCantidadPorProductoId(productoId));
+    }
+
+    /**
+     * Obtiene la cantidad en stock de varios productos en una sola consulta.
+     * @param productoIds IDs de los productos (como máximo 1000); los que no tienen inventario se omiten.
+     * @return ResponseEntity con la lista de {productoId, cantidad} y estado 200 OK.
+     */
+    @PostMapping("/inventario/disponibilidad")
+    public ResponseEntity<List<StockDTO>> obtenerCantidadesPorProductoIds(@RequestBody List<Long> productoIds) {
+        return ResponseEntity.ok(inventarioService.obtenerCantidadesPorProductoIds(productoIds));
+    }
+
     /**
      * Actualiza el stock de un producto.
      * @param productoId El ID del producto cuyo stock se va a modificar.
@@ -179,4 +394,43 @@ public class DataController {
         return ResponseEntity.ok(inventarioActualizado);
     }
 
+    /**
+     * Aplica un lote de ajustes de stock {productoId, delta} en una sola transacción.
+     * Devuelve el resultado de cada ajuste (APLICADO, STOCK_INSUFICIENTE, NO_ENCONTRADO o REVERTIDO).
+     * Con "todoONada" en true, si algún ajuste falla no se aplica ninguno y "confirmado" es false.
+     * Con "origen" y "secuenciaInicial" el lote se puede reenviar: los ajustes ya aplicados se informan como DUPLICADO.
+     * @param request Lista de ajustes y modo de aplicación.
+     * @return ResponseEntity con los resultados por ajuste y estado 200 OK.
+     */
+    @PostMapping("/inventario/batch")
+    public ResponseEntity<AjusteStockLoteResponse> ajustarStockEnLote(@RequestBody AjusteStockLoteRequest request) {
+        return ResponseEntity.ok(inventarioService.ajustarStockEnLote(request));
+    }
+
+    // --- Endpoints de Analítica ---
+
+    /**
+     * Obtiene la valoración del inventario por categoría calculada en memoria sobre el catálogo columnar,
+     * sin consultar la base de datos. Tiene el mismo formato que /data/inventario/valoracion, pero puede
+     * no reflejar las escrituras de los últimos instantes.
+     * @return ResponseEntity con el total, el número de productos, los de stock bajo y el detalle por categoría.
+     */
+    @GetMapping("/analitica/valoracion")
+    public ResponseEntity<ValoracionInventarioDTO> obtenerValoracionAnalitica() {
+        return ResponseEntity.ok(analiticaInventarioService.obtenerValoracion());
+    }
+
+    /**
+     * Obtiene la valoración del inventario por bandas de precio, calculada en memoria.
+     * Ejemplo de llamada: GET /data/analitica/valoracion-por-precio?limites=10,50,100
+     * devuelve las bandas [-, 10), [10, 50), [50, 100) y [100, -).
+     * @param limites Límites de las bandas (como máximo 50); sin límites, una única banda.
+     * @return ResponseEntity con el valor, los productos, las unidades y los de stock bajo de cada banda.
+     */
+    @GetMapping("/analitica/valoracion-por-precio")
+    public ResponseEntity<List<ValorBandaPrecioDTO>> obtenerValoracionPorBandasDePrecio(
+            @RequestParam(value = "limites", required = false) List<BigDecimal> limites) {
+        return ResponseEntity.ok(analiticaInventarioService.obtenerValoracionPorBandasDePrecio(limites));
+    }
+
 }
\ No newline at end of file
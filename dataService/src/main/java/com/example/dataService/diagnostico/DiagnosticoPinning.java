@@ -0,0 +1,82 @@
+package com.example.dataService.diagnostico;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Diagnóstico de hilos virtuales "fijados" (pinned) a su hilo portador.
+ * Un hilo virtual queda fijado cuando bloquea dentro de un bloque synchronized o de código nativo;
+ * mientras tanto ocupa un hilo portador y se pierde la ventaja de los hilos virtuales.
+ * Se escucha el evento JFR jdk.VirtualThreadPinned en el propio proceso, se registra en el log
+ * la pila de cada fijación que supera el umbral y se publica el timer "jvm.threads.virtual.pinned".
+ * Se activa con diagnostico.pinning.enabled=true.
+ * <p>
+ * businessService tiene una copia idéntica salvo el paquete: los dos servicios son proyectos Maven
+ * independientes, cada uno con su propio contexto de build en Docker, y no hay un módulo compartido
+ * del que depender. Un cambio en una de las dos copias se replica en la otra.
+ */
+@Component
+@ConditionalOnProperty(name = "diagnostico.pinning.enabled", havingValue = "true")
+@Slf4j
+public class DiagnosticoPinning implements SmartLifecycle {
+
+    private static final String EVENTO = "jdk.VirtualThreadPinned";
+    private static final int MAXIMO_FRAMES = 15;
+
+    private final Duration umbral;
+    private final Timer fijaciones;
+    private RecordingStream stream;
+
+    public DiagnosticoPinning(@Value("${diagnostico.pinning.umbral:20ms}") Duration umbral, MeterRegistry meterRegistry) {
+        this.umbral = umbral;
+        this.fijaciones = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Tiempo que los hilos virtuales pasan fijados a su hilo portador")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public synchronized void start() {
+        stream = new RecordingStream();
+        stream.enable(EVENTO).withThreshold(umbral).withStackTrace();
+        stream.onEvent(EVENTO, this::registrar);
+        stream.startAsync();
+        log.info("Diagnóstico de pinning activo (umbral: {} ms)", umbral.toMillis());
+    }
+
+    private void registrar(RecordedEvent evento) {
+        fijaciones.record(evento.getDuration());
+        String pila = evento.getStackTrace() == null ? "(sin pila)" : evento.getStackTrace().getFrames().stream()
+                .limit(MAXIMO_FRAMES)
+                .map(DiagnosticoPinning::formatear)
+                .collect(Collectors.joining("\n\tat ", "\tat ", ""));
+        log.warn("Hilo virtual fijado durante {} ms:\n{}", evento.getDuration().toMillis(), pila);
+    }
+
+    private static String formatear(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.dataService.dinero;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe monetario en centavos sobre un long, para los cálculos en memoria de reportes y analítica:
+ * sumar y multiplicar no crea BigDecimal intermedios, y las operaciones lanzan ArithmeticException
+ * si el resultado desborda en lugar de dar un valor incorrecto.
+ * <p>
+ * Sigue las reglas de la columna {@code precio DECIMAL(10,2)}: dos decimales, redondeo HALF_UP al
+ * convertir (como hacen H2, MySQL y PostgreSQL al guardar) y, para precios, como máximo 99.999.999,99.
+ * Los totales no están acotados por la columna, solo por el rango de long.
+ * La conversión a y desde BigDecimal es exacta; en JSON se serializa como número con dos decimales.
+ */
+public final class Dinero implements Comparable<Dinero> {
+
+    public static final int ESCALA = 2;
+    public static final RoundingMode REDONDEO = RoundingMode.HALF_UP;
+    public static final Dinero CERO = new Dinero(0);
+    /** Mayor precio que admite DECIMAL(10,2): ocho dígitos enteros y dos decimales. */
+    public static final Dinero PRECIO_MAXIMO = new Dinero(9_999_999_999L);
+
+    private final long centavos;
+
+    private Dinero(long centavos) {
+        this.centavos = centavos;
+    }
+
+    public static Dinero deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Dinero(centavos);
+    }
+
+    /** Convierte redondeando a dos decimales con HALF_UP. */
+    @JsonCreator
+    public static Dinero de(BigDecimal valor) {
+        return de(valor, REDONDEO);
+    }
+
+    /**
+     * Convierte redondeando a dos decimales con el modo indicado (por ejemplo, CEILING para el extremo
+     * inferior de un rango de precios).
+     * @throws ArithmeticException si el importe no cabe en un long de centavos.
+     */
+    public static Dinero de(BigDecimal valor, RoundingMode redondeo) {
+        return deCentavos(valor.setScale(ESCALA, redondeo).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Convierte un precio con las reglas de la columna DECIMAL(10,2).
+     * @throws ArithmeticException si el precio redondeado no cabe en la columna.
+     */
+    public static Dinero dePrecio(BigDecimal precio) {
+        Dinero dinero = de(precio);
+        if (Math.abs(dinero.centavos) > PRECIO_MAXIMO.centavos) {
+            throw new ArithmeticException("El precio " + precio.toPlainString() + " supera " + PRECIO_MAXIMO);
+        }
+        return dinero;
+    }
+
+    public long centavos() {
+        return centavos;
+    }
+
+    public Dinero mas(Dinero otro) {
+        return deCentavos(Math.addExact(centavos, otro.centavos));
+    }
+
+    public Dinero menos(Dinero otro) {
+        return deCentavos(Math.subtractExact(centavos, otro.centavos));
+    }
+
+    /** Importe multiplicado por una cantidad de unidades. */
+    public Dinero por(long cantidad) {
+        return deCentavos(Math.multiplyExact(centavos, cantidad));
+    }
+
+    public int signo() {
+        return Long.signum(centavos);
+    }
+
+    @JsonValue
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, ESCALA);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public boolean equals(Object otro) {
+        return otro instanceof Dinero dinero && dinero.centavos == centavos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
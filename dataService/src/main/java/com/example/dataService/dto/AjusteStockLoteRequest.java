@@ -0,0 +1,23 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AjusteStockLoteRequest {
+    private List<AjusteStockItem> ajustes;
+    private boolean todoONada; // Si es true, basta con que un ajuste falle para revertir el lote completo
+    // Idempotencia (opcional): el ajuste i tiene la clave (origen, secuenciaInicial + i). Las secuencias de un
+    // origen crecen siempre; las que no superan la última aplicada se informan como DUPLICADO sin aplicarse.
+    private String origen;
+    private Long secuenciaInicial;
+
+    public AjusteStockLoteRequest(List<AjusteStockItem> ajustes, boolean todoONada) {
+        this(ajustes, todoONada, null, null);
+    }
+}
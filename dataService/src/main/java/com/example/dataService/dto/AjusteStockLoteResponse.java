@@ -0,0 +1,15 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AjusteStockLoteResponse {
+    private boolean confirmado; // false si el lote "todo o nada" se revirtió
+    private List<ResultadoAjusteStock> resultados; // En el mismo orden que los ajustes recibidos
+}
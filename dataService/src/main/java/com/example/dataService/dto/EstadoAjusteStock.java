@@ -0,0 +1,9 @@
+package com.example.dataService.dto;
+
+public enum EstadoAjusteStock {
+    APLICADO,
+    STOCK_INSUFICIENTE,
+    NO_ENCONTRADO,
+    REVERTIDO, // Se podía aplicar, pero el lote "todo o nada" se revirtió por otro ajuste fallido
+    DUPLICADO // Su clave de idempotencia ya se había aplicado: es un reenvío y no se vuelve a aplicar
+}
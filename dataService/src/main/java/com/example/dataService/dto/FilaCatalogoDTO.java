@@ -0,0 +1,24 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Fila plana de producto + categoría + inventario con la que se construye el catálogo columnar en memoria.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaCatalogoDTO {
+    private Long id;
+    private String nombre;
+    private String descripcion;
+    private BigDecimal precio;
+    private Long categoriaId;
+    private String categoriaNombre;
+    private Integer cantidad;
+    private Boolean stockBajo;
+}
@@ -0,0 +1,20 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por clave (keyset).
+ * {@code siguienteCursor} es un token opaco que el cliente reenvía como {@code after}
+ * para pedir la página siguiente; es {@code null} cuando no quedan más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTO<T> {
+    private List<T> contenido;
+    private String siguienteCursor;
+}
@@ -0,0 +1,15 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoAjusteStock {
+    private Long productoId;
+    private Integer delta;
+    private EstadoAjusteStock estado;
+    private Integer stockActual; // Stock del producto al terminar el lote; null si no existe o el lote se revirtió
+}
@@ -0,0 +1,24 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Página de productos filtrados junto con los conteos por faceta.
+ * {@code facetasCategoria} cuenta los productos de cada categoría aplicando todos los filtros salvo el de
+ * categoría; {@code facetasStock} (enStock, sinStock, stockBajo) aplica todos salvo los de stock.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoFiltroDTO {
+    private List<ProductoDTO> contenido;
+    private String siguienteCursor;
+    private long total;
+    private Map<String, Long> facetasCategoria;
+    private Map<String, Long> facetasStock;
+}
@@ -0,0 +1,17 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Campos de texto de un producto que alimentan el índice de búsqueda.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TextoProductoDTO {
+    private Long id;
+    private String nombre;
+    private String descripcion;
+}
@@ -0,0 +1,22 @@
+package com.example.dataService.dto;
+
+import com.example.dataService.dinero.Dinero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Agregado del inventario de los productos con precio en [precioDesde, precioHasta).
+ * La primera banda no tiene precioDesde y la última no tiene precioHasta.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorBandaPrecioDTO {
+    private Dinero precioDesde;
+    private Dinero precioHasta;
+    private Dinero valorTotal;
+    private long productos;
+    private long unidades;
+    private long productosStockBajo;
+}
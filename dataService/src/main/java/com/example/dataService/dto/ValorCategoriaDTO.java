@@ -0,0 +1,22 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Agregado del inventario de una categoría, calculado por la base de datos con GROUP BY.
+ * Los productos sin categoría se agrupan con categoriaId y categoria en null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValorCategoriaDTO {
+    private Long categoriaId;
+    private String categoria;
+    private BigDecimal valorTotal;
+    private Long productos;
+    private Long productosStockBajo;
+}
@@ -0,0 +1,18 @@
+package com.example.dataService.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ValoracionInventarioDTO {
+    private BigDecimal valorTotal;
+    private long productos;
+    private long productosStockBajo;
+    private List<ValorCategoriaDTO> categorias;
+}
@@ -1,9 +1,10 @@
 package com.example.dataService.entity;
 
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Generated;
+import org.hibernate.generator.EventType;
 
 import java.time.LocalDateTime;
 
@@ -11,7 +12,6 @@ import java.time.LocalDateTime;
 @Table(name = "inventario")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Inventario {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -30,4 +30,21 @@ public class Inventario {
     @Column(name = "fecha_actualizacion")
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime fechaActualizacion;
+
+    /**
+     * Indicador de cantidad <= stockMinimo. Una comparación entre dos columnas no puede usar un índice;
+     * este indicador sí. Es una columna generada: la calcula la base en cada INSERT y UPDATE, también en
+     * los UPDATE de stock que no pasan por la entidad, y Hibernate la vuelve a leer al guardarla.
+     */
+    @Generated(event = {EventType.INSERT, EventType.UPDATE})
+    @Column(name = "stock_bajo", insertable = false, updatable = false)
+    private boolean stockBajo;
+
+    public Inventario(Long id, Producto producto, Integer cantidad, Integer stockMinimo, LocalDateTime fechaActualizacion) {
+        this.id = id;
+        this.producto = producto;
+        this.cantidad = cantidad;
+        this.stockMinimo = stockMinimo;
+        this.fechaActualizacion = fechaActualizacion;
+    }
 }
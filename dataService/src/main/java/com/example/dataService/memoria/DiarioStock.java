@@ -0,0 +1,342 @@
+package com.example.dataService.memoria;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario (write-ahead log) de los cambios de stock, en segmentos de tamaño fijo mapeados en memoria,
+ * más instantáneas compactadas. Cada cambio es un registro de 16 bytes {producto, delta, control}:
+ * como todos los cambios son sumas, el orden entre registros no importa y la cantidad de un producto
+ * es la suma de sus deltas (un alta es un delta desde cero). La baja de un producto se anota con el
+ * delta reservado {@link #BAJA}, que anula sus registros, anteriores y posteriores. Eso permite que varios hilos escriban a la
+ * vez, cada uno en la posición que reserva con un getAndAdd, sin cerrojos.
+ * <p>
+ * Un registro escrito en el segmento mapeado sobrevive a una caída del proceso (queda en la caché de
+ * páginas del sistema operativo); {@link #sincronizar()} lo lleva al disco para sobrevivir también a
+ * una caída de la máquina. Al compactar se cierra el segmento en curso y se suman la instantánea
+ * anterior y los segmentos cerrados en una instantánea nueva, escrita en un archivo temporal y renombrada;
+ * después se borran los segmentos que cubre. Para recuperar se carga la última instantánea y se
+ * aplican los segmentos posteriores, descartando los registros incompletos.
+ * <p>
+ * Archivos: {@code diario-<n>.log} y {@code instantanea-<n>.dat}, donde n es el último segmento incluido.
+ */
+@Slf4j
+final class DiarioStock implements AutoCloseable {
+
+    static final int TAMANO_REGISTRO = 16;
+    /** Delta reservado que anota la baja de un producto; ningún cambio de stock real lo alcanza. */
+    static final int BAJA = Integer.MIN_VALUE;
+    private static final String PREFIJO_DIARIO = "diario-";
+    private static final String PREFIJO_INSTANTANEA = "instantanea-";
+    private static final int FIRMA_INSTANTANEA = 0x53544B31; // "STK1"
+    /** Control de 32 bits sobre la posición 12 del registro; se publica el último, con release. */
+    private static final VarHandle CONTROL = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /** Recibe cada cambio recuperado. */
+    @FunctionalInterface
+    interface Consumidor {
+        void aplicar(long productoId, int delta);
+    }
+
+    private final Path directorio;
+    private final int tamanoSegmento;
+    private final ReentrantLock rotando = new ReentrantLock();
+    private final ReentrantLock compactando = new ReentrantLock();
+    private final ReentrantLock sincronizando = new ReentrantLock();
+    private final Queue<Segmento> porSincronizar = new ConcurrentLinkedQueue<>();
+    private volatile Segmento actual;
+
+    /** @param tamanoSegmento Bytes por segmento; se redondea a un múltiplo del tamaño de registro. */
+    DiarioStock(Path directorio, int tamanoSegmento) {
+        this.directorio = directorio;
+        this.tamanoSegmento = Math.max(TAMANO_REGISTRO, tamanoSegmento - tamanoSegmento % TAMANO_REGISTRO);
+    }
+
+    /**
+     * Aplica la última instantánea y los segmentos posteriores, y abre un segmento nuevo para escribir.
+     * @return false si el directorio no tenía datos (primer arranque).
+     */
+    boolean recuperar(Consumidor consumidor) {
+        try {
+            Files.createDirectories(directorio);
+            long cubierto = -1;
+            Path instantanea = ultimaInstantanea();
+            if (instantanea != null) {
+                cubierto = numero(instantanea, PREFIJO_INSTANTANEA);
+                leerInstantanea(instantanea, consumidor);
+            }
+            List<Path> segmentos = segmentos();
+            for (Path segmento : segmentos) {
+                if (numero(segmento, PREFIJO_DIARIO) > cubierto) {
+                    leerSegmento(segmento, consumidor);
+                }
+            }
+            long siguiente = Math.max(cubierto, segmentos.isEmpty() ? -1 : numero(segmentos.get(segmentos.size() - 1), PREFIJO_DIARIO)) + 1;
+            actual = Segmento.abrir(archivoDiario(siguiente), siguiente, tamanoSegmento);
+            return instantanea != null || !segmentos.isEmpty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo recuperar el diario de stock en " + directorio, e);
+        }
+    }
+
+    /** Agrega un cambio al diario. Es seguro llamarlo desde varios hilos a la vez. */
+    void registrar(long productoId, int delta) {
+        while (true) {
+            Segmento segmento = actual;
+            long posicion = segmento.siguiente.getAndAdd(TAMANO_REGISTRO);
+            if (posicion + TAMANO_REGISTRO <= tamanoSegmento) {
+                segmento.escribir((int) posicion, productoId, delta);
+                return;
+            }
+            rotar(segmento);
+        }
+    }
+
+    /** Lleva al disco lo escrito en el segmento en curso y en los que se cerraron desde la última vez. */
+    void sincronizar() {
+        // Exclusivo: al volver, todos los segmentos cerrados antes de la llamada están completos en disco
+        sincronizando.lock();
+        try {
+            Segmento cerrado;
+            while ((cerrado = porSincronizar.poll()) != null) {
+                cerrado.esperarEscrituras();
+                cerrado.buffer.force();
+            }
+            actual.buffer.force();
+        } finally {
+            sincronizando.unlock();
+        }
+    }
+
+    /**
+     * Cierra el segmento en curso y reemplaza la instantánea anterior y los segmentos cerrados por una
+     * instantánea nueva. Las escrituras siguen en el segmento nuevo mientras tanto.
+     * @return Cantidad de productos de la instantánea.
+     */
+    int compactar() {
+        compactando.lock();
+        try {
+            Segmento cerrado = actual;
+            rotar(cerrado);
+            sincronizar(); // Incluye esperar las escrituras en curso del segmento cerrado
+
+            Map<Long, Integer> cantidades = new HashMap<>();
+            // La baja queda en la instantánea para que un delta anotado después no reviva el producto
+            Consumidor acumular = (productoId, delta) -> cantidades.merge(productoId, delta,
+                    (anterior, nuevo) -> anterior == BAJA || nuevo == BAJA ? BAJA : anterior + nuevo);
+            Path anterior = ultimaInstantanea();
+            long cubierto = -1;
+            if (anterior != null) {
+                cubierto = numero(anterior, PREFIJO_INSTANTANEA);
+                leerInstantanea(anterior, acumular);
+            }
+            List<Path> incluidos = new ArrayList<>();
+            for (Path segmento : segmentos()) {
+                long numero = numero(segmento, PREFIJO_DIARIO);
+                if (numero > cubierto && numero <= cerrado.numero) {
+                    leerSegmento(segmento, acumular);
+                    incluidos.add(segmento);
+                }
+            }
+            escribirInstantanea(cerrado.numero, cantidades);
+            if (anterior != null) {
+                Files.delete(anterior);
+            }
+            for (Path segmento : incluidos) {
+                Files.delete(segmento);
+            }
+            return cantidades.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo compactar el diario de stock en " + directorio, e);
+        } finally {
+            compactando.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (actual != null) {
+            sincronizar();
+        }
+    }
+
+    /** Cierra el segmento (si sigue siendo el actual) y abre el siguiente. */
+    private void rotar(Segmento lleno) {
+        rotando.lock();
+        try {
+            if (actual != lleno) {
+                return;
+            }
+            // A partir de aquí ninguna reserva en el segmento cabe: quien la intente vuelve a empezar en el nuevo
+            lleno.reservado = Math.min(lleno.siguiente.getAndSet(Long.MAX_VALUE / 2), tamanoSegmento);
+            actual = Segmento.abrir(archivoDiario(lleno.numero + 1), lleno.numero + 1, tamanoSegmento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir un segmento nuevo del diario de stock", e);
+        } finally {
+            rotando.unlock();
+        }
+        porSincronizar.add(lleno);
+    }
+
+    private void leerSegmento(Path archivo, Consumidor consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()).order(ByteOrder.LITTLE_ENDIAN);
+            int descartados = 0;
+            for (int posicion = 0; posicion + TAMANO_REGISTRO <= buffer.limit(); posicion += TAMANO_REGISTRO) {
+                long productoId = buffer.getLong(posicion);
+                int delta = buffer.getInt(posicion + 8);
+                int control = buffer.getInt(posicion + 12);
+                if (control == 0 && productoId == 0) {
+                    continue; // Posición sin escribir (final del segmento o escritura interrumpida)
+                }
+                if (control != control(productoId, delta)) {
+                    descartados++;
+                    continue;
+                }
+                consumidor.aplicar(productoId, delta);
+            }
+            if (descartados > 0) {
+                log.warn("Diario de stock {}: se descartaron {} registros incompletos", archivo.getFileName(), descartados);
+            }
+        }
+    }
+
+    private void leerInstantanea(Path archivo, Consumidor consumidor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(archivo)).order(ByteOrder.LITTLE_ENDIAN);
+        int firma = buffer.getInt();
+        int productos = buffer.getInt();
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, 8 + productos * 12);
+        if (firma != FIRMA_INSTANTANEA || buffer.getLong(8 + productos * 12) != crc.getValue()) {
+            throw new IOException("Instantánea de stock dañada: " + archivo);
+        }
+        for (int i = 0; i < productos; i++) {
+            consumidor.aplicar(buffer.getLong(), buffer.getInt());
+        }
+    }
+
+    private void escribirInstantanea(long numero, Map<Long, Integer> cantidades) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + cantidades.size() * 12 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(FIRMA_INSTANTANEA).putInt(cantidades.size());
+        cantidades.forEach((productoId, cantidad) -> buffer.putLong(productoId).putInt(cantidad));
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue()).flip();
+
+        Path temporal = directorio.resolve(PREFIJO_INSTANTANEA + numero + ".tmp");
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(true);
+        }
+        Files.move(temporal, directorio.resolve(nombre(PREFIJO_INSTANTANEA, numero, ".dat")), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path ultimaInstantanea() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(a -> a.getFileName().toString().startsWith(PREFIJO_INSTANTANEA)
+                            && a.getFileName().toString().endsWith(".dat"))
+                    .max((a, b) -> Long.compare(numero(a, PREFIJO_INSTANTANEA), numero(b, PREFIJO_INSTANTANEA)))
+                    .orElse(null);
+        }
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(a -> a.getFileName().toString().startsWith(PREFIJO_DIARIO))
+                    .sorted((a, b) -> Long.compare(numero(a, PREFIJO_DIARIO), numero(b, PREFIJO_DIARIO)))
+                    .toList();
+        }
+    }
+
+    private Path archivoDiario(long numero) {
+        return directorio.resolve(nombre(PREFIJO_DIARIO, numero, ".log"));
+    }
+
+    private static String nombre(String prefijo, long numero, String extension) {
+        return prefijo + String.format("%010d", numero) + extension;
+    }
+
+    private static long numero(Path archivo, String prefijo) {
+        String nombre = archivo.getFileName().toString();
+        return Long.parseLong(nombre.substring(prefijo.length(), nombre.indexOf('.')));
+    }
+
+    // Nunca es cero, para distinguir un registro escrito de una posición vacía
+    static int control(long productoId, int delta) {
+        long mezcla = (productoId ^ ((long) delta << 32) ^ delta) * 0x9E3779B97F4A7C15L;
+        return (int) (mezcla >>> 32) | 1;
+    }
+
+    /** Segmento mapeado en memoria. Las posiciones se reservan con getAndAdd sobre {@code siguiente}. */
+    private static final class Segmento {
+        final long numero;
+        final MappedByteBuffer buffer;
+        final AtomicLong siguiente = new AtomicLong();
+        /** Bytes reservados cuando se cerró el segmento. */
+        volatile long reservado;
+
+        private Segmento(long numero, MappedByteBuffer buffer) {
+            this.numero = numero;
+            this.buffer = buffer;
+        }
+
+        static Segmento abrir(Path archivo, long numero, int tamano) throws IOException {
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // El archivo se extiende con ceros: una posición en cero es una posición sin escribir
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                return new Segmento(numero, buffer);
+            }
+        }
+
+        void escribir(int posicion, long productoId, int delta) {
+            buffer.putLong(posicion, productoId);
+            buffer.putInt(posicion + 8, delta);
+            CONTROL.setRelease(buffer, posicion + 12, control(productoId, delta));
+        }
+
+        /**
+         * Espera a que terminen las escrituras que reservaron posición antes del cierre, recorriendo las
+         * posiciones reservadas hasta que todas tengan su control publicado.
+         */
+        void esperarEscrituras() {
+            long limite = System.nanoTime() + ESPERA_MAXIMA_NANOS;
+            for (int posicion = 0; posicion + TAMANO_REGISTRO <= reservado; posicion += TAMANO_REGISTRO) {
+                while ((int) CONTROL.getAcquire(buffer, posicion + 12) == 0) {
+                    if (System.nanoTime() > limite) {
+                        return; // Una escritura que no termina en 10 s se trata como interrumpida
+                    }
+                    Thread.onSpinWait();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.dataService.memoria;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Mapa de ID de producto a cantidad en stock sobre arreglos primitivos, con direccionamiento abierto
+ * y sondeo lineal. Cada producto ocupa una posición fija: las actualizaciones son un compareAndSet
+ * sobre su cantidad, sin cerrojos ni objetos por entrada, y solo compiten las de un mismo producto.
+ * <p>
+ * La capacidad es fija (potencia de dos) y no se redimensiona: se elige al arrancar con margen para
+ * los productos que se creen después. Una baja no libera la posición, porque el sondeo lineal necesita
+ * la clave: marca la cantidad, y a partir de ahí el producto no admite más cambios.
+ */
+final class MapaStock {
+
+    /** Resultado de {@link #sumar} cuando el stock no alcanza. */
+    static final int SIN_STOCK = -1;
+    /** Resultado de {@link #cantidad}, {@link #sumar} y {@link #establecer} para un producto dado de baja. */
+    static final int DADO_DE_BAJA = -2;
+    /** Posición cuya clave ya se reservó pero cuya cantidad inicial todavía no se publicó. */
+    private static final int SIN_PUBLICAR = Integer.MIN_VALUE;
+    /** Cantidad guardada en la posición de un producto dado de baja. */
+    private static final int BAJA = Integer.MIN_VALUE + 1;
+    private static final int CARGA_MAXIMA_PORCENTAJE = 75;
+
+    private final AtomicLongArray claves;
+    private final AtomicIntegerArray cantidades;
+    private final int mascara;
+    private final int maximoDeProductos;
+    private final AtomicInteger productos = new AtomicInteger();
+
+    /** @param capacidadMinima Productos que debe admitir; la tabla se dimensiona con margen sobre esa cifra. */
+    MapaStock(int capacidadMinima) {
+        long necesaria = Math.max(16, (long) capacidadMinima * 100 / CARGA_MAXIMA_PORCENTAJE);
+        if (necesaria > 1 << 30) {
+            throw new IllegalArgumentException("Capacidad demasiado grande: " + capacidadMinima);
+        }
+        int capacidad = Integer.highestOneBit((int) necesaria - 1) << 1;
+        claves = new AtomicLongArray(capacidad);
+        cantidades = new AtomicIntegerArray(capacidad);
+        mascara = capacidad - 1;
+        maximoDeProductos = (int) ((long) capacidad * CARGA_MAXIMA_PORCENTAJE / 100);
+        for (int i = 0; i < capacidad; i++) {
+            cantidades.setPlain(i, SIN_PUBLICAR);
+        }
+    }
+
+    /** @return Posición del producto, o -1 si no está en el mapa. */
+    int posicion(long productoId) {
+        for (int i = dispersar(productoId); ; i = (i + 1) & mascara) {
+            long clave = claves.get(i);
+            if (clave == productoId) {
+                return i;
+            }
+            if (clave == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Agrega el producto con la cantidad indicada si no estaba.
+     * @return La posición si lo insertó esta llamada, o {@code -(posición) - 1} si ya estaba
+     * (en ese caso la cantidad indicada se ignora).
+     * @throws IllegalStateException si se alcanzó la capacidad.
+     */
+    int insertar(long productoId, int cantidad) {
+        if (productoId <= 0) {
+            throw new IllegalArgumentException("ID de producto inválido: " + productoId);
+        }
+        for (int i = dispersar(productoId); ; i = (i + 1) & mascara) {
+            long clave = claves.get(i);
+            if (clave == productoId) {
+                return -i - 1;
+            }
+            if (clave == 0) {
+                if (productos.incrementAndGet() > maximoDeProductos) {
+                    productos.decrementAndGet();
+                    throw new IllegalStateException("El mapa de stock en memoria alcanzó su capacidad de "
+                            + maximoDeProductos + " productos (inventario.memoria.capacidad)");
+                }
+                if (claves.compareAndSet(i, 0, productoId)) {
+                    cantidades.set(i, cantidad);
+                    return i;
+                }
+                productos.decrementAndGet();
+                if (claves.get(i) == productoId) { // Otro hilo lo insertó en esta misma posición
+                    return -i - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cantidad en la posición, esperando si otro hilo la está insertando.
+     * @return La cantidad, o {@link #DADO_DE_BAJA}.
+     */
+    int cantidad(int posicion) {
+        int cantidad;
+        while ((cantidad = cantidades.get(posicion)) == SIN_PUBLICAR) {
+            Thread.onSpinWait();
+        }
+        return cantidad == BAJA ? DADO_DE_BAJA : cantidad;
+    }
+
+    /**
+     * Suma delta a la cantidad si el resultado no queda negativo ni desborda.
+     * @return La cantidad resultante, {@link #SIN_STOCK} si no se aplicó o {@link #DADO_DE_BAJA}.
+     */
+    int sumar(int posicion, int delta) {
+        while (true) {
+            int actual = cantidad(posicion);
+            if (actual == DADO_DE_BAJA) {
+                return DADO_DE_BAJA;
+            }
+            long siguiente = (long) actual + delta;
+            if (siguiente < 0 || siguiente > Integer.MAX_VALUE) {
+                return SIN_STOCK;
+            }
+            if (cantidades.compareAndSet(posicion, actual, (int) siguiente)) {
+                return (int) siguiente;
+            }
+        }
+    }
+
+    /**
+     * Reemplaza la cantidad.
+     * @return La cantidad anterior, o {@link #DADO_DE_BAJA} sin cambiar nada.
+     */
+    int establecer(int posicion, int cantidad) {
+        while (true) {
+            int actual = cantidad(posicion);
+            if (actual == DADO_DE_BAJA) {
+                return DADO_DE_BAJA;
+            }
+            if (cantidades.compareAndSet(posicion, actual, cantidad)) {
+                return actual;
+            }
+        }
+    }
+
+    /**
+     * Da de baja el producto de la posición.
+     * @return La cantidad que tenía, o {@link #DADO_DE_BAJA} si ya estaba dado de baja.
+     */
+    int darDeBaja(int posicion) {
+        while (true) {
+            int actual = cantidad(posicion);
+            if (actual == DADO_DE_BAJA || cantidades.compareAndSet(posicion, actual, BAJA)) {
+                return actual;
+            }
+        }
+    }
+
+    long productoEn(int posicion) {
+        return claves.get(posicion);
+    }
+
+    int capacidad() {
+        return mascara + 1;
+    }
+
+    int productos() {
+        return productos.get();
+    }
+
+    // Mezcla los bits del ID (constante de Fibonacci) para que IDs consecutivos no formen racimos
+    private int dispersar(long productoId) {
+        return (int) ((productoId * 0x9E3779B97F4A7C15L) >>> 32) & mascara;
+    }
+}
@@ -0,0 +1,488 @@
+package com.example.dataService.memoria;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.entity.Inventario;
+import com.example.dataService.exception.InventarioNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.repository.InventarioRepository;
+import com.example.dataService.service.VersionCatalogo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stock de toda la tabla inventario servido desde memoria: las lecturas y los ajustes de stock no
+ * pasan por la base de datos. Las cantidades viven en un {@link MapaStock} (un compareAndSet por ajuste)
+ * y cada cambio se anota antes de confirmarse en el {@link DiarioStock}, del que se recuperan al arrancar.
+ * <p>
+ * La tabla inventario se sigue actualizando, de forma asíncrona: cada {@code intervalo-espejo} se escriben
+ * en un batch JDBC las cantidades de los productos que cambiaron, de modo que las consultas que se
+ * resuelven en SQL (stock bajo, valoración, listados de productos) van como mucho un intervalo por detrás.
+ * Mientras el motor está activo es el dueño del stock: todos los cambios deben pasar por él.
+ * <p>
+ * Los productos creados después del arranque se cargan de la base la primera vez que se usan; los
+ * eliminados se dan de baja (también en el diario) y desde entonces se tratan como sin inventario.
+ * Cada cambio de stock cuenta como cambio de la tabla inventario en {@link VersionCatalogo}, sin
+ * esperar a la copia, porque las lecturas de stock ya lo ven. Los datos del producto que acompañan
+ * al stock en las respuestas también se guardan aquí, ver {@link #detalle}.
+ * Se activa con inventario.memoria.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.memoria.enabled", havingValue = "true")
+@Slf4j
+public class MotorInventarioMemoria implements SmartLifecycle {
+
+    /** Resultado de {@link #intentarAjustar} cuando el producto no tiene inventario. */
+    public static final int SIN_INVENTARIO = MapaStock.DADO_DE_BAJA;
+    /** Resultado de {@link #intentarAjustar} cuando el stock no alcanza. */
+    public static final int SIN_STOCK = MapaStock.SIN_STOCK;
+    private static final int FILAS_POR_LOTE = 1000;
+
+    private final InventarioRepository inventarioRepository;
+    private final VersionCatalogo versionCatalogo;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directorio;
+    private final DataSize tamanoSegmento;
+    private final int capacidad;
+    private final Duration intervaloEspejo;
+    private final Duration intervaloCompactacion;
+
+    private MapaStock mapa;
+    private DiarioStock diario;
+    /** 1 en las posiciones del mapa cuya cantidad cambió y todavía no se copió a la tabla. */
+    private AtomicIntegerArray pendientesDeEspejar;
+    private volatile DetallesPorVersion detalles = new DetallesPorVersion("", new ConcurrentHashMap<>());
+    private volatile ScheduledExecutorService planificador;
+
+    public MotorInventarioMemoria(InventarioRepository inventarioRepository, VersionCatalogo versionCatalogo,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${inventario.memoria.directorio:datos/inventario}") Path directorio,
+                                  @Value("${inventario.memoria.tamano-segmento:64MB}") DataSize tamanoSegmento,
+                                  @Value("${inventario.memoria.capacidad:1000000}") int capacidad,
+                                  @Value("${inventario.memoria.intervalo-espejo:200ms}") Duration intervaloEspejo,
+                                  @Value("${inventario.memoria.intervalo-compactacion:5m}") Duration intervaloCompactacion) {
+        this.inventarioRepository = inventarioRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.directorio = directorio;
+        this.tamanoSegmento = tamanoSegmento;
+        this.capacidad = capacidad;
+        this.intervaloEspejo = intervaloEspejo;
+        this.intervaloCompactacion = intervaloCompactacion;
+    }
+
+    /** @return Stock del producto, o null si no tiene inventario. */
+    public Integer cantidad(Long productoId) {
+        int posicion = posicionOCargar(productoId);
+        int cantidad = posicion < 0 ? MapaStock.DADO_DE_BAJA : mapa.cantidad(posicion);
+        return cantidad == MapaStock.DADO_DE_BAJA ? null : cantidad;
+    }
+
+    /**
+     * Stock de varios productos; los que no están en memoria se cargan con una sola consulta IN.
+     * Los productos sin inventario no aparecen en el resultado.
+     */
+    public Map<Long, Integer> cantidades(Collection<Long> productoIds) {
+        Map<Long, Integer> cantidades = new HashMap<>();
+        List<Long> faltantes = new ArrayList<>();
+        for (Long productoId : productoIds) {
+            int posicion = mapa.posicion(productoId);
+            if (posicion < 0) {
+                faltantes.add(productoId);
+            } else if (mapa.cantidad(posicion) != MapaStock.DADO_DE_BAJA) {
+                cantidades.put(productoId, mapa.cantidad(posicion));
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            for (StockDTO stock : inventarioRepository.findStockByProductoIds(faltantes)) {
+                int cantidad = mapa.cantidad(insertar(stock.getProductoId(), stock.getCantidad()));
+                if (cantidad != MapaStock.DADO_DE_BAJA) {
+                    cantidades.put(stock.getProductoId(), cantidad);
+                }
+            }
+        }
+        return cantidades;
+    }
+
+    /**
+     * Datos del producto y de su inventario, salvo la cantidad, para armar la respuesta de un ajuste sin
+     * consultar la base. Se cargan la primera vez que se piden y se descartan todos juntos cuando cambia
+     * la versión de productos o categorías, es decir, tras el commit de cualquier edición o borrado.
+     * @return Vacío si el producto no tiene inventario.
+     */
+    public Optional<DetalleInventario> detalle(Long productoId) {
+        String version = versionCatalogo.etagProductos();
+        DetallesPorVersion actuales = detalles;
+        if (!actuales.version().equals(version)) {
+            actuales = new DetallesPorVersion(version, new ConcurrentHashMap<>());
+            detalles = actuales;
+        }
+        DetalleInventario detalle = actuales.porProducto().get(productoId);
+        if (detalle == null) {
+            // Se lee después de tomar la versión: si entretanto cambia, esta entrada se descarta con las demás
+            Optional<DetalleInventario> leido = inventarioRepository.findDetalleByProductoId(productoId).map(DetalleInventario::de);
+            DetallesPorVersion destino = actuales;
+            leido.ifPresent(nuevo -> destino.porProducto().putIfAbsent(productoId, nuevo));
+            return leido;
+        }
+        return Optional.of(detalle);
+    }
+
+    /**
+     * Suma delta al stock del producto sin dejarlo negativo.
+     * @return Stock resultante.
+     * @throws InventarioNoEncontradoException si el producto no tiene inventario.
+     * @throws ValidacionNegocioException si el stock no alcanza.
+     */
+    public int ajustar(Long productoId, int delta) {
+        int resultado = intentarAjustar(productoId, delta);
+        if (resultado == SIN_INVENTARIO) {
+            throw new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId);
+        }
+        if (resultado == SIN_STOCK) {
+            throw new ValidacionNegocioException("No hay stock suficiente. Stock actual: " + cantidad(productoId) + ", se intentó restar: " + (-delta));
+        }
+        return resultado;
+    }
+
+    /**
+     * Como {@link #ajustar}, pero informa los fallos con un código en lugar de una excepción.
+     * @return Stock resultante, {@link #SIN_STOCK} o {@link #SIN_INVENTARIO}.
+     */
+    public int intentarAjustar(Long productoId, int delta) {
+        int posicion = posicionOCargar(productoId);
+        if (posicion < 0) {
+            return SIN_INVENTARIO;
+        }
+        // Un producto dado de baja no acepta el delta (SIN_INVENTARIO), así que nada se anota para él
+        int resultado = mapa.sumar(posicion, delta);
+        if (resultado >= 0) {
+            // Se anota antes de responder: un ajuste confirmado al cliente siempre está en el diario
+            diario.registrar(productoId, delta);
+            pendientesDeEspejar.set(posicion, 1);
+            versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+        }
+        return resultado;
+    }
+
+    /**
+     * Descuenta stock sin anotarlo en el diario ni marcarlo para la copia: el stock queda reservado hasta
+     * que {@link #confirmarAlTerminar} lo confirme o lo devuelva. Sirve para los cambios que dependen de
+     * una transacción de la base en la que el motor no participa.
+     * @param delta Negativo.
+     * @return Stock resultante, {@link #SIN_STOCK} o {@link #SIN_INVENTARIO}.
+     */
+    public int reservar(Long productoId, int delta) {
+        int posicion = posicionOCargar(productoId);
+        return posicion < 0 ? SIN_INVENTARIO : mapa.sumar(posicion, delta);
+    }
+
+    /**
+     * Devuelve al stock una reserva que no se va a confirmar. Se marca para la copia por si la tabla
+     * llegó a recibir la cantidad con la reserva descontada.
+     */
+    public void liberar(Long productoId, int delta) {
+        int posicion = mapa.posicion(productoId);
+        if (mapa.sumar(posicion, -delta) == MapaStock.DADO_DE_BAJA) {
+            return;
+        }
+        pendientesDeEspejar.set(posicion, 1);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+    }
+
+    /**
+     * Al terminar la transacción actual, con commit anota en el diario los descuentos reservados con
+     * {@link #reservar} y aplica las reposiciones; con rollback devuelve las reservas y descarta las
+     * reposiciones. Fuera de una transacción se confirma en el acto. Las reposiciones no se reservan
+     * porque deshacerlas no siempre es posible: otra venta puede haber usado ese stock.
+     */
+    public void confirmarAlTerminar(List<AjusteStockItem> reservados, List<AjusteStockItem> reposiciones) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            confirmar(reservados, reposiciones);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int estado) {
+                if (estado == STATUS_COMMITTED) {
+                    confirmar(reservados, reposiciones);
+                } else {
+                    reservados.forEach(reserva -> liberar(reserva.getProductoId(), reserva.getDelta()));
+                }
+            }
+        });
+    }
+
+    private void confirmar(List<AjusteStockItem> reservados, List<AjusteStockItem> reposiciones) {
+        for (AjusteStockItem reserva : reservados) {
+            int posicion = mapa.posicion(reserva.getProductoId());
+            if (mapa.cantidad(posicion) != MapaStock.DADO_DE_BAJA) {
+                diario.registrar(reserva.getProductoId(), reserva.getDelta());
+                pendientesDeEspejar.set(posicion, 1);
+            }
+        }
+        for (AjusteStockItem reposicion : reposiciones) {
+            if (intentarAjustar(reposicion.getProductoId(), reposicion.getDelta()) == SIN_INVENTARIO) {
+                log.warn("Reposición de {} unidades descartada: el producto {} ya no tiene inventario",
+                        reposicion.getDelta(), reposicion.getProductoId());
+            }
+        }
+        if (!reservados.isEmpty()) {
+            versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+        }
+    }
+
+    /**
+     * Reemplaza el stock del producto, por ejemplo al editarlo. Dentro de una transacción se aplica
+     * tras el commit, para no reflejar un cambio que termine en rollback.
+     */
+    public void establecer(Long productoId, int cantidad) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicarCantidad(productoId, cantidad);
+                }
+            });
+        } else {
+            aplicarCantidad(productoId, cantidad);
+        }
+    }
+
+    private void aplicarCantidad(Long productoId, int cantidad) {
+        int posicion = mapa.posicion(productoId);
+        if (posicion < 0) {
+            posicionOCargar(productoId); // Se carga de la base, que ya tiene la cantidad nueva
+            return;
+        }
+        int anterior = mapa.establecer(posicion, cantidad);
+        if (anterior != cantidad && anterior != MapaStock.DADO_DE_BAJA) {
+            diario.registrar(productoId, cantidad - anterior);
+            pendientesDeEspejar.set(posicion, 1);
+            versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+        }
+    }
+
+    /**
+     * Da de baja el producto al eliminarlo: los ajustes siguientes se responden como sin inventario en
+     * lugar de aplicarse a una fila que ya no existe. Dentro de una transacción se aplica tras el commit.
+     */
+    public void eliminar(Long productoId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    darDeBaja(productoId);
+                }
+            });
+        } else {
+            darDeBaja(productoId);
+        }
+    }
+
+    private void darDeBaja(Long productoId) {
+        // Si no estaba se agrega ya dado de baja, para que una carga en curso desde la base no lo reviva
+        int insertado = mapa.insertar(productoId, 0);
+        int posicion = insertado >= 0 ? insertado : -insertado - 1;
+        if (mapa.darDeBaja(posicion) != MapaStock.DADO_DE_BAJA) {
+            diario.registrar(productoId, DiarioStock.BAJA);
+            versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+        }
+    }
+
+    /**
+     * Copia a la tabla inventario las cantidades que cambiaron desde la ronda anterior, en lotes de
+     * {@value #FILAS_POR_LOTE} filas. Si un lote falla sus productos se reintentan en la siguiente ronda.
+     * @return Cantidad de productos copiados.
+     */
+    int espejar() {
+        List<StockDTO> cambios = new ArrayList<>();
+        List<Integer> posiciones = new ArrayList<>();
+        for (int i = 0; i < pendientesDeEspejar.length(); i++) {
+            // Se marca como copiada antes de leer la cantidad: un ajuste posterior la vuelve a marcar
+            if (pendientesDeEspejar.get(i) == 1 && pendientesDeEspejar.getAndSet(i, 0) == 1
+                    && mapa.cantidad(i) != MapaStock.DADO_DE_BAJA) {
+                cambios.add(new StockDTO(mapa.productoEn(i), mapa.cantidad(i)));
+                posiciones.add(i);
+            }
+        }
+        int copiados = 0;
+        try {
+            for (int desde = 0; desde < cambios.size(); desde += FILAS_POR_LOTE) {
+                List<StockDTO> lote = cambios.subList(desde, Math.min(desde + FILAS_POR_LOTE, cambios.size()));
+                transactionTemplate.executeWithoutResult(estado ->
+                        inventarioRepository.establecerStockEnLote(lote, LocalDateTime.now()));
+                copiados += lote.size();
+            }
+        } finally {
+            for (int i = copiados; i < posiciones.size(); i++) {
+                pendientesDeEspejar.set(posiciones.get(i), 1);
+            }
+            if (copiados > 0) {
+                versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+            }
+        }
+        return copiados;
+    }
+
+    /**
+     * Recupera el stock del diario (o, en el primer arranque, de la tabla inventario) y programa la copia
+     * a la tabla, la sincronización del diario a disco y la compactación.
+     */
+    @Override
+    public void start() {
+        long inicio = System.nanoTime();
+        mapa = new MapaStock((int) Math.max(capacidad, 2 * inventarioRepository.count()));
+        pendientesDeEspejar = new AtomicIntegerArray(mapa.capacidad());
+        diario = new DiarioStock(directorio, (int) Math.min(Integer.MAX_VALUE, tamanoSegmento.toBytes()));
+        boolean recuperado = diario.recuperar(this::acumular);
+        if (recuperado) {
+            // La tabla pudo quedar por detrás si el proceso se detuvo sin terminar de copiar
+            for (int i = 0; i < mapa.capacidad(); i++) {
+                if (mapa.productoEn(i) != 0) {
+                    pendientesDeEspejar.set(i, 1);
+                }
+            }
+        } else {
+            for (StockDTO stock : inventarioRepository.findAllStock()) {
+                insertar(stock.getProductoId(), stock.getCantidad());
+            }
+            diario.compactar();
+        }
+        log.info("Inventario en memoria: {} productos {} en {} ms", mapa.productos(),
+                recuperado ? "recuperados del diario" : "cargados de la base", (System.nanoTime() - inicio) / 1_000_000);
+
+        ScheduledExecutorService nuevo = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("inventario-memoria").daemon().factory());
+        nuevo.scheduleWithFixedDelay(this::espejarYSincronizar,
+                intervaloEspejo.toMillis(), intervaloEspejo.toMillis(), TimeUnit.MILLISECONDS);
+        nuevo.scheduleWithFixedDelay(this::compactar,
+                intervaloCompactacion.toMillis(), intervaloCompactacion.toMillis(), TimeUnit.MILLISECONDS);
+        planificador = nuevo;
+    }
+
+    /** Detiene las tareas, copia a la tabla lo que falte y sincroniza el diario. */
+    @Override
+    public void stop() {
+        ScheduledExecutorService actual = planificador;
+        if (actual == null) {
+            return;
+        }
+        planificador = null;
+        actual.shutdown();
+        try {
+            actual.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            espejar();
+        } catch (RuntimeException e) {
+            // No se pierde nada: el diario tiene los cambios y el próximo arranque los vuelve a copiar
+            log.warn("No se pudo copiar el stock a la tabla inventario al detener", e);
+        }
+        diario.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return planificador != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // Arranca antes y se detiene después que el servidor web (fases DEFAULT_PHASE - 1024 y - 2048)
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void espejarYSincronizar() {
+        try {
+            diario.sincronizar();
+            espejar();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo copiar el stock a la tabla inventario; se reintenta en la siguiente ronda", e);
+        }
+    }
+
+    private void compactar() {
+        try {
+            long inicio = System.nanoTime();
+            int productos = diario.compactar();
+            log.info("Diario de stock compactado: {} productos en {} ms", productos, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo compactar el diario de stock", e);
+        }
+    }
+
+    /** Posición del producto en el mapa, cargándolo de la base si hace falta; -1 si no tiene inventario. */
+    private int posicionOCargar(Long productoId) {
+        int posicion = mapa.posicion(productoId);
+        if (posicion >= 0) {
+            return posicion;
+        }
+        return inventarioRepository.findCantidadByProductoId(productoId)
+                .map(cantidad -> insertar(productoId, cantidad))
+                .orElse(-1);
+    }
+
+    /** Agrega un producto leído de la base; el alta se anota en el diario como un delta desde cero. */
+    private int insertar(long productoId, int cantidad) {
+        int resultado = mapa.insertar(productoId, cantidad);
+        if (resultado < 0) {
+            return -resultado - 1; // Ya estaba: otro hilo lo cargó primero
+        }
+        diario.registrar(productoId, cantidad);
+        return resultado;
+    }
+
+    /** Datos de un inventario sin su cantidad, que solo cambia en el mapa. */
+    public record DetalleInventario(Long inventarioId, Long productoId, String nombre, String descripcion,
+                                    BigDecimal precio, String categoria, Integer stockMinimo) {
+
+        // Espera el producto y su categoría ya cargados (ver InventarioRepository.findDetalleByProductoId)
+        static DetalleInventario de(Inventario inventario) {
+            return new DetalleInventario(inventario.getId(), inventario.getProducto().getId(),
+                    inventario.getProducto().getNombre(), inventario.getProducto().getDescripcion(),
+                    inventario.getProducto().getPrecio(), inventario.getProducto().getCategoria().getNombre(),
+                    inventario.getStockMinimo());
+        }
+    }
+
+    private record DetallesPorVersion(String version, Map<Long, DetalleInventario> porProducto) {
+    }
+
+    /** Aplica un cambio recuperado del diario; solo se usa al arrancar, desde un único hilo. */
+    private void acumular(long productoId, int delta) {
+        int resultado = mapa.insertar(productoId, delta == DiarioStock.BAJA ? 0 : delta);
+        int posicion = resultado >= 0 ? resultado : -resultado - 1;
+        if (delta == DiarioStock.BAJA) {
+            mapa.darDeBaja(posicion);
+        } else if (resultado < 0 && mapa.cantidad(posicion) != MapaStock.DADO_DE_BAJA) {
+            mapa.establecer(posicion, mapa.cantidad(posicion) + delta);
+        }
+    }
+}
@@ -8,8 +8,5 @@ import java.util.Optional;
 
 @Repository
 public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
-    Boolean existsByNombreIgnoreCase(String nombreCategoria);
-    Optional<Categoria> findByNombreIgnoreCase(String nombreCategoria);
-
     Optional<Categoria> findByNombre(String nombre);
 }
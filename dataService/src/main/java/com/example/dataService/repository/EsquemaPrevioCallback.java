@@ -0,0 +1,71 @@
+package com.example.dataService.repository;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Completa antes de migrar una base creada por ddl-auto=update anterior a la columna stock_bajo.
+ * Flyway la toma como versión 1 (baseline-on-migrate) y no ejecuta V1, así que sin la columna fallaría
+ * el índice de V2. Se agrega con su valor por defecto: V6 la reemplaza por la columna generada, que se
+ * calcula con los datos existentes. En cualquier otra base no hace nada.
+ * <p>
+ * Es un callback y no una migración versionada porque debe correr antes de V2 también en las bases que
+ * ya aplicaron V2 en adelante: una versión intermedia quedaría pendiente en ellas y Flyway rechazaría
+ * la validación.
+ */
+@Component
+public class EsquemaPrevioCallback implements Callback {
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.BEFORE_MIGRATE;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        Connection conexion = context.getConnection();
+        try {
+            DatabaseMetaData metadatos = conexion.getMetaData();
+            if (!existe(metadatos, conexion, "inventario", null) || existe(metadatos, conexion, "inventario", "stock_bajo")) {
+                return;
+            }
+            // Mismo tipo que en V1: Hibernate mapea boolean a BIT en MySQL
+            String tipo = metadatos.getDatabaseProductName().contains("MySQL") ? "BIT" : "BOOLEAN";
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("ALTER TABLE inventario ADD stock_bajo " + tipo + " DEFAULT FALSE NOT NULL");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("No se pudo agregar stock_bajo a la tabla inventario existente", e);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "esquema-previo";
+    }
+
+    private static boolean existe(DatabaseMetaData metadatos, Connection conexion, String tabla, String columna) throws SQLException {
+        // H2 guarda los identificadores sin comillas en mayúsculas; MySQL y PostgreSQL, como se escribieron
+        boolean mayusculas = metadatos.storesUpperCaseIdentifiers();
+        String nombreTabla = mayusculas ? tabla.toUpperCase() : tabla;
+        try (ResultSet resultado = columna == null
+                ? metadatos.getTables(conexion.getCatalog(), conexion.getSchema(), nombreTabla, new String[]{"TABLE"})
+                : metadatos.getColumns(conexion.getCatalog(), conexion.getSchema(), nombreTabla,
+                        mayusculas ? columna.toUpperCase() : columna)) {
+            return resultado.next();
+        }
+    }
+}
@@ -1,18 +1,80 @@
 package com.example.dataService.repository;
 
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
 import com.example.dataService.entity.Inventario;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface InventarioRepository extends JpaRepository<Inventario, Long> {
-    Optional<Inventario> findByProductoId(Long id);
+public interface InventarioRepository extends JpaRepository<Inventario, Long>, InventarioRepositoryCustom {
+    // Derivada de findByProductoId, Hibernate agrega un JOIN con productos y filtra por productos.id
+    @Query("SELECT i FROM Inventario i WHERE i.producto.id = :productoId")
+    Optional<Inventario> findByProductoId(@Param("productoId") Long id);
 
-    @Query("SELECT i FROM Inventario i WHERE i.cantidad <= i.stockMinimo")
-    List<Inventario> findByStockBajo();
+    /**
+     * Carga el inventario junto con su producto y la categoría del producto en una sola consulta,
+     * que es todo lo que necesita la conversión a InventarioDTO.
+     */
+    @Query("SELECT i FROM Inventario i JOIN FETCH i.producto p LEFT JOIN FETCH p.categoria " +
+            "WHERE p.id = :productoId")
+    Optional<Inventario> findDetalleByProductoId(@Param("productoId") Long productoId);
 
+    @Query("SELECT i FROM Inventario i JOIN FETCH i.producto p LEFT JOIN FETCH p.categoria " +
+            "WHERE p.id IN :productoIds")
+    List<Inventario> findDetalleByProductoIds(@Param("productoIds") Collection<Long> productoIds);
+
+    @Query("SELECT i.cantidad FROM Inventario i WHERE i.producto.id = :productoId")
+    Optional<Integer> findCantidadByProductoId(@Param("productoId") Long productoId);
+
+    @Query("SELECT new com.example.dataService.dto.StockDTO(i.producto.id, i.cantidad) " +
+            "FROM Inventario i WHERE i.producto.id IN :productoIds")
+    List<StockDTO> findStockByProductoIds(@Param("productoIds") Collection<Long> productoIds);
+
+    /** Stock de toda la tabla, para cargar el inventario en memoria (ver MotorInventarioMemoria). */
+    @Query("SELECT new com.example.dataService.dto.StockDTO(i.producto.id, i.cantidad) FROM Inventario i")
+    List<StockDTO> findAllStock();
+
+    /**
+     * Suma {@code delta} al stock en una única sentencia UPDATE condicionada a que el resultado
+     * no quede negativo. La base de datos serializa las escrituras concurrentes sobre la fila,
+     * así que no se pierden actualizaciones como en un leer-modificar-guardar.
+     * @return 1 si se aplicó; 0 si el producto no tiene inventario o el stock es insuficiente.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventario i SET i.cantidad = i.cantidad + :delta, i.fechaActualizacion = :fecha " +
+            "WHERE i.producto.id = :productoId AND i.cantidad + :delta >= 0")
+    int ajustarStock(@Param("productoId") Long productoId,
+                     @Param("delta") int delta,
+                     @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Página de inventarios con stock bajo, ordenada por producto (paginación por clave).
+     * Filtra por el indicador stock_bajo, que está indexado, y trae producto y categoría en la misma consulta.
+     */
+    @Query("SELECT i FROM Inventario i JOIN FETCH i.producto p LEFT JOIN FETCH p.categoria " +
+            "WHERE i.stockBajo = true AND i.producto.id > :despuesDeProductoId ORDER BY i.producto.id")
+    List<Inventario> findPaginaStockBajo(@Param("despuesDeProductoId") Long despuesDeProductoId, Limit limite);
+
+
+    /**
+     * Valor (precio * cantidad), número de productos y productos con stock bajo por categoría,
+     * resueltos en la base de datos con SUM/COUNT y GROUP BY: solo viaja una fila por categoría.
+     * Una categoría cuyos productos no tienen inventario devuelve valorTotal en null.
+     */
+    @Query("SELECT new com.example.dataService.dto.ValorCategoriaDTO(c.id, c.nombre, " +
+            "SUM(p.precio * i.cantidad), COUNT(p), " +
+            "SUM(CASE WHEN i.cantidad <= i.stockMinimo THEN 1L ELSE 0L END)) " +
+            "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.inventario i " +
+            "GROUP BY c.id, c.nombre ORDER BY c.nombre")
+    List<ValorCategoriaDTO> findValoracionPorCategoria();
 
     @Query("SELECT i FROM Inventario i JOIN FETCH i.producto")
     List<Inventario> findAllWithProducto();
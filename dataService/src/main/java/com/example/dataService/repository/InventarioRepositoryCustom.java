@@ -0,0 +1,41 @@
+package com.example.dataService.repository;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.StockDTO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Operaciones de InventarioRepository implementadas con JDBC en lugar de JPA.
+ */
+public interface InventarioRepositoryCustom {
+
+    /**
+     * Aplica todos los ajustes con el mismo UPDATE condicional que {@link InventarioRepository#ajustarStock},
+     * enviados como un único batch JDBC.
+     * @return Filas afectadas por cada ajuste, en el mismo orden: 1 si se aplicó, 0 si no.
+     */
+    int[] ajustarStockEnLote(List<AjusteStockItem> ajustes, LocalDateTime fecha);
+
+    /**
+     * Reemplaza la cantidad (y el indicador de stock bajo) de cada producto, en un único batch JDBC.
+     * Lo usa el inventario en memoria para copiar su estado a la tabla.
+     * @return Filas afectadas por cada producto, en el mismo orden: 0 si el producto ya no tiene inventario.
+     */
+    int[] establecerStockEnLote(List<StockDTO> cantidades, LocalDateTime fecha);
+
+    /**
+     * Última secuencia aplicada del origen, bloqueando su fila (SELECT ... FOR UPDATE) hasta el fin de la
+     * transacción: dos lotes concurrentes del mismo origen se aplican uno detrás del otro.
+     * @return Vacío si el origen todavía no envió ningún lote.
+     */
+    Optional<Long> bloquearUltimaSecuencia(String origen);
+
+    /** Registra un origen nuevo; si otra transacción lo registra a la vez, una de las dos falla por clave duplicada. */
+    void registrarOrigen(String origen, long ultimaSecuencia);
+
+    /** @return Filas actualizadas: 0 si el origen todavía no está registrado. */
+    int actualizarUltimaSecuencia(String origen, long ultimaSecuencia);
+}
@@ -0,0 +1,103 @@
+package com.example.dataService.repository;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.StockDTO;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+class InventarioRepositoryCustomImpl implements InventarioRepositoryCustom {
+
+    private static final String SQL_AJUSTAR_STOCK =
+            "UPDATE inventario SET cantidad = cantidad + ?, fecha_actualizacion = ? " +
+            "WHERE producto_id = ? AND cantidad + ? >= 0";
+
+    private static final String SQL_ESTABLECER_STOCK =
+            "UPDATE inventario SET cantidad = ?, fecha_actualizacion = ? WHERE producto_id = ?";
+
+    private static final String SQL_BLOQUEAR_ORIGEN =
+            "SELECT ultima_secuencia FROM origenes_ajuste_stock WHERE origen = ? FOR UPDATE";
+    private static final String SQL_REGISTRAR_ORIGEN =
+            "INSERT INTO origenes_ajuste_stock (origen, ultima_secuencia) VALUES (?, ?)";
+    private static final String SQL_ACTUALIZAR_ORIGEN =
+            "UPDATE origenes_ajuste_stock SET ultima_secuencia = ? WHERE origen = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    InventarioRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int[] ajustarStockEnLote(List<AjusteStockItem> ajustes, LocalDateTime fecha) {
+        Timestamp marcaTemporal = Timestamp.valueOf(fecha);
+        int[] filas = jdbcTemplate.batchUpdate(SQL_AJUSTAR_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                AjusteStockItem ajuste = ajustes.get(i);
+                ps.setInt(1, ajuste.getDelta());
+                ps.setTimestamp(2, marcaTemporal);
+                ps.setLong(3, ajuste.getProductoId());
+                ps.setInt(4, ajuste.getDelta());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ajustes.size();
+            }
+        });
+
+        // Algunos drivers (por ejemplo MySQL con rewriteBatchedStatements) informan SUCCESS_NO_INFO en
+        // lugar del conteo. Sin él no se puede saber si cada UPDATE condicional aplicó: darlo por aplicado
+        // confirmaría ajustes sin stock, así que el lote falla y la transacción se revierte.
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] == Statement.SUCCESS_NO_INFO) {
+                throw new IncorrectUpdateSemanticsDataAccessException("El driver JDBC no informó las filas actualizadas por el ajuste "
+                        + i + " del lote (SUCCESS_NO_INFO); no se puede saber si había stock suficiente");
+            }
+        }
+        return filas;
+    }
+
+    @Override
+    public int[] establecerStockEnLote(List<StockDTO> cantidades, LocalDateTime fecha) {
+        Timestamp marcaTemporal = Timestamp.valueOf(fecha);
+        return jdbcTemplate.batchUpdate(SQL_ESTABLECER_STOCK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                StockDTO stock = cantidades.get(i);
+                ps.setInt(1, stock.getCantidad());
+                ps.setTimestamp(2, marcaTemporal);
+                ps.setLong(3, stock.getProductoId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return cantidades.size();
+            }
+        });
+    }
+
+    @Override
+    public Optional<Long> bloquearUltimaSecuencia(String origen) {
+        return jdbcTemplate.queryForList(SQL_BLOQUEAR_ORIGEN, Long.class, origen).stream().findFirst();
+    }
+
+    @Override
+    public void registrarOrigen(String origen, long ultimaSecuencia) {
+        jdbcTemplate.update(SQL_REGISTRAR_ORIGEN, origen, ultimaSecuencia);
+    }
+
+    @Override
+    public int actualizarUltimaSecuencia(String origen, long ultimaSecuencia) {
+        return jdbcTemplate.update(SQL_ACTUALIZAR_ORIGEN, ultimaSecuencia, origen);
+    }
+}
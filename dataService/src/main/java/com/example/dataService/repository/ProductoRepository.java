@@ -1,15 +1,130 @@
 package com.example.dataService.repository;
 
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.ProductoDTO;
+import com.example.dataService.dto.TextoProductoDTO;
 import com.example.dataService.entity.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
-    Boolean existsByNombreIgnoreCase(String nombre);
-    @Query("SELECT e FROM Producto e WHERE e.categoria.nombre = :nombreCategoria")
-    List<Producto> findByCategoriaId(Long categoriaId);
+
+    /**
+     * Proyección de Producto + Categoria + Inventario directamente a ProductoDTO.
+     * Resuelve todo en una única sentencia SQL con JOINs, evitando las consultas perezosas
+     * por cada categoría e inventario (problema N+1) de la conversión entidad -> DTO.
+     * Categoria se une como entidad y no por la asociación: si no, Hibernate resuelve p.categoria.id sobre
+     * ese JOIN (categorias.id) y los filtros por categoría no pueden usar los índices de productos.categoria_id.
+     */
+    String SELECT_PRODUCTO_DTO = "SELECT new com.example.dataService.dto.ProductoDTO(" +
+            "p.id, p.nombre, p.descripcion, p.precio, c.nombre, i.cantidad, " +
+            "CASE WHEN i.cantidad <= i.stockMinimo THEN true ELSE false END) " +
+            "FROM Producto p LEFT JOIN Categoria c ON c.id = p.categoria.id LEFT JOIN p.inventario i ";
+
+    @Query(SELECT_PRODUCTO_DTO + "ORDER BY p.id")
+    List<ProductoDTO> findAllDTO();
+
+    /**
+     * Recorre el catálogo completo con un cursor JDBC en lugar de materializarlo en una lista.
+     * Las filas se traen del servidor en bloques de {@code fetchSize} y, al ser DTOs y no entidades,
+     * no se acumulan en el contexto de persistencia. Debe consumirse dentro de una transacción
+     * y cerrarse al terminar (try-with-resources).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query(SELECT_PRODUCTO_DTO + "ORDER BY p.id")
+    Stream<ProductoDTO> streamAllDTO();
+
+    /** Todas las filas del catálogo en forma plana, para construir el catálogo columnar en memoria. */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.example.dataService.dto.FilaCatalogoDTO(p.id, p.nombre, p.descripcion, p.precio, " +
+            "c.id, c.nombre, i.cantidad, i.stockBajo) " +
+            "FROM Producto p LEFT JOIN p.categoria c LEFT JOIN p.inventario i")
+    List<FilaCatalogoDTO> findFilasCatalogo();
+
+    /** Solo los campos de texto que indexa la búsqueda, sin JOINs. */
+    @Query("SELECT new com.example.dataService.dto.TextoProductoDTO(p.id, p.nombre, p.descripcion) FROM Producto p")
+    List<TextoProductoDTO> findTextosParaBusqueda();
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.id = :id")
+    Optional<ProductoDTO> findDTOById(@Param("id") Long id);
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.id IN :ids ORDER BY p.id")
+    List<ProductoDTO> findDTOsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Productos de una categoría buscada por nombre, en una sola sentencia. La subconsulta resuelve el
+     * nombre (columna única) a su ID, así el filtro recorre el índice (categoria_id, id) ya en el orden
+     * pedido; filtrando por c.nombre el motor puede preferir recorrer todos los productos por id.
+     */
+    @Query(SELECT_PRODUCTO_DTO +
+            "WHERE p.categoria.id = (SELECT c2.id FROM Categoria c2 WHERE c2.nombre = :nombreCategoria) ORDER BY p.id")
+    List<ProductoDTO> findDTOsByCategoriaNombre(@Param("nombreCategoria") String nombreCategoria);
+
+    // --- Listado paginado de una categoría: p.categoria.id es la columna categoria_id, indexada junto al orden ---
+    // Las condiciones de cursor repiten el primer criterio como cota (>=) fuera del OR: así todo motor puede
+    // empezar el recorrido del índice en el cursor, también H2, que no usa índices para un OR en el nivel superior.
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.categoria.id = :categoriaId AND p.id > :despuesDeId ORDER BY p.id")
+    List<ProductoDTO> findPaginaDeCategoriaPorId(@Param("categoriaId") Long categoriaId,
+                                                 @Param("despuesDeId") Long despuesDeId,
+                                                 Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.categoria.id = :categoriaId ORDER BY p.precio, p.id")
+    List<ProductoDTO> findPrimeraPaginaDeCategoriaPorPrecio(@Param("categoriaId") Long categoriaId, Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO +
+            "WHERE p.categoria.id = :categoriaId " +
+            "AND p.precio >= :precio AND (p.precio > :precio OR p.id > :despuesDeId) " +
+            "ORDER BY p.precio, p.id")
+    List<ProductoDTO> findPaginaDeCategoriaPorPrecio(@Param("categoriaId") Long categoriaId,
+                                                     @Param("precio") BigDecimal precio,
+                                                     @Param("despuesDeId") Long despuesDeId,
+                                                     Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.categoria.id = :categoriaId ORDER BY p.nombre, p.id")
+    List<ProductoDTO> findPrimeraPaginaDeCategoriaPorNombre(@Param("categoriaId") Long categoriaId, Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO +
+            "WHERE p.categoria.id = :categoriaId " +
+            "AND p.nombre >= :nombre AND (p.nombre > :nombre OR p.id > :despuesDeId) " +
+            "ORDER BY p.nombre, p.id")
+    List<ProductoDTO> findPaginaDeCategoriaPorNombre(@Param("categoriaId") Long categoriaId,
+                                                     @Param("nombre") String nombre,
+                                                     @Param("despuesDeId") Long despuesDeId,
+                                                     Limit limite);
+
+    // --- Paginación por clave (keyset): el coste por página no depende del tamaño del catálogo ---
+
+    @Query(SELECT_PRODUCTO_DTO + "WHERE p.id > :despuesDeId ORDER BY p.id")
+    List<ProductoDTO> findPaginaPorId(@Param("despuesDeId") Long despuesDeId, Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO + "ORDER BY p.precio, p.id")
+    List<ProductoDTO> findPrimeraPaginaPorPrecio(Limit limite);
+
+    @Query(SELECT_PRODUCTO_DTO +
+            "WHERE p.precio >= :precio AND (p.precio > :precio OR p.id > :despuesDeId) " +
+            "ORDER BY p.precio, p.id")
+    List<ProductoDTO> findPaginaPorPrecio(@Param("precio") BigDecimal precio,
+                                          @Param("despuesDeId") Long despuesDeId,
+                                          Limit limite);
 }
@@ -0,0 +1,44 @@
+package com.example.dataService.service;
+
+import com.example.dataService.busqueda.MotorAnaliticoInventario;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
+import com.example.dataService.exception.ValidacionNegocioException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Reportes de inventario en modo analítico: se calculan en memoria sobre el catálogo columnar en lugar
+ * de en la base de datos, por lo que no abren transacción y pueden ir por detrás de las últimas escrituras.
+ */
+@Service
+public class AnaliticaInventarioService {
+    static final int MAXIMO_LIMITES_DE_PRECIO = 50;
+
+    private final MotorAnaliticoInventario motorAnalitico;
+
+    public AnaliticaInventarioService(MotorAnaliticoInventario motorAnalitico) {
+        this.motorAnalitico = motorAnalitico;
+    }
+
+    public ValoracionInventarioDTO obtenerValoracion() {
+        return motorAnalitico.valoracion();
+    }
+
+    /**
+     * Valoración por bandas de precio delimitadas por los límites indicados (en cualquier orden).
+     * Sin límites se devuelve una única banda con todo el catálogo.
+     */
+    public List<ValorBandaPrecioDTO> obtenerValoracionPorBandasDePrecio(List<BigDecimal> limites) {
+        List<BigDecimal> cortes = limites == null ? List.of() : limites;
+        if (cortes.size() > MAXIMO_LIMITES_DE_PRECIO) {
+            throw new ValidacionNegocioException("No se pueden indicar más de " + MAXIMO_LIMITES_DE_PRECIO + " límites de precio.");
+        }
+        if (cortes.stream().anyMatch(limite -> limite == null || limite.signum() < 0)) {
+            throw new ValidacionNegocioException("Los límites de precio deben ser mayores o iguales a cero.");
+        }
+        return motorAnalitico.valoracionPorBandasDePrecio(cortes);
+    }
+}
@@ -17,9 +17,11 @@ import java.util.stream.Collectors;
 @Transactional
 public class CategoriaService {
     private CategoriaRepository categoriaRepository;
+    private final VersionCatalogo versionCatalogo;
 
-    public CategoriaService(CategoriaRepository categoriaRepository) {
+    public CategoriaService(CategoriaRepository categoriaRepository, VersionCatalogo versionCatalogo) {
         this.categoriaRepository = categoriaRepository;
+        this.versionCatalogo = versionCatalogo;
     }
 
     public List<CategoriaDTO> obtenerTodas() {
@@ -45,6 +47,7 @@ public class CategoriaService {
         nuevaCategoria.setDescripcion(categoriaDto.getDescripcion());
 
         Categoria categoriaGuardada = categoriaRepository.save(nuevaCategoria);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.CATEGORIAS);
 
         return convertirADto(categoriaGuardada);
     }
@@ -59,6 +62,7 @@ public class CategoriaService {
         }
 
         categoriaRepository.deleteById(id);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.CATEGORIAS);
     }
 
     public CategoriaDTO actualizarCategoria(Long id, CategoriaDTO categoriaDto) {
@@ -75,6 +79,7 @@ public class CategoriaService {
         categoriaExistente.setDescripcion(categoriaDto.getDescripcion());
 
         Categoria categoriaActualizada = categoriaRepository.save(categoriaExistente);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.CATEGORIAS);
         return convertirADto(categoriaActualizada);
     }
 
@@ -0,0 +1,48 @@
+package com.example.dataService.service;
+
+import com.example.dataService.exception.ValidacionNegocioException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursor opaco para la paginación por clave (keyset).
+ * Guarda el criterio de orden, el valor de la columna de orden y el ID de la última
+ * fila devuelta, codificados en Base64 URL-safe para que el cliente no dependa de su formato.
+ */
+record CursorPagina(String orden, String valor, long id) {
+
+    private static final String SEPARADOR = "|";
+
+    String codificar() {
+        String plano = orden + SEPARADOR + (valor == null ? "" : valor) + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    BigDecimal valorDecimal() {
+        try {
+            return new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new ValidacionNegocioException("El cursor de paginación no es válido.");
+        }
+    }
+
+    static CursorPagina decodificar(String token) {
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int primero = plano.indexOf(SEPARADOR);
+            int ultimo = plano.lastIndexOf(SEPARADOR);
+            if (primero < 0 || primero == ultimo) {
+                throw new IllegalArgumentException("Formato de cursor inválido");
+            }
+            return new CursorPagina(
+                    plano.substring(0, primero),
+                    plano.substring(primero + 1, ultimo),
+                    Long.parseLong(plano.substring(ultimo + 1))
+            );
+        } catch (IllegalArgumentException e) {
+            throw new ValidacionNegocioException("El cursor de paginación no es válido.");
+        }
+    }
+}
@@ -0,0 +1,527 @@
+package com.example.dataService.service;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.AjusteStockLoteResponse;
+import com.example.dataService.dto.EstadoAjusteStock;
+import com.example.dataService.dto.ResultadoAjusteStock;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.exception.InventarioNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.repository.InventarioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Escritura diferida (write-behind) de los ajustes de stock. Pensada para los pocos productos que
+ * reciben la mayoría de los ajustes: en lugar de un UPDATE por llamada, que se serializa en el cerrojo
+ * de la misma fila, los deltas se acumulan en memoria y se escriben sumados por producto en un batch
+ * JDBC cada {@code intervalo}, o antes si se acumulan {@code tamano-lote} ajustes.
+ * <p>
+ * Por producto se guarda, en un único AtomicLong, el stock disponible (el de la base más lo pendiente)
+ * y el delta pendiente de escribir; un ajuste es un compareAndSet sobre ese valor, sin cerrojos, y se
+ * rechaza si dejaría el disponible negativo, igual que el UPDATE condicional. El ConcurrentHashMap
+ * reparte los productos en segmentos, así que solo compiten los ajustes de un mismo producto.
+ * <p>
+ * Un ajuste aceptado se confirma al cliente antes de llegar a la base: la base va como mucho un
+ * intervalo por detrás (más lo que tarde la escritura). Mientras está activa, todas las escrituras de
+ * stock (ajustes sueltos y lotes, también los reenviables) y las lecturas de cantidades pasan por aquí,
+ * para que nadie vea ni modifique la fila sin los deltas pendientes. La última secuencia de cada origen
+ * de lotes reenviables también queda pendiente y se escribe en la misma transacción que los deltas.
+ * <p>
+ * Tras cada escritura el disponible se vuelve a leer de la base, de modo que los cambios hechos por
+ * otras vías (la edición del producto) se reflejan en el siguiente intervalo. Si la base rechaza un
+ * delta porque otra vía dejó el stock por debajo, el delta ya confirmado no se descarta: sigue
+ * pendiente y se reintenta en cada ronda, sumado a los ajustes siguientes, hasta que la fila lo admita.
+ * Al detenerse la aplicación se escribe todo lo pendiente. Se activa con
+ * inventario.escritura-diferida.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.escritura-diferida.enabled", havingValue = "true")
+@Slf4j
+public class EscrituraDiferidaStock implements SmartLifecycle {
+
+    /** Resultado de {@link #intentarAjustar} cuando el producto no tiene inventario. */
+    static final int SIN_INVENTARIO = -2;
+    /** Resultado de {@link #intentarAjustar} cuando el stock no alcanza. */
+    static final int SIN_STOCK = -1;
+    /** Resultado de {@link #intentarAjustar} cuando el ajuste desborda el stock o el delta pendiente. */
+    static final int FUERA_DE_RANGO = -3;
+    /** Estado de un producto que ya se quitó del mapa; quien lo lea debe volver a buscarlo. */
+    private static final long RETIRADO = Long.MIN_VALUE;
+    private static final int INTENTOS_AL_DETENER = 3;
+
+    private final InventarioRepository inventarioRepository;
+    private final VersionCatalogo versionCatalogo;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration intervalo;
+    private final int tamanoLote;
+
+    private final Map<Long, AtomicLong> productos = new ConcurrentHashMap<>();
+    /** Última secuencia aplicada por origen que todavía no se escribió en origenes_ajuste_stock. */
+    private final Map<String, Long> secuenciasPendientes = new ConcurrentHashMap<>();
+    /**
+     * Los lotes lo toman en modo lectura mientras aplican sus ajustes y su secuencia; la escritura lo
+     * toma en modo exclusivo solo para recoger lo pendiente, así que nunca ve un lote a medias.
+     */
+    private final ReadWriteLock lotes = new ReentrantReadWriteLock();
+    private final LongAdder ajustesSinEscribir = new LongAdder();
+    private final AtomicBoolean escrituraProgramada = new AtomicBoolean();
+    /** Serializa las escrituras: la periódica, la disparada por tamaño y la final. */
+    private final ReentrantLock escribiendo = new ReentrantLock();
+    private volatile ScheduledExecutorService planificador;
+
+    public EscrituraDiferidaStock(InventarioRepository inventarioRepository, VersionCatalogo versionCatalogo,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${inventario.escritura-diferida.intervalo:200ms}") Duration intervalo,
+                                  @Value("${inventario.escritura-diferida.tamano-lote:500}") int tamanoLote) {
+        this.inventarioRepository = inventarioRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intervalo = intervalo;
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Acumula un ajuste de stock para escribirlo en la siguiente ronda.
+     * @return Stock disponible del producto tras el ajuste.
+     * @throws InventarioNoEncontradoException si el producto no tiene inventario.
+     * @throws ValidacionNegocioException si el stock disponible no alcanza para el ajuste.
+     */
+    public int ajustar(Long productoId, int delta) {
+        int resultado = intentarAjustar(productoId, delta);
+        if (resultado == SIN_INVENTARIO) {
+            throw new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId);
+        }
+        if (resultado == SIN_STOCK) {
+            throw new ValidacionNegocioException("No hay stock suficiente. Stock actual: " + cantidad(productoId) + ", se intentó restar: " + (-delta));
+        }
+        if (resultado == FUERA_DE_RANGO) {
+            throw new ValidacionNegocioException("El ajuste supera el stock máximo admitido.");
+        }
+        return resultado;
+    }
+
+    /**
+     * Igual que {@link #ajustar} pero informando el rechazo con un código en lugar de una excepción.
+     * @return Stock disponible tras el ajuste, {@link #SIN_STOCK}, {@link #SIN_INVENTARIO} o {@link #FUERA_DE_RANGO}.
+     */
+    int intentarAjustar(Long productoId, int delta) {
+        while (true) {
+            AtomicLong estado = productos.get(productoId);
+            if (estado == null) {
+                estado = cargar(productoId);
+                if (estado == null) {
+                    return SIN_INVENTARIO;
+                }
+            }
+            long actual = estado.get();
+            if (actual == RETIRADO) {
+                productos.remove(productoId, estado);
+                continue;
+            }
+            long disponible = (long) disponible(actual) + delta;
+            long pendiente = (long) pendiente(actual) + delta;
+            if (disponible < 0) {
+                return SIN_STOCK;
+            }
+            if (disponible > Integer.MAX_VALUE || pendiente > Integer.MAX_VALUE || pendiente < Integer.MIN_VALUE) {
+                return FUERA_DE_RANGO;
+            }
+            if (estado.compareAndSet(actual, empaquetar((int) disponible, (int) pendiente))) {
+                // Las lecturas de stock ven el disponible en memoria: su ETag tiene que cambiar ya, no en la escritura
+                versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+                ajustesSinEscribir.increment();
+                if (ajustesSinEscribir.sum() >= tamanoLote) {
+                    programarEscritura();
+                }
+                return (int) disponible;
+            }
+        }
+    }
+
+    /**
+     * Aplica un lote de ajustes en memoria con los mismos resultados que el batch JDBC de
+     * InventarioService. Primero se comprueba que todos los productos tengan inventario, después se
+     * aplican los descuentos y las reposiciones solo se validan; se aplican una vez decidido que el lote
+     * se confirma. Así en "todo o nada" solo hay que deshacer descuentos, lo que siempre es posible: una
+     * reposición aplicada podría haberse vendido ya y no se podría retirar.
+     * <p>
+     * Después de validarla, una reposición solo puede fallar si un ajuste concurrente lleva el stock por
+     * encima de Integer.MAX_VALUE antes de aplicarla; se informa como STOCK_INSUFICIENTE.
+     * @param origen Origen de un lote reenviable, o null.
+     * @param ultimaSecuencia Secuencia del último ajuste del lote; se escribe junto con sus deltas si el lote se confirma.
+     */
+    AjusteStockLoteResponse ajustarLote(List<AjusteStockItem> ajustes, boolean todoONada,
+                                        @Nullable String origen, long ultimaSecuencia) {
+        EstadoAjusteStock[] estados = new EstadoAjusteStock[ajustes.size()];
+        boolean hayFallos = false;
+        lotes.readLock().lock();
+        try {
+            for (int i = 0; i < ajustes.size(); i++) {
+                if (cantidad(ajustes.get(i).getProductoId()) == null && cargar(ajustes.get(i).getProductoId()) == null) {
+                    estados[i] = EstadoAjusteStock.NO_ENCONTRADO;
+                    hayFallos = true;
+                }
+            }
+            for (int i = 0; i < ajustes.size(); i++) {
+                AjusteStockItem ajuste = ajustes.get(i);
+                if (estados[i] == null && ajuste.getDelta() < 0) {
+                    estados[i] = estadoDe(intentarAjustar(ajuste.getProductoId(), ajuste.getDelta()));
+                    hayFallos |= estados[i] != EstadoAjusteStock.APLICADO;
+                }
+            }
+            // Las reposiciones de un mismo producto se validan sumadas, como quedarán al aplicarse
+            Map<Long, Long> repuesto = new HashMap<>();
+            for (int i = 0; i < ajustes.size(); i++) {
+                AjusteStockItem ajuste = ajustes.get(i);
+                if (estados[i] == null && ajuste.getDelta() > 0 && !(todoONada && hayFallos)) {
+                    long acumulado = repuesto.merge(ajuste.getProductoId(), (long) ajuste.getDelta(), Long::sum);
+                    estados[i] = estadoDe(validarReposicion(ajuste.getProductoId(), acumulado));
+                    hayFallos |= estados[i] != EstadoAjusteStock.APLICADO;
+                }
+            }
+
+            boolean confirmado = !(todoONada && hayFallos);
+            for (int i = 0; i < ajustes.size(); i++) {
+                AjusteStockItem ajuste = ajustes.get(i);
+                if (estados[i] != EstadoAjusteStock.APLICADO) {
+                    continue;
+                }
+                if (!confirmado) {
+                    // Las reposiciones no se llegaron a aplicar; los descuentos se devuelven
+                    if (ajuste.getDelta() > 0 || intentarAjustar(ajuste.getProductoId(), -ajuste.getDelta()) >= 0) {
+                        estados[i] = EstadoAjusteStock.REVERTIDO;
+                    }
+                } else if (ajuste.getDelta() > 0) {
+                    estados[i] = estadoDe(intentarAjustar(ajuste.getProductoId(), ajuste.getDelta()));
+                }
+            }
+            if (confirmado && origen != null) {
+                secuenciasPendientes.merge(origen, ultimaSecuencia, Math::max);
+            }
+
+            List<ResultadoAjusteStock> resultados = new ArrayList<>(ajustes.size());
+            for (int i = 0; i < ajustes.size(); i++) {
+                AjusteStockItem ajuste = ajustes.get(i);
+                // Reposiciones que no llegaron a validarse porque un descuento ya había hecho fallar el lote
+                EstadoAjusteStock estado = estados[i] != null ? estados[i] : EstadoAjusteStock.REVERTIDO;
+                Integer stockActual = !confirmado || estado == EstadoAjusteStock.NO_ENCONTRADO ? null : cantidad(ajuste.getProductoId());
+                resultados.add(new ResultadoAjusteStock(ajuste.getProductoId(), ajuste.getDelta(), estado, stockActual));
+            }
+            return new AjusteStockLoteResponse(confirmado, resultados);
+        } finally {
+            lotes.readLock().unlock();
+        }
+    }
+
+    private static EstadoAjusteStock estadoDe(int resultado) {
+        return switch (resultado) {
+            case SIN_INVENTARIO -> EstadoAjusteStock.NO_ENCONTRADO;
+            case SIN_STOCK, FUERA_DE_RANGO -> EstadoAjusteStock.STOCK_INSUFICIENTE;
+            default -> EstadoAjusteStock.APLICADO;
+        };
+    }
+
+    /**
+     * Comprueba, sin aplicarla, que el producto admitiría ahora una reposición de {@code delta} unidades.
+     * @return 0, {@link #SIN_INVENTARIO} o {@link #FUERA_DE_RANGO}.
+     */
+    private int validarReposicion(Long productoId, long delta) {
+        while (true) {
+            AtomicLong estado = productos.get(productoId);
+            if (estado == null) {
+                estado = cargar(productoId);
+                if (estado == null) {
+                    return SIN_INVENTARIO;
+                }
+            }
+            long actual = estado.get();
+            if (actual == RETIRADO) {
+                productos.remove(productoId, estado);
+                continue;
+            }
+            return disponible(actual) + delta > Integer.MAX_VALUE || pendiente(actual) + delta > Integer.MAX_VALUE
+                    ? FUERA_DE_RANGO : 0;
+        }
+    }
+
+    /**
+     * Stock disponible del producto si está en memoria (la base más lo pendiente de escribir).
+     * @return null si el producto no está en memoria: entonces la base está al día.
+     */
+    @Nullable
+    Integer cantidad(Long productoId) {
+        AtomicLong estado = productos.get(productoId);
+        long actual = estado == null ? RETIRADO : estado.get();
+        return actual == RETIRADO ? null : Math.max(0, disponible(actual));
+    }
+
+    /**
+     * Última secuencia aplicada del origen, contando la que todavía no se escribió en la base.
+     * @param enBase La leída (y bloqueada) de origenes_ajuste_stock.
+     */
+    long ultimaSecuencia(String origen, long enBase) {
+        Long pendiente = secuenciasPendientes.get(origen);
+        return pendiente == null ? enBase : Math.max(enBase, pendiente);
+    }
+
+    /**
+     * Escribe los deltas pendientes, uno por producto y ordenados por ID como el resto de lotes, y las
+     * secuencias pendientes de los orígenes, en una transacción. Si la escritura falla todo vuelve a
+     * quedar pendiente; los productos sin ajustes desde la ronda anterior se quitan de memoria y se
+     * vuelven a leer de la base al usarse.
+     * @return Cantidad de productos escritos.
+     */
+    int escribirPendientes() {
+        escribiendo.lock();
+        try {
+            List<AjusteStockItem> lote = new ArrayList<>();
+            Map<String, Long> secuencias;
+            lotes.writeLock().lock();
+            try {
+                ajustesSinEscribir.reset();
+                productos.forEach((productoId, estado) -> {
+                    int pendiente = retirarOVaciar(estado);
+                    if (pendiente == 0 && estado.get() == RETIRADO) {
+                        productos.remove(productoId, estado);
+                    } else if (pendiente != 0) {
+                        lote.add(new AjusteStockItem(productoId, pendiente));
+                    }
+                });
+                // Se quitan después del commit: hasta entonces un reenvío tiene que seguir viéndolas
+                secuencias = Map.copyOf(secuenciasPendientes);
+            } finally {
+                lotes.writeLock().unlock();
+            }
+            if (lote.isEmpty() && secuencias.isEmpty()) {
+                return 0;
+            }
+            lote.sort(Comparator.comparing(AjusteStockItem::getProductoId));
+
+            List<StockDTO> stock;
+            int[] filas;
+            try {
+                ResultadoEscritura resultado = transactionTemplate.execute(estado -> {
+                    int[] filasLote = lote.isEmpty() ? new int[0] : inventarioRepository.ajustarStockEnLote(lote, LocalDateTime.now());
+                    secuencias.forEach((origen, secuencia) -> {
+                        if (inventarioRepository.actualizarUltimaSecuencia(origen, secuencia) == 0) {
+                            inventarioRepository.registrarOrigen(origen, secuencia);
+                        }
+                    });
+                    return new ResultadoEscritura(filasLote, lote.isEmpty() ? List.of()
+                            : inventarioRepository.findStockByProductoIds(lote.stream().map(AjusteStockItem::getProductoId).toList()));
+                });
+                filas = resultado.filas();
+                stock = resultado.stock();
+            } catch (RuntimeException e) {
+                lote.forEach(ajuste -> devolver(ajuste.getProductoId(), ajuste.getDelta()));
+                throw e;
+            }
+            secuencias.forEach((origen, secuencia) -> secuenciasPendientes.remove(origen, secuencia));
+            if (lote.isEmpty()) {
+                return 0;
+            }
+            versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+
+            Map<Long, Integer> cantidades = stock.stream().collect(Collectors.toMap(StockDTO::getProductoId, StockDTO::getCantidad));
+            int escritos = 0;
+            for (int i = 0; i < lote.size(); i++) {
+                AjusteStockItem ajuste = lote.get(i);
+                if (filas[i] > 0) {
+                    escritos++;
+                } else if (cantidades.containsKey(ajuste.getProductoId())) {
+                    // Ya se confirmó al cliente: se conserva y se reintenta sumado a los siguientes ajustes
+                    devolver(ajuste.getProductoId(), ajuste.getDelta());
+                    log.warn("La base rechazó el ajuste diferido de {} unidades del producto {} (stock en base: {}); se reintenta en la siguiente ronda",
+                            ajuste.getDelta(), ajuste.getProductoId(), cantidades.get(ajuste.getProductoId()));
+                } else {
+                    log.error("Ajuste diferido de {} unidades descartado: el producto {} ya no tiene inventario",
+                            ajuste.getDelta(), ajuste.getProductoId());
+                }
+                sincronizar(ajuste.getProductoId(), cantidades.get(ajuste.getProductoId()));
+            }
+            return escritos;
+        } finally {
+            escribiendo.unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService nuevo = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("escritura-diferida-stock").daemon().factory());
+        long periodo = intervalo.toMillis();
+        nuevo.scheduleWithFixedDelay(this::escribirRegistrandoErrores, periodo, periodo, TimeUnit.MILLISECONDS);
+        planificador = nuevo;
+        log.info("Escritura diferida de stock activa (intervalo: {} ms, lote: {} ajustes)", periodo, tamanoLote);
+    }
+
+    /**
+     * Detiene las rondas periódicas y escribe lo que quede pendiente. Con la fase elegida se ejecuta
+     * después de que el servidor web deje de aceptar peticiones y antes de cerrar el pool de conexiones.
+     */
+    @Override
+    public void stop() {
+        ScheduledExecutorService actual = planificador;
+        if (actual == null) {
+            return;
+        }
+        planificador = null;
+        actual.shutdown();
+        try {
+            actual.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int intento = 1; intento <= INTENTOS_AL_DETENER; intento++) {
+            try {
+                escribirPendientes();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("No se pudo escribir el stock pendiente al detener (intento {} de {})", intento, INTENTOS_AL_DETENER, e);
+            }
+        }
+        // Lo que no se pudo escribir, también los deltas que la base sigue rechazando
+        productos.forEach((productoId, estado) -> {
+            long restante = estado.get();
+            if (restante != RETIRADO && pendiente(restante) != 0) {
+                log.error("Ajuste de stock no escrito: producto {}, delta {}", productoId, pendiente(restante));
+            }
+        });
+        secuenciasPendientes.forEach((origen, secuencia) ->
+                log.error("Secuencia de origen no escrita: origen {}, última secuencia {}", origen, secuencia));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return planificador != null;
+    }
+
+    @Override
+    public int getPhase() {
+        // Por debajo de las fases del servidor web (DEFAULT_PHASE - 1024 y - 2048): se detiene después
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /** @return null si el producto no tiene inventario. */
+    @Nullable
+    private AtomicLong cargar(Long productoId) {
+        Optional<Integer> cantidad = inventarioRepository.findCantidadByProductoId(productoId);
+        if (cantidad.isEmpty()) {
+            return null;
+        }
+        AtomicLong nuevo = new AtomicLong(empaquetar(cantidad.get(), 0));
+        AtomicLong existente = productos.putIfAbsent(productoId, nuevo);
+        return existente != null ? existente : nuevo;
+    }
+
+    /**
+     * Toma el delta pendiente dejándolo en cero, o marca el producto como retirado si no tenía nada
+     * pendiente (no hubo ajustes desde la ronda anterior).
+     */
+    private static int retirarOVaciar(AtomicLong estado) {
+        while (true) {
+            long actual = estado.get();
+            if (actual == RETIRADO) {
+                return 0;
+            }
+            int pendiente = pendiente(actual);
+            long siguiente = pendiente == 0 ? RETIRADO : empaquetar(disponible(actual), 0);
+            if (estado.compareAndSet(actual, siguiente)) {
+                return pendiente;
+            }
+        }
+    }
+
+    /** Vuelve a dejar pendiente un delta que no se pudo escribir, sin tocar el disponible. */
+    private void devolver(Long productoId, int delta) {
+        AtomicLong estado = productos.get(productoId);
+        while (true) {
+            long actual = estado.get();
+            if (estado.compareAndSet(actual, empaquetar(disponible(actual), pendiente(actual) + delta))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ajusta el disponible a la cantidad leída de la base más lo que sigue pendiente: lo acumulado
+     * mientras se escribía y los deltas rechazados. Con un delta rechazado el disponible queda negativo
+     * (lo vendido de más) y solo una reposición lo vuelve a poner en positivo.
+     * Si el producto ya no tiene inventario se retira y el siguiente ajuste recibirá un 404.
+     */
+    private void sincronizar(Long productoId, Integer cantidadEnBase) {
+        AtomicLong estado = productos.get(productoId);
+        while (true) {
+            long actual = estado.get();
+            long siguiente = cantidadEnBase == null ? RETIRADO
+                    : empaquetar(cantidadEnBase + pendiente(actual), pendiente(actual));
+            if (estado.compareAndSet(actual, siguiente)) {
+                break;
+            }
+        }
+        if (cantidadEnBase == null) {
+            productos.remove(productoId, estado);
+        }
+    }
+
+    private void programarEscritura() {
+        ScheduledExecutorService actual = planificador;
+        if (actual != null && escrituraProgramada.compareAndSet(false, true)) {
+            actual.execute(() -> {
+                escrituraProgramada.set(false);
+                escribirRegistrandoErrores();
+            });
+        }
+    }
+
+    private void escribirRegistrandoErrores() {
+        try {
+            escribirPendientes();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo escribir el stock diferido; se reintenta en la siguiente ronda", e);
+        }
+    }
+
+    // Disponible en los 32 bits altos y pendiente en los 32 bajos
+    static long empaquetar(int disponible, int pendiente) {
+        return ((long) disponible << 32) | (pendiente & 0xFFFFFFFFL);
+    }
+
+    static int disponible(long estado) {
+        return (int) (estado >> 32);
+    }
+
+    static int pendiente(long estado) {
+        return (int) estado;
+    }
+
+    private record ResultadoEscritura(int[] filas, List<StockDTO> stock) {
+    }
+}
@@ -1,57 +1,425 @@
 package com.example.dataService.service;
 
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.AjusteStockLoteRequest;
+import com.example.dataService.dto.AjusteStockLoteResponse;
+import com.example.dataService.dto.EstadoAjusteStock;
 import com.example.dataService.dto.InventarioDTO;
+import com.example.dataService.dto.PaginaDTO;
 import com.example.dataService.dto.ProductoDTO;
+import com.example.dataService.dto.ResultadoAjusteStock;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
 import com.example.dataService.entity.Inventario;
 import com.example.dataService.exception.InventarioNoEncontradoException;
 import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.memoria.MotorInventarioMemoria;
 import com.example.dataService.repository.InventarioRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @Transactional
 public class InventarioService {
+    static final int MAXIMO_AJUSTES_POR_LOTE = 1000;
+    static final int MAXIMO_IDS_POR_CONSULTA = 1000;
+    private static final int LONGITUD_MAXIMA_ORIGEN = 64;
+    private static final int LIMITE_MAXIMO = 500;
+    private static final String ORDEN_STOCK_BAJO = "stock-bajo";
+
     private final InventarioRepository inventarioRepository;
+    private final VersionCatalogo versionCatalogo;
+    /** Presente solo con inventario.escritura-diferida.enabled=true. */
+    private final EscrituraDiferidaStock escrituraDiferida;
+    /** Presente solo con inventario.memoria.enabled=true; entonces es el dueño del stock. */
+    private final MotorInventarioMemoria motorMemoria;
 
-    public InventarioService(InventarioRepository inventarioRepository) {
+    public InventarioService(InventarioRepository inventarioRepository, VersionCatalogo versionCatalogo,
+                             @Nullable EscrituraDiferidaStock escrituraDiferida,
+                             @Nullable MotorInventarioMemoria motorMemoria) {
+        if (escrituraDiferida != null && motorMemoria != null) {
+            throw new IllegalStateException("inventario.escritura-diferida e inventario.memoria no se pueden activar a la vez");
+        }
         this.inventarioRepository = inventarioRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.escrituraDiferida = escrituraDiferida;
+        this.motorMemoria = motorMemoria;
     }
 
     public InventarioDTO obtenerInventarioPorProductoId(Long productoId) {
-        Inventario inventario = inventarioRepository.findByProductoId(productoId)
+        Inventario inventario = inventarioRepository.findDetalleByProductoId(productoId)
                 .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
         return convertirAInventarioDTO(inventario);
     }
 
-    public List<InventarioDTO> obtenerProductosConStockBajo() {
-        return inventarioRepository.findByStockBajo().stream()
+    /**
+     * Obtiene el inventario de varios productos con una única consulta IN.
+     * Los productos sin inventario simplemente no aparecen en el resultado.
+     */
+    public List<InventarioDTO> obtenerInventariosPorProductoIds(List<Long> productoIds) {
+        if (productoIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (productoIds.size() > MAXIMO_IDS_POR_CONSULTA) {
+            throw new ValidacionNegocioException("No se pueden consultar más de " + MAXIMO_IDS_POR_CONSULTA + " inventarios a la vez.");
+        }
+        return inventarioRepository.findDetalleByProductoIds(Set.copyOf(productoIds)).stream()
                 .map(this::convertirAInventarioDTO)
                 .collect(Collectors.toList());
     }
 
-    public InventarioDTO actualizarStock(Long productoId, Integer cantidad) {
-        Inventario inventario = inventarioRepository.findByProductoId(productoId)
+    /**
+     * Devuelve solo el stock de un producto, leído de la fila de inventario por su clave única
+     * producto_id, sin cargar el producto ni la categoría.
+     */
+    public StockDTO obtenerCantidadPorProductoId(Long productoId) {
+        if (motorMemoria != null) {
+            Integer cantidad = motorMemoria.cantidad(productoId);
+            if (cantidad == null) {
+                throw new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId);
+            }
+            return new StockDTO(productoId, cantidad);
+        }
+        Integer pendienteDeEscribir = escrituraDiferidaActiva() ? escrituraDiferida.cantidad(productoId) : null;
+        if (pendienteDeEscribir != null) {
+            return new StockDTO(productoId, pendienteDeEscribir);
+        }
+        Integer cantidad = inventarioRepository.findCantidadByProductoId(productoId)
                 .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
+        return new StockDTO(productoId, cantidad);
+    }
+
+    /**
+     * Devuelve el stock de varios productos con una única consulta IN sobre inventario.
+     * Los productos sin inventario simplemente no aparecen en el resultado.
+     */
+    public List<StockDTO> obtenerCantidadesPorProductoIds(List<Long> productoIds) {
+        if (productoIds == null || productoIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (productoIds.size() > MAXIMO_IDS_POR_CONSULTA) {
+            throw new ValidacionNegocioException("No se pueden consultar más de " + MAXIMO_IDS_POR_CONSULTA + " productos a la vez.");
+        }
+        if (motorMemoria != null) {
+            return motorMemoria.cantidades(Set.copyOf(productoIds)).entrySet().stream()
+                    .map(e -> new StockDTO(e.getKey(), e.getValue()))
+                    .collect(Collectors.toList());
+        }
+        List<StockDTO> stock = inventarioRepository.findStockByProductoIds(Set.copyOf(productoIds));
+        if (escrituraDiferidaActiva()) {
+            // La base no incluye los ajustes que la escritura diferida todavía no escribió
+            stock.forEach(item -> {
+                Integer enMemoria = escrituraDiferida.cantidad(item.getProductoId());
+                if (enMemoria != null) {
+                    item.setCantidad(enMemoria);
+                }
+            });
+        }
+        return stock;
+    }
+
+    /**
+     * Devuelve una página de los inventarios con stock bajo, ordenados por ID de producto.
+     * Usa el indicador indexado stock_bajo y paginación por clave, con el mismo cursor opaco
+     * que el catálogo de productos.
+     * @param cursor Token opaco devuelto por la página anterior, o null para la primera.
+     * @param limite Cantidad máxima de inventarios de la página (1..500).
+     */
+    public PaginaDTO<InventarioDTO> obtenerProductosConStockBajo(String cursor, int limite) {
+        if (limite <= 0 || limite > LIMITE_MAXIMO) {
+            throw new ValidacionNegocioException("El límite de la página debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+        CursorPagina desde = cursor == null || cursor.isBlank() ? null : CursorPagina.decodificar(cursor);
+        if (desde != null && !desde.orden().equals(ORDEN_STOCK_BAJO)) {
+            throw new ValidacionNegocioException("El cursor no corresponde al reporte de stock bajo.");
+        }
+
+        // Se pide una fila más que el límite para saber si hay página siguiente
+        List<Inventario> inventarios = inventarioRepository.findPaginaStockBajo(desde == null ? 0L : desde.id(), Limit.of(limite + 1));
+        boolean hayMas = inventarios.size() > limite;
+        List<Inventario> pagina = hayMas ? inventarios.subList(0, limite) : inventarios;
 
-        int nuevoStock = inventario.getCantidad() + cantidad;
-        if (nuevoStock < 0) {
-            throw new ValidacionNegocioException("No hay stock suficiente. Stock actual: " + inventario.getCantidad() + ", se intentó restar: " + (-cantidad));
+        String siguienteCursor = null;
+        if (hayMas) {
+            Long ultimoProductoId = pagina.get(pagina.size() - 1).getProducto().getId();
+            siguienteCursor = new CursorPagina(ORDEN_STOCK_BAJO, null, ultimoProductoId).codificar();
         }
+        return new PaginaDTO<>(pagina.stream().map(this::convertirAInventarioDTO).toList(), siguienteCursor);
+    }
 
-        inventario.setCantidad(nuevoStock);
-        inventario.setFechaActualizacion(LocalDateTime.now());
-        Inventario inventarioActualizado = inventarioRepository.save(inventario);
+    /**
+     * Valoración del inventario a partir de los agregados por categoría que calcula la base de datos.
+     * Los totales se obtienen sumando esas filas, una por categoría, sin recorrer el catálogo.
+     */
+    public ValoracionInventarioDTO obtenerValoracionInventario() {
+        List<ValorCategoriaDTO> categorias = inventarioRepository.findValoracionPorCategoria();
+        Dinero valorTotal = Dinero.CERO;
+        long productos = 0;
+        long productosStockBajo = 0;
+        for (ValorCategoriaDTO categoria : categorias) {
+            if (categoria.getValorTotal() == null) {
+                categoria.setValorTotal(BigDecimal.ZERO); // SUM sin filas de inventario
+            }
+            valorTotal = valorTotal.mas(Dinero.de(categoria.getValorTotal()));
+            productos += categoria.getProductos();
+            productosStockBajo += categoria.getProductosStockBajo();
+        }
+        return new ValoracionInventarioDTO(valorTotal.aBigDecimal(), productos, productosStockBajo, categorias);
+    }
 
+    /**
+     * Suma {@code cantidad} (negativa para descontar) al stock del producto sin dejarlo negativo.
+     * Con la escritura diferida activa el ajuste se acumula en memoria y se escribe en la siguiente ronda;
+     * con el inventario en memoria se aplica allí y la tabla se actualiza después, y el DTO se arma con los
+     * datos del producto que guarda el motor, sin ir a la base. En todos los casos el DTO devuelto refleja
+     * el stock ya ajustado.
+     */
+    public InventarioDTO actualizarStock(Long productoId, Integer cantidad) {
+        if (motorMemoria != null) {
+            int disponible = motorMemoria.ajustar(productoId, cantidad);
+            MotorInventarioMemoria.DetalleInventario detalle = motorMemoria.detalle(productoId)
+                    .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
+            return convertirAInventarioDTO(detalle, disponible);
+        }
+        if (escrituraDiferidaActiva()) {
+            int disponible = escrituraDiferida.ajustar(productoId, cantidad);
+            Inventario inventario = inventarioRepository.findDetalleByProductoId(productoId)
+                    .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
+            return convertirAInventarioDTO(inventario, disponible);
+        }
+        int filasActualizadas = inventarioRepository.ajustarStock(productoId, cantidad, LocalDateTime.now());
+        if (filasActualizadas == 0) {
+            // El UPDATE condicional no distingue entre "no existe" y "stock insuficiente":
+            // solo en el caso de fallo se consulta el stock para devolver el error adecuado (404 o 400).
+            Integer stockActual = inventarioRepository.findCantidadByProductoId(productoId)
+                    .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
+            throw new ValidacionNegocioException("No hay stock suficiente. Stock actual: " + stockActual + ", se intentó restar: " + (-cantidad));
+        }
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+
+        Inventario inventarioActualizado = inventarioRepository.findDetalleByProductoId(productoId)
+                .orElseThrow(() -> new InventarioNoEncontradoException("No se encontró inventario para el producto con ID: " + productoId));
         return convertirAInventarioDTO(inventarioActualizado);
     }
 
-    // Método de utilidad para la conversión
+    /**
+     * Aplica un lote de ajustes de stock en una sola transacción, enviando los UPDATE condicionales
+     * como un batch JDBC. Cada ajuste informa su propio resultado; en modo "todo o nada" basta con que
+     * uno falle para revertir la transacción completa.
+     * Si el lote indica un origen, los ajustes cuya secuencia ya se aplicó se informan como DUPLICADO.
+     * Con la escritura diferida activa el lote se aplica sobre sus deltas en memoria, como los ajustes sueltos.
+     */
+    public AjusteStockLoteResponse ajustarStockEnLote(AjusteStockLoteRequest request) {
+        validarLote(request);
+        if (request.getOrigen() != null) {
+            return aplicarLoteIdempotente(request);
+        }
+        return aplicarLote(request.getAjustes(), request.isTodoONada());
+    }
+
+    /**
+     * Lote reenviable: el ajuste i tiene la secuencia secuenciaInicial + i y el origen guarda la última
+     * secuencia aplicada, con su fila bloqueada durante la transacción. Como las secuencias de un origen
+     * solo crecen, los ajustes ya aplicados de un reenvío forman siempre un prefijo del lote.
+     * Con la escritura diferida activa la secuencia nueva queda pendiente en ella y se escribe en la misma
+     * transacción que los deltas del lote, así que aquí se toma la mayor entre la base y la pendiente.
+     */
+    private AjusteStockLoteResponse aplicarLoteIdempotente(AjusteStockLoteRequest request) {
+        List<AjusteStockItem> ajustes = request.getAjustes();
+        String origen = request.getOrigen();
+        long secuenciaInicial = request.getSecuenciaInicial();
+
+        Optional<Long> registrada = inventarioRepository.bloquearUltimaSecuencia(origen);
+        if (registrada.isEmpty()) {
+            // El INSERT bloquea la fila nueva hasta el commit, igual que el FOR UPDATE
+            inventarioRepository.registrarOrigen(origen, 0);
+        }
+        boolean diferida = escrituraDiferidaActiva();
+        long ultimaSecuencia = diferida ? escrituraDiferida.ultimaSecuencia(origen, registrada.orElse(0L)) : registrada.orElse(0L);
+        int duplicados = (int) Math.min(ajustes.size(), Math.max(0, ultimaSecuencia - secuenciaInicial + 1));
+        List<AjusteStockItem> nuevos = ajustes.subList(duplicados, ajustes.size());
+        long nuevaUltimaSecuencia = secuenciaInicial + ajustes.size() - 1;
+
+        AjusteStockLoteResponse respuesta;
+        if (nuevos.isEmpty()) {
+            respuesta = new AjusteStockLoteResponse(true, List.of());
+        } else if (diferida) {
+            respuesta = escrituraDiferida.ajustarLote(nuevos, request.isTodoONada(), origen, nuevaUltimaSecuencia);
+        } else {
+            respuesta = aplicarLote(nuevos, request.isTodoONada());
+            if (respuesta.isConfirmado()) {
+                inventarioRepository.actualizarUltimaSecuencia(origen, nuevaUltimaSecuencia);
+            }
+        }
+
+        List<ResultadoAjusteStock> resultados = new ArrayList<>(ajustes.size());
+        for (AjusteStockItem ajuste : ajustes.subList(0, duplicados)) {
+            resultados.add(new ResultadoAjusteStock(ajuste.getProductoId(), ajuste.getDelta(), EstadoAjusteStock.DUPLICADO, null));
+        }
+        resultados.addAll(respuesta.getResultados());
+        return new AjusteStockLoteResponse(respuesta.isConfirmado(), resultados);
+    }
+
+    private AjusteStockLoteResponse aplicarLote(List<AjusteStockItem> ajustes, boolean todoONada) {
+        if (motorMemoria != null) {
+            return reservarLoteEnMemoria(ajustes, todoONada);
+        }
+        if (escrituraDiferidaActiva()) {
+            return escrituraDiferida.ajustarLote(ajustes, todoONada, null, 0);
+        }
+
+        // Se ejecutan ordenados por producto (orden estable) para que dos lotes concurrentes
+        // bloqueen las filas en el mismo orden y no se produzcan deadlocks.
+        List<Integer> orden = IntStream.range(0, ajustes.size()).boxed()
+                .sorted(Comparator.comparing(i -> ajustes.get(i).getProductoId()))
+                .collect(Collectors.toList());
+        List<AjusteStockItem> ajustesOrdenados = orden.stream().map(ajustes::get).collect(Collectors.toList());
+
+        int[] filasOrdenadas = inventarioRepository.ajustarStockEnLote(ajustesOrdenados, LocalDateTime.now());
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO); // Sin efecto si el lote se revierte
+        int[] filas = new int[ajustes.size()];
+        for (int i = 0; i < orden.size(); i++) {
+            filas[orden.get(i)] = filasOrdenadas[i];
+        }
+
+        Map<Long, Integer> stockPorProducto = inventarioRepository.findStockByProductoIds(
+                        ajustes.stream().map(AjusteStockItem::getProductoId).distinct().collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(StockDTO::getProductoId, StockDTO::getCantidad));
+
+        List<ResultadoAjusteStock> resultados = new ArrayList<>(ajustes.size());
+        boolean hayFallos = false;
+        for (int i = 0; i < ajustes.size(); i++) {
+            AjusteStockItem ajuste = ajustes.get(i);
+            Integer stockActual = stockPorProducto.get(ajuste.getProductoId());
+            EstadoAjusteStock estado;
+            if (filas[i] > 0) {
+                estado = EstadoAjusteStock.APLICADO;
+            } else {
+                estado = stockActual == null ? EstadoAjusteStock.NO_ENCONTRADO : EstadoAjusteStock.STOCK_INSUFICIENTE;
+                hayFallos = true;
+            }
+            resultados.add(new ResultadoAjusteStock(ajuste.getProductoId(), ajuste.getDelta(), estado, stockActual));
+        }
+
+        if (todoONada && hayFallos) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            resultados.forEach(resultado -> {
+                if (resultado.getEstado() == EstadoAjusteStock.APLICADO) {
+                    resultado.setEstado(EstadoAjusteStock.REVERTIDO);
+                }
+                resultado.setStockActual(null);
+            });
+            return new AjusteStockLoteResponse(false, resultados);
+        }
+        return new AjusteStockLoteResponse(true, resultados);
+    }
+
+    /**
+     * Lote sobre el inventario en memoria, con los mismos resultados que el batch JDBC. El motor no
+     * participa de la transacción, así que el lote no se aplica hasta el commit: los descuentos se
+     * reservan y las reposiciones solo se validan, y al terminar la transacción el motor los confirma o
+     * devuelve las reservas. Así un "todo o nada" fallido solo tiene que liberar reservas, lo que siempre
+     * es posible, y un rollback no deja aplicados deltas de un lote reenviable cuya secuencia no avanzó.
+     */
+    private AjusteStockLoteResponse reservarLoteEnMemoria(List<AjusteStockItem> ajustes, boolean todoONada) {
+        List<ResultadoAjusteStock> resultados = new ArrayList<>(ajustes.size());
+        List<AjusteStockItem> reservados = new ArrayList<>();
+        List<AjusteStockItem> reposiciones = new ArrayList<>();
+        boolean hayFallos = false;
+        for (AjusteStockItem ajuste : ajustes) {
+            int resultado = ajuste.getDelta() < 0
+                    ? motorMemoria.reservar(ajuste.getProductoId(), ajuste.getDelta())
+                    : motorMemoria.cantidad(ajuste.getProductoId()) == null ? MotorInventarioMemoria.SIN_INVENTARIO : 0;
+            EstadoAjusteStock estado = switch (resultado) {
+                case MotorInventarioMemoria.SIN_INVENTARIO -> EstadoAjusteStock.NO_ENCONTRADO;
+                case MotorInventarioMemoria.SIN_STOCK -> EstadoAjusteStock.STOCK_INSUFICIENTE;
+                default -> EstadoAjusteStock.APLICADO;
+            };
+            if (estado == EstadoAjusteStock.APLICADO) {
+                (ajuste.getDelta() < 0 ? reservados : reposiciones).add(ajuste);
+            }
+            hayFallos |= estado != EstadoAjusteStock.APLICADO;
+            resultados.add(new ResultadoAjusteStock(ajuste.getProductoId(), ajuste.getDelta(), estado, null));
+        }
+
+        if (todoONada && hayFallos) {
+            reservados.forEach(reserva -> motorMemoria.liberar(reserva.getProductoId(), reserva.getDelta()));
+            resultados.forEach(resultado -> {
+                if (resultado.getEstado() == EstadoAjusteStock.APLICADO) {
+                    resultado.setEstado(EstadoAjusteStock.REVERTIDO);
+                }
+            });
+            return new AjusteStockLoteResponse(false, resultados);
+        }
+        motorMemoria.confirmarAlTerminar(reservados, reposiciones);
+        // El stock informado ya cuenta las reposiciones, que se aplican con el commit
+        Map<Long, Integer> repuesto = reposiciones.stream()
+                .collect(Collectors.groupingBy(AjusteStockItem::getProductoId, Collectors.summingInt(AjusteStockItem::getDelta)));
+        for (ResultadoAjusteStock resultado : resultados) {
+            Integer cantidad = resultado.getEstado() == EstadoAjusteStock.NO_ENCONTRADO ? null : motorMemoria.cantidad(resultado.getProductoId());
+            if (cantidad != null) {
+                resultado.setStockActual(cantidad + repuesto.getOrDefault(resultado.getProductoId(), 0));
+            }
+        }
+        return new AjusteStockLoteResponse(true, resultados);
+    }
+
+    private void validarLote(AjusteStockLoteRequest request) {
+        List<AjusteStockItem> ajustes = request.getAjustes();
+        if (ajustes == null || ajustes.isEmpty()) {
+            throw new ValidacionNegocioException("El lote debe contener al menos un ajuste de stock.");
+        }
+        if (ajustes.size() > MAXIMO_AJUSTES_POR_LOTE) {
+            throw new ValidacionNegocioException("El lote no puede superar los " + MAXIMO_AJUSTES_POR_LOTE + " ajustes.");
+        }
+        for (AjusteStockItem ajuste : ajustes) {
+            if (ajuste.getProductoId() == null || ajuste.getDelta() == null || ajuste.getDelta() == 0) {
+                throw new ValidacionNegocioException("Cada ajuste debe indicar un productoId y un delta distinto de cero.");
+            }
+        }
+        if (request.getOrigen() != null) {
+            if (request.getOrigen().isBlank() || request.getOrigen().length() > LONGITUD_MAXIMA_ORIGEN) {
+                throw new ValidacionNegocioException("El origen debe tener entre 1 y " + LONGITUD_MAXIMA_ORIGEN + " caracteres.");
+            }
+            if (request.getSecuenciaInicial() == null || request.getSecuenciaInicial() <= 0) {
+                throw new ValidacionNegocioException("Un lote con origen debe indicar una secuenciaInicial mayor que cero.");
+            }
+        }
+    }
+
+    private boolean escrituraDiferidaActiva() {
+        return escrituraDiferida != null && escrituraDiferida.isRunning();
+    }
+
+    // Método de utilidad para la conversión. Espera el producto y su categoría ya cargados
+    // (ver InventarioRepository.findDetalleByProductoId) para no disparar consultas perezosas.
     private InventarioDTO convertirAInventarioDTO(Inventario inventario) {
+        Long productoId = inventario.getProducto().getId();
+        Integer enMemoria = motorMemoria != null ? motorMemoria.cantidad(productoId)
+                : escrituraDiferidaActiva() ? escrituraDiferida.cantidad(productoId) : null;
+        return convertirAInventarioDTO(inventario, enMemoria != null ? enMemoria : inventario.getCantidad());
+    }
+
+    // La cantidad se recibe aparte para no modificar la entidad gestionada (se escribiría al hacer flush)
+    private InventarioDTO convertirAInventarioDTO(Inventario inventario, int cantidad) {
         // Para el DTO de Inventario, necesitamos el DTO de Producto
         ProductoDTO productoDTO = new ProductoDTO(
                 inventario.getProducto().getId(),
@@ -59,16 +427,30 @@ public class InventarioService {
                 inventario.getProducto().getDescripcion(),
                 inventario.getProducto().getPrecio(),
                 inventario.getProducto().getCategoria().getNombre(),
-                inventario.getCantidad(),
-                inventario.getCantidad() <= inventario.getStockMinimo()
+                cantidad,
+                cantidad <= inventario.getStockMinimo()
         );
 
         return new InventarioDTO(
                 inventario.getId(),
                 productoDTO,
-                inventario.getCantidad(),
+                cantidad,
                 inventario.getStockMinimo(),
                 inventario.getFechaActualizacion()
         );
     }
+
+    // El ajuste acaba de aplicarse en memoria: la fila de la tabla todavía no tiene esa fecha
+    private InventarioDTO convertirAInventarioDTO(MotorInventarioMemoria.DetalleInventario detalle, int cantidad) {
+        ProductoDTO productoDTO = new ProductoDTO(
+                detalle.productoId(),
+                detalle.nombre(),
+                detalle.descripcion(),
+                detalle.precio(),
+                detalle.categoria(),
+                cantidad,
+                cantidad <= detalle.stockMinimo()
+        );
+        return new InventarioDTO(detalle.inventarioId(), productoDTO, cantidad, detalle.stockMinimo(), LocalDateTime.now());
+    }
 }
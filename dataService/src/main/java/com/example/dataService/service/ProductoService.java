@@ -1,43 +1,278 @@
 package com.example.dataService.service;
 
+import com.example.dataService.busqueda.CatalogoColumnar;
+import com.example.dataService.busqueda.IndiceBusquedaProductos;
+import com.example.dataService.busqueda.IndiceFacetasProductos;
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.PaginaDTO;
 import com.example.dataService.dto.ProductoDTO;
 import com.example.dataService.dto.ProductoRequest;
+import com.example.dataService.dto.ResultadoBusquedaDTO;
+import com.example.dataService.dto.ResultadoFiltroDTO;
 import com.example.dataService.entity.Categoria;
 import com.example.dataService.entity.Inventario;
 import com.example.dataService.entity.Producto;
 import com.example.dataService.exception.CategoriaNoEncontradaException;
 import com.example.dataService.exception.ProductoNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.memoria.MotorInventarioMemoria;
 import com.example.dataService.repository.CategoriaRepository;
 import com.example.dataService.repository.ProductoRepository;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProductoService {
+    static final String ORDEN_ID = "id";
+    static final String ORDEN_PRECIO = "precio";
+    static final String ORDEN_NOMBRE = "nombre";
+    /** Orden del filtrado por facetas: precio y luego ID, como las filas del catálogo columnar. */
+    static final String ORDEN_FILTRO = "filtro";
+    private static final int LIMITE_MAXIMO = 500;
+    static final int MAXIMO_IDS_POR_CONSULTA = 1000;
+    static final int MAXIMO_RESULTADOS_BUSQUEDA = 100;
+
     private final ProductoRepository productoRepository;
     private final CategoriaRepository categoriaRepository;
+    private final VersionCatalogo versionCatalogo;
+    private final IndiceBusquedaProductos indiceBusqueda;
+    private final IndiceFacetasProductos indiceFacetas;
+    /** Presente solo con inventario.memoria.enabled=true. */
+    private final MotorInventarioMemoria motorMemoria;
 
-    public ProductoService(ProductoRepository productoRepository, CategoriaRepository categoriaRepository) {
+    public ProductoService(ProductoRepository productoRepository, CategoriaRepository categoriaRepository,
+                           VersionCatalogo versionCatalogo, IndiceBusquedaProductos indiceBusqueda,
+                           IndiceFacetasProductos indiceFacetas, @Nullable MotorInventarioMemoria motorMemoria) {
         this.productoRepository = productoRepository;
         this.categoriaRepository = categoriaRepository;
+        this.versionCatalogo = versionCatalogo;
+        this.indiceBusqueda = indiceBusqueda;
+        this.indiceFacetas = indiceFacetas;
+        this.motorMemoria = motorMemoria;
     }
 
     public List<ProductoDTO> obtenerTodosLosProductos() {
-        return productoRepository.findAll().stream()
-                .map(this::convertirAProductoDTO)
-                .collect(Collectors.toList());
+        return productoRepository.findAllDTO();
+    }
+
+    /**
+     * Entrega cada producto del catálogo al consumidor a medida que se lee de la base de datos,
+     * con memoria constante sin importar el tamaño del catálogo. El cursor permanece abierto
+     * mientras dura la transacción de este método, por lo que el consumidor debe escribir
+     * la salida directamente (por ejemplo, al cuerpo de la respuesta HTTP).
+     */
+    public void exportarCatalogo(Consumer<ProductoDTO> consumidor) {
+        try (Stream<ProductoDTO> productos = productoRepository.streamAllDTO()) {
+            productos.forEach(consumidor);
+        }
+    }
+
+    /**
+     * Devuelve una página del catálogo usando paginación por clave (keyset).
+     * Se pide una fila más que el límite para saber si existe una página siguiente
+     * sin necesidad de un COUNT sobre toda la tabla.
+     * @param cursor Token opaco devuelto por la página anterior, o null para la primera.
+     * @param limite Cantidad máxima de productos de la página (1..500).
+     * @param orden "id" o "precio" (precio ascendente, desempatando por id).
+     */
+    public PaginaDTO<ProductoDTO> obtenerPaginaProductos(String cursor, int limite, String orden) {
+        validarLimite(limite);
+        if (!ORDEN_ID.equals(orden) && !ORDEN_PRECIO.equals(orden)) {
+            throw new ValidacionNegocioException("Orden no soportado: " + orden + ". Valores válidos: id, precio.");
+        }
+        CursorPagina desde = decodificarCursor(cursor, orden);
+
+        Limit limiteConsulta = Limit.of(limite + 1);
+        List<ProductoDTO> productos;
+        if (ORDEN_ID.equals(orden)) {
+            productos = productoRepository.findPaginaPorId(desde == null ? 0L : desde.id(), limiteConsulta);
+        } else if (desde == null) {
+            productos = productoRepository.findPrimeraPaginaPorPrecio(limiteConsulta);
+        } else {
+            productos = productoRepository.findPaginaPorPrecio(desde.valorDecimal(), desde.id(), limiteConsulta);
+        }
+        return construirPagina(productos, limite, orden);
+    }
+
+    /**
+     * Devuelve una página de los productos de una categoría, con su stock, usando paginación por clave.
+     * Cada página es una única consulta que filtra por categoria_id y recorre el índice
+     * (categoria_id, columna de orden, id), sin importar cuántos productos tenga la categoría.
+     * @param categoriaId ID de la categoría.
+     * @param cursor Token opaco devuelto por la página anterior, o null para la primera.
+     * @param limite Cantidad máxima de productos de la página (1..500).
+     * @param orden "id", "precio" o "nombre" (ascendente, desempatando por id).
+     * @throws CategoriaNoEncontradaException si la categoría no existe.
+     */
+    public PaginaDTO<ProductoDTO> obtenerPaginaProductosDeCategoria(Long categoriaId, String cursor, int limite, String orden) {
+        validarLimite(limite);
+        if (!ORDEN_ID.equals(orden) && !ORDEN_PRECIO.equals(orden) && !ORDEN_NOMBRE.equals(orden)) {
+            throw new ValidacionNegocioException("Orden no soportado: " + orden + ". Valores válidos: id, precio, nombre.");
+        }
+        CursorPagina desde = decodificarCursor(cursor, orden);
+
+        Limit limiteConsulta = Limit.of(limite + 1);
+        List<ProductoDTO> productos;
+        if (ORDEN_ID.equals(orden)) {
+            productos = productoRepository.findPaginaDeCategoriaPorId(categoriaId, desde == null ? 0L : desde.id(), limiteConsulta);
+        } else if (ORDEN_PRECIO.equals(orden)) {
+            productos = desde == null
+                    ? productoRepository.findPrimeraPaginaDeCategoriaPorPrecio(categoriaId, limiteConsulta)
+                    : productoRepository.findPaginaDeCategoriaPorPrecio(categoriaId, desde.valorDecimal(), desde.id(), limiteConsulta);
+        } else {
+            productos = desde == null
+                    ? productoRepository.findPrimeraPaginaDeCategoriaPorNombre(categoriaId, limiteConsulta)
+                    : productoRepository.findPaginaDeCategoriaPorNombre(categoriaId, desde.valor(), desde.id(), limiteConsulta);
+        }
+
+        // Solo una primera página vacía obliga a distinguir "categoría sin productos" de "no existe"
+        if (productos.isEmpty() && desde == null && !categoriaRepository.existsById(categoriaId)) {
+            throw new CategoriaNoEncontradaException("La categoría con ID " + categoriaId + " no existe.");
+        }
+        return construirPagina(productos, limite, orden);
+    }
+
+    private static void validarLimite(int limite) {
+        if (limite <= 0 || limite > LIMITE_MAXIMO) {
+            throw new ValidacionNegocioException("El límite de la página debe estar entre 1 y " + LIMITE_MAXIMO + ".");
+        }
+    }
+
+    private static CursorPagina decodificarCursor(String cursor, String orden) {
+        CursorPagina desde = cursor == null || cursor.isBlank() ? null : CursorPagina.decodificar(cursor);
+        if (desde != null && !desde.orden().equals(orden)) {
+            throw new ValidacionNegocioException("El cursor no corresponde al orden solicitado.");
+        }
+        return desde;
+    }
+
+    /**
+     * Recorta la fila extra pedida para detectar si hay página siguiente y, si la hay,
+     * codifica el cursor con los valores de orden del último producto devuelto.
+     */
+    private static PaginaDTO<ProductoDTO> construirPagina(List<ProductoDTO> productos, int limite, String orden) {
+        boolean hayMas = productos.size() > limite;
+        List<ProductoDTO> pagina = hayMas ? productos.subList(0, limite) : productos;
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            ProductoDTO ultimo = pagina.get(pagina.size() - 1);
+            String valor = switch (orden) {
+                case ORDEN_PRECIO -> ultimo.getPrecio().toPlainString();
+                case ORDEN_NOMBRE -> ultimo.getNombre();
+                default -> null;
+            };
+            siguienteCursor = new CursorPagina(orden, valor, ultimo.getId()).codificar();
+        }
+
+        return new PaginaDTO<>(List.copyOf(pagina), siguienteCursor);
     }
 
     public ProductoDTO obtenerProductoPorId(Long id) {
-        Producto producto = productoRepository.findById(id)
+        return productoRepository.findDTOById(id)
                 .orElseThrow(() -> new ProductoNoEncontradoException("Producto no encontrado con ID: " + id));
-        return convertirAProductoDTO(producto);
+    }
+
+    /**
+     * Obtiene varios productos por ID con una única consulta IN.
+     * Los IDs que no existen simplemente no aparecen en el resultado.
+     */
+    public List<ProductoDTO> obtenerProductosPorIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (ids.size() > MAXIMO_IDS_POR_CONSULTA) {
+            throw new ValidacionNegocioException("No se pueden consultar más de " + MAXIMO_IDS_POR_CONSULTA + " productos a la vez.");
+        }
+        return productoRepository.findDTOsByIds(Set.copyOf(ids));
+    }
+
+    /**
+     * Busca productos por nombre y descripción en el índice invertido en memoria, sin distinguir
+     * mayúsculas ni tildes y admitiendo prefijos ("teclad" encuentra "Teclado").
+     * Los productos encontrados se cargan con una única consulta IN y se devuelven por relevancia.
+     * @param consulta Texto a buscar; todos sus términos deben aparecer en el producto.
+     * @param limite Cantidad máxima de resultados (1..100).
+     */
+    public List<ResultadoBusquedaDTO> buscarProductos(String consulta, int limite) {
+        if (consulta == null || consulta.isBlank()) {
+            throw new ValidacionNegocioException("Debe indicar un texto a buscar.");
+        }
+        if (limite <= 0 || limite > MAXIMO_RESULTADOS_BUSQUEDA) {
+            throw new ValidacionNegocioException("El límite de resultados debe estar entre 1 y " + MAXIMO_RESULTADOS_BUSQUEDA + ".");
+        }
+
+        List<IndiceBusquedaProductos.Coincidencia> coincidencias = indiceBusqueda.buscar(consulta, limite);
+        if (coincidencias.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, ProductoDTO> productos = productoRepository.findDTOsByIds(
+                        coincidencias.stream().map(IndiceBusquedaProductos.Coincidencia::productoId).toList())
+                .stream()
+                .collect(Collectors.toMap(ProductoDTO::getId, Function.identity()));
+
+        // Se respeta el orden por puntuación; un producto borrado que siga en el índice simplemente se omite
+        return coincidencias.stream()
+                .filter(c -> productos.containsKey(c.productoId()))
+                .map(c -> new ResultadoBusquedaDTO(productos.get(c.productoId()), c.puntuacion()))
+                .toList();
+    }
+
+    /**
+     * Filtra el catálogo por categorías, rango de precio y estado de stock sobre la instantánea columnar
+     * en memoria, sin consultar la base de datos. Devuelve una página ordenada por precio junto con el total
+     * y los conteos por faceta. La instantánea puede ir por detrás de las últimas escrituras mientras se
+     * reconstruye en segundo plano.
+     * @param categoriaIds Categorías a incluir (cualquiera de ellas); vacío para no filtrar.
+     * @param precioMinimo Precio mínimo inclusivo, o null.
+     * @param precioMaximo Precio máximo inclusivo, o null.
+     * @param enStock true para productos con stock disponible, false para agotados, null para ambos.
+     * @param stockBajo true/false para filtrar por el indicador de stock bajo, null para ambos.
+     * @param cursor Cursor opaco de la página anterior, o null para la primera.
+     * @param limite Tamaño de la página (1..500).
+     */
+    @Transactional(Transactional.TxType.SUPPORTS) // Solo lee memoria: no hace falta una conexión
+    public ResultadoFiltroDTO filtrarProductos(List<Long> categoriaIds, BigDecimal precioMinimo, BigDecimal precioMaximo,
+                                               Boolean enStock, Boolean stockBajo, String cursor, int limite) {
+        validarLimite(limite);
+        if (precioMinimo != null && precioMaximo != null && precioMinimo.compareTo(precioMaximo) > 0) {
+            throw new ValidacionNegocioException("El precio mínimo no puede ser mayor que el precio máximo.");
+        }
+        CursorPagina desde = decodificarCursor(cursor, ORDEN_FILTRO);
+
+        CatalogoColumnar.Filtro filtro = new CatalogoColumnar.Filtro(
+                categoriaIds == null ? Set.of() : Set.copyOf(categoriaIds),
+                precioMinimo == null ? null : Dinero.de(precioMinimo, RoundingMode.CEILING).centavos(),
+                precioMaximo == null ? null : Dinero.de(precioMaximo, RoundingMode.FLOOR).centavos(),
+                enStock, stockBajo);
+        CatalogoColumnar.Posicion posicion = desde == null ? null
+                : new CatalogoColumnar.Posicion(desde.valorDecimal().longValue(), desde.id());
+
+        CatalogoColumnar.Resultado resultado = indiceFacetas.catalogo().filtrar(filtro, posicion, limite);
+
+        String siguienteCursor = null;
+        if (resultado.hayMas()) {
+            ProductoDTO ultimo = resultado.contenido().get(resultado.contenido().size() - 1);
+            siguienteCursor = new CursorPagina(ORDEN_FILTRO,
+                    Long.toString(Dinero.de(ultimo.getPrecio()).centavos()), ultimo.getId()).codificar();
+        }
+        return new ResultadoFiltroDTO(resultado.contenido(), siguienteCursor, resultado.total(),
+                resultado.facetasCategoria(), resultado.facetasStock());
     }
 
     public ProductoDTO crearProducto(ProductoRequest request) {
@@ -47,7 +282,7 @@ public class ProductoService {
         Producto nuevoProducto = new Producto();
         nuevoProducto.setNombre(request.getNombre());
         nuevoProducto.setDescripcion(request.getDescripcion());
-        nuevoProducto.setPrecio(request.getPrecio());
+        nuevoProducto.setPrecio(normalizarPrecio(request.getPrecio()));
         nuevoProducto.setCategoria(categoria);
 
         // Crear el inventario inicial asociado al producto
@@ -61,6 +296,8 @@ public class ProductoService {
         nuevoProducto.setInventario(inventario);
 
         Producto productoGuardado = productoRepository.save(nuevoProducto);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.PRODUCTOS);
+        indiceBusqueda.indexar(productoGuardado.getId(), productoGuardado.getNombre(), productoGuardado.getDescripcion());
         return convertirAProductoDTO(productoGuardado);
     }
 
@@ -73,7 +310,7 @@ public class ProductoService {
 
         productoExistente.setNombre(request.getNombre());
         productoExistente.setDescripcion(request.getDescripcion());
-        productoExistente.setPrecio(request.getPrecio());
+        productoExistente.setPrecio(normalizarPrecio(request.getPrecio()));
         productoExistente.setCategoria(categoria);
 
         // Actualizar también el inventario
@@ -83,21 +320,32 @@ public class ProductoService {
         inventario.setFechaActualizacion(LocalDateTime.now());
 
         Producto productoActualizado = productoRepository.save(productoExistente);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.PRODUCTOS);
+        indiceBusqueda.indexar(productoActualizado.getId(), productoActualizado.getNombre(), productoActualizado.getDescripcion());
+        if (motorMemoria != null) {
+            motorMemoria.establecer(productoActualizado.getId(), request.getStock());
+        }
         return convertirAProductoDTO(productoActualizado);
     }
 
+    /**
+     * Redondea el precio a dos decimales como lo haría la columna DECIMAL(10,2), para que el producto
+     * devuelto coincida con el guardado, y rechaza los precios que no caben en ella.
+     */
+    private static BigDecimal normalizarPrecio(BigDecimal precio) {
+        if (precio == null) {
+            return null;
+        }
+        try {
+            return Dinero.dePrecio(precio).aBigDecimal();
+        } catch (ArithmeticException e) {
+            throw new ValidacionNegocioException("El precio no puede superar " + Dinero.PRECIO_MAXIMO + ".");
+        }
+    }
+
     public List<ProductoDTO> buscarPorCategoriaNombre(String nombreCategoria) {
-        // Primero, encontramos la categoría por su nombre
-        return categoriaRepository.findByNombre(nombreCategoria)
-                .map(categoria -> {
-                    // Si la categoría existe, buscamos los productos por su ID
-                    List<Producto> productos = productoRepository.findByCategoriaId(categoria.getId());
-                    return productos.stream()
-                            .map(this::convertirAProductoDTO)
-                            .collect(Collectors.toList());
-                })
-                // Si la categoría no existe, devolvemos una lista vacía
-                .orElse(Collections.emptyList());
+        // Una sola consulta: el JOIN resuelve el nombre; si la categoría no existe la lista queda vacía
+        return productoRepository.findDTOsByCategoriaNombre(nombreCategoria);
     }
 
     public void eliminarProducto(Long id) {
@@ -105,6 +353,11 @@ public class ProductoService {
             throw new ProductoNoEncontradoException("No se puede eliminar. Producto no encontrado con ID: " + id);
         }
         productoRepository.deleteById(id);
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.PRODUCTOS);
+        indiceBusqueda.eliminar(id);
+        if (motorMemoria != null) {
+            motorMemoria.eliminar(id);
+        }
     }
     
     private ProductoDTO convertirAProductoDTO(Producto producto) {
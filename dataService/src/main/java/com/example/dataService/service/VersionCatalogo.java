@@ -0,0 +1,63 @@
+package com.example.dataService.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de cambios por tabla usados para calcular los ETags de las lecturas del catálogo.
+ * Cada escritura incrementa el contador de su tabla una vez confirmada la transacción, de modo que
+ * un ETag nunca se asocia a datos que todavía no son visibles para otras lecturas.
+ * El ETag incluye el instante de arranque para que no coincida con el de otra ejecución del servicio.
+ */
+@Component
+public class VersionCatalogo {
+
+    public enum Tabla { PRODUCTOS, CATEGORIAS, INVENTARIO }
+
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong productos = new AtomicLong();
+    private final AtomicLong categorias = new AtomicLong();
+    private final AtomicLong inventario = new AtomicLong();
+
+    /**
+     * Registra un cambio en la tabla indicada. Dentro de una transacción el contador se incrementa
+     * tras el commit (y no se incrementa si hay rollback); fuera de ella, inmediatamente.
+     */
+    public void registrarCambio(Tabla tabla) {
+        AtomicLong contador = switch (tabla) {
+            case PRODUCTOS -> productos;
+            case CATEGORIAS -> categorias;
+            case INVENTARIO -> inventario;
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    contador.incrementAndGet();
+                }
+            });
+        } else {
+            contador.incrementAndGet();
+        }
+    }
+
+    /**
+     * ETag de las respuestas con productos o inventario: un ProductoDTO incluye el nombre de su
+     * categoría y el stock, así que depende de las tres tablas.
+     */
+    public String etagCatalogo() {
+        return arranque + "-" + productos.get() + "." + categorias.get() + "." + inventario.get();
+    }
+
+    /** Versión de los datos de productos sin su stock: cambia al editar productos o categorías. */
+    public String etagProductos() {
+        return arranque + "-" + productos.get() + "." + categorias.get();
+    }
+
+    public String etagCategorias() {
+        return arranque + "-" + categorias.get();
+    }
+}
@@ -0,0 +1,11 @@
+-- inventario.producto_id ya está cubierto por uk_inventario_producto.
+CREATE INDEX idx_productos_categoria ON productos (categoria_id);
+
+-- Paginación del catálogo ordenada por precio (keyset sobre precio, id)
+CREATE INDEX idx_productos_precio_id ON productos (precio, id);
+
+-- Reporte de stock bajo: filtra por el indicador y pagina por producto
+CREATE INDEX idx_inventario_stock_bajo ON inventario (stock_bajo, producto_id);
+
+-- H2 no admite índices funcionales: las búsquedas UPPER(nombre) = UPPER(?) recorren la tabla.
+-- Es el perfil de desarrollo; los índices sobre UPPER(nombre) existen en MySQL y PostgreSQL.
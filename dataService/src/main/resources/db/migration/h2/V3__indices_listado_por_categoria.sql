@@ -0,0 +1,8 @@
+-- Listado paginado de una categoría (GET /data/categorias/{id}/productos): el filtro por categoría
+-- y el orden de cada criterio se resuelven recorriendo un único índice, sin ordenar en memoria.
+CREATE INDEX idx_productos_categoria_id ON productos (categoria_id, id);
+CREATE INDEX idx_productos_categoria_precio ON productos (categoria_id, precio, id);
+CREATE INDEX idx_productos_categoria_nombre ON productos (categoria_id, nombre, id);
+
+-- idx_productos_categoria queda cubierto por los índices anteriores
+DROP INDEX idx_productos_categoria;
@@ -0,0 +1,27 @@
+-- Esquema inicial: equivalente al que generaba Hibernate con ddl-auto.
+CREATE TABLE categorias (
+    id          BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    nombre      VARCHAR(100) NOT NULL,
+    descripcion VARCHAR(500),
+    CONSTRAINT uk_categorias_nombre UNIQUE (nombre)
+) ENGINE = InnoDB;
+
+CREATE TABLE productos (
+    id           BIGINT         NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    nombre       VARCHAR(100)   NOT NULL,
+    descripcion  VARCHAR(500),
+    precio       DECIMAL(10, 2) NOT NULL,
+    categoria_id BIGINT,
+    CONSTRAINT fk_productos_categoria FOREIGN KEY (categoria_id) REFERENCES categorias (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE inventario (
+    id                  BIGINT  NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    producto_id         BIGINT,
+    cantidad            INTEGER NOT NULL,
+    stock_minimo        INTEGER,
+    fecha_actualizacion DATETIME(6),
+    stock_bajo          BIT     NOT NULL,
+    CONSTRAINT uk_inventario_producto UNIQUE (producto_id),
+    CONSTRAINT fk_inventario_producto FOREIGN KEY (producto_id) REFERENCES productos (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,14 @@
+-- inventario.producto_id ya está cubierto por uk_inventario_producto.
+-- Este índice reemplaza al que InnoDB crea implícitamente para la clave foránea.
+CREATE INDEX idx_productos_categoria ON productos (categoria_id);
+
+-- Paginación del catálogo ordenada por precio (keyset sobre precio, id)
+CREATE INDEX idx_productos_precio_id ON productos (precio, id);
+
+-- Reporte de stock bajo: filtra por el indicador y pagina por producto
+CREATE INDEX idx_inventario_stock_bajo ON inventario (stock_bajo, producto_id);
+
+-- Búsquedas sin distinguir mayúsculas (existsByNombreIgnoreCase, findByNombreIgnoreCase):
+-- Spring Data genera UPPER(nombre) = UPPER(?), que solo puede usar un índice funcional (MySQL 8.0.13+).
+CREATE INDEX idx_productos_nombre_mayusculas ON productos ((UPPER(nombre)));
+CREATE INDEX idx_categorias_nombre_mayusculas ON categorias ((UPPER(nombre)));
@@ -0,0 +1,6 @@
+-- Idempotencia de los lotes de ajustes de stock (POST /data/inventario/batch con "origen"):
+-- por cada emisor se guarda la última secuencia aplicada; las secuencias menores o iguales son reenvíos.
+CREATE TABLE origenes_ajuste_stock (
+    origen           VARCHAR(64) NOT NULL PRIMARY KEY,
+    ultima_secuencia BIGINT      NOT NULL
+) ENGINE = InnoDB;
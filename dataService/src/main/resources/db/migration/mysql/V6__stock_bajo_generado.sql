@@ -0,0 +1,9 @@
+-- stock_bajo pasa a ser una columna generada: la base la calcula en cada INSERT y UPDATE, así que ni la
+-- entidad ni las sentencias que modifican el stock tienen que repetir la condición.
+-- Sin stock mínimo no hay alerta: la comparación con NULL da NULL y se guarda FALSE.
+-- STORED para poder indexarla como una columna más; el índice se quita antes porque al borrar la
+-- columna MySQL lo dejaría solo sobre producto_id.
+ALTER TABLE inventario DROP INDEX idx_inventario_stock_bajo;
+ALTER TABLE inventario DROP COLUMN stock_bajo;
+ALTER TABLE inventario ADD COLUMN stock_bajo BIT GENERATED ALWAYS AS (COALESCE(cantidad <= stock_minimo, FALSE)) STORED NOT NULL;
+CREATE INDEX idx_inventario_stock_bajo ON inventario (stock_bajo, producto_id);
@@ -0,0 +1,14 @@
+-- inventario.producto_id ya está cubierto por uk_inventario_producto.
+-- PostgreSQL no indexa las claves foráneas por sí solo.
+CREATE INDEX idx_productos_categoria ON productos (categoria_id);
+
+-- Paginación del catálogo ordenada por precio (keyset sobre precio, id)
+CREATE INDEX idx_productos_precio_id ON productos (precio, id);
+
+-- Reporte de stock bajo: índice parcial, solo contiene las filas con stock_bajo = true
+CREATE INDEX idx_inventario_stock_bajo_parcial ON inventario (producto_id) WHERE stock_bajo;
+
+-- Búsquedas sin distinguir mayúsculas (existsByNombreIgnoreCase, findByNombreIgnoreCase):
+-- Spring Data genera UPPER(nombre) = UPPER(?), que solo puede usar un índice funcional.
+CREATE INDEX idx_productos_nombre_mayusculas ON productos (UPPER(nombre));
+CREATE INDEX idx_categorias_nombre_mayusculas ON categorias (UPPER(nombre));
@@ -0,0 +1,4 @@
+-- Los índices sobre UPPER(nombre) de V2 servían a existsByNombreIgnoreCase y findByNombreIgnoreCase,
+-- que ningún servicio usaba y se quitaron de los repositorios: solo encarecían las escrituras.
+DROP INDEX idx_productos_nombre_mayusculas;
+DROP INDEX idx_categorias_nombre_mayusculas;
@@ -0,0 +1,7 @@
+-- stock_bajo pasa a ser una columna generada: la base la calcula en cada INSERT y UPDATE, así que ni la
+-- entidad ni las sentencias que modifican el stock tienen que repetir la condición.
+-- Sin stock mínimo no hay alerta: la comparación con NULL da NULL y se guarda FALSE.
+DROP INDEX idx_inventario_stock_bajo_parcial;
+ALTER TABLE inventario DROP COLUMN stock_bajo;
+ALTER TABLE inventario ADD COLUMN stock_bajo BOOLEAN GENERATED ALWAYS AS (COALESCE(cantidad <= stock_minimo, FALSE)) STORED NOT NULL;
+CREATE INDEX idx_inventario_stock_bajo_parcial ON inventario (producto_id) WHERE stock_bajo;
@@ -0,0 +1,183 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.ProductoDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogoColumnarTest {
+
+    private static final List<FilaCatalogoDTO> FILAS = List.of(
+            new FilaCatalogoDTO(1L, "Laptop", "Gaming", new BigDecimal("1500.00"), 1L, "Electrónica", 5, false),
+            new FilaCatalogoDTO(2L, "Mouse", "Inalámbrico", new BigDecimal("25.50"), 1L, "Electrónica", 2, true),
+            new FilaCatalogoDTO(3L, "Silla", "Ergonómica", new BigDecimal("300.00"), 2L, "Hogar", 0, true),
+            new FilaCatalogoDTO(4L, "Lámpara", "LED", new BigDecimal("25.50"), 2L, "Hogar", 40, false),
+            new FilaCatalogoDTO(5L, "Cable", "Sin inventario", new BigDecimal("9.99"), null, null, null, null));
+
+    private final CatalogoColumnar catalogo = CatalogoColumnar.construir("v1", FILAS);
+
+    @Test
+    void filtrar_sinCriterios_deberiaDevolverTodoOrdenadoPorPrecioEId() {
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro(null, null, null, null, null), null, 10);
+
+        assertEquals(List.of(5L, 2L, 4L, 3L, 1L), ids(resultado.contenido()));
+        assertEquals(5, resultado.total());
+        assertFalse(resultado.hayMas());
+        assertEquals(new BigDecimal("25.50"), resultado.contenido().get(1).getPrecio());
+        assertEquals("Electrónica", resultado.contenido().get(1).getCategoriaNombre());
+        assertTrue(resultado.contenido().get(1).getStockBajo());
+    }
+
+    @Test
+    void filtrar_porCategoriaPrecioYStock_deberiaIntersecarLosCriterios() {
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(
+                filtro(Set.of(1L, 2L), 2550L, 30000L, true, null), null, 10);
+
+        assertEquals(List.of(2L, 4L), ids(resultado.contenido()));
+        assertEquals(2, resultado.total());
+    }
+
+    @Test
+    void filtrar_facetas_deberianIgnorarSuPropioFiltro() {
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro(Set.of(2L), null, null, true, null), null, 10);
+
+        assertEquals(List.of(4L), ids(resultado.contenido()));
+        // Categorías: aplican el filtro de stock pero no el de categoría
+        assertEquals(2L, resultado.facetasCategoria().get("Electrónica"));
+        assertEquals(1L, resultado.facetasCategoria().get("Hogar"));
+        // Stock: aplican el filtro de categoría pero no el de stock
+        assertEquals(1L, resultado.facetasStock().get(CatalogoColumnar.FACETA_EN_STOCK));
+        assertEquals(1L, resultado.facetasStock().get(CatalogoColumnar.FACETA_SIN_STOCK));
+        assertEquals(1L, resultado.facetasStock().get(CatalogoColumnar.FACETA_STOCK_BAJO));
+    }
+
+    @Test
+    void filtrar_conCategoriaInexistente_noDeberiaDevolverProductos() {
+
+        CatalogoColumnar.Resultado resultado = catalogo.filtrar(filtro(Set.of(99L), null, null, null, null), null, 10);
+
+        assertTrue(resultado.contenido().isEmpty());
+        assertEquals(0, resultado.total());
+        assertEquals(2L, resultado.facetasCategoria().get("Hogar"));
+    }
+
+    @Test
+    void filtrar_despuesDeUnaPosicion_deberiaContinuarConLaFilaSiguiente() {
+
+        CatalogoColumnar.Resultado primera = catalogo.filtrar(filtro(null, null, null, null, null), null, 2);
+        ProductoDTO ultimo = primera.contenido().get(1);
+        CatalogoColumnar.Resultado segunda = catalogo.filtrar(filtro(null, null, null, null, null),
+                new CatalogoColumnar.Posicion(Dinero.de(ultimo.getPrecio()).centavos(), ultimo.getId()), 2);
+
+        assertTrue(primera.hayMas());
+        assertEquals(List.of(5L, 2L), ids(primera.contenido()));
+        assertEquals(List.of(4L, 3L), ids(segunda.contenido()));
+        assertEquals(5, segunda.total()); // El total no depende de la página
+    }
+
+    @Test
+    void filtrar_conFilasAleatorias_deberiaCoincidirConUnRecorridoCompleto() {
+        Random random = new Random(42);
+        List<FilaCatalogoDTO> filas = filasAleatorias(random, 1000, 7);
+        CatalogoColumnar grande = CatalogoColumnar.construir("v1", filas);
+        List<FilaCatalogoDTO> ordenadas = filas.stream()
+                .sorted(Comparator.comparing(FilaCatalogoDTO::getPrecio).thenComparing(FilaCatalogoDTO::getId))
+                .toList();
+
+        for (int intento = 0; intento < 200; intento++) {
+            long minimo = random.nextInt(5000);
+            long maximo = minimo + random.nextInt(5000);
+            Set<Long> categorias = random.nextBoolean() ? Set.of((long) random.nextInt(7) + 1) : Set.of();
+            Boolean enStock = random.nextBoolean() ? random.nextBoolean() : null;
+            CatalogoColumnar.Filtro filtro = filtro(categorias, minimo, maximo, enStock, null);
+
+            // Se recorren todas las páginas para validar también el cursor en los bordes de palabra
+            List<Long> obtenidos = new ArrayList<>();
+            CatalogoColumnar.Posicion posicion = null;
+            CatalogoColumnar.Resultado pagina;
+            do {
+                pagina = grande.filtrar(filtro, posicion, 37);
+                obtenidos.addAll(ids(pagina.contenido()));
+                ProductoDTO ultimo = pagina.contenido().isEmpty() ? null : pagina.contenido().get(pagina.contenido().size() - 1);
+                posicion = ultimo == null ? null : new CatalogoColumnar.Posicion(Dinero.de(ultimo.getPrecio()).centavos(), ultimo.getId());
+            } while (pagina.hayMas());
+
+            List<Long> esperados = ordenadas.stream().filter(cumple(filtro)).map(FilaCatalogoDTO::getId).toList();
+            assertEquals(esperados, obtenidos);
+            assertEquals(esperados.size(), pagina.total());
+        }
+    }
+
+    /**
+     * Mide la latencia de una consulta con facetas sobre un millón de productos e informa los percentiles;
+     * solo se verifica el resultado, para no depender de la máquina que ejecuta las pruebas.
+     */
+    @Test
+    void filtrar_sobreUnMillonDeProductos_informaLatencia() {
+        Random random = new Random(7);
+        List<FilaCatalogoDTO> filas = filasAleatorias(random, 1_000_000, 20);
+        CatalogoColumnar grande = CatalogoColumnar.construir("v1", filas);
+        CatalogoColumnar.Filtro filtro = filtro(Set.of(3L, 4L), 100_000L, 300_000L, true, null);
+
+        long[] latencias = new long[2000];
+        CatalogoColumnar.Resultado resultado = null;
+        for (int i = -500; i < latencias.length; i++) { // Las primeras iteraciones calientan el JIT
+            long inicio = System.nanoTime();
+            resultado = grande.filtrar(filtro, null, 50);
+            if (i >= 0) {
+                latencias[i] = System.nanoTime() - inicio;
+            }
+        }
+        Arrays.sort(latencias);
+        System.out.printf("Filtrado columnar sobre 1M productos: p50 %d µs, p99 %d µs%n",
+                TimeUnit.NANOSECONDS.toMicros(latencias[latencias.length / 2]),
+                TimeUnit.NANOSECONDS.toMicros(latencias[latencias.length * 99 / 100]));
+
+        assertEquals(filas.stream().filter(cumple(filtro)).count(), resultado.total());
+        assertEquals(50, resultado.contenido().size());
+    }
+
+    private static List<FilaCatalogoDTO> filasAleatorias(Random random, int cantidad, int categorias) {
+        List<FilaCatalogoDTO> filas = new ArrayList<>(cantidad);
+        for (long id = 1; id <= cantidad; id++) {
+            long categoria = random.nextInt(categorias) + 1;
+            int stock = random.nextInt(4) == 0 ? 0 : random.nextInt(100);
+            filas.add(new FilaCatalogoDTO(id, "Producto " + id, null, BigDecimal.valueOf(random.nextInt(1_000_000), 2),
+                    categoria, "Categoría " + categoria, stock, stock < 10));
+        }
+        return filas;
+    }
+
+    private static Predicate<FilaCatalogoDTO> cumple(CatalogoColumnar.Filtro filtro) {
+        return fila -> {
+            long centavos = Dinero.de(fila.getPrecio()).centavos();
+            return (filtro.categoriaIds().isEmpty() || filtro.categoriaIds().contains(fila.getCategoriaId()))
+                    && (filtro.precioMinimo() == null || centavos >= filtro.precioMinimo())
+                    && (filtro.precioMaximo() == null || centavos <= filtro.precioMaximo())
+                    && (filtro.enStock() == null || filtro.enStock() == (fila.getCantidad() > 0));
+        };
+    }
+
+    private static CatalogoColumnar.Filtro filtro(Set<Long> categorias, Long minimo, Long maximo, Boolean enStock, Boolean stockBajo) {
+        return new CatalogoColumnar.Filtro(categorias == null ? Set.of() : categorias, minimo, maximo, enStock, stockBajo);
+    }
+
+    private static List<Long> ids(List<ProductoDTO> productos) {
+        return productos.stream().map(ProductoDTO::getId).toList();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dto.TextoProductoDTO;
+import com.example.dataService.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceBusquedaProductosTest {
+
+    @Mock
+    private ProductoRepository productoRepository;
+
+    private IndiceBusquedaProductos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceBusquedaProductos(productoRepository);
+        indice.indexar(1L, "Teclado mecánico", "Switches rojos, ideal para programación");
+        indice.indexar(2L, "Mouse inalámbrico", "Incluye pila y receptor USB");
+        indice.indexar(3L, "Canción de cuna", "Caja musical con melodía de teclado");
+    }
+
+    @Test
+    void buscar_sinTildes_deberiaEncontrarTextoConTildes() {
+
+        List<IndiceBusquedaProductos.Coincidencia> resultado = indice.buscar("MECANICO", 10);
+
+        assertEquals(List.of(1L), ids(resultado));
+    }
+
+    @Test
+    void buscar_porPrefijo_deberiaAutocompletar() {
+
+        assertEquals(List.of(2L), ids(indice.buscar("inalam", 10)));
+        assertEquals(List.of(3L), ids(indice.buscar("cancio", 10)));
+    }
+
+    @Test
+    void buscar_coincidenciaEnElNombre_deberiaPuntuarMasQueEnLaDescripcion() {
+
+        List<IndiceBusquedaProductos.Coincidencia> resultado = indice.buscar("teclado", 10);
+
+        assertEquals(List.of(1L, 3L), ids(resultado));
+        assertTrue(resultado.get(0).puntuacion() > resultado.get(1).puntuacion());
+    }
+
+    @Test
+    void buscar_variosTerminos_deberiaExigirTodos() {
+
+        assertEquals(List.of(3L), ids(indice.buscar("teclado caja", 10)));
+        assertTrue(indice.buscar("teclado usb", 10).isEmpty());
+    }
+
+    @Test
+    void indexarYEliminar_deberianActualizarElIndiceIncrementalmente() {
+
+        indice.indexar(2L, "Mouse gamer", "RGB");
+        assertTrue(indice.buscar("inalambrico", 10).isEmpty());
+        assertEquals(List.of(2L), ids(indice.buscar("gamer", 10)));
+
+        indice.eliminar(2L);
+        assertTrue(indice.buscar("mouse", 10).isEmpty());
+        assertEquals(2, indice.cantidadDeProductos());
+    }
+
+    @Test
+    void reconstruir_deberiaReemplazarElContenidoConElDeLaBaseDeDatos() {
+
+        when(productoRepository.findTextosParaBusqueda()).thenReturn(List.of(
+                new TextoProductoDTO(10L, "Lámpara de escritorio", "Luz cálida"),
+                new TextoProductoDTO(11L, "Lámpara de pie", null)));
+
+        indice.reconstruir();
+
+        assertEquals(2, indice.cantidadDeProductos());
+        assertEquals(List.of(10L, 11L), ids(indice.buscar("lampara", 10)));
+        assertTrue(indice.buscar("teclado", 10).isEmpty());
+    }
+
+    private static List<Long> ids(List<IndiceBusquedaProductos.Coincidencia> coincidencias) {
+        return coincidencias.stream().map(IndiceBusquedaProductos.Coincidencia::productoId).toList();
+    }
+}
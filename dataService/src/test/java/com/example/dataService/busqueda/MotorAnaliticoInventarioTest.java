@@ -0,0 +1,113 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MotorAnaliticoInventarioTest {
+
+    private static final List<FilaCatalogoDTO> FILAS = List.of(
+            new FilaCatalogoDTO(1L, "Laptop", "Gaming", new BigDecimal("1500.00"), 1L, "Electrónica", 5, false),
+            new FilaCatalogoDTO(2L, "Mouse", "Inalámbrico", new BigDecimal("25.50"), 1L, "Electrónica", 2, true),
+            new FilaCatalogoDTO(3L, "Silla", "Ergonómica", new BigDecimal("300.00"), 2L, "Hogar", 0, true),
+            new FilaCatalogoDTO(4L, "Lámpara", "LED", new BigDecimal("25.50"), 2L, "Hogar", 40, false),
+            new FilaCatalogoDTO(5L, "Cable", "Sin inventario", new BigDecimal("9.99"), null, null, null, null));
+
+    private final CatalogoColumnar catalogo = CatalogoColumnar.construir("v1", FILAS);
+    private final MotorAnaliticoInventario motor = new MotorAnaliticoInventario(null, new AgregadorEscalar());
+
+    @Test
+    void valoracion_deberiaAgruparPorCategoriaConLosSinCategoriaAlFinal() {
+
+        ValoracionInventarioDTO valoracion = motor.valoracion(catalogo);
+
+        assertEquals(new BigDecimal("8571.00"), valoracion.getValorTotal()); // 1500*5 + 25.50*2 + 25.50*40
+        assertEquals(5, valoracion.getProductos());
+        assertEquals(2, valoracion.getProductosStockBajo());
+
+        List<ValorCategoriaDTO> categorias = valoracion.getCategorias();
+        assertEquals(3, categorias.size());
+        assertEquals("Electrónica", categorias.get(0).getCategoria());
+        assertEquals(1L, categorias.get(0).getCategoriaId());
+        assertEquals(new BigDecimal("7551.00"), categorias.get(0).getValorTotal());
+        assertEquals(1L, categorias.get(1).getProductosStockBajo());
+        assertNull(categorias.get(2).getCategoriaId());
+        assertEquals(new BigDecimal("0.00"), categorias.get(2).getValorTotal());
+    }
+
+    @Test
+    void valoracionPorBandasDePrecio_deberiaCortarEnLosLimitesOrdenados() {
+
+        List<ValorBandaPrecioDTO> bandas = motor.valoracionPorBandasDePrecio(catalogo,
+                List.of(new BigDecimal("300"), new BigDecimal("25.50"), new BigDecimal("300.00")));
+
+        assertEquals(3, bandas.size());
+        assertNull(bandas.get(0).getPrecioDesde());
+        assertEquals(Dinero.de(new BigDecimal("25.50")), bandas.get(0).getPrecioHasta());
+        assertEquals(1, bandas.get(0).getProductos()); // Solo el cable; 25.50 abre la banda siguiente
+        assertEquals(2, bandas.get(1).getProductos());
+        assertEquals(42, bandas.get(1).getUnidades());
+        assertEquals(Dinero.deCentavos(107_100), bandas.get(1).getValorTotal());
+        assertEquals(1, bandas.get(1).getProductosStockBajo());
+        assertNull(bandas.get(2).getPrecioHasta());
+        assertEquals(2, bandas.get(2).getProductos());
+    }
+
+    @Test
+    void valoracion_conVariasTareas_deberiaCoincidirConUnRecorridoSecuencial() {
+        List<FilaCatalogoDTO> filas = filasAleatorias(new Random(3), MotorAnaliticoInventario.FILAS_POR_TAREA * 5 + 17);
+        CatalogoColumnar grande = CatalogoColumnar.construir("v1", filas);
+
+        ValoracionInventarioDTO valoracion = motor.valoracion(grande);
+
+        BigDecimal esperado = filas.stream()
+                .map(f -> f.getPrecio().multiply(BigDecimal.valueOf(f.getCantidad())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, esperado.compareTo(valoracion.getValorTotal()));
+        assertEquals(filas.size(), valoracion.getProductos());
+        assertEquals(filas.stream().filter(FilaCatalogoDTO::getStockBajo).count(), valoracion.getProductosStockBajo());
+    }
+
+    @Test
+    void agregadorVectorial_deberiaCoincidirConElEscalar() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "La JVM de pruebas no cargó jdk.incubator.vector");
+        Agregador vectorial = MotorAnaliticoInventario.elegirAgregador();
+        Agregador escalar = new AgregadorEscalar();
+        assertInstanceOf(AgregadorVectorial.class, vectorial);
+
+        CatalogoColumnar grande = CatalogoColumnar.construir("v1", filasAleatorias(new Random(5), 10_007));
+        long[] precios = grande.precioCentavos();
+        int[] cantidades = grande.cantidades();
+        // Intervalos con y sin resto respecto del número de carriles
+        for (int[] intervalo : new int[][]{{0, precios.length}, {3, 3}, {1, 2}, {5, 1029}, {17, 10_000}}) {
+            int desde = intervalo[0];
+            int hasta = intervalo[1];
+            assertEquals(escalar.sumaDeProductos(precios, cantidades, desde, hasta),
+                    vectorial.sumaDeProductos(precios, cantidades, desde, hasta));
+            assertEquals(escalar.suma(cantidades, desde, hasta), vectorial.suma(cantidades, desde, hasta));
+        }
+    }
+
+    static List<FilaCatalogoDTO> filasAleatorias(Random random, int cantidad) {
+        List<FilaCatalogoDTO> filas = new ArrayList<>(cantidad);
+        for (long id = 1; id <= cantidad; id++) {
+            long categoria = random.nextInt(12) + 1;
+            int stock = random.nextInt(500);
+            filas.add(new FilaCatalogoDTO(id, "Producto " + id, null, BigDecimal.valueOf(random.nextInt(10_000_000), 2),
+                    categoria, "Categoría " + categoria, stock, stock < 20));
+        }
+        return filas;
+    }
+}
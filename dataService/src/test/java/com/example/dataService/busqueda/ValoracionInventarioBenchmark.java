@@ -0,0 +1,97 @@
+package com.example.dataService.busqueda;
+
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.ProductoDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH de la valoración del inventario: el recorrido con streams de BigDecimal sobre ProductoDTO
+ * (como se calculaba en el business-service) contra las columnas primitivas con bucle escalar, con la
+ * Vector API y con fork/join.
+ *
+ * No forma parte de la suite normal (el nombre no termina en Test). Se ejecuta con el método main desde
+ * el IDE, o desde la línea de comandos:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java --add-modules jdk.incubator.vector -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       org.openjdk.jmh.Main ValoracionInventarioBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ValoracionInventarioBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int productos;
+
+    private List<ProductoDTO> productosDTO;
+    private CatalogoColumnar catalogo;
+    private final Agregador escalar = new AgregadorEscalar();
+    private Agregador vectorial;
+    private MotorAnaliticoInventario motorVectorial;
+
+    @Setup
+    public void preparar() {
+        List<FilaCatalogoDTO> filas = MotorAnaliticoInventarioTest.filasAleatorias(new Random(11), productos);
+        productosDTO = filas.stream()
+                .map(f -> new ProductoDTO(f.getId(), f.getNombre(), f.getDescripcion(), f.getPrecio(),
+                        f.getCategoriaNombre(), f.getCantidad(), f.getStockBajo()))
+                .toList();
+        catalogo = CatalogoColumnar.construir("benchmark", filas);
+        vectorial = MotorAnaliticoInventario.elegirAgregador();
+        motorVectorial = new MotorAnaliticoInventario(null, vectorial);
+    }
+
+    @Benchmark
+    public BigDecimal streamBigDecimal() {
+        return productosDTO.stream()
+                .filter(p -> p.getStock() != null)
+                .map(p -> p.getPrecio().multiply(BigDecimal.valueOf(p.getStock())))
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Benchmark
+    public long columnasEscalar() {
+        return escalar.sumaDeProductos(catalogo.precioCentavos(), catalogo.cantidades(), 0, catalogo.cantidadDeProductos());
+    }
+
+    @Benchmark
+    public long columnasVectorial() {
+        return vectorial.sumaDeProductos(catalogo.precioCentavos(), catalogo.cantidades(), 0, catalogo.cantidadDeProductos());
+    }
+
+    /** Una única banda: reparte todo el catálogo en tareas fork/join que reducen con la Vector API. */
+    @Benchmark
+    public Object columnasVectorialForkJoin() {
+        return motorVectorial.valoracionPorBandasDePrecio(catalogo, List.of());
+    }
+
+    @Benchmark
+    public Object valoracionPorCategoriaForkJoin() {
+        return motorVectorial.valoracion(catalogo);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ValoracionInventarioBenchmark.class.getSimpleName()).build()).run();
+    }
+}
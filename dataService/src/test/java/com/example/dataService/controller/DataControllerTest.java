@@ -1,13 +1,29 @@
 package com.example.dataService.controller;
 
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.AjusteStockLoteRequest;
+import com.example.dataService.dto.AjusteStockLoteResponse;
 import com.example.dataService.dto.CategoriaDTO;
+import com.example.dataService.dto.EstadoAjusteStock;
+import com.example.dataService.dto.ResultadoAjusteStock;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
 import com.example.dataService.dto.InventarioDTO;
+import com.example.dataService.dto.PaginaDTO;
 import com.example.dataService.dto.ProductoDTO;
 import com.example.dataService.dto.ProductoRequest;
+import com.example.dataService.dto.ResultadoBusquedaDTO;
+import com.example.dataService.dto.ResultadoFiltroDTO;
+import com.example.dataService.exception.CategoriaNoEncontradaException;
 import com.example.dataService.exception.ProductoNoEncontradoException;
+import com.example.dataService.service.AnaliticaInventarioService;
 import com.example.dataService.service.CategoriaService;
 import com.example.dataService.service.InventarioService;
 import com.example.dataService.service.ProductoService;
+import com.example.dataService.service.VersionCatalogo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,12 +38,18 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.function.Consumer;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static java.util.List.of;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -37,6 +59,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(controllers = DataController.class, excludeAutoConfiguration = FeignAutoConfiguration .class)
 @AutoConfigureMockMvc(addFilters = false)
 @ActiveProfiles("test")
+@Import(VersionCatalogo.class) // Bean real: los ETags dependen de sus contadores
 class DataControllerTest {
 
     @Autowired MockMvc mockMvc;
@@ -45,6 +68,8 @@ class DataControllerTest {
     @MockBean ProductoService productoService;
     @MockBean CategoriaService categoriaService;
     @MockBean InventarioService inventarioService;
+    @MockBean AnaliticaInventarioService analiticaInventarioService;
+    @Autowired VersionCatalogo versionCatalogo;
 
     // Lo incluyo porque aparece en tu proyecto y evita fallos de contexto
     //@MockBean
@@ -112,6 +137,84 @@ class DataControllerTest {
                 .andExpect(jsonPath("$[1].stockBajo").value(true));
     }
 
+    @Test
+    void obtenerTodosLosProductos_conEtagVigente_devuelve304SinConsultar() throws Exception {
+        when(productoService.obtenerTodosLosProductos()).thenReturn(of(prod1, prod2));
+
+        String etag = mockMvc.perform(get("/data/productos"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/data/productos").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(productoService, times(1)).obtenerTodosLosProductos();
+    }
+
+    @Test
+    void obtenerTodosLosProductos_trasUnCambio_cambiaElEtag() throws Exception {
+        when(productoService.obtenerTodosLosProductos()).thenReturn(of(prod1, prod2));
+
+        String etag = mockMvc.perform(get("/data/productos"))
+                .andReturn().getResponse().getHeader("ETag");
+        versionCatalogo.registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+
+        mockMvc.perform(get("/data/productos").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void obtenerProductosPorIds_ok() throws Exception {
+        when(productoService.obtenerProductosPorIds(of(1L, 2L))).thenReturn(of(prod1, prod2));
+
+        mockMvc.perform(get("/data/productos").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void obtenerPaginaProductos_ok() throws Exception {
+        when(productoService.obtenerPaginaProductos("abc", 2, "precio"))
+                .thenReturn(new PaginaDTO<>(of(prod1, prod2), "def"));
+
+        mockMvc.perform(get("/data/productos")
+                        .param("after", "abc")
+                        .param("limit", "2")
+                        .param("orden", "precio"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(2)))
+                .andExpect(jsonPath("$.siguienteCursor").value("def"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void exportarCatalogo_escribeUnProductoPorLinea() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ProductoDTO> consumidor = invocation.getArgument(0);
+            consumidor.accept(prod1);
+            consumidor.accept(prod2);
+            return null;
+        }).when(productoService).exportarCatalogo(any());
+
+        MvcResult resultado = mockMvc.perform(get("/data/productos/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String cuerpo = mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals("Producto 2",
+                objectMapper.readValue(lineas[1], ProductoDTO.class).getNombre());
+    }
+
     @Test
     void obtenerProductoPorId_ok() throws Exception {
         when(productoService.obtenerProductoPorId(1L)).thenReturn(prod1);
@@ -175,6 +278,76 @@ class DataControllerTest {
                 .andExpect(jsonPath("$[0].nombre").value("Laptop"));
     }
 
+    @Test
+    void buscarProductos_ok() throws Exception {
+        when(productoService.buscarProductos("produc", 20))
+                .thenReturn(of(new ResultadoBusquedaDTO(prod2, 3.2), new ResultadoBusquedaDTO(prod1, 1.1)));
+
+        mockMvc.perform(get("/data/productos/buscar").param("q", "produc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].producto.id").value(2))
+                .andExpect(jsonPath("$[0].puntuacion").value(3.2));
+    }
+
+    @Test
+    void filtrarProductos_ok() throws Exception {
+        Map<String, Long> facetasCategoria = new LinkedHashMap<>();
+        facetasCategoria.put("Electrónicos", 2L);
+        facetasCategoria.put("Hogar", 5L);
+        when(productoService.filtrarProductos(of(3L, 4L), new BigDecimal("10"), null, true, null, null, 50))
+                .thenReturn(new ResultadoFiltroDTO(of(prod1, prod2), "c2lndWllbnRl", 2,
+                        facetasCategoria, Map.of("enStock", 2L, "sinStock", 1L, "stockBajo", 0L)));
+
+        mockMvc.perform(get("/data/productos/filtrar")
+                        .param("categoriaId", "3", "4")
+                        .param("precioMin", "10")
+                        .param("enStock", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(2)))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.facetasCategoria.Hogar").value(5))
+                .andExpect(jsonPath("$.facetasStock.sinStock").value(1))
+                .andExpect(jsonPath("$.siguienteCursor").value("c2lndWllbnRl"));
+    }
+
+    @Test
+    void obtenerValoracionPorBandasDePrecio_ok() throws Exception {
+        when(analiticaInventarioService.obtenerValoracionPorBandasDePrecio(of(new BigDecimal("10"), new BigDecimal("50.5"))))
+                .thenReturn(of(
+                        new ValorBandaPrecioDTO(null, Dinero.deCentavos(1000), Dinero.deCentavos(9900), 3, 11, 1),
+                        new ValorBandaPrecioDTO(Dinero.deCentavos(1000), Dinero.deCentavos(5050), Dinero.CERO, 0, 0, 0),
+                        new ValorBandaPrecioDTO(Dinero.deCentavos(5050), null, Dinero.deCentavos(150_000), 1, 1, 0)));
+
+        mockMvc.perform(get("/data/analitica/valoracion-por-precio").param("limites", "10,50.5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].unidades").value(11))
+                .andExpect(jsonPath("$[2].precioDesde").value(50.50)) // Dinero se serializa como número
+                .andExpect(jsonPath("$[1].valorTotal").value(0.0));
+    }
+
+    @Test
+    void obtenerProductosDeCategoria_ok() throws Exception {
+        when(productoService.obtenerPaginaProductosDeCategoria(3L, null, 20, "precio"))
+                .thenReturn(new PaginaDTO<>(of(prod1, prod2), "c2lndWllbnRl"));
+
+        mockMvc.perform(get("/data/categorias/3/productos").param("limit", "20").param("orden", "precio"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(2)))
+                .andExpect(jsonPath("$.contenido[0].stock").value(10))
+                .andExpect(jsonPath("$.siguienteCursor").value("c2lndWllbnRl"));
+    }
+
+    @Test
+    void obtenerProductosDeCategoria_cuandoCategoriaNoExiste_notFound() throws Exception {
+        when(productoService.obtenerPaginaProductosDeCategoria(99L, null, 50, "id"))
+                .thenThrow(new CategoriaNoEncontradaException("La categoría con ID 99 no existe."));
+
+        mockMvc.perform(get("/data/categorias/99/productos"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void buscarProductoInexistente_notFound() throws Exception {
         when(productoService.obtenerProductoPorId(999L))
@@ -267,13 +440,62 @@ class DataControllerTest {
         bajo.setStockMinimo(5);
         bajo.setFechaActualizacion(LocalDateTime.now());
 
-        when(inventarioService.obtenerProductosConStockBajo()).thenReturn(of(bajo));
+        when(inventarioService.obtenerProductosConStockBajo(null, 100)).thenReturn(new PaginaDTO<>(of(bajo), "c2lndWllbnRl"));
 
         mockMvc.perform(get("/data/inventario/stock-bajo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.contenido", hasSize(1)))
+                .andExpect(jsonPath("$.contenido[0].producto.nombre").value("Memoria"))
+                .andExpect(jsonPath("$.contenido[0].cantidad").value(3))
+                .andExpect(jsonPath("$.siguienteCursor").value("c2lndWllbnRl"));
+    }
+
+    @Test
+    void obtenerInventariosPorProductoIds_ok() throws Exception {
+        when(inventarioService.obtenerInventariosPorProductoIds(of(1L, 2L))).thenReturn(of(inv1));
+
+        mockMvc.perform(get("/data/inventario").param("productoIds", "1,2"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].producto.nombre").value("Memoria"))
-                .andExpect(jsonPath("$[0].cantidad").value(3));
+                .andExpect(jsonPath("$[0].producto.nombre").value("Producto 1"));
+    }
+
+    @Test
+    void obtenerCantidadPorProductoId_ok() throws Exception {
+        when(inventarioService.obtenerCantidadPorProductoId(1L)).thenReturn(new StockDTO(1L, 3));
+
+        mockMvc.perform(get("/data/inventario/1/cantidad"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productoId").value(1))
+                .andExpect(jsonPath("$.cantidad").value(3))
+                .andExpect(jsonPath("$.producto").doesNotExist());
+    }
+
+    @Test
+    void obtenerCantidadesPorProductoIds_ok() throws Exception {
+        when(inventarioService.obtenerCantidadesPorProductoIds(of(1L, 2L)))
+                .thenReturn(of(new StockDTO(1L, 3), new StockDTO(2L, 0)));
+
+        mockMvc.perform(post("/data/inventario/disponibilidad")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].cantidad").value(0));
+    }
+
+    @Test
+    void obtenerValoracionInventario_ok() throws Exception {
+        var valoracion = new ValoracionInventarioDTO(new BigDecimal("250.00"), 2, 1,
+                of(new ValorCategoriaDTO(1L, "Electrónica", new BigDecimal("250.00"), 2L, 1L)));
+        when(inventarioService.obtenerValoracionInventario()).thenReturn(valoracion);
+
+        mockMvc.perform(get("/data/inventario/valoracion"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.valorTotal").value(250.00))
+                .andExpect(jsonPath("$.categorias[0].categoria").value("Electrónica"))
+                .andExpect(jsonPath("$.categorias[0].productosStockBajo").value(1));
     }
 
     @Test
@@ -307,4 +529,22 @@ class DataControllerTest {
                 .andExpect(jsonPath("$.producto.id").value(1))
                 .andExpect(jsonPath("$.cantidad").value(18));
     }
-}
\ No newline at end of file
+
+    @Test
+    void ajustarStockEnLote_ok() throws Exception {
+        var request = new AjusteStockLoteRequest(of(new AjusteStockItem(1L, -2), new AjusteStockItem(2L, -50)), false);
+        var respuesta = new AjusteStockLoteResponse(true, of(
+                new ResultadoAjusteStock(1L, -2, EstadoAjusteStock.APLICADO, 1),
+                new ResultadoAjusteStock(2L, -50, EstadoAjusteStock.STOCK_INSUFICIENTE, 5)));
+
+        when(inventarioService.ajustarStockEnLote(any(AjusteStockLoteRequest.class))).thenReturn(respuesta);
+
+        mockMvc.perform(post("/data/inventario/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.confirmado").value(true))
+                .andExpect(jsonPath("$.resultados", hasSize(2)))
+                .andExpect(jsonPath("$.resultados[1].estado").value("STOCK_INSUFICIENTE"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.dataService.dinero;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH de la valoración precio * stock con BigDecimal (un BigDecimal por cantidad, más
+ * multiply y add por producto) contra {@link Dinero} y contra centavos en long sin envoltorio.
+ * Con el perfilador de GC (-prof gc) se ve además la memoria asignada por operación (gc.alloc.rate.norm).
+ *
+ * No forma parte de la suite normal (el nombre no termina en Test). Se ejecuta con el método main desde
+ * el IDE, o desde la línea de comandos:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main DineroBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DineroBenchmark {
+
+    @Param({"10000"})
+    public int productos;
+
+    private BigDecimal[] preciosDecimales;
+    private Dinero[] precios;
+    private long[] preciosCentavos;
+    private int[] stock;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(13);
+        preciosDecimales = new BigDecimal[productos];
+        precios = new Dinero[productos];
+        preciosCentavos = new long[productos];
+        stock = new int[productos];
+        for (int i = 0; i < productos; i++) {
+            preciosDecimales[i] = BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+            precios[i] = Dinero.de(preciosDecimales[i]);
+            preciosCentavos[i] = precios[i].centavos();
+            stock[i] = random.nextInt(500);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < productos; i++) {
+            total = total.add(preciosDecimales[i].multiply(new BigDecimal(stock[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Dinero dinero() {
+        Dinero total = Dinero.CERO;
+        for (int i = 0; i < productos; i++) {
+            total = total.mas(precios[i].por(stock[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long centavos() {
+        long total = 0;
+        for (int i = 0; i < productos; i++) {
+            total = Math.addExact(total, Math.multiplyExact(preciosCentavos[i], stock[i]));
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DineroBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
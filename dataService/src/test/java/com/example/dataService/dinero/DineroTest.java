@@ -0,0 +1,78 @@
+package com.example.dataService.dinero;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DineroTest {
+
+    @Test
+    void de_deberiaRedondearADosDecimalesConHalfUp() {
+
+        assertEquals(2000, Dinero.de(new BigDecimal("19.995")).centavos());
+        assertEquals(1999, Dinero.de(new BigDecimal("19.994")).centavos());
+        assertEquals(-2000, Dinero.de(new BigDecimal("-19.995")).centavos());
+        assertEquals(1500, Dinero.de(new BigDecimal("15")).centavos());
+    }
+
+    @Test
+    void de_conModoDeRedondeo_deberiaRespetarlo() {
+
+        assertEquals(1001, Dinero.de(new BigDecimal("10.001"), RoundingMode.CEILING).centavos());
+        assertEquals(1000, Dinero.de(new BigDecimal("10.009"), RoundingMode.FLOOR).centavos());
+    }
+
+    @Test
+    void aBigDecimal_deberiaSerExactoConEscalaDos() {
+
+        BigDecimal precio = new BigDecimal("99999999.99");
+
+        assertEquals(precio, Dinero.de(precio).aBigDecimal());
+        assertEquals(new BigDecimal("0.00"), Dinero.CERO.aBigDecimal());
+    }
+
+    @Test
+    void dePrecio_fueraDeDecimal10_2_deberiaLanzarExcepcion() {
+
+        assertEquals(Dinero.PRECIO_MAXIMO, Dinero.dePrecio(new BigDecimal("99999999.99")));
+        assertThrows(ArithmeticException.class, () -> Dinero.dePrecio(new BigDecimal("100000000.00")));
+        // Redondeado a dos decimales ya no cabe
+        assertThrows(ArithmeticException.class, () -> Dinero.dePrecio(new BigDecimal("99999999.995")));
+    }
+
+    @Test
+    void operaciones_conDesborde_deberianLanzarExcepcion() {
+
+        Dinero maximo = Dinero.deCentavos(Long.MAX_VALUE);
+
+        assertThrows(ArithmeticException.class, () -> maximo.mas(Dinero.deCentavos(1)));
+        assertThrows(ArithmeticException.class, () -> Dinero.deCentavos(Long.MIN_VALUE).menos(Dinero.deCentavos(1)));
+        assertThrows(ArithmeticException.class, () -> Dinero.PRECIO_MAXIMO.por(1_000_000_000L));
+        assertThrows(ArithmeticException.class, () -> Dinero.de(new BigDecimal("1E+20")));
+    }
+
+    @Test
+    void operaciones_deberianSerExactas() {
+
+        Dinero precio = Dinero.de(new BigDecimal("0.10"));
+
+        assertEquals(Dinero.de(new BigDecimal("0.30")), precio.mas(precio).mas(precio));
+        assertEquals(new BigDecimal("2550.00"), Dinero.de(new BigDecimal("25.50")).por(100).aBigDecimal());
+        assertEquals(-1, Dinero.CERO.menos(precio).signo());
+    }
+
+    @Test
+    void json_deberiaSerializarseComoNumeroYLeerseSinPerderPrecision() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        String json = objectMapper.writeValueAsString(Dinero.de(new BigDecimal("1234.50")));
+        Dinero leido = objectMapper.readValue("1234.505", Dinero.class);
+
+        assertEquals("1234.50", json);
+        assertEquals(123_451, leido.centavos());
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.dataService.memoria;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiarioStockTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recuperar_enDirectorioVacio_deberiaIndicarPrimerArranque() {
+        try (DiarioStock diario = new DiarioStock(directorio, 1024)) {
+            assertFalse(diario.recuperar((productoId, delta) -> fail("No debería haber cambios")));
+        }
+    }
+
+    @Test
+    void recuperar_deberiaSumarLosDeltasDeTodosLosSegmentos() {
+        try (DiarioStock diario = new DiarioStock(directorio, 64)) { // 4 registros por segmento
+            diario.recuperar((productoId, delta) -> { });
+            for (int i = 0; i < 10; i++) {
+                diario.registrar(1, 5);
+                diario.registrar(2, -1);
+            }
+        }
+
+        Map<Long, Integer> cantidades = recuperar();
+
+        assertEquals(Map.of(1L, 50, 2L, -10), cantidades);
+    }
+
+    @Test
+    void compactar_deberiaReemplazarLosSegmentosPorUnaInstantanea() throws IOException {
+        try (DiarioStock diario = new DiarioStock(directorio, 64)) {
+            diario.recuperar((productoId, delta) -> { });
+            diario.registrar(1, 100);
+            diario.registrar(2, 30);
+            diario.registrar(1, -40);
+            diario.registrar(3, 7); // Segundo segmento
+            assertEquals(3, diario.compactar());
+            diario.registrar(2, -5); // Después de la instantánea
+            assertEquals(3, diario.compactar());
+            diario.registrar(3, 1);
+        }
+
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            assertEquals(1, archivos.filter(a -> a.getFileName().toString().startsWith("instantanea-")).count());
+        }
+        assertEquals(Map.of(1L, 60, 2L, 25, 3L, 8), recuperar());
+    }
+
+    @Test
+    void compactar_conUnaBaja_deberiaConservarlaEnLaInstantanea() {
+        try (DiarioStock diario = new DiarioStock(directorio, 64)) {
+            diario.recuperar((productoId, delta) -> { });
+            diario.registrar(1, 100);
+            diario.registrar(2, 30);
+            diario.registrar(1, DiarioStock.BAJA);
+            diario.registrar(1, -5); // Un ajuste anotado tras la baja no la revive
+            assertEquals(2, diario.compactar());
+        }
+
+        Map<Long, Integer> cantidades = new HashMap<>();
+        try (DiarioStock diario = new DiarioStock(directorio, 64)) {
+            assertTrue(diario.recuperar((productoId, delta) -> cantidades.merge(productoId, delta, (a, b) -> a + b)));
+        }
+        assertEquals(Map.of(1L, DiarioStock.BAJA, 2L, 30), cantidades);
+    }
+
+    @Test
+    void recuperar_deberiaDescartarLosRegistrosIncompletos() throws IOException {
+        try (DiarioStock diario = new DiarioStock(directorio, 1024)) {
+            diario.recuperar((productoId, delta) -> { });
+            diario.registrar(1, 10);
+            diario.registrar(2, 20);
+            diario.registrar(3, 30);
+        }
+        // Se corrompe el delta del segundo registro, como una escritura interrumpida por una caída
+        Path segmento;
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            segmento = archivos.filter(a -> a.getFileName().toString().startsWith("diario-")).findFirst().orElseThrow();
+        }
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 999), DiarioStock.TAMANO_REGISTRO + 8);
+        }
+
+        assertEquals(Map.of(1L, 10, 3L, 30), recuperar());
+    }
+
+    @Test
+    void registrar_desdeVariosHilos_yCompactarALaVez_noDeberiaPerderCambios() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try (DiarioStock diario = new DiarioStock(directorio, 4096)) {
+            diario.recuperar((productoId, delta) -> { });
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < 8; h++) {
+                long productoId = h % 4 + 1;
+                tareas.add(hilos.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        diario.registrar(productoId, 1);
+                    }
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                diario.compactar();
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+
+        assertEquals(Map.of(1L, 10_000, 2L, 10_000, 3L, 10_000, 4L, 10_000), recuperar());
+    }
+
+    private Map<Long, Integer> recuperar() {
+        Map<Long, Integer> cantidades = new HashMap<>();
+        try (DiarioStock diario = new DiarioStock(directorio, 64)) {
+            assertTrue(diario.recuperar((productoId, delta) -> cantidades.merge(productoId, delta, Integer::sum)));
+        }
+        return cantidades;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.dataService.memoria;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MapaStockTest {
+
+    @Test
+    void insertar_yBuscar_deberiaEncontrarCadaProductoEnSuPosicion() {
+        MapaStock mapa = new MapaStock(1000);
+
+        for (long id = 1; id <= 1000; id++) {
+            assertTrue(mapa.insertar(id, (int) id) >= 0);
+        }
+
+        assertEquals(1000, mapa.productos());
+        for (long id = 1; id <= 1000; id++) {
+            assertEquals((int) id, mapa.cantidad(mapa.posicion(id)));
+        }
+        assertEquals(-1, mapa.posicion(1001));
+    }
+
+    @Test
+    void insertar_productoExistente_deberiaDevolverSuPosicionSinCambiarLaCantidad() {
+        MapaStock mapa = new MapaStock(16);
+        int posicion = mapa.insertar(7, 10);
+
+        int otraVez = mapa.insertar(7, 99);
+
+        assertEquals(posicion, -otraVez - 1);
+        assertEquals(10, mapa.cantidad(posicion));
+    }
+
+    @Test
+    void sumar_sinStockSuficiente_noDeberiaModificarLaCantidad() {
+        MapaStock mapa = new MapaStock(16);
+        int posicion = mapa.insertar(7, 10);
+
+        assertEquals(MapaStock.SIN_STOCK, mapa.sumar(posicion, -11));
+        assertEquals(0, mapa.sumar(posicion, -10));
+        assertEquals(MapaStock.SIN_STOCK, mapa.sumar(mapa.insertar(8, Integer.MAX_VALUE), 1)); // Desborde
+    }
+
+    @Test
+    void darDeBaja_deberiaRechazarLosCambiosSiguientes() {
+        MapaStock mapa = new MapaStock(16);
+        int posicion = mapa.insertar(7, 10);
+
+        assertEquals(10, mapa.darDeBaja(posicion));
+        assertEquals(MapaStock.DADO_DE_BAJA, mapa.darDeBaja(posicion));
+        assertEquals(MapaStock.DADO_DE_BAJA, mapa.cantidad(posicion));
+        assertEquals(MapaStock.DADO_DE_BAJA, mapa.sumar(posicion, 5));
+        assertEquals(MapaStock.DADO_DE_BAJA, mapa.establecer(posicion, 3));
+        assertEquals(-posicion - 1, mapa.insertar(7, 20)); // La clave se conserva para el sondeo
+        assertEquals(MapaStock.DADO_DE_BAJA, mapa.cantidad(posicion));
+    }
+
+    @Test
+    void insertar_porEncimaDeLaCapacidad_deberiaLanzarExcepcion() {
+        MapaStock mapa = new MapaStock(10);
+        int maximo = mapa.capacidad() * 3 / 4;
+        for (long id = 1; id <= maximo; id++) {
+            mapa.insertar(id, 1);
+        }
+
+        assertThrows(IllegalStateException.class, () -> mapa.insertar(maximo + 1, 1));
+    }
+
+    @Test
+    void sumar_desdeVariosHilos_noDeberiaPerderActualizacionesNiQuedarNegativo() throws Exception {
+        MapaStock mapa = new MapaStock(16);
+        int posicion = mapa.insertar(1, 10_000);
+        AtomicInteger aplicadas = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int h = 0; h < 8; h++) {
+            tareas.add(hilos.submit(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    if (mapa.sumar(posicion, -1) != MapaStock.SIN_STOCK) {
+                        aplicadas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        hilos.shutdown();
+
+        assertEquals(10_000, aplicadas.get());
+        assertEquals(0, mapa.cantidad(posicion));
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.dataService.memoria;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.entity.Categoria;
+import com.example.dataService.entity.Inventario;
+import com.example.dataService.entity.Producto;
+import com.example.dataService.exception.InventarioNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.repository.InventarioRepository;
+import com.example.dataService.service.VersionCatalogo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MotorInventarioMemoriaTest {
+
+    @Mock
+    private InventarioRepository inventarioRepository;
+
+    @Mock
+    private VersionCatalogo versionCatalogo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path directorio;
+
+    private MotorInventarioMemoria motor;
+
+    @AfterEach
+    void detener() {
+        if (motor != null) {
+            motor.stop();
+        }
+    }
+
+    @Test
+    void start_enElPrimerArranque_deberiaCargarElStockDeLaBase() {
+        when(inventarioRepository.count()).thenReturn(2L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 0)));
+
+        motor = arrancar();
+
+        assertEquals(50, motor.cantidad(10L));
+        assertEquals(Map.of(10L, 50, 20L, 0), motor.cantidades(List.of(10L, 20L)));
+    }
+
+    @Test
+    void ajustar_deberiaAplicarEnMemoriaYRechazarLoQueDejariaStockNegativo() {
+        when(inventarioRepository.count()).thenReturn(1L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50)));
+        when(inventarioRepository.findCantidadByProductoId(99L)).thenReturn(Optional.empty());
+        motor = arrancar();
+
+        assertEquals(45, motor.ajustar(10L, -5));
+        ValidacionNegocioException excepcion = assertThrows(ValidacionNegocioException.class, () -> motor.ajustar(10L, -46));
+        assertTrue(excepcion.getMessage().contains("Stock actual: 45"));
+        assertThrows(InventarioNoEncontradoException.class, () -> motor.ajustar(99L, 1));
+        assertEquals(MotorInventarioMemoria.SIN_INVENTARIO, motor.intentarAjustar(99L, 1));
+        verify(inventarioRepository, never()).ajustarStock(anyLong(), anyInt(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void start_conDiarioExistente_deberiaRecuperarLosAjustesSinLeerLaBase() {
+        when(inventarioRepository.count()).thenReturn(1L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50)));
+        motor = arrancar();
+        motor.ajustar(10L, -5);
+        motor.ajustar(10L, 2);
+        motor.stop();
+
+        motor = arrancar(); // Mismo directorio: el diario ya tiene los ajustes
+
+        assertEquals(47, motor.cantidad(10L));
+        verify(inventarioRepository, times(1)).findAllStock();
+    }
+
+    @Test
+    void cantidad_deProductoCreadoDespuesDelArranque_deberiaCargarloDeLaBase() {
+        when(inventarioRepository.count()).thenReturn(0L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of());
+        when(inventarioRepository.findCantidadByProductoId(30L)).thenReturn(Optional.of(8));
+        motor = arrancar();
+
+        assertEquals(6, motor.ajustar(30L, -2));
+        assertEquals(6, motor.cantidad(30L));
+        verify(inventarioRepository, times(1)).findCantidadByProductoId(30L);
+    }
+
+    @Test
+    void espejar_deberiaCopiarSoloLosProductosQueCambiaron() {
+        when(inventarioRepository.count()).thenReturn(3L);
+        when(inventarioRepository.findAllStock())
+                .thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 5), new StockDTO(30L, 1)));
+        motor = arrancar();
+
+        motor.ajustar(10L, -1);
+        motor.ajustar(10L, -1);
+        motor.establecer(20L, 100);
+        motor.establecer(30L, 1); // Sin cambio
+        int copiados = motor.espejar();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockDTO>> lote = ArgumentCaptor.forClass(List.class);
+        verify(inventarioRepository).establecerStockEnLote(lote.capture(), any(LocalDateTime.class));
+        assertEquals(2, copiados);
+        assertEquals(Map.of(10L, 48, 20L, 100), lote.getValue().stream()
+                .collect(Collectors.toMap(StockDTO::getProductoId, StockDTO::getCantidad)));
+        assertEquals(0, motor.espejar()); // Nada nuevo que copiar
+        // Los dos ajustes y el cambio de cantidad al aplicarse, y la copia a la tabla
+        verify(versionCatalogo, times(4)).registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+    }
+
+    @Test
+    void ajustar_rechazado_noDeberiaCambiarLaVersionDelInventario() {
+        when(inventarioRepository.count()).thenReturn(1L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 5)));
+        motor = arrancar();
+
+        assertEquals(MotorInventarioMemoria.SIN_STOCK, motor.intentarAjustar(10L, -6));
+        verify(versionCatalogo, never()).registrarCambio(any());
+        motor.ajustar(10L, -5);
+        verify(versionCatalogo).registrarCambio(VersionCatalogo.Tabla.INVENTARIO);
+    }
+
+    @Test
+    void confirmarAlTerminar_conRollback_deberiaDevolverLasReservasSinAnotarlas() {
+        when(inventarioRepository.count()).thenReturn(2L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 5)));
+        motor = arrancar();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertEquals(45, motor.reservar(10L, -5));
+            assertEquals(MotorInventarioMemoria.SIN_STOCK, motor.reservar(20L, -6));
+            motor.confirmarAlTerminar(List.of(new AjusteStockItem(10L, -5)), List.of(new AjusteStockItem(20L, 3)));
+            assertEquals(45, motor.cantidad(10L)); // Reservado mientras dura la transacción
+            assertEquals(5, motor.cantidad(20L)); // La reposición espera al commit
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(50, motor.cantidad(10L));
+        assertEquals(5, motor.cantidad(20L));
+
+        motor.stop();
+        motor = arrancar(); // El diario no tiene nada de la reserva
+        assertEquals(50, motor.cantidad(10L));
+    }
+
+    @Test
+    void confirmarAlTerminar_conCommit_deberiaAnotarLasReservasYAplicarLasReposiciones() {
+        when(inventarioRepository.count()).thenReturn(2L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 5)));
+        motor = arrancar();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            motor.reservar(10L, -5);
+            motor.confirmarAlTerminar(List.of(new AjusteStockItem(10L, -5)), List.of(new AjusteStockItem(20L, 3)));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(Map.of(10L, 45, 20L, 8), motor.cantidades(List.of(10L, 20L)));
+        assertEquals(2, motor.espejar());
+
+        motor.stop();
+        motor = arrancar();
+        assertEquals(Map.of(10L, 45, 20L, 8), motor.cantidades(List.of(10L, 20L)));
+    }
+
+    @Test
+    void detalle_deberiaLeerseUnaVezPorVersionDeProductos() {
+        when(inventarioRepository.count()).thenReturn(0L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of());
+        Categoria categoria = new Categoria(1L, "Electrónica", "Dispositivos", Collections.emptyList());
+        Producto producto = new Producto(10L, "Laptop", "Core i7", BigDecimal.valueOf(1200), categoria, null);
+        Inventario inventario = new Inventario(100L, producto, 50, 10, LocalDateTime.now());
+        when(inventarioRepository.findDetalleByProductoId(10L)).thenReturn(Optional.of(inventario));
+        when(inventarioRepository.findDetalleByProductoId(99L)).thenReturn(Optional.empty());
+        when(versionCatalogo.etagProductos()).thenReturn("a-1.1", "a-1.1", "a-1.1", "a-2.1");
+        motor = arrancar();
+
+        MotorInventarioMemoria.DetalleInventario detalle = motor.detalle(10L).orElseThrow();
+        assertEquals(new MotorInventarioMemoria.DetalleInventario(100L, 10L, "Laptop", "Core i7",
+                BigDecimal.valueOf(1200), "Electrónica", 10), detalle);
+        assertSame(detalle, motor.detalle(10L).orElseThrow());
+        assertTrue(motor.detalle(99L).isEmpty());
+        motor.detalle(10L); // Se editó un producto: se vuelve a leer
+
+        verify(inventarioRepository, times(2)).findDetalleByProductoId(10L);
+    }
+
+    @Test
+    void eliminar_deberiaDarDeBajaElProductoTambienTrasReiniciar() {
+        when(inventarioRepository.count()).thenReturn(2L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 5)));
+        motor = arrancar();
+        motor.ajustar(10L, -5);
+
+        motor.eliminar(10L);
+
+        assertThrows(InventarioNoEncontradoException.class, () -> motor.ajustar(10L, 1));
+        assertEquals(MotorInventarioMemoria.SIN_INVENTARIO, motor.reservar(10L, -1));
+        assertNull(motor.cantidad(10L));
+        assertEquals(Map.of(20L, 5), motor.cantidades(List.of(10L, 20L)));
+        assertEquals(0, motor.espejar());
+
+        motor.stop();
+        motor = arrancar(); // El diario conserva la baja
+
+        assertNull(motor.cantidad(10L));
+        assertEquals(5, motor.cantidad(20L));
+        verify(inventarioRepository, never()).findCantidadByProductoId(10L);
+    }
+
+    @Test
+    void espejar_siFallaLaBase_deberiaReintentarEnLaSiguienteRonda() {
+        when(inventarioRepository.count()).thenReturn(1L);
+        when(inventarioRepository.findAllStock()).thenReturn(List.of(new StockDTO(10L, 50)));
+        when(inventarioRepository.establecerStockEnLote(anyList(), any(LocalDateTime.class)))
+                .thenThrow(new IllegalStateException("Sin conexión"))
+                .thenReturn(new int[]{1});
+        motor = arrancar();
+
+        motor.ajustar(10L, -1);
+        assertThrows(IllegalStateException.class, () -> motor.espejar());
+
+        assertEquals(1, motor.espejar());
+    }
+
+    private MotorInventarioMemoria arrancar() {
+        // Intervalos largos: las pruebas disparan la copia a la tabla a mano
+        MotorInventarioMemoria nuevo = new MotorInventarioMemoria(inventarioRepository, versionCatalogo, transactionManager,
+                directorio, DataSize.ofKilobytes(64), 1000, Duration.ofHours(1), Duration.ofHours(1));
+        nuevo.start();
+        return nuevo;
+    }
+}
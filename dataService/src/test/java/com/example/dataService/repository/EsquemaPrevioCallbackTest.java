@@ -0,0 +1,43 @@
+package com.example.dataService.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EsquemaPrevioCallbackTest {
+
+    @Test
+    void migrar_baseCreadaPorDdlAutoSinStockBajo_deberiaAgregarlaYCalcularla() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:ddl-auto-previo;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // Esquema que generaba ddl-auto=update antes de que Inventario tuviera stockBajo
+        jdbcTemplate.execute("CREATE TABLE categorias (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "nombre VARCHAR(100) NOT NULL, descripcion VARCHAR(500))");
+        jdbcTemplate.execute("CREATE TABLE productos (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "nombre VARCHAR(100) NOT NULL, descripcion VARCHAR(500), precio NUMERIC(10, 2) NOT NULL, categoria_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE inventario (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "producto_id BIGINT, cantidad INTEGER NOT NULL, stock_minimo INTEGER, fecha_actualizacion TIMESTAMP(6))");
+        jdbcTemplate.update("INSERT INTO productos (id, nombre, precio) VALUES (1, 'Mouse', 10), (2, 'Teclado', 20), (3, 'Cable', 5)");
+        jdbcTemplate.update("INSERT INTO inventario (producto_id, cantidad, stock_minimo) VALUES (1, 2, 5), (2, 50, 5), (3, 0, NULL)");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .callbacks(new EsquemaPrevioCallback())
+                .load()
+                .migrate();
+
+        List<Long> conStockBajo = jdbcTemplate.queryForList(
+                "SELECT producto_id FROM inventario WHERE stock_bajo ORDER BY producto_id", Long.class);
+        assertEquals(List.of(1L), conStockBajo);
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_INVENTARIO_STOCK_BAJO'", Integer.class));
+    }
+}
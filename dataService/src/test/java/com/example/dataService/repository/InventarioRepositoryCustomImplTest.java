@@ -0,0 +1,48 @@
+package com.example.dataService.repository;
+
+import com.example.dataService.dto.AjusteStockItem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventarioRepositoryCustomImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<AjusteStockItem> ajustes = List.of(new AjusteStockItem(1L, -5), new AjusteStockItem(2L, -5));
+
+    @Test
+    void ajustarStockEnLote_conConteosDelDriver_losDevuelveTalCual() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 0});
+
+        int[] filas = new InventarioRepositoryCustomImpl(jdbcTemplate).ajustarStockEnLote(ajustes, LocalDateTime.now());
+
+        assertArrayEquals(new int[]{1, 0}, filas);
+    }
+
+    @Test
+    void ajustarStockEnLote_sinConteoDelDriver_noDaElAjustePorAplicado() {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{1, Statement.SUCCESS_NO_INFO});
+
+        InventarioRepositoryCustomImpl repositorio = new InventarioRepositoryCustomImpl(jdbcTemplate);
+
+        assertThrows(IncorrectUpdateSemanticsDataAccessException.class,
+                () -> repositorio.ajustarStockEnLote(ajustes, LocalDateTime.now()));
+    }
+}
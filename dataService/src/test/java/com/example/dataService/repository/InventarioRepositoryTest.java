@@ -0,0 +1,85 @@
+package com.example.dataService.repository;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.entity.Categoria;
+import com.example.dataService.entity.Inventario;
+import com.example.dataService.entity.Producto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * stock_bajo es una columna generada (V6): estas pruebas comprueban sobre H2, con el esquema de las
+ * migraciones, que se mantiene al guardar la entidad y en los UPDATE de stock que no pasan por ella.
+ */
+@DataJpaTest
+class InventarioRepositoryTest {
+
+    @Autowired
+    private InventarioRepository inventarioRepository;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private CategoriaRepository categoriaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void guardar_deberiaCalcularElIndicadorDeStockBajo() {
+        Producto conStockBajo = crearProducto("Mouse", 10, 10);
+        Producto conStock = crearProducto("Teclado", 50, 10);
+        Producto sinMinimo = crearProducto("Cable", 0, null);
+
+        assertTrue(conStockBajo.getInventario().isStockBajo()); // Hibernate la vuelve a leer tras el INSERT
+        assertFalse(conStock.getInventario().isStockBajo());
+        assertFalse(sinMinimo.getInventario().isStockBajo()); // Sin mínimo no hay alerta
+        assertEquals(List.of(conStockBajo.getId()), inventarioRepository.findPaginaStockBajo(0L, Limit.of(10))
+                .stream().map(inventario -> inventario.getProducto().getId()).toList());
+    }
+
+    @Test
+    void ajustarStock_deberiaRecalcularElIndicadorEnLaBase() {
+        Long productoId = crearProducto("Mouse", 50, 10).getId();
+
+        inventarioRepository.ajustarStock(productoId, -40, LocalDateTime.now());
+        assertTrue(stockBajoEnBase(productoId));
+
+        inventarioRepository.ajustarStock(productoId, 1, LocalDateTime.now());
+        assertFalse(stockBajoEnBase(productoId));
+    }
+
+    @Test
+    void ajustarYEstablecerStockEnLote_deberianRecalcularElIndicadorEnLaBase() {
+        Long productoId = crearProducto("Mouse", 50, 10).getId();
+
+        inventarioRepository.ajustarStockEnLote(List.of(new AjusteStockItem(productoId, -45)), LocalDateTime.now());
+        assertTrue(stockBajoEnBase(productoId));
+
+        inventarioRepository.establecerStockEnLote(List.of(new StockDTO(productoId, 30)), LocalDateTime.now());
+        assertFalse(stockBajoEnBase(productoId));
+    }
+
+    private Producto crearProducto(String nombre, int cantidad, Integer stockMinimo) {
+        Categoria categoria = categoriaRepository.save(new Categoria(null, "Categoría " + nombre, null, new ArrayList<>()));
+        Producto producto = new Producto(null, nombre, null, BigDecimal.TEN, categoria, null);
+        producto.setInventario(new Inventario(null, producto, cantidad, stockMinimo, LocalDateTime.now()));
+        return productoRepository.saveAndFlush(producto);
+    }
+
+    private boolean stockBajoEnBase(Long productoId) {
+        return jdbcTemplate.queryForObject("SELECT stock_bajo FROM inventario WHERE producto_id = ?", Boolean.class, productoId);
+    }
+}
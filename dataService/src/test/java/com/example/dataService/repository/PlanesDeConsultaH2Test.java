@@ -0,0 +1,28 @@
+package com.example.dataService.repository;
+
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Planes de consulta sobre H2 con el esquema de las migraciones de Flyway (db/migration/h2).
+ * En H2 un recorrido completo aparece en el plan como {@code PUBLIC.TABLA.tableScan}, o como el nombre
+ * de un índice sin condición cuando recorre la tabla entera en el orden de ese índice.
+ */
+@DataJpaTest
+class PlanesDeConsultaH2Test extends PlanesDeConsultaTest {
+
+    private static final Pattern RECORRIDO_DE_INDICE = Pattern.compile("\\s*/\\* PUBLIC\\.\\w+ \\*/");
+
+    @Override
+    protected List<String> explicar(String sql, Object[] parametros) {
+        // H2 devuelve el plan en una sola fila; cada tabla tiene su línea con el acceso elegido
+        return List.of(jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parametros).split("\n"));
+    }
+
+    @Override
+    protected boolean esRecorridoCompleto(String lineaPlan) {
+        return lineaPlan.contains(".tableScan") || RECORRIDO_DE_INDICE.matcher(lineaPlan).matches();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.dataService.repository;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Planes de consulta sobre MySQL (Testcontainers) con el esquema de db/migration/mysql.
+ * Con tablas vacías el optimizador puede preferir recorrer la tabla aunque exista un índice, así que
+ * se fija max_seeks_for_key = 1 para que suponga cada búsqueda por índice barata: si aun así aparece
+ * un "Table scan" es porque ningún índice sirve. Se omite cuando no hay Docker disponible.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class PlanesDeConsultaMySqlTest extends PlanesDeConsultaTest {
+
+    @Container
+    @ServiceConnection
+    static MySQLContainer<?> mysql = new MySQLContainer<>(DockerImageName.parse("mysql:8.4"));
+
+    @Override
+    protected List<String> explicar(String sql, Object[] parametros) {
+        jdbcTemplate.execute("SET SESSION max_seeks_for_key = 1");
+        // FORMAT=TREE devuelve el plan como texto, una línea por operación
+        String plan = jdbcTemplate.queryForObject("EXPLAIN FORMAT=TREE " + sql, String.class, parametros);
+        return Arrays.asList(plan.split("\n"));
+    }
+
+    @Override
+    protected boolean esRecorridoCompleto(String lineaPlan) {
+        return lineaPlan.contains("Table scan");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dataService.repository;
+
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+/**
+ * Planes de consulta sobre PostgreSQL (Testcontainers) con el esquema de db/migration/postgresql.
+ * Con tablas vacías el planificador prefiere el Seq Scan aunque exista un índice, así que se
+ * desactiva enable_seqscan: si aun así aparece un Seq Scan es porque ningún índice sirve.
+ * Se omite cuando no hay Docker disponible.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class PlanesDeConsultaPostgresTest extends PlanesDeConsultaTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16"));
+
+    @Override
+    protected List<String> explicar(String sql, Object[] parametros) {
+        // SET LOCAL dura hasta el fin de la transacción de la prueba, que comparte la conexión con JdbcTemplate
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        return jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parametros);
+    }
+
+    @Override
+    protected boolean esRecorridoCompleto(String lineaPlan) {
+        return lineaPlan.contains("Seq Scan");
+    }
+}
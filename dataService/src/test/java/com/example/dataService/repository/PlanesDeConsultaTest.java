@@ -0,0 +1,94 @@
+package com.example.dataService.repository;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de regresión de planes de consulta: invoca los métodos de repositorio de las consultas
+ * calientes, captura las sentencias que ejecuta Hibernate con sus parámetros (ver {@link SentenciasCapturadas})
+ * y falla si el EXPLAIN de alguna muestra un recorrido completo de tabla (por ejemplo, porque una migración
+ * eliminó un índice o porque la consulta dejó de poder usarlo).
+ * Cada motor define cómo obtener el plan y cómo se ve un recorrido completo en él.
+ */
+@Import(SentenciasCapturadas.Configuracion.class)
+abstract class PlanesDeConsultaTest {
+
+    enum ConsultaCaliente {
+        INVENTARIO_POR_PRODUCTO("InventarioRepository.findByProductoId / findCantidadByProductoId", prueba -> {
+            prueba.inventarioRepository.findByProductoId(1L);
+            prueba.inventarioRepository.findCantidadByProductoId(1L);
+        }),
+        STOCK_POR_PRODUCTOS("InventarioRepository.findStockByProductoIds",
+                prueba -> prueba.inventarioRepository.findStockByProductoIds(List.of(1L, 2L, 3L))),
+        PAGINA_STOCK_BAJO("InventarioRepository.findPaginaStockBajo",
+                prueba -> prueba.inventarioRepository.findPaginaStockBajo(0L, Limit.of(100))),
+        PRODUCTOS_POR_NOMBRE_DE_CATEGORIA("ProductoRepository.findDTOsByCategoriaNombre",
+                prueba -> prueba.productoRepository.findDTOsByCategoriaNombre("Electrónica")),
+        PAGINA_DE_CATEGORIA_POR_ID("ProductoRepository.findPaginaDeCategoriaPorId",
+                prueba -> prueba.productoRepository.findPaginaDeCategoriaPorId(1L, 0L, Limit.of(50))),
+        PRIMERA_PAGINA_DE_CATEGORIA("ProductoRepository.findPrimeraPaginaDeCategoriaPorPrecio / PorNombre", prueba -> {
+            prueba.productoRepository.findPrimeraPaginaDeCategoriaPorPrecio(1L, Limit.of(50));
+            prueba.productoRepository.findPrimeraPaginaDeCategoriaPorNombre(1L, Limit.of(50));
+        }),
+        PAGINA_DE_CATEGORIA_POR_PRECIO("ProductoRepository.findPaginaDeCategoriaPorPrecio",
+                prueba -> prueba.productoRepository.findPaginaDeCategoriaPorPrecio(1L, BigDecimal.TEN, 0L, Limit.of(50))),
+        PAGINA_DE_CATEGORIA_POR_NOMBRE("ProductoRepository.findPaginaDeCategoriaPorNombre",
+                prueba -> prueba.productoRepository.findPaginaDeCategoriaPorNombre(1L, "M", 0L, Limit.of(50))),
+        PAGINA_POR_ID("ProductoRepository.findPaginaPorId",
+                prueba -> prueba.productoRepository.findPaginaPorId(0L, Limit.of(50))),
+        PAGINA_POR_PRECIO("ProductoRepository.findPaginaPorPrecio",
+                prueba -> prueba.productoRepository.findPaginaPorPrecio(BigDecimal.TEN, 0L, Limit.of(50))),
+        CATEGORIA_POR_NOMBRE("CategoriaRepository.findByNombre",
+                prueba -> prueba.categoriaRepository.findByNombre("Electrónica"));
+
+        final String metodo;
+        final Consumer<PlanesDeConsultaTest> invocacion;
+
+        ConsultaCaliente(String metodo, Consumer<PlanesDeConsultaTest> invocacion) {
+            this.metodo = metodo;
+            this.invocacion = invocacion;
+        }
+    }
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected InventarioRepository inventarioRepository;
+
+    @Autowired
+    protected ProductoRepository productoRepository;
+
+    @Autowired
+    protected CategoriaRepository categoriaRepository;
+
+    /** Devuelve las líneas del plan de ejecución de la sentencia. */
+    protected abstract List<String> explicar(String sql, Object[] parametros);
+
+    /** Indica si una línea del plan corresponde a un recorrido completo de una tabla. */
+    protected abstract boolean esRecorridoCompleto(String lineaPlan);
+
+    @ParameterizedTest(name = "{0}")
+    @EnumSource(ConsultaCaliente.class)
+    void consultaCaliente_noDeberiaRecorrerLaTablaCompleta(ConsultaCaliente consulta) {
+        List<SentenciasCapturadas.Sentencia> sentencias = SentenciasCapturadas.durante(() -> consulta.invocacion.accept(this));
+
+        assertFalse(sentencias.isEmpty(), () -> consulta.metodo + " no ejecutó ninguna sentencia");
+        for (SentenciasCapturadas.Sentencia sentencia : sentencias) {
+            List<String> plan = explicar(sentencia.sql(), sentencia.parametros().toArray());
+            assertTrue(plan.stream().noneMatch(this::esRecorridoCompleto),
+                    () -> consulta.metodo + " recorre la tabla completa:\n" + sentencia.sql() + "\n" + String.join("\n", plan));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.dataService.repository;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Registra las sentencias que ejecuta Hibernate, con sus parámetros, envolviendo el DataSource del
+ * contexto de prueba. Así las pruebas de planes explican el SQL que generan los repositorios y no
+ * una copia escrita a mano que podría dejar de coincidir.
+ */
+final class SentenciasCapturadas {
+
+    record Sentencia(String sql, List<Object> parametros) {
+    }
+
+    private static final ThreadLocal<List<Sentencia>> capturadas = new ThreadLocal<>();
+
+    private SentenciasCapturadas() {
+    }
+
+    /** Ejecuta la invocación y devuelve, en orden, las sentencias preparadas que ejecutó. */
+    static List<Sentencia> durante(Runnable invocacion) {
+        List<Sentencia> sentencias = new ArrayList<>();
+        capturadas.set(sentencias);
+        try {
+            invocacion.run();
+        } finally {
+            capturadas.remove();
+        }
+        return sentencias;
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class Configuracion {
+
+        @Bean
+        static BeanPostProcessor capturaDeSentencias() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource dataSource ? envolver(DataSource.class, (proxy, metodo, args) -> {
+                        Object resultado = invocar(dataSource, metodo, args);
+                        return resultado instanceof Connection conexion ? envolver(Connection.class, new Conexion(conexion)) : resultado;
+                    }) : bean;
+                }
+            };
+        }
+    }
+
+    private static <T> T envolver(Class<T> tipo, InvocationHandler handler) {
+        return tipo.cast(Proxy.newProxyInstance(SentenciasCapturadas.class.getClassLoader(), new Class<?>[]{tipo}, handler));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record Conexion(Connection destino) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            Object resultado = invocar(destino, metodo, args);
+            return metodo.getName().equals("prepareStatement")
+                    ? envolver(PreparedStatement.class, new Preparada((PreparedStatement) resultado, (String) args[0]))
+                    : resultado;
+        }
+    }
+
+    /** Anota los parámetros asignados y, al ejecutarse, la sentencia completa. */
+    private static final class Preparada implements InvocationHandler {
+
+        private final PreparedStatement destino;
+        private final String sql;
+        private final Map<Integer, Object> parametros = new TreeMap<>();
+
+        Preparada(PreparedStatement destino, String sql) {
+            this.destino = destino;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice) {
+                parametros.put(indice, nombre.equals("setNull") ? null : args[1]);
+            } else if (nombre.equals("clearParameters")) {
+                parametros.clear();
+            } else if (nombre.startsWith("execute") && (args == null || args.length == 0)) {
+                List<Sentencia> sentencias = capturadas.get();
+                if (sentencias != null) {
+                    sentencias.add(new Sentencia(sql, new ArrayList<>(parametros.values())));
+                }
+            }
+            return invocar(destino, metodo, args);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.dataService.service;
+
+import com.example.dataService.busqueda.MotorAnaliticoInventario;
+import com.example.dataService.dinero.Dinero;
+import com.example.dataService.dto.ValorBandaPrecioDTO;
+import com.example.dataService.exception.ValidacionNegocioException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnaliticaInventarioServiceTest {
+
+    @Mock
+    private MotorAnaliticoInventario motorAnalitico;
+
+    @InjectMocks
+    private AnaliticaInventarioService analiticaInventarioService;
+
+    @Test
+    void obtenerValoracionPorBandasDePrecio_sinLimites_deberiaPedirUnaUnicaBanda() {
+
+        ValorBandaPrecioDTO todo = new ValorBandaPrecioDTO(null, null, Dinero.deCentavos(1000), 1, 1, 0);
+        when(motorAnalitico.valoracionPorBandasDePrecio(List.of())).thenReturn(List.of(todo));
+
+        List<ValorBandaPrecioDTO> resultado = analiticaInventarioService.obtenerValoracionPorBandasDePrecio(null);
+
+        assertEquals(List.of(todo), resultado);
+    }
+
+    @Test
+    void obtenerValoracionPorBandasDePrecio_conLimiteNegativo_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> analiticaInventarioService
+                .obtenerValoracionPorBandasDePrecio(List.of(BigDecimal.TEN, new BigDecimal("-1"))));
+        assertThrows(ValidacionNegocioException.class, () -> analiticaInventarioService
+                .obtenerValoracionPorBandasDePrecio(Arrays.asList(BigDecimal.ONE, null)));
+        verifyNoInteractions(motorAnalitico);
+    }
+
+    @Test
+    void obtenerValoracionPorBandasDePrecio_conDemasiadosLimites_deberiaLanzarExcepcion() {
+
+        List<BigDecimal> limites = Stream.iterate(BigDecimal.ONE, l -> l.add(BigDecimal.ONE))
+                .limit(AnaliticaInventarioService.MAXIMO_LIMITES_DE_PRECIO + 1)
+                .toList();
+
+        assertThrows(ValidacionNegocioException.class,
+                () -> analiticaInventarioService.obtenerValoracionPorBandasDePrecio(limites));
+        verifyNoInteractions(motorAnalitico);
+    }
+}
@@ -29,6 +29,9 @@ class CategoriaServiceTest {
     @Mock
     private CategoriaRepository categoriaRepository;
 
+    @Mock
+    private VersionCatalogo versionCatalogo; // Las escrituras solo registran el cambio
+
     @InjectMocks
     private CategoriaService categoriaService;
 
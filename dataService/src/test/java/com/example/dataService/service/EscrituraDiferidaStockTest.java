@@ -0,0 +1,248 @@
+package com.example.dataService.service;
+
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.AjusteStockLoteResponse;
+import com.example.dataService.dto.EstadoAjusteStock;
+import com.example.dataService.dto.ResultadoAjusteStock;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.exception.InventarioNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.repository.InventarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EscrituraDiferidaStockTest {
+
+    @Mock
+    private InventarioRepository inventarioRepository;
+
+    @Mock
+    private VersionCatalogo versionCatalogo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<AjusteStockItem>> lote;
+
+    private EscrituraDiferidaStock escrituraDiferida;
+
+    @BeforeEach
+    void setUp() {
+        // Sin start(): las rondas de escritura se disparan a mano con escribirPendientes()
+        escrituraDiferida = new EscrituraDiferidaStock(inventarioRepository, versionCatalogo, transactionManager,
+                Duration.ofMillis(200), 500);
+    }
+
+    @Test
+    void ajustar_variasVeces_deberiaEscribirUnSoloDeltaPorProducto() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.findCantidadByProductoId(20L)).thenReturn(Optional.of(5));
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1, 1});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L, 20L)))
+                .thenReturn(List.of(new StockDTO(10L, 43), new StockDTO(20L, 8)));
+
+        assertEquals(3, escrituraDiferida.ajustar(20L, -2));
+        assertEquals(45, escrituraDiferida.ajustar(10L, -5));
+        assertEquals(43, escrituraDiferida.ajustar(10L, -2));
+        assertEquals(8, escrituraDiferida.ajustar(20L, 5));
+        int escritos = escrituraDiferida.escribirPendientes();
+
+        verify(inventarioRepository).ajustarStockEnLote(lote.capture(), any(LocalDateTime.class));
+        assertEquals(2, escritos);
+        assertEquals(List.of(new AjusteStockItem(10L, -7), new AjusteStockItem(20L, 3)), lote.getValue()); // Ordenados por producto
+        verify(inventarioRepository, times(1)).findCantidadByProductoId(10L); // El stock se lee una vez
+        verify(versionCatalogo, times(5)).registrarCambio(VersionCatalogo.Tabla.INVENTARIO); // Cada ajuste y la escritura
+    }
+
+    @Test
+    void ajustar_conStockInsuficiente_deberiaRechazarloSinAcumularlo() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+
+        escrituraDiferida.ajustar(10L, -40);
+        ValidacionNegocioException excepcion = assertThrows(ValidacionNegocioException.class,
+                () -> escrituraDiferida.ajustar(10L, -20));
+
+        assertTrue(excepcion.getMessage().contains("Stock actual: 10"));
+        assertEquals(0, escrituraDiferida.ajustar(10L, -10));
+    }
+
+    @Test
+    void ajustar_sinInventario_deberiaLanzarExcepcion() {
+        when(inventarioRepository.findCantidadByProductoId(99L)).thenReturn(Optional.empty());
+
+        assertThrows(InventarioNoEncontradoException.class, () -> escrituraDiferida.ajustar(99L, 5));
+        assertEquals(0, escrituraDiferida.escribirPendientes());
+    }
+
+    @Test
+    void escribirPendientes_siFallaLaBase_deberiaConservarLosDeltasParaLaSiguienteRonda() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class)))
+                .thenThrow(new DataAccessResourceFailureException("Sin conexión"))
+                .thenReturn(new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L))).thenReturn(List.of(new StockDTO(10L, 40)));
+
+        escrituraDiferida.ajustar(10L, -5);
+        assertThrows(DataAccessResourceFailureException.class, () -> escrituraDiferida.escribirPendientes());
+        escrituraDiferida.ajustar(10L, -5);
+        escrituraDiferida.escribirPendientes();
+
+        verify(inventarioRepository, times(2)).ajustarStockEnLote(lote.capture(), any(LocalDateTime.class));
+        assertEquals(List.of(new AjusteStockItem(10L, -10)), lote.getValue());
+    }
+
+    @Test
+    void escribirPendientes_conDeltaRechazado_deberiaConservarloYReintentarlo() {
+        // Otra vía dejó el stock en 3: la base rechaza el delta ya confirmado, que sigue pendiente
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{0}, new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L)))
+                .thenReturn(List.of(new StockDTO(10L, 3)), List.of(new StockDTO(10L, 8)));
+
+        escrituraDiferida.ajustar(10L, -5);
+        assertEquals(0, escrituraDiferida.escribirPendientes());
+
+        assertEquals(0, escrituraDiferida.cantidad(10L)); // 3 en base - 5 pendientes: se informa cero
+        assertThrows(ValidacionNegocioException.class, () -> escrituraDiferida.ajustar(10L, -1));
+        assertEquals(8, escrituraDiferida.ajustar(10L, 10)); // La reposición primero cubre lo vendido de más
+        assertEquals(1, escrituraDiferida.escribirPendientes());
+
+        verify(inventarioRepository, times(2)).ajustarStockEnLote(lote.capture(), any(LocalDateTime.class));
+        assertEquals(List.of(new AjusteStockItem(10L, 5)), lote.getValue()); // El delta rechazado más la reposición
+        assertEquals(8, escrituraDiferida.cantidad(10L));
+    }
+
+    @Test
+    void escribirPendientes_conDeltaDeProductoBorrado_deberiaRetirarlo() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50), Optional.empty());
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{0});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L))).thenReturn(List.of());
+
+        escrituraDiferida.ajustar(10L, -5);
+        escrituraDiferida.escribirPendientes();
+
+        assertNull(escrituraDiferida.cantidad(10L));
+        assertThrows(InventarioNoEncontradoException.class, () -> escrituraDiferida.ajustar(10L, -1));
+    }
+
+    @Test
+    void ajustarLote_todoONadaConFallo_deberiaDeshacerLosAjustesAplicados() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.findCantidadByProductoId(20L)).thenReturn(Optional.of(3));
+        when(inventarioRepository.findCantidadByProductoId(30L)).thenReturn(Optional.of(0));
+
+        AjusteStockLoteResponse respuesta = escrituraDiferida.ajustarLote(List.of(
+                new AjusteStockItem(30L, 4),
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(20L, -100)
+        ), true, "nodo-a", 3L);
+
+        assertFalse(respuesta.isConfirmado());
+        assertEquals(List.of(EstadoAjusteStock.REVERTIDO, EstadoAjusteStock.REVERTIDO, EstadoAjusteStock.STOCK_INSUFICIENTE),
+                respuesta.getResultados().stream().map(ResultadoAjusteStock::getEstado).toList());
+        assertEquals(50, escrituraDiferida.cantidad(10L));
+        assertEquals(0, escrituraDiferida.cantidad(30L)); // La reposición no llegó a aplicarse
+        assertEquals(7L, escrituraDiferida.ultimaSecuencia("nodo-a", 7L)); // La secuencia no avanza
+        assertEquals(0, escrituraDiferida.escribirPendientes());
+        verify(inventarioRepository, never()).ajustarStockEnLote(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void ajustarLote_todoONadaConReposicionFueraDeRango_deberiaRevertirSinHaberAplicadoLasDemas() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.findCantidadByProductoId(30L)).thenReturn(Optional.of(0));
+        when(inventarioRepository.findCantidadByProductoId(40L)).thenReturn(Optional.of(Integer.MAX_VALUE - 1));
+
+        AjusteStockLoteResponse respuesta = escrituraDiferida.ajustarLote(List.of(
+                new AjusteStockItem(30L, 4),
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(40L, 5)
+        ), true, null, 0);
+
+        assertFalse(respuesta.isConfirmado());
+        assertEquals(List.of(EstadoAjusteStock.REVERTIDO, EstadoAjusteStock.REVERTIDO, EstadoAjusteStock.STOCK_INSUFICIENTE),
+                respuesta.getResultados().stream().map(ResultadoAjusteStock::getEstado).toList());
+        assertEquals(0, escrituraDiferida.cantidad(30L)); // Nadie pudo llegar a vender la reposición
+        assertEquals(50, escrituraDiferida.cantidad(10L));
+        assertEquals(Integer.MAX_VALUE - 1, escrituraDiferida.cantidad(40L));
+        assertEquals(0, escrituraDiferida.escribirPendientes());
+    }
+
+    @Test
+    void ajustarLote_conOrigen_deberiaEscribirLaSecuenciaJuntoConLosDeltas() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.findCantidadByProductoId(99L)).thenReturn(Optional.empty());
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L))).thenReturn(List.of(new StockDTO(10L, 45)));
+        when(inventarioRepository.actualizarUltimaSecuencia("nodo-a", 12L)).thenReturn(0);
+
+        AjusteStockLoteResponse respuesta = escrituraDiferida.ajustarLote(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(99L, 1)
+        ), false, "nodo-a", 12L);
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(45, respuesta.getResultados().get(0).getStockActual());
+        assertEquals(EstadoAjusteStock.NO_ENCONTRADO, respuesta.getResultados().get(1).getEstado());
+        assertEquals(12L, escrituraDiferida.ultimaSecuencia("nodo-a", 10L)); // Todavía no está en la base
+
+        escrituraDiferida.escribirPendientes();
+
+        verify(inventarioRepository).registrarOrigen("nodo-a", 12L); // No estaba registrado: se inserta
+        assertEquals(10L, escrituraDiferida.ultimaSecuencia("nodo-a", 10L)); // Ya escrita: manda la base
+    }
+
+    @Test
+    void escribirPendientes_siFallaLaBase_deberiaConservarLaSecuenciaPendiente() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class)))
+                .thenThrow(new DataAccessResourceFailureException("Sin conexión"));
+
+        escrituraDiferida.ajustarLote(List.of(new AjusteStockItem(10L, -5)), false, "nodo-a", 4L);
+        assertThrows(DataAccessResourceFailureException.class, () -> escrituraDiferida.escribirPendientes());
+
+        assertEquals(4L, escrituraDiferida.ultimaSecuencia("nodo-a", 0L));
+        assertEquals(45, escrituraDiferida.cantidad(10L));
+    }
+
+    @Test
+    void escribirPendientes_sinAjustesDesdeLaRondaAnterior_deberiaVolverALeerElStock() {
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50), Optional.of(70));
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(List.of(10L))).thenReturn(List.of(new StockDTO(10L, 49)));
+
+        escrituraDiferida.ajustar(10L, -1);
+        escrituraDiferida.escribirPendientes(); // Escribe el delta
+        assertEquals(0, escrituraDiferida.escribirPendientes()); // Sin cambios: se quita de memoria
+
+        assertEquals(69, escrituraDiferida.ajustar(10L, -1));
+        verify(inventarioRepository, times(2)).findCantidadByProductoId(10L);
+    }
+
+    @Test
+    void empaquetar_deberiaConservarDisponibleYPendienteConSigno() {
+        long estado = EscrituraDiferidaStock.empaquetar(Integer.MAX_VALUE, -7);
+
+        assertEquals(Integer.MAX_VALUE, EscrituraDiferidaStock.disponible(estado));
+        assertEquals(-7, EscrituraDiferidaStock.pendiente(estado));
+    }
+}
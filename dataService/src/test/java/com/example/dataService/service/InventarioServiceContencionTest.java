@@ -0,0 +1,178 @@
+package com.example.dataService.service;
+
+import com.example.dataService.entity.Categoria;
+import com.example.dataService.entity.Inventario;
+import com.example.dataService.entity.Producto;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.repository.CategoriaRepository;
+import com.example.dataService.repository.InventarioRepository;
+import com.example.dataService.repository.ProductoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Contención: escritores concurrentes restan stock de un mismo producto "caliente". Verifica que el
+ * UPDATE condicional, y también la escritura diferida, no pierden actualizaciones ni dejan stock negativo.
+ * La medición de throughput con más carga lleva la etiqueta "benchmark" y no corre con la suite normal:
+ * se ejecuta con {@code mvn test -Dgroups=benchmark -DexcludedGroups=}.
+ */
+@Slf4j
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // Cada escritor usa su propia transacción
+class InventarioServiceContencionTest {
+
+    /** Escritores, operaciones de cada uno y stock inicial; el stock alcanza para parte de las operaciones. */
+    private record Carga(int escritores, int operacionesPorEscritor, int stockInicial) {
+        int operaciones() {
+            return escritores * operacionesPorEscritor;
+        }
+    }
+
+    private static final Carga CARGA_CORRECCION = new Carga(16, 25, 300);
+    private static final Carga CARGA_BENCHMARK = new Carga(64, 50, 2000);
+
+    @Autowired private InventarioRepository inventarioRepository;
+    @Autowired private ProductoRepository productoRepository;
+    @Autowired private CategoriaRepository categoriaRepository;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    void escritoresConcurrentesSobreUnProducto_noPierdenActualizaciones() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long productoId = tx.execute(status -> crearProductoCaliente("Promociones", CARGA_CORRECCION));
+        InventarioService inventarioService = new InventarioService(inventarioRepository, new VersionCatalogo(), null, null);
+
+        competir(inventarioService, productoId, CARGA_CORRECCION);
+
+        assertEquals(0, stockEnBase(productoId));
+    }
+
+    @Test
+    void escritoresConcurrentesConEscrituraDiferida_escribenTodoAlDetenerse() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long productoId = tx.execute(status -> crearProductoCaliente("Promociones diferidas", CARGA_CORRECCION));
+        VersionCatalogo versionCatalogo = new VersionCatalogo();
+        EscrituraDiferidaStock escrituraDiferida = new EscrituraDiferidaStock(
+                inventarioRepository, versionCatalogo, transactionManager, Duration.ofMillis(50), 500);
+        InventarioService inventarioService = new InventarioService(inventarioRepository, versionCatalogo, escrituraDiferida, null);
+
+        escrituraDiferida.start();
+        try {
+            competir(inventarioService, productoId, CARGA_CORRECCION);
+        } finally {
+            escrituraDiferida.stop();
+        }
+
+        assertEquals(0, stockEnBase(productoId));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void throughput_conYSinEscrituraDiferida() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long directo = tx.execute(status -> crearProductoCaliente("Benchmark directo", CARGA_BENCHMARK));
+        long nanosDirecto = competir(new InventarioService(inventarioRepository, new VersionCatalogo(), null, null),
+                directo, CARGA_BENCHMARK);
+
+        Long diferido = tx.execute(status -> crearProductoCaliente("Benchmark diferido", CARGA_BENCHMARK));
+        VersionCatalogo versionCatalogo = new VersionCatalogo();
+        EscrituraDiferidaStock escrituraDiferida = new EscrituraDiferidaStock(
+                inventarioRepository, versionCatalogo, transactionManager, Duration.ofMillis(50), 500);
+        long nanosDiferido;
+        escrituraDiferida.start();
+        try {
+            nanosDiferido = competir(new InventarioService(inventarioRepository, versionCatalogo, escrituraDiferida, null),
+                    diferido, CARGA_BENCHMARK);
+        } finally {
+            escrituraDiferida.stop();
+        }
+
+        log.info("Contención de {} escritores y {} operaciones: actualizarStock {} ops/s, con escritura diferida {} ops/s",
+                CARGA_BENCHMARK.escritores(), CARGA_BENCHMARK.operaciones(),
+                Math.round(opsPorSegundo(nanosDirecto)), Math.round(opsPorSegundo(nanosDiferido)));
+        assertEquals(0, stockEnBase(directo));
+        assertEquals(0, stockEnBase(diferido));
+    }
+
+    /**
+     * Lanza los escritores a la vez y verifica que se aplicaron exactamente stockInicial descuentos y se
+     * rechazó el resto. El stock en la base se verifica aparte: con escritura diferida solo es definitivo
+     * después de detenerla.
+     * @return Duración de la competencia en nanosegundos.
+     */
+    private long competir(InventarioService inventarioService, Long productoId, Carga carga) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger aplicadas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService escritores = Executors.newFixedThreadPool(carga.escritores());
+        List<Future<?>> tareas = new ArrayList<>();
+
+        for (int i = 0; i < carga.escritores(); i++) {
+            tareas.add(escritores.submit(() -> {
+                largada.await();
+                for (int op = 0; op < carga.operacionesPorEscritor(); op++) {
+                    try {
+                        tx.executeWithoutResult(status -> inventarioService.actualizarStock(productoId, -1));
+                        aplicadas.incrementAndGet();
+                    } catch (ValidacionNegocioException e) {
+                        rechazadas.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(2, TimeUnit.MINUTES);
+        }
+        long duracionNanos = System.nanoTime() - inicio;
+        escritores.shutdown();
+
+        assertEquals(carga.stockInicial(), aplicadas.get());
+        assertEquals(carga.operaciones() - carga.stockInicial(), rechazadas.get());
+        return duracionNanos;
+    }
+
+    private static double opsPorSegundo(long nanos) {
+        return CARGA_BENCHMARK.operaciones() / (nanos / 1_000_000_000.0);
+    }
+
+    private Integer stockEnBase(Long productoId) {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> inventarioRepository.findCantidadByProductoId(productoId).orElseThrow());
+    }
+
+    private Long crearProductoCaliente(String nombreCategoria, Carga carga) {
+        Categoria categoria = categoriaRepository.save(new Categoria(null, nombreCategoria, "Productos destacados", new ArrayList<>()));
+
+        Producto producto = new Producto(null, "Producto en oferta", "SKU caliente", new BigDecimal("9.99"), categoria, null);
+        Inventario inventario = new Inventario(null, producto, carga.stockInicial(), 10, LocalDateTime.now());
+        producto.setInventario(inventario);
+
+        return productoRepository.save(producto).getId();
+    }
+}
@@ -1,18 +1,31 @@
 package com.example.dataService.service;
 
+import com.example.dataService.dto.AjusteStockItem;
+import com.example.dataService.dto.AjusteStockLoteRequest;
+import com.example.dataService.dto.AjusteStockLoteResponse;
+import com.example.dataService.dto.EstadoAjusteStock;
 import com.example.dataService.dto.InventarioDTO;
+import com.example.dataService.dto.PaginaDTO;
+import com.example.dataService.dto.ResultadoAjusteStock;
+import com.example.dataService.dto.StockDTO;
+import com.example.dataService.dto.ValorCategoriaDTO;
+import com.example.dataService.dto.ValoracionInventarioDTO;
 import com.example.dataService.entity.Categoria;
 import com.example.dataService.entity.Inventario;
 import com.example.dataService.entity.Producto;
 import com.example.dataService.exception.InventarioNoEncontradoException;
 import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.memoria.MotorInventarioMemoria;
 import com.example.dataService.repository.InventarioRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,6 +35,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +44,12 @@ class InventarioServiceTest {
     @Mock
     private InventarioRepository inventarioRepository;
 
+    @Mock
+    private VersionCatalogo versionCatalogo; // Las escrituras solo registran el cambio
+
+    @Mock
+    private EscrituraDiferidaStock escrituraDiferida; // Detenida (isRunning() == false) salvo que la prueba diga otra cosa
+
     @InjectMocks
     private InventarioService inventarioService;
 
@@ -49,7 +69,7 @@ class InventarioServiceTest {
     @Test
     void obtenerInventarioPorProductoId_cuandoExiste_deberiaDevolverDTO() {
 
-        when(inventarioRepository.findByProductoId(10L)).thenReturn(Optional.of(inventario));
+        when(inventarioRepository.findDetalleByProductoId(10L)).thenReturn(Optional.of(inventario));
 
         InventarioDTO resultado = inventarioService.obtenerInventarioPorProductoId(10L);
 
@@ -61,64 +81,455 @@ class InventarioServiceTest {
     @Test
     void obtenerInventarioPorProductoId_cuandoNoExiste_deberiaLanzarExcepcion() {
 
-        when(inventarioRepository.findByProductoId(99L)).thenReturn(Optional.empty());
+        when(inventarioRepository.findDetalleByProductoId(99L)).thenReturn(Optional.empty());
 
         assertThrows(InventarioNoEncontradoException.class, () -> {
             inventarioService.obtenerInventarioPorProductoId(99L);
         });
     }
 
+    @Test
+    void obtenerInventariosPorProductoIds_deberiaResolverTodosConUnaConsulta() {
+
+        when(inventarioRepository.findDetalleByProductoIds(any())).thenReturn(List.of(inventario));
+
+        List<InventarioDTO> resultado = inventarioService.obtenerInventariosPorProductoIds(List.of(10L, 99L));
+
+        assertEquals(1, resultado.size());
+        assertEquals("Laptop", resultado.get(0).getProducto().getNombre());
+        verify(inventarioRepository, times(1)).findDetalleByProductoIds(any());
+    }
+
+    @Test
+    void obtenerCantidadPorProductoId_deberiaLeerSoloLaCantidad() {
+
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(100));
+
+        StockDTO resultado = inventarioService.obtenerCantidadPorProductoId(10L);
+
+        assertEquals(10L, resultado.getProductoId());
+        assertEquals(100, resultado.getCantidad());
+        verify(inventarioRepository, never()).findDetalleByProductoId(anyLong());
+    }
+
+    @Test
+    void obtenerCantidadPorProductoId_conEscrituraDiferida_deberiaIncluirLoPendiente() {
+
+        when(escrituraDiferida.isRunning()).thenReturn(true);
+        when(escrituraDiferida.cantidad(10L)).thenReturn(42);
+
+        StockDTO resultado = inventarioService.obtenerCantidadPorProductoId(10L);
+
+        assertEquals(42, resultado.getCantidad());
+        verify(inventarioRepository, never()).findCantidadByProductoId(anyLong());
+    }
+
+    @Test
+    void obtenerCantidadesPorProductoIds_conEscrituraDiferida_deberiaCombinarBaseYPendientes() {
+
+        when(escrituraDiferida.isRunning()).thenReturn(true);
+        when(inventarioRepository.findStockByProductoIds(anyCollection()))
+                .thenReturn(List.of(new StockDTO(10L, 50), new StockDTO(20L, 3)));
+        when(escrituraDiferida.cantidad(10L)).thenReturn(42);
+        when(escrituraDiferida.cantidad(20L)).thenReturn(null); // Sin ajustes pendientes: manda la base
+
+        List<StockDTO> resultado = inventarioService.obtenerCantidadesPorProductoIds(List.of(10L, 20L));
+
+        assertEquals(List.of(new StockDTO(10L, 42), new StockDTO(20L, 3)), resultado);
+    }
+
+    @Test
+    void obtenerCantidadPorProductoId_cuandoNoExiste_deberiaLanzarExcepcion() {
+
+        when(inventarioRepository.findCantidadByProductoId(99L)).thenReturn(Optional.empty());
+
+        assertThrows(InventarioNoEncontradoException.class, () -> {
+            inventarioService.obtenerCantidadPorProductoId(99L);
+        });
+    }
+
+    @Test
+    void obtenerValoracionInventario_deberiaSumarLosAgregadosPorCategoria() {
+
+        when(inventarioRepository.findValoracionPorCategoria()).thenReturn(List.of(
+                new ValorCategoriaDTO(1L, "Electrónica", new BigDecimal("60000.00"), 2L, 1L),
+                new ValorCategoriaDTO(2L, "Hogar", null, 1L, 0L))); // Categoría sin inventario
+
+        ValoracionInventarioDTO resultado = inventarioService.obtenerValoracionInventario();
+
+        assertEquals(new BigDecimal("60000.00"), resultado.getValorTotal());
+        assertEquals(3, resultado.getProductos());
+        assertEquals(1, resultado.getProductosStockBajo());
+        assertEquals(BigDecimal.ZERO, resultado.getCategorias().get(1).getValorTotal());
+        verify(inventarioRepository, never()).findAll();
+    }
+
     @Test
     void obtenerProductosConStockBajo_deberiaDevolverListaCorrecta() {
 
         inventario.setCantidad(5); // Ajustar para que cumpla la condición de stock bajo
-        when(inventarioRepository.findByStockBajo()).thenReturn(List.of(inventario));
+        when(inventarioRepository.findPaginaStockBajo(eq(0L), any())).thenReturn(List.of(inventario));
 
-        List<InventarioDTO> resultado = inventarioService.obtenerProductosConStockBajo();
+        PaginaDTO<InventarioDTO> resultado = inventarioService.obtenerProductosConStockBajo(null, 10);
 
         assertNotNull(resultado);
-        assertEquals(1, resultado.size());
-        assertTrue(resultado.get(0).getProducto().getStockBajo());
+        assertEquals(1, resultado.getContenido().size());
+        assertTrue(resultado.getContenido().get(0).getProducto().getStockBajo());
+        assertNull(resultado.getSiguienteCursor());
     }
 
     @Test
-    void actualizarStock_agregandoUnidades_deberiaSumarCorrectamente() {
+    void obtenerProductosConStockBajo_conMasResultados_deberiaDevolverCursorDelUltimoProducto() {
 
-        when(inventarioRepository.findByProductoId(10L)).thenReturn(Optional.of(inventario));
-        when(inventarioRepository.save(any(Inventario.class))).thenReturn(inventario);
-        int cantidadOriginal = inventario.getCantidad(); // 50
-        int cantidadAAgregar = 20;
+        Producto otro = new Producto(11L, "Mouse", "Óptico", BigDecimal.TEN, categoria, null);
+        Inventario otroInventario = new Inventario(101L, otro, 1, 5, LocalDateTime.now());
+        otro.setInventario(otroInventario);
+        when(inventarioRepository.findPaginaStockBajo(eq(0L), any())).thenReturn(List.of(inventario, otroInventario));
 
-        InventarioDTO resultado = inventarioService.actualizarStock(10L, cantidadAAgregar);
+        PaginaDTO<InventarioDTO> primera = inventarioService.obtenerProductosConStockBajo(null, 1);
+
+        assertEquals(1, primera.getContenido().size());
+        assertNotNull(primera.getSiguienteCursor());
+
+        when(inventarioRepository.findPaginaStockBajo(eq(10L), any())).thenReturn(List.of(otroInventario));
+        PaginaDTO<InventarioDTO> segunda = inventarioService.obtenerProductosConStockBajo(primera.getSiguienteCursor(), 1);
+
+        assertEquals(11L, segunda.getContenido().get(0).getProducto().getId());
+        assertNull(segunda.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerProductosConStockBajo_conLimiteInvalido_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> inventarioService.obtenerProductosConStockBajo(null, 0));
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void actualizarStock_agregandoUnidades_deberiaAplicarUpdateCondicional() {
+
+        when(inventarioRepository.ajustarStock(eq(10L), eq(20), any(LocalDateTime.class))).thenReturn(1);
+        inventario.setCantidad(70); // Estado que devuelve la base de datos tras el UPDATE
+        when(inventarioRepository.findDetalleByProductoId(10L)).thenReturn(Optional.of(inventario));
+
+        InventarioDTO resultado = inventarioService.actualizarStock(10L, 20);
 
         assertNotNull(resultado);
-        assertEquals(cantidadOriginal + cantidadAAgregar, resultado.getCantidad());
-        verify(inventarioRepository, times(1)).save(inventario);
+        assertEquals(70, resultado.getCantidad());
+        verify(inventarioRepository, never()).save(any());
     }
 
     @Test
     void actualizarStock_restandoUnidades_deberiaRestarCorrectamente() {
 
-        when(inventarioRepository.findByProductoId(10L)).thenReturn(Optional.of(inventario));
-        when(inventarioRepository.save(any(Inventario.class))).thenReturn(inventario);
-        int cantidadOriginal = inventario.getCantidad(); // 50
-        int cantidadARestar = -30;
+        when(inventarioRepository.ajustarStock(eq(10L), eq(-30), any(LocalDateTime.class))).thenReturn(1);
+        inventario.setCantidad(20);
+        when(inventarioRepository.findDetalleByProductoId(10L)).thenReturn(Optional.of(inventario));
 
-        InventarioDTO resultado = inventarioService.actualizarStock(10L, cantidadARestar);
+        InventarioDTO resultado = inventarioService.actualizarStock(10L, -30);
 
         assertNotNull(resultado);
-        assertEquals(cantidadOriginal + cantidadARestar, resultado.getCantidad());
+        assertEquals(20, resultado.getCantidad());
     }
 
     @Test
     void actualizarStock_conStockInsuficiente_deberiaLanzarExcepcion() {
 
-        when(inventarioRepository.findByProductoId(10L)).thenReturn(Optional.of(inventario));
-        int cantidadARestar = -60; // Más que el stock actual de 50
+        // El UPDATE condicional no afecta filas y el inventario existe -> stock insuficiente
+        when(inventarioRepository.ajustarStock(eq(10L), eq(-60), any(LocalDateTime.class))).thenReturn(0);
+        when(inventarioRepository.findCantidadByProductoId(10L)).thenReturn(Optional.of(50));
 
         assertThrows(ValidacionNegocioException.class, () -> {
-            inventarioService.actualizarStock(10L, cantidadARestar);
+            inventarioService.actualizarStock(10L, -60);
         });
-        verify(inventarioRepository, never()).save(any());
+        verify(inventarioRepository, never()).findDetalleByProductoId(anyLong());
+    }
+
+    @Test
+    void actualizarStock_cuandoNoExisteInventario_deberiaLanzarExcepcion() {
+
+        when(inventarioRepository.ajustarStock(eq(99L), eq(5), any(LocalDateTime.class))).thenReturn(0);
+        when(inventarioRepository.findCantidadByProductoId(99L)).thenReturn(Optional.empty());
+
+        assertThrows(InventarioNoEncontradoException.class, () -> {
+            inventarioService.actualizarStock(99L, 5);
+        });
+    }
+
+    @Test
+    void actualizarStock_conEscrituraDiferida_deberiaAcumularSinActualizarLaFila() {
+
+        when(escrituraDiferida.isRunning()).thenReturn(true);
+        when(escrituraDiferida.ajustar(10L, -45)).thenReturn(5);
+        when(inventarioRepository.findDetalleByProductoId(10L)).thenReturn(Optional.of(inventario));
+
+        InventarioDTO resultado = inventarioService.actualizarStock(10L, -45);
+
+        assertEquals(5, resultado.getCantidad());
+        assertTrue(resultado.getProducto().getStockBajo());
+        assertEquals(50, inventario.getCantidad()); // La entidad no se modifica
+        verify(inventarioRepository, never()).ajustarStock(anyLong(), anyInt(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void actualizarStock_enMemoria_deberiaArmarElDTOSinConsultarLaBase() {
+
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        InventarioService servicioEnMemoria = new InventarioService(inventarioRepository, versionCatalogo, null, motorMemoria);
+        when(motorMemoria.ajustar(10L, -45)).thenReturn(5);
+        when(motorMemoria.detalle(10L)).thenReturn(Optional.of(new MotorInventarioMemoria.DetalleInventario(
+                100L, 10L, "Laptop", "Core i7", BigDecimal.valueOf(1200), "Electrónica", 10)));
+
+        InventarioDTO resultado = servicioEnMemoria.actualizarStock(10L, -45);
+
+        assertEquals(100L, resultado.getId());
+        assertEquals(5, resultado.getCantidad());
+        assertEquals("Electrónica", resultado.getProducto().getCategoriaNombre());
+        assertTrue(resultado.getProducto().getStockBajo());
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void ajustarStockEnLote_deberiaInformarResultadoPorAjusteEnElOrdenRecibido() {
+
+        // Se envían desordenados: el servicio los ejecuta ordenados por producto y reordena las respuestas
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(20L, -100),
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(30L, 1)
+        ), false);
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1, 0, 0});
+        when(inventarioRepository.findStockByProductoIds(anyCollection()))
+                .thenReturn(List.of(new StockDTO(10L, 45), new StockDTO(20L, 3)));
+
+        AjusteStockLoteResponse respuesta = inventarioService.ajustarStockEnLote(request);
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(EstadoAjusteStock.STOCK_INSUFICIENTE, respuesta.getResultados().get(0).getEstado());
+        assertEquals(EstadoAjusteStock.APLICADO, respuesta.getResultados().get(1).getEstado());
+        assertEquals(45, respuesta.getResultados().get(1).getStockActual());
+        assertEquals(EstadoAjusteStock.NO_ENCONTRADO, respuesta.getResultados().get(2).getEstado());
+    }
+
+    @Test
+    void ajustarStockEnLote_todoONadaConFallo_deberiaRevertirLaTransaccion() {
+
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(20L, -100)
+        ), true);
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1, 0});
+        when(inventarioRepository.findStockByProductoIds(anyCollection()))
+                .thenReturn(List.of(new StockDTO(10L, 45), new StockDTO(20L, 3)));
+        TransactionStatus status = mock(TransactionStatus.class);
+
+        AjusteStockLoteResponse respuesta;
+        try (MockedStatic<TransactionAspectSupport> tx = mockStatic(TransactionAspectSupport.class)) {
+            tx.when(TransactionAspectSupport::currentTransactionStatus).thenReturn(status);
+            respuesta = inventarioService.ajustarStockEnLote(request);
+        }
+
+        verify(status).setRollbackOnly();
+        assertFalse(respuesta.isConfirmado());
+        assertEquals(EstadoAjusteStock.REVERTIDO, respuesta.getResultados().get(0).getEstado());
+        assertEquals(EstadoAjusteStock.STOCK_INSUFICIENTE, respuesta.getResultados().get(1).getEstado());
+        assertNull(respuesta.getResultados().get(0).getStockActual());
+    }
+
+    @Test
+    void ajustarStockEnLote_enMemoriaTodoONadaConFallo_deberiaLiberarLasReservasSinAplicarReposiciones() {
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        InventarioService servicioEnMemoria = new InventarioService(inventarioRepository, versionCatalogo, null, motorMemoria);
+        when(motorMemoria.reservar(10L, -5)).thenReturn(45);
+        when(motorMemoria.cantidad(30L)).thenReturn(8);
+        when(motorMemoria.reservar(20L, -100)).thenReturn(MotorInventarioMemoria.SIN_STOCK);
+
+        AjusteStockLoteResponse respuesta = servicioEnMemoria.ajustarStockEnLote(new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(30L, 4),
+                new AjusteStockItem(20L, -100)
+        ), true));
+
+        assertFalse(respuesta.isConfirmado());
+        assertEquals(EstadoAjusteStock.REVERTIDO, respuesta.getResultados().get(0).getEstado());
+        assertEquals(EstadoAjusteStock.REVERTIDO, respuesta.getResultados().get(1).getEstado());
+        assertEquals(EstadoAjusteStock.STOCK_INSUFICIENTE, respuesta.getResultados().get(2).getEstado());
+        // La reposición nunca se aplicó, así que no hay nada que deshacer que pueda fallar
+        verify(motorMemoria).liberar(10L, -5);
+        verify(motorMemoria, never()).intentarAjustar(anyLong(), anyInt());
+        verify(motorMemoria, never()).confirmarAlTerminar(anyList(), anyList());
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void ajustarStockEnLote_enMemoria_deberiaConfirmarAlTerminarLaTransaccion() {
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        InventarioService servicioEnMemoria = new InventarioService(inventarioRepository, versionCatalogo, null, motorMemoria);
+        when(motorMemoria.reservar(10L, -5)).thenReturn(45);
+        when(motorMemoria.cantidad(10L)).thenReturn(45);
+        when(motorMemoria.cantidad(30L)).thenReturn(8);
+
+        AjusteStockLoteResponse respuesta = servicioEnMemoria.ajustarStockEnLote(new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(30L, 4)
+        ), true));
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(45, respuesta.getResultados().get(0).getStockActual());
+        assertEquals(12, respuesta.getResultados().get(1).getStockActual());
+        verify(motorMemoria).confirmarAlTerminar(List.of(new AjusteStockItem(10L, -5)), List.of(new AjusteStockItem(30L, 4)));
+        verify(motorMemoria, never()).intentarAjustar(anyLong(), anyInt());
+    }
+
+    @Test
+    void ajustarStockEnLote_reenvioConOrigen_deberiaAplicarSoloLasSecuenciasNuevas() {
+
+        // El origen ya aplicó hasta la secuencia 11: el lote 10..12 solo trae nueva la 12
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -1),
+                new AjusteStockItem(20L, -2),
+                new AjusteStockItem(30L, -3)
+        ), false, "nodo-a", 10L);
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-a")).thenReturn(Optional.of(11L));
+        when(inventarioRepository.ajustarStockEnLote(eq(List.of(new AjusteStockItem(30L, -3))), any(LocalDateTime.class)))
+                .thenReturn(new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(List.of(30L))).thenReturn(List.of(new StockDTO(30L, 7)));
+
+        AjusteStockLoteResponse respuesta = inventarioService.ajustarStockEnLote(request);
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(List.of(EstadoAjusteStock.DUPLICADO, EstadoAjusteStock.DUPLICADO, EstadoAjusteStock.APLICADO),
+                respuesta.getResultados().stream().map(ResultadoAjusteStock::getEstado).toList());
+        assertEquals(7, respuesta.getResultados().get(2).getStockActual());
+        verify(inventarioRepository).actualizarUltimaSecuencia("nodo-a", 12L);
+        verify(inventarioRepository, never()).registrarOrigen(anyString(), anyLong());
+    }
+
+    @Test
+    void ajustarStockEnLote_conOrigenNuevo_deberiaRegistrarloConSuUltimaSecuencia() {
+
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-b")).thenReturn(Optional.empty());
+        when(inventarioRepository.ajustarStockEnLote(anyList(), any(LocalDateTime.class))).thenReturn(new int[]{1});
+        when(inventarioRepository.findStockByProductoIds(anyCollection())).thenReturn(List.of(new StockDTO(10L, 49)));
+
+        AjusteStockLoteResponse respuesta = inventarioService.ajustarStockEnLote(
+                new AjusteStockLoteRequest(List.of(new AjusteStockItem(10L, -1)), false, "nodo-b", 1L));
+
+        assertEquals(EstadoAjusteStock.APLICADO, respuesta.getResultados().get(0).getEstado());
+        verify(inventarioRepository).registrarOrigen("nodo-b", 0);
+        verify(inventarioRepository).actualizarUltimaSecuencia("nodo-b", 1L);
+    }
+
+    @Test
+    void ajustarStockEnLote_conEscrituraDiferida_deberiaAplicarloEnMemoria() {
+
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(new AjusteStockItem(10L, -5)), true);
+        AjusteStockLoteResponse aplicado = new AjusteStockLoteResponse(true, List.of(
+                new ResultadoAjusteStock(10L, -5, EstadoAjusteStock.APLICADO, 45)));
+        when(escrituraDiferida.isRunning()).thenReturn(true);
+        when(escrituraDiferida.ajustarLote(request.getAjustes(), true, null, 0)).thenReturn(aplicado);
+
+        assertSame(aplicado, inventarioService.ajustarStockEnLote(request));
+        verify(inventarioRepository, never()).ajustarStockEnLote(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void ajustarStockEnLote_reenvioConEscrituraDiferida_deberiaUsarLaSecuenciaPendiente() {
+
+        // La base dice 9, pero la escritura diferida ya aceptó hasta la 11 sin escribirla
+        AjusteStockLoteRequest request = new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -1),
+                new AjusteStockItem(20L, -2),
+                new AjusteStockItem(30L, -3)
+        ), false, "nodo-a", 10L);
+        when(escrituraDiferida.isRunning()).thenReturn(true);
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-a")).thenReturn(Optional.of(9L));
+        when(escrituraDiferida.ultimaSecuencia("nodo-a", 9L)).thenReturn(11L);
+        when(escrituraDiferida.ajustarLote(List.of(new AjusteStockItem(30L, -3)), false, "nodo-a", 12L))
+                .thenReturn(new AjusteStockLoteResponse(true, List.of(
+                        new ResultadoAjusteStock(30L, -3, EstadoAjusteStock.APLICADO, 7))));
+
+        AjusteStockLoteResponse respuesta = inventarioService.ajustarStockEnLote(request);
+
+        assertEquals(List.of(EstadoAjusteStock.DUPLICADO, EstadoAjusteStock.DUPLICADO, EstadoAjusteStock.APLICADO),
+                respuesta.getResultados().stream().map(ResultadoAjusteStock::getEstado).toList());
+        verify(inventarioRepository, never()).actualizarUltimaSecuencia(anyString(), anyLong()); // La escribe la ronda diferida
+        verify(inventarioRepository, never()).ajustarStockEnLote(anyList(), any(LocalDateTime.class));
+    }
+
+    @Test
+    void ajustarStockEnLote_conOrigenEnMemoria_deberiaReservarHastaElCommit() {
+
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        InventarioService servicioEnMemoria = new InventarioService(inventarioRepository, versionCatalogo, null, motorMemoria);
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-a")).thenReturn(Optional.of(3L));
+        when(motorMemoria.reservar(10L, -5)).thenReturn(45);
+        when(motorMemoria.cantidad(20L)).thenReturn(7);
+        when(motorMemoria.cantidad(10L)).thenReturn(45);
+
+        AjusteStockLoteResponse respuesta = servicioEnMemoria.ajustarStockEnLote(new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(20L, 2)
+        ), true, "nodo-a", 4L));
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(45, respuesta.getResultados().get(0).getStockActual());
+        assertEquals(9, respuesta.getResultados().get(1).getStockActual()); // Cuenta la reposición pendiente del commit
+        verify(motorMemoria).confirmarAlTerminar(List.of(new AjusteStockItem(10L, -5)), List.of(new AjusteStockItem(20L, 2)));
+        verify(motorMemoria, never()).intentarAjustar(anyLong(), anyInt());
+        verify(inventarioRepository).actualizarUltimaSecuencia("nodo-a", 5L);
+    }
+
+    @Test
+    void ajustarStockEnLote_conOrigenEnMemoriaTodoONadaConFallo_deberiaLiberarLasReservas() {
+
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        InventarioService servicioEnMemoria = new InventarioService(inventarioRepository, versionCatalogo, null, motorMemoria);
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-a")).thenReturn(Optional.of(3L));
+        when(motorMemoria.reservar(10L, -5)).thenReturn(45);
+        when(motorMemoria.reservar(20L, -100)).thenReturn(MotorInventarioMemoria.SIN_STOCK);
+
+        AjusteStockLoteResponse respuesta = servicioEnMemoria.ajustarStockEnLote(new AjusteStockLoteRequest(List.of(
+                new AjusteStockItem(10L, -5),
+                new AjusteStockItem(20L, -100)
+        ), true, "nodo-a", 4L));
+
+        assertFalse(respuesta.isConfirmado());
+        assertEquals(List.of(EstadoAjusteStock.REVERTIDO, EstadoAjusteStock.STOCK_INSUFICIENTE),
+                respuesta.getResultados().stream().map(ResultadoAjusteStock::getEstado).toList());
+        verify(motorMemoria).liberar(10L, -5);
+        verify(motorMemoria, never()).confirmarAlTerminar(anyList(), anyList());
+        verify(inventarioRepository, never()).actualizarUltimaSecuencia(anyString(), anyLong());
+    }
+
+    @Test
+    void ajustarStockEnLote_reenvioCompleto_noDeberiaTocarElInventario() {
+
+        when(inventarioRepository.bloquearUltimaSecuencia("nodo-b")).thenReturn(Optional.of(5L));
+
+        AjusteStockLoteResponse respuesta = inventarioService.ajustarStockEnLote(
+                new AjusteStockLoteRequest(List.of(new AjusteStockItem(10L, -1)), false, "nodo-b", 5L));
+
+        assertTrue(respuesta.isConfirmado());
+        assertEquals(EstadoAjusteStock.DUPLICADO, respuesta.getResultados().get(0).getEstado());
+        verify(inventarioRepository, never()).ajustarStockEnLote(anyList(), any(LocalDateTime.class));
+        verify(inventarioRepository, never()).actualizarUltimaSecuencia(anyString(), anyLong());
+    }
+
+    @Test
+    void ajustarStockEnLote_conOrigenSinSecuencia_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> inventarioService.ajustarStockEnLote(
+                new AjusteStockLoteRequest(List.of(new AjusteStockItem(10L, -1)), false, "nodo-a", null)));
+        verifyNoInteractions(inventarioRepository);
+    }
+
+    @Test
+    void ajustarStockEnLote_conLoteVacio_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            inventarioService.ajustarStockEnLote(new AjusteStockLoteRequest(List.of(), false));
+        });
+        verifyNoInteractions(inventarioRepository);
     }
 }
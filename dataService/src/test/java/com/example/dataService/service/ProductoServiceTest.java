@@ -1,12 +1,21 @@
 package com.example.dataService.service;
 
+import com.example.dataService.busqueda.CatalogoColumnar;
+import com.example.dataService.busqueda.IndiceBusquedaProductos;
+import com.example.dataService.busqueda.IndiceFacetasProductos;
+import com.example.dataService.dto.FilaCatalogoDTO;
+import com.example.dataService.dto.PaginaDTO;
 import com.example.dataService.dto.ProductoDTO;
 import com.example.dataService.dto.ProductoRequest;
+import com.example.dataService.dto.ResultadoBusquedaDTO;
+import com.example.dataService.dto.ResultadoFiltroDTO;
 import com.example.dataService.entity.Categoria;
 import com.example.dataService.entity.Inventario;
 import com.example.dataService.entity.Producto;
 import com.example.dataService.exception.CategoriaNoEncontradaException;
 import com.example.dataService.exception.ProductoNoEncontradoException;
+import com.example.dataService.exception.ValidacionNegocioException;
+import com.example.dataService.memoria.MotorInventarioMemoria;
 import com.example.dataService.repository.CategoriaRepository;
 import com.example.dataService.repository.ProductoRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,14 +25,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,10 +47,20 @@ class ProductoServiceTest {
     @Mock
     private CategoriaRepository categoriaRepository;
 
+    @Mock
+    private VersionCatalogo versionCatalogo; // Las escrituras solo registran el cambio
+
+    @Mock
+    private IndiceBusquedaProductos indiceBusqueda;
+
+    @Mock
+    private IndiceFacetasProductos indiceFacetas;
+
     @InjectMocks
     private ProductoService productoService;
 
     private Producto producto;
+    private ProductoDTO productoDTO;
     private Categoria categoria;
     private ProductoRequest productoRequest;
 
@@ -48,13 +71,15 @@ class ProductoServiceTest {
         Inventario inventario = new Inventario(100L, producto, 20, 5, null);
         producto.setInventario(inventario);
 
+        productoDTO = new ProductoDTO(10L, "Mouse", "Inalámbrico", BigDecimal.valueOf(50), "Electrónica", 20, false);
+
         productoRequest = new ProductoRequest("Mouse", "Inalámbrico", BigDecimal.valueOf(50), 1L, 20, 5);
     }
 
     @Test
     void obtenerTodosLosProductos_deberiaDevolverListaDTO() {
 
-        when(productoRepository.findAll()).thenReturn(List.of(producto));
+        when(productoRepository.findAllDTO()).thenReturn(List.of(productoDTO));
 
         List<ProductoDTO> resultado = productoService.obtenerTodosLosProductos();
 
@@ -63,10 +88,41 @@ class ProductoServiceTest {
         assertEquals("Mouse", resultado.get(0).getNombre());
     }
 
+    @Test
+    void obtenerPaginaProductos_cuandoHayMasResultados_deberiaDevolverCursorSiguiente() {
+
+        ProductoDTO otro = new ProductoDTO(11L, "Teclado", "Mecánico", BigDecimal.valueOf(80), "Electrónica", 3, true);
+        // Se piden limite + 1 filas para detectar si existe una página siguiente
+        when(productoRepository.findPaginaPorId(eq(0L), any(Limit.class))).thenReturn(List.of(productoDTO, otro));
+
+        PaginaDTO<ProductoDTO> pagina = productoService.obtenerPaginaProductos(null, 1, "id");
+
+        assertEquals(1, pagina.getContenido().size());
+        assertEquals(10L, pagina.getContenido().get(0).getId());
+        assertNotNull(pagina.getSiguienteCursor());
+
+        // El cursor devuelto continúa exactamente después del último ID de la página
+        when(productoRepository.findPaginaPorId(eq(10L), any(Limit.class))).thenReturn(List.of(otro));
+
+        PaginaDTO<ProductoDTO> siguiente = productoService.obtenerPaginaProductos(pagina.getSiguienteCursor(), 1, "id");
+
+        assertEquals(11L, siguiente.getContenido().get(0).getId());
+        assertNull(siguiente.getSiguienteCursor());
+    }
+
+    @Test
+    void obtenerPaginaProductos_conCursorInvalido_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            productoService.obtenerPaginaProductos("no-es-un-cursor", 10, "id");
+        });
+        verifyNoInteractions(productoRepository);
+    }
+
     @Test
     void obtenerProductoPorId_cuandoExiste_deberiaDevolverDTO() {
 
-        when(productoRepository.findById(10L)).thenReturn(Optional.of(producto));
+        when(productoRepository.findDTOById(10L)).thenReturn(Optional.of(productoDTO));
 
         ProductoDTO resultado = productoService.obtenerProductoPorId(10L);
 
@@ -74,10 +130,32 @@ class ProductoServiceTest {
         assertEquals(10L, resultado.getId());
     }
 
+    @Test
+    void obtenerProductosPorIds_deberiaResolverTodosConUnaConsulta() {
+
+        when(productoRepository.findDTOsByIds(any())).thenReturn(List.of(productoDTO));
+
+        List<ProductoDTO> resultado = productoService.obtenerProductosPorIds(List.of(10L, 10L, 99L));
+
+        assertEquals(1, resultado.size());
+        verify(productoRepository, times(1)).findDTOsByIds(Set.of(10L, 99L));
+    }
+
+    @Test
+    void obtenerProductosPorIds_conDemasiadosIds_deberiaLanzarExcepcion() {
+
+        List<Long> ids = LongStream.rangeClosed(1, ProductoService.MAXIMO_IDS_POR_CONSULTA + 1).boxed().toList();
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            productoService.obtenerProductosPorIds(ids);
+        });
+        verifyNoInteractions(productoRepository);
+    }
+
     @Test
     void obtenerProductoPorId_cuandoNoExiste_deberiaLanzarExcepcion() {
 
-        when(productoRepository.findById(99L)).thenReturn(Optional.empty());
+        when(productoRepository.findDTOById(99L)).thenReturn(Optional.empty());
 
         assertThrows(ProductoNoEncontradoException.class, () -> {
             productoService.obtenerProductoPorId(99L);
@@ -107,6 +185,29 @@ class ProductoServiceTest {
         Producto productoGuardado = productoCaptor.getValue();
         assertNotNull(productoGuardado.getInventario());
         assertEquals(20, productoGuardado.getInventario().getCantidad());
+        verify(indiceBusqueda).indexar(1L, "Mouse", productoGuardado.getDescripcion());
+    }
+
+    @Test
+    void crearProducto_conPrecioDeMasDeDosDecimales_deberiaRedondearComoLaColumna() {
+
+        when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
+        when(productoRepository.save(any(Producto.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        productoRequest.setPrecio(new BigDecimal("19.995"));
+
+        ProductoDTO resultado = productoService.crearProducto(productoRequest);
+
+        assertEquals(new BigDecimal("20.00"), resultado.getPrecio());
+    }
+
+    @Test
+    void crearProducto_conPrecioFueraDeLaColumna_deberiaLanzarExcepcion() {
+
+        when(categoriaRepository.findById(1L)).thenReturn(Optional.of(categoria));
+        productoRequest.setPrecio(new BigDecimal("100000000.00")); // DECIMAL(10,2) admite hasta 99.999.999,99
+
+        assertThrows(ValidacionNegocioException.class, () -> productoService.crearProducto(productoRequest));
+        verify(productoRepository, never()).save(any());
     }
 
     @Test
@@ -134,29 +235,137 @@ class ProductoServiceTest {
         assertNotNull(resultado);
         assertEquals("Mouse Inalámbrico Pro", resultado.getNombre());
         verify(productoRepository, times(1)).save(producto);
+        verify(indiceBusqueda).indexar(eq(10L), eq("Mouse Inalámbrico Pro"), any());
+    }
+
+    @Test
+    void buscarProductos_deberiaDevolverLosProductosEnOrdenDeRelevancia() {
+
+        ProductoDTO otro = new ProductoDTO(11L, "Mouse pad", "Tela", BigDecimal.valueOf(5), "Electrónica", 8, false);
+        when(indiceBusqueda.buscar("mouse", 10)).thenReturn(List.of(
+                new IndiceBusquedaProductos.Coincidencia(11L, 2.5),
+                new IndiceBusquedaProductos.Coincidencia(10L, 1.2),
+                new IndiceBusquedaProductos.Coincidencia(12L, 0.4))); // Borrado, todavía en el índice
+        // La consulta IN devuelve los productos ordenados por ID, no por relevancia
+        when(productoRepository.findDTOsByIds(List.of(11L, 10L, 12L))).thenReturn(List.of(productoDTO, otro));
+
+        List<ResultadoBusquedaDTO> resultado = productoService.buscarProductos("mouse", 10);
+
+        assertEquals(2, resultado.size());
+        assertEquals(11L, resultado.get(0).getProducto().getId());
+        assertEquals(2.5, resultado.get(0).getPuntuacion());
+        assertEquals(10L, resultado.get(1).getProducto().getId());
+    }
+
+    @Test
+    void buscarProductos_sinTexto_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> productoService.buscarProductos("  ", 10));
+        verifyNoInteractions(indiceBusqueda, productoRepository);
+    }
+
+    @Test
+    void filtrarProductos_deberiaPaginarSobreElCatalogoColumnarConCursor() {
+
+        when(indiceFacetas.catalogo()).thenReturn(CatalogoColumnar.construir("v1", List.of(
+                new FilaCatalogoDTO(10L, "Mouse", "Inalámbrico", new BigDecimal("50.00"), 1L, "Electrónica", 20, false),
+                new FilaCatalogoDTO(11L, "Mouse pad", "Tela", new BigDecimal("5.00"), 1L, "Electrónica", 8, false),
+                new FilaCatalogoDTO(12L, "Teclado", "Mecánico", new BigDecimal("80.00"), 1L, "Electrónica", 0, true))));
+
+        ResultadoFiltroDTO primera = productoService.filtrarProductos(List.of(1L), new BigDecimal("5"), null,
+                true, null, null, 1);
+
+        assertEquals(2, primera.getTotal());
+        assertEquals(List.of(11L), primera.getContenido().stream().map(ProductoDTO::getId).toList());
+        assertNotNull(primera.getSiguienteCursor());
+
+        ResultadoFiltroDTO segunda = productoService.filtrarProductos(List.of(1L), new BigDecimal("5"), null,
+                true, null, primera.getSiguienteCursor(), 1);
+
+        assertEquals(List.of(10L), segunda.getContenido().stream().map(ProductoDTO::getId).toList());
+        assertNull(segunda.getSiguienteCursor());
+        verifyNoInteractions(productoRepository); // Se resuelve en memoria
+    }
+
+    @Test
+    void filtrarProductos_conPrecioMinimoMayorQueMaximo_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> productoService.filtrarProductos(
+                null, new BigDecimal("100"), new BigDecimal("10"), null, null, null, 50));
+        verifyNoInteractions(indiceFacetas);
+    }
+
+    @Test
+    void filtrarProductos_conCursorDeOtroOrden_deberiaLanzarExcepcion() {
+
+        String cursorPorPrecio = new CursorPagina(ProductoService.ORDEN_PRECIO, "50.00", 10L).codificar();
+
+        assertThrows(ValidacionNegocioException.class, () -> productoService.filtrarProductos(
+                null, null, null, null, null, cursorPorPrecio, 50));
     }
 
     @Test
     void buscarPorCategoriaNombre_cuandoCategoriaExiste_deberiaDevolverProductos() {
 
-        when(categoriaRepository.findByNombre("Electrónica")).thenReturn(Optional.of(categoria));
-        when(productoRepository.findByCategoriaId(1L)).thenReturn(List.of(producto));
+        when(productoRepository.findDTOsByCategoriaNombre("Electrónica")).thenReturn(List.of(productoDTO));
 
         List<ProductoDTO> resultado = productoService.buscarPorCategoriaNombre("Electrónica");
 
         assertFalse(resultado.isEmpty());
         assertEquals("Mouse", resultado.get(0).getNombre());
+        verifyNoInteractions(categoriaRepository); // Sin consulta previa de la categoría
     }
 
     @Test
     void buscarPorCategoriaNombre_cuandoCategoriaNoExiste_deberiaDevolverListaVacia() {
 
-        when(categoriaRepository.findByNombre("Inexistente")).thenReturn(Optional.empty());
+        when(productoRepository.findDTOsByCategoriaNombre("Inexistente")).thenReturn(List.of());
 
         List<ProductoDTO> resultado = productoService.buscarPorCategoriaNombre("Inexistente");
 
         assertTrue(resultado.isEmpty());
-        verify(productoRepository, never()).findByCategoriaId(anyLong());
+    }
+
+    @Test
+    void obtenerPaginaProductosDeCategoria_porNombre_deberiaContinuarDesdeElCursor() {
+
+        ProductoDTO otro = new ProductoDTO(11L, "Teclado", "Mecánico", BigDecimal.valueOf(80), "Electrónica", 3, true);
+        when(productoRepository.findPrimeraPaginaDeCategoriaPorNombre(eq(1L), any(Limit.class))).thenReturn(List.of(productoDTO, otro));
+
+        PaginaDTO<ProductoDTO> pagina = productoService.obtenerPaginaProductosDeCategoria(1L, null, 1, "nombre");
+
+        assertEquals(1, pagina.getContenido().size());
+        assertNotNull(pagina.getSiguienteCursor());
+
+        // El cursor lleva el nombre y el ID del último producto devuelto
+        when(productoRepository.findPaginaDeCategoriaPorNombre(eq(1L), eq(productoDTO.getNombre()), eq(10L), any(Limit.class)))
+                .thenReturn(List.of(otro));
+
+        PaginaDTO<ProductoDTO> siguiente = productoService.obtenerPaginaProductosDeCategoria(1L, pagina.getSiguienteCursor(), 1, "nombre");
+
+        assertEquals(11L, siguiente.getContenido().get(0).getId());
+        assertNull(siguiente.getSiguienteCursor());
+        verify(categoriaRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void obtenerPaginaProductosDeCategoria_cuandoCategoriaNoExiste_deberiaLanzarExcepcion() {
+
+        when(productoRepository.findPaginaDeCategoriaPorId(eq(99L), eq(0L), any(Limit.class))).thenReturn(List.of());
+        when(categoriaRepository.existsById(99L)).thenReturn(false);
+
+        assertThrows(CategoriaNoEncontradaException.class, () -> {
+            productoService.obtenerPaginaProductosDeCategoria(99L, null, 10, "id");
+        });
+    }
+
+    @Test
+    void obtenerPaginaProductosDeCategoria_conOrdenInvalido_deberiaLanzarExcepcion() {
+
+        assertThrows(ValidacionNegocioException.class, () -> {
+            productoService.obtenerPaginaProductosDeCategoria(1L, null, 10, "stock");
+        });
+        verifyNoInteractions(productoRepository);
     }
 
     @Test
@@ -168,5 +377,18 @@ class ProductoServiceTest {
         assertDoesNotThrow(() -> productoService.eliminarProducto(10L));
 
         verify(productoRepository, times(1)).deleteById(10L);
+        verify(indiceBusqueda).eliminar(10L);
+    }
+
+    @Test
+    void eliminarProducto_conInventarioEnMemoria_deberiaDarloDeBajaEnElMotor() {
+        MotorInventarioMemoria motorMemoria = mock(MotorInventarioMemoria.class);
+        ProductoService servicioEnMemoria = new ProductoService(productoRepository, categoriaRepository, versionCatalogo,
+                indiceBusqueda, indiceFacetas, motorMemoria);
+        when(productoRepository.existsById(10L)).thenReturn(true);
+
+        servicioEnMemoria.eliminarProducto(10L);
+
+        verify(motorMemoria).eliminar(10L);
     }
 }
\ No newline at end of file